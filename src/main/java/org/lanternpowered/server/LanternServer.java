@@ -47,6 +47,7 @@
 import org.lanternpowered.server.game.version.LanternMinecraftVersion;
 import org.lanternpowered.server.network.NetworkManager;
 import org.lanternpowered.server.network.ProxyType;
+import org.lanternpowered.server.network.metrics.MetricsServer;
 import org.lanternpowered.server.network.protocol.ProtocolState;
 import org.lanternpowered.server.network.query.QueryServer;
 import org.lanternpowered.server.network.rcon.RconServer;
@@ -55,12 +56,15 @@
 import org.lanternpowered.server.service.CloseableService;
 import org.lanternpowered.server.service.LanternServiceManager;
 import org.lanternpowered.server.text.LanternTexts;
+import org.lanternpowered.server.tick.TickLoop;
+import org.lanternpowered.server.timings.TickPhase;
+import org.lanternpowered.server.timings.TickRecorder;
+import org.lanternpowered.server.timings.Timings;
 import org.lanternpowered.server.util.SecurityHelper;
 import org.lanternpowered.server.util.ShutdownMonitorThread;
 import org.lanternpowered.server.world.LanternWorldManager;
 import org.lanternpowered.server.world.chunk.LanternChunkLayout;
 import org.slf4j.Logger;
-import org.spongepowered.api.Server;
 import org.spongepowered.api.command.source.ConsoleSource;
 import org.spongepowered.api.entity.living.player.Player;
 import org.spongepowered.api.event.SpongeEventFactory;
@@ -101,19 +105,17 @@
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nullable;
 
 @Singleton
-public final class LanternServer implements Server {
+public final class LanternServer implements org.lanternpowered.api.Server {
 
-    // The executor service for the server ticks
-    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(
-            runnable -> this.mainThread = new Thread(runnable, "server"));
+    // The loop that pulses the server
+    @SuppressWarnings("NullableProblems")
+    private TickLoop tickLoop;
 
     @SuppressWarnings("NullableProblems")
     private Thread mainThread;
@@ -139,6 +141,9 @@ public final class LanternServer implements Server {
     // The rcon server/service
     @Nullable private RconServer rconServer;
 
+    // The metrics server
+    @Nullable private MetricsServer metricsServer;
+
     // The query server
     @Nullable private QueryServer queryServer;
 
@@ -154,6 +159,9 @@ public final class LanternServer implements Server {
     // The amount of ticks the server is running
     private final AtomicInteger runningTimeTicks = new AtomicInteger(0);
 
+    // The recorder of the server tick durations
+    private final TickRecorder tickRecorder = new TickRecorder("server", TickPhase.SERVER_PHASES);
+
     // All the players by their name
     private final Map<String, LanternPlayer> playersByName = Maps.newConcurrentMap();
 
@@ -213,6 +221,10 @@ void start() throws IOException {
             this.rconServer = new RconServer(globalConfig.getRconPassword());
             this.game.getServiceManager().setProvider(this.pluginContainer, RconService.class, this.rconServer);
         }
+        // Enable the metrics server if needed
+        if (globalConfig.isMetricsEnabled()) {
+            this.metricsServer = new MetricsServer();
+        }
         if (globalConfig.getProxyType() == ProxyType.NONE && !globalConfig.isOnlineMode()) {
             this.logger.warn("It is not recommend to run the server in offline mode, this allows people to");
             this.logger.warn("choose any username they want. The server does will use the account attached");
@@ -244,6 +256,7 @@ void start() throws IOException {
         }
         bindQuery();
         bindRcon();
+        bindMetrics();
 
         this.logger.info("Ready for connections.");
         this.worldManager.init();
@@ -282,16 +295,10 @@ void start() throws IOException {
             }
         }
 
-        // Initialize a CauseStack on the server thread.
-        this.executor.submit(() -> CauseStack.set(new LanternCauseStack()));
-        // Start server ticking.
-        this.executor.scheduleAtFixedRate(() -> {
-            try {
-                pulse();
-            } catch (Exception e) {
-                this.logger.error("Error while pulsing", e);
-            }
-        }, 0, LanternGame.TICK_DURATION, TimeUnit.MILLISECONDS);
+        // Start server ticking, a CauseStack is initialized on the server thread.
+        this.tickLoop = new TickLoop(this.logger, "server", () -> CauseStack.set(new LanternCauseStack()), this::pulse);
+        this.mainThread = this.tickLoop.getThread();
+        this.tickLoop.start();
 
         this.game.postGameStateChange(SpongeEventFactory.createGameStartedServerEvent(gameCause));
     }
@@ -361,18 +368,52 @@ private void bindRcon() {
         }
     }
 
+    private void bindMetrics() {
+        if (this.metricsServer == null) {
+            return;
+        }
+
+        final String ip = this.game.getGlobalConfig().getMetricsIp();
+        final int port = this.game.getGlobalConfig().getMetricsPort();
+        final InetSocketAddress address = ip.isEmpty() ? new InetSocketAddress(port) : new InetSocketAddress(ip, port);
+        final boolean useEpollWhenAvailable = this.game.getGlobalConfig().useMetricsEpollWhenAvailable();
+        this.game.getLogger().info("Binding metrics to address: " + address + "...");
+
+        final ChannelFuture future = this.metricsServer.init(address, useEpollWhenAvailable);
+        final Channel channel = future.awaitUninterruptibly().channel();
+        if (!channel.isActive()) {
+            this.game.getLogger().warn("Failed to bind metrics. Address already in use?");
+        }
+    }
+
     /**
      * Pulses (ticks) the game.
      */
     private void pulse() {
+        this.tickRecorder.start();
         this.runningTimeTicks.incrementAndGet();
+        Timings.tick();
         // Pulse the network sessions
         this.networkManager.pulseSessions();
+        this.tickRecorder.mark(TickPhase.NETWORK);
         // Pulse the sync scheduler tasks
         this.game.getScheduler().pulseSyncScheduler();
+        this.tickRecorder.mark(TickPhase.SCHEDULER);
         // Pulse the world threads
-        this.worldManager.pulse();
+        this.worldManager.pulse(this.tickLoop.getTickDeadline());
+        this.tickRecorder.mark(TickPhase.WORLDS);
         AdvancementTrees.INSTANCE.pulse();
+        this.tickRecorder.mark(TickPhase.ADVANCEMENTS);
+        this.tickRecorder.end();
+    }
+
+    /**
+     * Gets the {@link TickRecorder} of the server ticks.
+     *
+     * @return The tick recorder
+     */
+    public TickRecorder getTickRecorder() {
+        return this.tickRecorder;
     }
 
     /**
@@ -618,12 +659,17 @@ public void shutdown(Text kickMessage) {
         if (this.rconServer != null) {
             this.rconServer.shutdown();
         }
+        if (this.metricsServer != null) {
+            this.metricsServer.shutdown();
+        }
 
         // Stop the world manager
         this.worldManager.shutdown();
 
-        // Shutdown the executor
-        this.executor.shutdown();
+        // Stop the tick loop
+        if (this.tickLoop != null) {
+            this.tickLoop.stop();
+        }
 
         // Stop the async scheduler
         this.game.getScheduler().shutdownAsyncScheduler(5, TimeUnit.SECONDS);
@@ -693,7 +739,9 @@ public ChunkTicketManager getChunkTicketManager() {
 
     @Override
     public double getTicksPerSecond() {
-        return LanternGame.TICKS_PER_SECOND; // TODO
+        // The average of the last 5 seconds
+        final double ticksPerSecond = this.tickRecorder.snapshot(LanternGame.TICKS_PER_SECOND * 5).getTicksPerSecond();
+        return ticksPerSecond == 0.0 ? LanternGame.TICKS_PER_SECOND : Math.min(ticksPerSecond, LanternGame.TICKS_PER_SECOND);
     }
 
     @Override
@@ -711,6 +759,20 @@ public void setPlayerIdleTimeout(int timeout) {
         this.game.getGlobalConfig().setPlayerIdleTimeout(timeout);
     }
 
+    /**
+     * Gets the {@link TickLoop} that pulses the server.
+     *
+     * @return The tick loop
+     */
+    public TickLoop getTickLoop() {
+        return this.tickLoop;
+    }
+
+    @Override
+    public boolean isOverloaded() {
+        return this.tickLoop != null && this.tickLoop.isOverloaded();
+    }
+
     @Override
     public boolean isMainThread() {
         return Thread.currentThread() == this.mainThread;
@@ -26,24 +26,34 @@
 package org.lanternpowered.server.block;
 
 import com.google.common.base.MoreObjects;
-import org.lanternpowered.server.game.LanternGame;
 import org.spongepowered.api.block.ScheduledBlockUpdate;
 import org.spongepowered.api.world.Location;
 import org.spongepowered.api.world.World;
 
+import javax.annotation.Nullable;
+
 public class LanternScheduledBlockUpdate implements ScheduledBlockUpdate, Comparable<LanternScheduledBlockUpdate> {
 
+    private final ScheduledBlockUpdateWheel wheel;
     private final Location<World> location;
+    private final long entryId;
+
+    // The following fields are guarded by the wheel
 
-    private long endTicks;
+    long targetTick;
     private int priority;
-    private int entryId;
 
-    public LanternScheduledBlockUpdate(int entryId, Location<World> location, int ticks, int priority) {
-        this.setTicks(ticks);
-        this.priority = priority;
-        this.location = location;
+    // The bucket of the wheel this update is linked in, or null if the update is removed
+    @Nullable ScheduledBlockUpdateWheel.Bucket bucket;
+    @Nullable LanternScheduledBlockUpdate previous;
+    @Nullable LanternScheduledBlockUpdate next;
+
+    LanternScheduledBlockUpdate(ScheduledBlockUpdateWheel wheel, long entryId, Location<World> location, long targetTick, int priority) {
+        this.wheel = wheel;
         this.entryId = entryId;
+        this.location = location;
+        this.targetTick = targetTick;
+        this.priority = priority;
     }
 
     @Override
@@ -53,12 +63,12 @@ public Location<World> getLocation() {
 
     @Override
     public int getTicks() {
-        return (int) (this.endTicks - LanternGame.currentTimeTicks());
+        return this.wheel.getRemainingTicks(this);
     }
 
     @Override
     public void setTicks(int ticks) {
-        this.endTicks = LanternGame.currentTimeTicks() + ticks;
+        this.wheel.reschedule(this, ticks);
     }
 
     @Override
@@ -68,27 +78,29 @@ public int getPriority() {
 
     @Override
     public void setPriority(int priority) {
+        // The priority is only used to order the updates of the same
+        // tick when they are dispatched, so no need to reschedule
         this.priority = priority;
     }
 
+    /**
+     * Gets whether this update is still waiting to be dispatched.
+     *
+     * @return Is scheduled
+     */
+    public boolean isScheduled() {
+        return this.bucket != null;
+    }
+
     @Override
     public int compareTo(LanternScheduledBlockUpdate o) {
-        if (this.endTicks < o.endTicks) {
-            return -1;
-        }
-        if (this.endTicks > o.endTicks) {
-            return 1;
+        if (this.targetTick != o.targetTick) {
+            return Long.compare(this.targetTick, o.targetTick);
         }
         if (this.priority != o.priority) {
-            return this.priority - o.priority;
-        }
-        if (this.entryId < o.entryId) {
-            return -1;
-        }
-        if (this.entryId > o.entryId) {
-            return 1;
+            return Integer.compare(this.priority, o.priority);
         }
-        return 0;
+        return Long.compare(this.entryId, o.entryId);
     }
 
     @Override
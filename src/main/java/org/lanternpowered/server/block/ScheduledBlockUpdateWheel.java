@@ -0,0 +1,337 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.block;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.collect.ImmutableList;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.spongepowered.api.block.ScheduledBlockUpdate;
+import org.spongepowered.api.world.Location;
+import org.spongepowered.api.world.World;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+/**
+ * A hierarchical timing wheel that holds all the {@link ScheduledBlockUpdate}s
+ * of a world, bucketed by the game tick they should be dispatched at.
+ * <p>
+ * Adding and removing updates are constant time operations, updates that
+ * are scheduled further in the future are stored in coarser levels of the
+ * wheel and cascade down into the finer levels as time progresses. The
+ * updates that are due in the same tick are dispatched in the order of
+ * their priority, and then in the order they were scheduled.
+ */
+public final class ScheduledBlockUpdateWheel {
+
+    // The amount of bits of the slots of every level of the wheel, the
+    // first level represents single ticks, the other levels represent
+    // all the ticks of one complete rotation of the previous level
+    private static final int[] DEFAULT_LEVEL_BITS = { 8, 6, 6, 6 };
+
+    static final class Bucket {
+
+        @Nullable private LanternScheduledBlockUpdate head;
+    }
+
+    // A marker bucket for updates that are waiting to be dispatched
+    private static final Bucket DISPATCHING = new Bucket();
+
+    private final World world;
+    private final int[] levelBits;
+    private final int[] levelShifts;
+
+    // The amount of ticks that can be stored in the wheel, the updates
+    // that are scheduled further in the future are kept in an overflow bucket
+    private final int totalBits;
+
+    private final Bucket[][] levels;
+    private final Bucket overflow = new Bucket();
+
+    // All the scheduled updates mapped by their block position
+    private final Long2ObjectMap<List<LanternScheduledBlockUpdate>> updatesByPosition = new Long2ObjectOpenHashMap<>();
+
+    // The updates that are being dispatched, only used by the ticking thread
+    private final List<LanternScheduledBlockUpdate> dueUpdates = new ArrayList<>();
+
+    private long currentTick;
+    private long entryCounter;
+    private int size;
+
+    public ScheduledBlockUpdateWheel(World world) {
+        this(world, DEFAULT_LEVEL_BITS);
+    }
+
+    /**
+     * Constructs a new wheel with the given amount of bits for every level.
+     *
+     * @param world The world
+     * @param levelBits The amount of bits of the slots of every level
+     */
+    ScheduledBlockUpdateWheel(World world, int... levelBits) {
+        this.world = checkNotNull(world, "world");
+        checkArgument(levelBits.length > 0, "At least one level is required");
+        this.levelBits = levelBits.clone();
+        this.levelShifts = new int[levelBits.length];
+        int shift = 0;
+        for (int i = 0; i < levelBits.length; i++) {
+            this.levelShifts[i] = shift;
+            shift += levelBits[i];
+        }
+        checkArgument(shift < 63, "Too many level bits");
+        this.totalBits = shift;
+        this.levels = new Bucket[levelBits.length][];
+        for (int i = 0; i < this.levels.length; i++) {
+            final Bucket[] buckets = new Bucket[1 << levelBits[i]];
+            for (int j = 0; j < buckets.length; j++) {
+                buckets[j] = new Bucket();
+            }
+            this.levels[i] = buckets;
+        }
+    }
+
+    /**
+     * Gets the current tick of this wheel.
+     *
+     * @return The current tick
+     */
+    public synchronized long getCurrentTick() {
+        return this.currentTick;
+    }
+
+    /**
+     * Gets the amount of scheduled updates.
+     *
+     * @return The size
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    /**
+     * Schedules a new update at the given block position.
+     *
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @param priority The priority
+     * @param ticks The amount of ticks until the update is dispatched
+     * @return The scheduled update
+     */
+    public synchronized LanternScheduledBlockUpdate add(int x, int y, int z, int priority, int ticks) {
+        final Location<World> location = new Location<>(this.world, x, y, z);
+        final LanternScheduledBlockUpdate update = new LanternScheduledBlockUpdate(
+                this, this.entryCounter++, location, getTargetTick(ticks), priority);
+        insert(update);
+        this.updatesByPosition.computeIfAbsent(key(x, y, z), key -> new ArrayList<>(2)).add(update);
+        this.size++;
+        return update;
+    }
+
+    /**
+     * Removes the scheduled update, if it wasn't dispatched yet.
+     *
+     * @param update The update
+     */
+    public synchronized void remove(ScheduledBlockUpdate update) {
+        checkNotNull(update, "update");
+        if (!(update instanceof LanternScheduledBlockUpdate)) {
+            return;
+        }
+        final LanternScheduledBlockUpdate update0 = (LanternScheduledBlockUpdate) update;
+        if (update0.bucket == null) {
+            return;
+        }
+        unlink(update0);
+        update0.bucket = null;
+        removeFromPosition(update0);
+    }
+
+    /**
+     * Gets all the scheduled updates at the given block position.
+     *
+     * @param x The x coordinate
+     * @param y The y coordinate
+     * @param z The z coordinate
+     * @return The scheduled updates
+     */
+    public synchronized Collection<ScheduledBlockUpdate> getUpdates(int x, int y, int z) {
+        final List<LanternScheduledBlockUpdate> updates = this.updatesByPosition.get(key(x, y, z));
+        return updates == null ? ImmutableList.of() : ImmutableList.copyOf(updates);
+    }
+
+    synchronized int getRemainingTicks(LanternScheduledBlockUpdate update) {
+        return (int) (update.targetTick - this.currentTick);
+    }
+
+    synchronized void reschedule(LanternScheduledBlockUpdate update, int ticks) {
+        final long targetTick = getTargetTick(ticks);
+        if (update.bucket == null) {
+            // Already dispatched or removed
+            update.targetTick = targetTick;
+            return;
+        }
+        unlink(update);
+        update.targetTick = targetTick;
+        insert(update);
+    }
+
+    /**
+     * Advances the wheel by one tick and dispatches all the updates that
+     * are due. Updates that are scheduled or removed by the dispatcher
+     * will be respected.
+     *
+     * @param dispatcher The dispatcher of the updates
+     */
+    public void pulse(Consumer<LanternScheduledBlockUpdate> dispatcher) {
+        final List<LanternScheduledBlockUpdate> dueUpdates = this.dueUpdates;
+        synchronized (this) {
+            final long tick = ++this.currentTick;
+            // Nothing to do
+            if (this.size == 0) {
+                return;
+            }
+            cascade(tick);
+            final Bucket bucket = this.levels[0][(int) (tick & ((1 << this.levelBits[0]) - 1))];
+            LanternScheduledBlockUpdate update = bucket.head;
+            while (update != null) {
+                final LanternScheduledBlockUpdate next = update.next;
+                update.previous = null;
+                update.next = null;
+                update.bucket = DISPATCHING;
+                dueUpdates.add(update);
+                update = next;
+            }
+            bucket.head = null;
+        }
+        if (dueUpdates.isEmpty()) {
+            return;
+        }
+        dueUpdates.sort(null);
+        try {
+            for (LanternScheduledBlockUpdate update : dueUpdates) {
+                synchronized (this) {
+                    // Removed or rescheduled by a previous update
+                    if (update.bucket != DISPATCHING) {
+                        continue;
+                    }
+                    update.bucket = null;
+                    removeFromPosition(update);
+                }
+                dispatcher.accept(update);
+            }
+        } finally {
+            dueUpdates.clear();
+        }
+    }
+
+    private long getTargetTick(int ticks) {
+        // Updates are dispatched at the earliest in the next tick
+        return this.currentTick + Math.max(1, ticks);
+    }
+
+    private void cascade(long tick) {
+        if ((tick & ((1L << this.totalBits) - 1)) == 0) {
+            reinsert(this.overflow);
+        }
+        // Move the updates of the slots that are reached into the
+        // finer levels, starting from the coarsest level
+        for (int level = this.levelBits.length - 1; level > 0; level--) {
+            final int shift = this.levelShifts[level];
+            if ((tick & ((1L << shift) - 1)) == 0) {
+                reinsert(this.levels[level][(int) ((tick >> shift) & ((1 << this.levelBits[level]) - 1))]);
+            }
+        }
+    }
+
+    private void reinsert(Bucket bucket) {
+        LanternScheduledBlockUpdate update = bucket.head;
+        bucket.head = null;
+        while (update != null) {
+            final LanternScheduledBlockUpdate next = update.next;
+            update.previous = null;
+            update.next = null;
+            insert(update);
+            update = next;
+        }
+    }
+
+    private void insert(LanternScheduledBlockUpdate update) {
+        final long delta = update.targetTick - this.currentTick;
+        Bucket bucket = this.overflow;
+        for (int level = 0; level < this.levelBits.length; level++) {
+            final int shift = this.levelShifts[level];
+            if (delta < (1L << (shift + this.levelBits[level]))) {
+                bucket = this.levels[level][(int) ((update.targetTick >> shift) & ((1 << this.levelBits[level]) - 1))];
+                break;
+            }
+        }
+        update.bucket = bucket;
+        update.previous = null;
+        update.next = bucket.head;
+        if (bucket.head != null) {
+            bucket.head.previous = update;
+        }
+        bucket.head = update;
+    }
+
+    private void unlink(LanternScheduledBlockUpdate update) {
+        final Bucket bucket = update.bucket;
+        if (bucket != null && bucket != DISPATCHING) {
+            if (update.previous != null) {
+                update.previous.next = update.next;
+            } else {
+                bucket.head = update.next;
+            }
+            if (update.next != null) {
+                update.next.previous = update.previous;
+            }
+        }
+        update.previous = null;
+        update.next = null;
+    }
+
+    private void removeFromPosition(LanternScheduledBlockUpdate update) {
+        final Location<World> location = update.getLocation();
+        final long key = key(location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        final List<LanternScheduledBlockUpdate> updates = this.updatesByPosition.get(key);
+        if (updates != null && updates.remove(update) && updates.isEmpty()) {
+            this.updatesByPosition.remove(key);
+        }
+        this.size--;
+    }
+
+    private static long key(int x, int y, int z) {
+        return ((long) x & 0x3ffffff) << 38 | ((long) z & 0x3ffffff) << 12 | (long) y & 0xfff;
+    }
+}
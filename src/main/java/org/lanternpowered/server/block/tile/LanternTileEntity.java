@@ -48,12 +48,27 @@ public abstract class LanternTileEntity implements TileEntity, IAdditionalDataHo
 
     private static boolean bypassEntityTypeLookup;
 
+    // Whether the tile entity class overrides the pulse method
+    private static final ClassValue<Boolean> tickable = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return type.getMethod("pulse").getDeclaringClass() != LanternTileEntity.class;
+            } catch (NoSuchMethodException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    };
+
     private final TileEntityType tileEntityType;
     private final ValueCollection valueCollection = ValueCollection.create();
     private final AdditionalContainerCollection<DataManipulator<?, ?>> additionalContainers = AdditionalContainerCollection.createConcurrent();
     private volatile Location<World> location;
     private volatile boolean valid;
 
+    // The index of this tile entity in the ticked tile entities of the world, or -1
+    private int tickIndex = -1;
+
     protected LanternTileEntity() {
         if (!bypassEntityTypeLookup) {
             this.tileEntityType = TileEntityTypeRegistryModule.get().getByClass(this.getClass()).orElseThrow(
@@ -74,6 +89,24 @@ protected void registerKeys() {
     public void pulse() {
     }
 
+    /**
+     * Gets whether this {@link LanternTileEntity} needs to
+     * be pulsed, which is when {@link #pulse()} is overridden.
+     *
+     * @return Is tickable
+     */
+    public final boolean isTickable() {
+        return tickable.get(getClass());
+    }
+
+    public int getTickIndex() {
+        return this.tickIndex;
+    }
+
+    public void setTickIndex(int tickIndex) {
+        this.tickIndex = tickIndex;
+    }
+
     @Override
     public ValueCollection getValueCollection() {
         return this.valueCollection;
@@ -0,0 +1,137 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.command;
+
+import static org.lanternpowered.server.text.translation.TranslationHelper.t;
+
+import org.lanternpowered.server.command.element.GenericArguments2;
+import org.lanternpowered.server.game.Lantern;
+import org.lanternpowered.server.timings.Timing;
+import org.lanternpowered.server.timings.TimingCategory;
+import org.lanternpowered.server.timings.Timings;
+import org.spongepowered.api.command.CommandException;
+import org.spongepowered.api.command.CommandResult;
+import org.spongepowered.api.command.args.GenericArguments;
+import org.spongepowered.api.command.spec.CommandSpec;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.text.Text;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public final class CommandTimings extends CommandProvider {
+
+    private static final DateTimeFormatter FILE_NAME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH.mm.ss");
+
+    /**
+     * The maximum amount of timings that will be shown in a report.
+     */
+    private static final int MAX_REPORT_ENTRIES = 10;
+
+    public CommandTimings() {
+        super(4, "timings");
+    }
+
+    @Override
+    public void completeSpec(PluginContainer pluginContainer, CommandSpec.Builder specBuilder) {
+        specBuilder
+                .description(t("commands.timings.description"))
+                .child(CommandSpec.builder()
+                        .executor((src, args) -> {
+                            Timings.setEnabled(true);
+                            src.sendMessage(t("commands.timings.enabled"));
+                            return CommandResult.success();
+                        })
+                        .build(), "on")
+                .child(CommandSpec.builder()
+                        .executor((src, args) -> {
+                            Timings.setEnabled(false);
+                            src.sendMessage(t("commands.timings.disabled"));
+                            return CommandResult.success();
+                        })
+                        .build(), "off")
+                .child(CommandSpec.builder()
+                        .executor((src, args) -> {
+                            Timings.reset();
+                            src.sendMessage(t("commands.timings.reset"));
+                            return CommandResult.success();
+                        })
+                        .build(), "reset")
+                .child(CommandSpec.builder()
+                        .arguments(
+                                GenericArguments.optional(GenericArguments2.enumValue(Text.of("category"), TimingCategory.class))
+                        )
+                        .executor((src, args) -> {
+                            final Optional<TimingCategory> category = args.getOne("category");
+                            final long ticks = Math.max(1, Timings.getTicks());
+                            final List<Timing> timings = Timings.getTimings();
+                            if (category.isPresent()) {
+                                timings.removeIf(timing -> timing.getCategory() != category.get());
+                            }
+                            src.sendMessage(t("commands.timings.report.header", Timings.getTicks(),
+                                    String.format("%.1f", Timings.getDurationNanos() / 1000000000.0)));
+                            for (Map.Entry<String, Long> entry : Timings.getTotalNanosByPlugin(timings)) {
+                                src.sendMessage(t("commands.timings.report.plugin", entry.getKey(), formatMillis(entry.getValue() / (double) ticks)));
+                            }
+                            for (Timing timing : timings.subList(0, Math.min(MAX_REPORT_ENTRIES, timings.size()))) {
+                                src.sendMessage(t("commands.timings.report.entry", timing.getCategory().getId(), timing.getPluginId(),
+                                        timing.getName(), String.format("%.2f", timing.getCount() / (double) ticks),
+                                        formatMillis(timing.getTotalNanos() / (double) ticks), formatMillis(timing.getMaxNanos())));
+                            }
+                            return CommandResult.builder().successCount(1).queryResult(timings.size()).build();
+                        })
+                        .build(), "report")
+                .child(CommandSpec.builder()
+                        .executor((src, args) -> {
+                            final Path directory = Lantern.getGame().getGameDirectory().resolve("timings");
+                            final Path file = directory.resolve("timings-" + LocalDateTime.now().format(FILE_NAME_FORMATTER) + ".json");
+                            try {
+                                Files.createDirectories(directory);
+                                try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                                    Timings.writeJson(writer);
+                                }
+                            } catch (IOException e) {
+                                Lantern.getLogger().error("Failed to write the timings to {}", file, e);
+                                throw new CommandException(t("commands.timings.dump.failed", file.toString()), e);
+                            }
+                            src.sendMessage(t("commands.timings.dump.success", file.toString()));
+                            return CommandResult.success();
+                        })
+                        .build(), "dump");
+    }
+
+    private static String formatMillis(double nanos) {
+        return String.format("%.3f", nanos / 1000000.0);
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.command;
+
+import static org.lanternpowered.server.text.translation.TranslationHelper.t;
+
+import org.lanternpowered.server.game.Lantern;
+import org.lanternpowered.server.game.LanternGame;
+import org.lanternpowered.server.tick.TickLoop;
+import org.lanternpowered.server.timings.TickPhase;
+import org.lanternpowered.server.timings.TickRecorder;
+import org.lanternpowered.server.world.LanternWorld;
+import org.spongepowered.api.command.CommandResult;
+import org.spongepowered.api.command.CommandSource;
+import org.spongepowered.api.command.spec.CommandSpec;
+import org.spongepowered.api.plugin.PluginContainer;
+import org.spongepowered.api.world.World;
+
+import java.util.concurrent.TimeUnit;
+
+public final class CommandTps extends CommandProvider {
+
+    public CommandTps() {
+        super(2, "tps");
+    }
+
+    @Override
+    public void completeSpec(PluginContainer pluginContainer, CommandSpec.Builder specBuilder) {
+        specBuilder
+                .description(t("commands.tps.description"))
+                .executor((src, args) -> {
+                    final TickRecorder recorder = Lantern.getServer().getTickRecorder();
+                    final TickRecorder.Snapshot snapshot = recorder.snapshot();
+                    final TickRecorder.Snapshot recentSnapshot = recorder.snapshot(LanternGame.TICKS_PER_SECOND * 5);
+                    src.sendMessage(t("commands.tps.header", String.format("%.2f", recentSnapshot.getTicksPerSecond()),
+                            String.format("%.2f", snapshot.getTicksPerSecond()), snapshot.getSkippedTicks()));
+                    final TickLoop tickLoop = Lantern.getServer().getTickLoop();
+                    src.sendMessage(t(tickLoop.isOverloaded() ? "commands.tps.overloaded" : "commands.tps.not_overloaded",
+                            TimeUnit.NANOSECONDS.toMillis(tickLoop.getLagNanos()), tickLoop.getSkippedTicks()));
+                    sendSnapshot(src, recorder, snapshot);
+                    for (World world : Lantern.getServer().getWorlds()) {
+                        final TickRecorder worldRecorder = ((LanternWorld) world).getTickRecorder();
+                        sendSnapshot(src, worldRecorder, worldRecorder.snapshot());
+                    }
+                    return CommandResult.success();
+                });
+    }
+
+    private static void sendSnapshot(CommandSource src, TickRecorder recorder, TickRecorder.Snapshot snapshot) {
+        src.sendMessage(t("commands.tps.mspt", recorder.getName(), formatMillis(snapshot.getAverageNanos()),
+                formatMillis(snapshot.getPercentileNanos(0.5)), formatMillis(snapshot.getPercentileNanos(0.95)),
+                formatMillis(snapshot.getPercentileNanos(0.99)), formatMillis(snapshot.getMaxNanos())));
+        final StringBuilder phases = new StringBuilder();
+        for (TickPhase phase : recorder.getPhases()) {
+            if (phases.length() > 0) {
+                phases.append(", ");
+            }
+            phases.append(phase.getId()).append(' ').append(formatMillis(snapshot.getAverageNanos(phase)));
+        }
+        src.sendMessage(t("commands.tps.phases", phases.toString()));
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.2f", nanos / 1000000.0);
+    }
+}
@@ -86,9 +86,11 @@ public void load() {
         commandProviders.put(this.minecraft, new CommandTeleport());
         commandProviders.put(this.minecraft, new CommandTell());
         commandProviders.put(this.minecraft, new CommandTime());
+        commandProviders.put(this.implementation, new CommandTimings());
         commandProviders.put(this.minecraft, new CommandTitle());
         commandProviders.put(this.minecraft, new CommandToggleDownfall());
         commandProviders.put(this.minecraft, new CommandTp());
+        commandProviders.put(this.implementation, new CommandTps());
         commandProviders.put(this.implementation, new CommandVersion());
         commandProviders.put(this.minecraft, new CommandWeather());
         commandProviders.put(this.minecraft, new CommandWhitelist());
@@ -89,6 +89,9 @@ private GlobalConfig(@Named(DirectoryKeys.CONFIG) Path configFolder) throws IOEx
     @Setting(value = "chat", comment = "Configuration for the chat.")
     private Chat chat = new Chat();
 
+    @Setting(value = "metrics", comment = "Configuration for the metrics server.")
+    private Metrics metrics = new Metrics();
+
     @ConfigSerializable
     private static class Commands {
 
@@ -113,6 +116,26 @@ private static final class Query {
         private boolean useEpollWhenAvailable = true;
     }
 
+    @ConfigSerializable
+    private static final class Metrics {
+
+        @Setting(value = ENABLED, comment =
+                "Whether the metrics server should be enabled. The server exposes\n " +
+                "the tick statistics in the prometheus text format on /metrics.")
+        private boolean enabled = false;
+
+        @Setting(value = "ip", comment =
+                "The ip address that should be bound, the metrics\n " +
+                "aren't protected, so keep them local.")
+        private String ip = "127.0.0.1";
+
+        @Setting(value = "port", comment = "The port that should be bound.")
+        private int port = 25580;
+
+        @Setting(value = "use-epoll-when-available", comment = "Enables epoll if it's supported by the os.")
+        private boolean useEpollWhenAvailable = true;
+    }
+
     @ConfigSerializable
     private static final class Rcon {
 
@@ -172,6 +195,11 @@ private static final class Server {
         @Setting(value = "network-compression-threshold")
         private int networkCompressionThreshold = 256;
 
+        @Setting(value = "network-compression-level", comment =
+                "The default compression level (0-9) of the network messages, -1 uses the default\n " +
+                "level of the compression backend. Lower levels use less cpu time.")
+        private int networkCompressionLevel = -1;
+
         @Setting(value = "chat-spam-threshold", comment =
                 "The minimum time between messages (in milliseconds) when they will be considered spam.")
         private int chatSpamThreshold = 200;
@@ -361,6 +389,10 @@ public int getNetworkCompressionThreshold() {
         return this.server.networkCompressionThreshold;
     }
 
+    public int getNetworkCompressionLevel() {
+        return this.server.networkCompressionLevel;
+    }
+
     public int getRconPort() {
         return this.rcon.port;
     }
@@ -385,6 +417,22 @@ public boolean getShowPluginsToQuery() {
         return this.query.showPlugins;
     }
 
+    public boolean isMetricsEnabled() {
+        return this.metrics.enabled;
+    }
+
+    public String getMetricsIp() {
+        return this.metrics.ip;
+    }
+
+    public int getMetricsPort() {
+        return this.metrics.port;
+    }
+
+    public boolean useMetricsEpollWhenAvailable() {
+        return this.metrics.useEpollWhenAvailable;
+    }
+
     public int getServerPort() {
         return this.server.port;
     }
@@ -59,6 +59,16 @@ private static class Chunks {
                 "Controls the number threshold at which the chunk data message\n " +
                 "is preferred over the multi block change message.")
         private int clumpingThreshold = 64;
+
+        @Setting(value = "sends-per-tick", comment =
+                "The maximum amount of chunks that will be send to a player every tick,\n " +
+                "closer chunks and chunks in the view direction are send first.")
+        private int sendsPerTick = 10;
+
+        @Setting(value = "auto-save-interval", comment =
+                "The interval in seconds between the automatic saves of the chunks,\n " +
+                "saving is spread over multiple ticks. Set to 0 to disable it.")
+        private int autoSaveInterval = 300;
     }
 
     @Setting(value = "pvp-enabled", comment = "Enable if this world allows PVP combat.")
@@ -154,6 +164,14 @@ public int getChunkClumpingThreshold() {
         return this.chunks.clumpingThreshold;
     }
 
+    public int getChunkSendsPerTick() {
+        return Math.max(1, this.chunks.sendsPerTick);
+    }
+
+    public int getAutoSaveInterval() {
+        return this.chunks.autoSaveInterval;
+    }
+
     public GameMode getGameMode() {
         return this.gameMode.mode;
     }
@@ -80,15 +80,15 @@ default <E> boolean transformFast(Key<? extends BaseValue<E>> key, Function<E, E
      */
     default <E> boolean offerFast(Key<? extends BaseValue<E>> key, E element) {
         // Check the local key registration
-        final KeyRegistration<?, ?> localKeyRegistration = (KeyRegistration<?, ?>) getValueCollection().get((Key) key).orElse(null);
+        final KeyRegistration<?, ?> localKeyRegistration = getValueCollection().getOrNull(key);
         if (localKeyRegistration != null) {
             return ((Processor<BaseValue<E>, E>) localKeyRegistration).offerFastTo(this, element);
         }
 
         // Check for a global registration
-        final Optional<ValueProcessorKeyRegistration> globalRegistration = LanternValueFactory.get().getKeyRegistration((Key) key);
-        if (globalRegistration.isPresent()) {
-            return ((Processor<BaseValue<E>, E>) globalRegistration.get()).offerFastTo(this, element);
+        final ValueProcessorKeyRegistration globalRegistration = LanternValueFactory.get().getKeyRegistrationOrNull(key);
+        if (globalRegistration != null) {
+            return ((Processor<BaseValue<E>, E>) globalRegistration).offerFastTo(this, element);
         }
 
         // Check if custom data is supported by this container
@@ -117,15 +117,15 @@ default <E> boolean offerFast(Key<? extends BaseValue<E>> key, E element) {
     @Override
     default <E> DataTransactionResult offer(Key<? extends BaseValue<E>> key, E element) {
         // Check the local key registration
-        final KeyRegistration<?, ?> localKeyRegistration = (KeyRegistration<?, ?>) getValueCollection().get((Key) key).orElse(null);
+        final KeyRegistration<?, ?> localKeyRegistration = getValueCollection().getOrNull(key);
         if (localKeyRegistration != null) {
             return ((Processor<BaseValue<E>, E>) localKeyRegistration).offerTo(this, element);
         }
 
         // Check for a global registration
-        final Optional<ValueProcessorKeyRegistration> globalRegistration = LanternValueFactory.get().getKeyRegistration((Key) key);
-        if (globalRegistration.isPresent()) {
-            return ((Processor<BaseValue<E>, E>) globalRegistration.get()).offerTo(this, element);
+        final ValueProcessorKeyRegistration globalRegistration = LanternValueFactory.get().getKeyRegistrationOrNull(key);
+        if (globalRegistration != null) {
+            return ((Processor<BaseValue<E>, E>) globalRegistration).offerTo(this, element);
         }
 
         // Check if custom data is supported by this container
@@ -177,15 +177,15 @@ default <E> boolean offerFast(BaseValue<E> value) {
         final Key<? extends BaseValue<E>> key = value.getKey();
 
         // Check the local key registration
-        final KeyRegistration<?, ?> localKeyRegistration = (KeyRegistration<?, ?>) getValueCollection().get((Key) key).orElse(null);
+        final KeyRegistration<?, ?> localKeyRegistration = getValueCollection().getOrNull(key);
         if (localKeyRegistration != null) {
             return ((Processor<BaseValue<E>, E>) localKeyRegistration).offerFastTo(this, value);
         }
 
         // Check for a global registration
-        final Optional<ValueProcessorKeyRegistration> globalRegistration = LanternValueFactory.get().getKeyRegistration((Key) key);
-        if (globalRegistration.isPresent()) {
-            return ((Processor<BaseValue<E>, E>) globalRegistration.get()).offerFastTo(this, value);
+        final ValueProcessorKeyRegistration globalRegistration = LanternValueFactory.get().getKeyRegistrationOrNull(key);
+        if (globalRegistration != null) {
+            return ((Processor<BaseValue<E>, E>) globalRegistration).offerFastTo(this, value);
         }
 
         // Check if custom data is supported by this container
@@ -218,15 +218,15 @@ default <E> DataTransactionResult offer(BaseValue<E> value) {
         final Key<? extends BaseValue<E>> key = value.getKey();
 
         // Check the local key registration
-        final KeyRegistration<?, ?> localKeyRegistration = (KeyRegistration<?, ?>) getValueCollection().get((Key) key).orElse(null);
+        final KeyRegistration<?, ?> localKeyRegistration = getValueCollection().getOrNull(key);
         if (localKeyRegistration != null) {
             return ((Processor<BaseValue<E>, E>) localKeyRegistration).offerTo(this, value);
         }
 
         // Check for a global registration
-        final Optional<ValueProcessorKeyRegistration> globalRegistration = LanternValueFactory.get().getKeyRegistration((Key) key);
-        if (globalRegistration.isPresent()) {
-            return ((Processor<BaseValue<E>, E>) globalRegistration.get()).offerTo(this, value);
+        final ValueProcessorKeyRegistration globalRegistration = LanternValueFactory.get().getKeyRegistrationOrNull(key);
+        if (globalRegistration != null) {
+            return ((Processor<BaseValue<E>, E>) globalRegistration).offerTo(this, value);
         }
 
         // Check if custom data is supported by this container
@@ -297,15 +297,15 @@ default boolean removeFast(Key<?> key) {
         checkNotNull(key, "key");
 
         // Check the local key registration
-        final KeyRegistration<?, ?> localKeyRegistration = (KeyRegistration<?, ?>) getValueCollection().get((Key) key).orElse(null);
+        final KeyRegistration<?, ?> localKeyRegistration = getValueCollection().getOrNull(key);
         if (localKeyRegistration != null) {
             return ((Processor<BaseValue<?>, ?>) localKeyRegistration).removeFastFrom(this);
         }
 
         // Check for a global registration
-        final Optional<ValueProcessorKeyRegistration> globalRegistration = LanternValueFactory.get().getKeyRegistration((Key) key);
-        if (globalRegistration.isPresent()) {
-            return ((Processor<BaseValue<?>, ?>) globalRegistration.get()).removeFastFrom(this);
+        final ValueProcessorKeyRegistration globalRegistration = LanternValueFactory.get().getKeyRegistrationOrNull(key);
+        if (globalRegistration != null) {
+            return ((Processor<BaseValue<?>, ?>) globalRegistration).removeFastFrom(this);
         }
 
         // Check if custom data is supported by this container
@@ -335,15 +335,15 @@ default DataTransactionResult remove(Key<?> key) {
         checkNotNull(key, "key");
 
         // Check the local key registration
-        final KeyRegistration<?, ?> localKeyRegistration = (KeyRegistration<?, ?>) getValueCollection().get((Key) key).orElse(null);
+        final KeyRegistration<?, ?> localKeyRegistration = getValueCollection().getOrNull(key);
         if (localKeyRegistration != null) {
             return ((Processor<BaseValue<?>, ?>) localKeyRegistration).removeFrom(this);
         }
 
         // Check for a global registration
-        final Optional<ValueProcessorKeyRegistration> globalRegistration = LanternValueFactory.get().getKeyRegistration((Key) key);
-        if (globalRegistration.isPresent()) {
-            return ((Processor<BaseValue<?>, ?>) globalRegistration.get()).removeFrom(this);
+        final ValueProcessorKeyRegistration globalRegistration = LanternValueFactory.get().getKeyRegistrationOrNull(key);
+        if (globalRegistration != null) {
+            return ((Processor<BaseValue<?>, ?>) globalRegistration).removeFrom(this);
         }
 
         // Check if custom data is supported by this container
@@ -142,15 +142,15 @@ default boolean supports(Key<?> key) {
         checkNotNull(key, "key");
 
         // Check the local key registration
-        final KeyRegistration<?, ?> localKeyRegistration = (KeyRegistration<?, ?>) getValueCollection().get((Key) key).orElse(null);
+        final KeyRegistration<?, ?> localKeyRegistration = getValueCollection().getOrNull(key);
         if (localKeyRegistration != null) {
             return ((Processor<BaseValue<?>, ?>) localKeyRegistration).isApplicableTo(this);
         }
 
         // Check for a global registration
-        final Optional<ValueProcessorKeyRegistration> globalRegistration = LanternValueFactory.get().getKeyRegistration((Key) key);
-        if (globalRegistration.isPresent()) {
-            return ((Processor<BaseValue<?>, ?>) globalRegistration.get()).isApplicableTo(this);
+        final ValueProcessorKeyRegistration globalRegistration = LanternValueFactory.get().getKeyRegistrationOrNull(key);
+        if (globalRegistration != null) {
+            return ((Processor<BaseValue<?>, ?>) globalRegistration).isApplicableTo(this);
         }
 
         // Check if custom data is supported by this container
@@ -173,15 +173,15 @@ default <E> Optional<E> get(Key<? extends BaseValue<E>> key) {
         checkNotNull(key, "key");
 
         // Check the local key registration
-        final KeyRegistration<BaseValue<E>, E> localKeyRegistration = getValueCollection().get(key).orElse(null);
+        final KeyRegistration<BaseValue<E>, E> localKeyRegistration = getValueCollection().getOrNull(key);
         if (localKeyRegistration != null) {
             return ((Processor<BaseValue<E>, E>) localKeyRegistration).getFrom(this);
         }
 
         // Check for a global registration
-        final Optional<ValueProcessorKeyRegistration<BaseValue<E>, E>> globalRegistration = LanternValueFactory.get().getKeyRegistration(key);
-        if (globalRegistration.isPresent()) {
-            return ((Processor<BaseValue<E>, E>) globalRegistration.get()).getFrom(this);
+        final ValueProcessorKeyRegistration<BaseValue<E>, E> globalRegistration = LanternValueFactory.get().getKeyRegistrationOrNull(key);
+        if (globalRegistration != null) {
+            return ((Processor<BaseValue<E>, E>) globalRegistration).getFrom(this);
         }
 
         // Check if custom data is supported by this container
@@ -202,15 +202,15 @@ default <E> Optional<E> get(Key<? extends BaseValue<E>> key) {
     @Override
     default <E, V extends BaseValue<E>> Optional<V> getRawValueFor(Key<V> key) {
         // Check the local key registration
-        final KeyRegistration<BaseValue<E>, E> localKeyRegistration = getValueCollection().get(key).orElse(null);
+        final KeyRegistration<BaseValue<E>, E> localKeyRegistration = getValueCollection().getOrNull(key);
         if (localKeyRegistration != null) {
             return ((Processor<V, E>) localKeyRegistration).getValueFrom(this);
         }
 
         // Check for a global registration
-        final Optional<ValueProcessorKeyRegistration<V, E>> globalRegistration = LanternValueFactory.get().getKeyRegistration(key);
-        if (globalRegistration.isPresent()) {
-            return ((Processor<V, E>) globalRegistration.get()).getValueFrom(this);
+        final ValueProcessorKeyRegistration<V, E> globalRegistration = LanternValueFactory.get().getKeyRegistrationOrNull(key);
+        if (globalRegistration != null) {
+            return ((Processor<V, E>) globalRegistration).getValueFrom(this);
         }
 
         // Check if custom data is supported by this container
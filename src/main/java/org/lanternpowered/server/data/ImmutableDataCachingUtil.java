@@ -27,19 +27,23 @@
 
 import static org.lanternpowered.server.util.ReflectionHelper.createUnsafeInstance;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.lanternpowered.server.game.Lantern;
-import org.spongepowered.api.CatalogType;
 import org.spongepowered.api.data.key.Key;
 import org.spongepowered.api.data.manipulator.ImmutableDataManipulator;
 import org.spongepowered.api.data.value.BaseValue;
 import org.spongepowered.api.data.value.immutable.ImmutableValue;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.annotation.Nullable;
 
@@ -51,16 +55,33 @@ private ImmutableDataCachingUtil() {}
     public static final int MANIPULATOR_CACHE_LIMIT = 100000;
     public static final int VALUE_CACHE_LIMIT = 100000;
 
-    private static final Cache<String, ImmutableDataManipulator<?, ?>> manipulatorCache = CacheBuilder.newBuilder()
+    /**
+     * The range of {@link Integer}s that will be interned for every {@link Key}.
+     */
+    private static final int MIN_INTERNED_INT = -128;
+    private static final int MAX_INTERNED_INT = 1023;
+
+    /**
+     * The maximum amount of default values that will be
+     * interned for a specific value type and {@link Key}.
+     */
+    private static final int MAX_INTERNED_DEFAULTS = 8;
+
+    private static final Cache<ManipulatorKey, ImmutableDataManipulator<?, ?>> manipulatorCache = Caffeine.newBuilder()
             .maximumSize(MANIPULATOR_CACHE_LIMIT)
-            .concurrencyLevel(4)
             .build();
 
-    private static final Cache<String, ImmutableValue<?>> valueCache = CacheBuilder.newBuilder()
-            .concurrencyLevel(4)
+    private static final Cache<ValueKey, ImmutableValue<?>> valueCache = Caffeine.newBuilder()
             .maximumSize(VALUE_CACHE_LIMIT)
             .build();
 
+    private static final ClassValue<ValueType> valueTypes = new ClassValue<ValueType>() {
+        @Override
+        protected ValueType computeValue(Class<?> type) {
+            return new ValueType(type);
+        }
+    };
+
     /**
      * Retrieves a basic manipulator from {@link Cache}. If the {@link Cache}
      * does not have the desired {@link ImmutableDataManipulator} with relative
@@ -78,56 +99,317 @@ private ImmutableDataCachingUtil() {}
      */
     @SuppressWarnings("unchecked")
     public static <T extends ImmutableDataManipulator<?, ?>> T getManipulator(final Class<T> immutableClass, final Object... args) {
-        final String key = getKey(immutableClass, args);
         // We can't really use the generic typing here because it's complicated...
-        try {
-            // Let's get the key
-            return (T) ImmutableDataCachingUtil.manipulatorCache.get(key, () -> {
-                try {
-                    return createUnsafeInstance(immutableClass, args);
-                } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-                    Lantern.getLogger().error("Could not construct an ImmutableDataManipulator: " + immutableClass.getCanonicalName() +
-                            " with the args: " + Arrays.toString(args), e);
-                }
-                throw new UnsupportedOperationException("Could not construct the ImmutableDataManipulator: " + immutableClass.getName() +
-                        " with the args: " + Arrays.toString(args));
-            });
-        } catch (Throwable e) {
-            throw new UnsupportedOperationException("Could not construct the ImmutableDataManipulator: " + immutableClass.getName(), e);
-        }
+        return (T) ImmutableDataCachingUtil.manipulatorCache.get(new ManipulatorKey(immutableClass, args), key -> {
+            try {
+                return createUnsafeInstance(immutableClass, args);
+            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                Lantern.getLogger().error("Could not construct an ImmutableDataManipulator: " + immutableClass.getCanonicalName() +
+                        " with the args: " + Arrays.toString(args), e);
+            }
+            throw new UnsupportedOperationException("Could not construct the ImmutableDataManipulator: " + immutableClass.getName() +
+                    " with the args: " + Arrays.toString(args));
+        });
     }
 
+    /**
+     * Retrieves a {@link ImmutableValue} from the cache. Booleans, small integers,
+     * enums and absent values are interned per value class, {@link Key} and default
+     * value, all the other values are retrieved from a bounded {@link Cache}.
+     *
+     * <p>Note that two instances of an {@link ImmutableValue} may be equal to each
+     * other, but they may not be the same instance, this is due to caching and
+     * outside instantiation.</p>
+     *
+     * @param valueClass The immutable value class to get an instance of
+     * @param usedKey The key of the value
+     * @param defaultArg The default value
+     * @param arg The actual value
+     * @param extraArgs The extra arguments to pass to the constructor
+     * @param <E> The type of the element
+     * @param <V> The type of the value class
+     * @param <T> The type of the immutable value
+     * @return The cached immutable value
+     */
     @SuppressWarnings("unchecked")
     public static <E, V extends ImmutableValue<?>, T extends ImmutableValue<E>> T getValue(final Class<V> valueClass,
             final Key<? extends BaseValue<E>> usedKey, final E defaultArg, @Nullable final E arg, @Nullable final Object... extraArgs) {
-        final String key = getKey(valueClass, usedKey.getQuery().asString('.'), arg == null ? defaultArg.getClass() : arg.getClass(), arg);
-        try {
-            return (T) ImmutableDataCachingUtil.valueCache.get(key, (Callable<ImmutableValue<?>>) () -> {
-                try {
-                    if (extraArgs == null || extraArgs.length == 0) {
-                        return createUnsafeInstance(valueClass, usedKey, defaultArg, arg);
-                    } else {
-                        return createUnsafeInstance(valueClass, usedKey, defaultArg, arg, extraArgs);
+        final ValueType valueType = valueTypes.get(valueClass);
+        if (extraArgs == null || extraArgs.length == 0) {
+            final InternTable table = valueType.getInternTable(usedKey, defaultArg);
+            if (table != null) {
+                final AtomicReferenceArray<ImmutableValue<?>> values = table.getValues(arg);
+                if (values != null) {
+                    final int index = table.getIndex(arg);
+                    ImmutableValue<?> value = values.get(index);
+                    if (value == null) {
+                        value = valueType.create(usedKey, defaultArg, arg, null);
+                        if (!values.compareAndSet(index, null, value)) {
+                            value = values.get(index);
+                        }
+                    }
+                    return (T) value;
+                }
+            }
+        }
+        return (T) ImmutableDataCachingUtil.valueCache.get(new ValueKey(valueClass, usedKey, defaultArg, arg, extraArgs),
+                key -> valueType.create(usedKey, defaultArg, arg, extraArgs));
+    }
+
+    /**
+     * Represents an immutable value class with its precompiled constructor
+     * and the interned values of every {@link Key} it was requested for.
+     */
+    private static final class ValueType {
+
+        private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Key.class, Object.class, Object.class);
+
+        private final Class<?> valueClass;
+        @Nullable private final MethodHandle constructor;
+
+        // Copy on write, new keys are only added rarely
+        private volatile IdentityHashMap<Key<?>, InternTable[]> internTables = new IdentityHashMap<>();
+
+        ValueType(Class<?> valueClass) {
+            this.valueClass = valueClass;
+            this.constructor = findConstructor(valueClass);
+        }
+
+        @Nullable
+        private static MethodHandle findConstructor(Class<?> valueClass) {
+            for (Constructor<?> constructor : valueClass.getConstructors()) {
+                final Class<?>[] params = constructor.getParameterTypes();
+                // Only the erased (key, default value, actual value) constructor can be
+                // invoked safely for every argument, all the others use reflection
+                if (params.length == 3 && params[0].isAssignableFrom(Key.class) &&
+                        params[1] == Object.class && params[2] == Object.class) {
+                    try {
+                        return MethodHandles.publicLookup().unreflectConstructor(constructor).asType(CONSTRUCTOR_TYPE);
+                    } catch (IllegalAccessException e) {
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+
+        ImmutableValue<?> create(Key<?> key, @Nullable Object defaultArg, @Nullable Object arg, @Nullable Object[] extraArgs) {
+            try {
+                if (extraArgs == null || extraArgs.length == 0) {
+                    if (this.constructor != null) {
+                        final Object value = this.constructor.invokeExact(key, defaultArg, arg);
+                        return (ImmutableValue<?>) value;
+                    }
+                    return (ImmutableValue<?>) createUnsafeInstance(this.valueClass, key, defaultArg, arg);
+                } else {
+                    return (ImmutableValue<?>) createUnsafeInstance(this.valueClass, key, defaultArg, arg, extraArgs);
+                }
+            } catch (Throwable e) {
+                Lantern.getLogger().error("Could not construct an ImmutableValue: " + this.valueClass.getCanonicalName(), e);
+            }
+            throw new UnsupportedOperationException("Could not construct the ImmutableValue: " + this.valueClass.getName());
+        }
+
+        @Nullable
+        InternTable getInternTable(Key<?> key, @Nullable Object defaultArg) {
+            InternTable[] tables = this.internTables.get(key);
+            if (tables != null) {
+                for (InternTable table : tables) {
+                    if (table.defaultValue == defaultArg || Objects.equals(table.defaultValue, defaultArg)) {
+                        return table;
+                    }
+                }
+                if (tables.length >= MAX_INTERNED_DEFAULTS) {
+                    return null;
+                }
+            }
+            synchronized (this) {
+                final IdentityHashMap<Key<?>, InternTable[]> internTables = this.internTables;
+                tables = internTables.get(key);
+                if (tables == null) {
+                    tables = new InternTable[0];
+                } else {
+                    for (InternTable table : tables) {
+                        if (Objects.equals(table.defaultValue, defaultArg)) {
+                            return table;
+                        }
+                    }
+                    if (tables.length >= MAX_INTERNED_DEFAULTS) {
+                        return null;
                     }
-                } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
-                    Lantern.getLogger().error("Could not construct an ImmutableValue: " + valueClass.getCanonicalName(), e);
                 }
-                throw new UnsupportedOperationException("Could not construct the ImmutableValue: " + valueClass.getName());
-            });
-        } catch (ExecutionException e) {
-            throw new UnsupportedOperationException("Could not construct the ImmutableValue: " + valueClass.getName(), e);
+                final InternTable table = new InternTable(defaultArg);
+                tables = Arrays.copyOf(tables, tables.length + 1);
+                tables[tables.length - 1] = table;
+                final IdentityHashMap<Key<?>, InternTable[]> copy = new IdentityHashMap<>(internTables);
+                copy.put(key, tables);
+                this.internTables = copy;
+                return table;
+            }
+        }
+    }
+
+    /**
+     * The interned values of a value class, {@link Key} and default value.
+     */
+    private static final class InternTable {
+
+        private static final int ABSENT_INDEX = 0;
+        private static final int FALSE_INDEX = 1;
+        private static final int TRUE_INDEX = 2;
+
+        @Nullable private final Object defaultValue;
+
+        // Absent values and booleans
+        private final AtomicReferenceArray<ImmutableValue<?>> constants = new AtomicReferenceArray<>(3);
+
+        // Lazily initialized, most keys don't use these
+        @Nullable private volatile AtomicReferenceArray<ImmutableValue<?>> ints;
+        @Nullable private volatile AtomicReferenceArray<ImmutableValue<?>> enums;
+        @Nullable private volatile Class<?> enumType;
+
+        InternTable(@Nullable Object defaultValue) {
+            this.defaultValue = defaultValue;
+        }
+
+        /**
+         * Gets the array that holds the interned value for the given
+         * argument, or {@code null} if the argument can't be interned.
+         *
+         * @param arg The argument
+         * @return The interned values
+         */
+        @Nullable
+        AtomicReferenceArray<ImmutableValue<?>> getValues(@Nullable Object arg) {
+            if (arg == null || arg.getClass() == Boolean.class) {
+                return this.constants;
+            } else if (arg.getClass() == Integer.class) {
+                final int value = (Integer) arg;
+                if (value < MIN_INTERNED_INT || value > MAX_INTERNED_INT) {
+                    return null;
+                }
+                AtomicReferenceArray<ImmutableValue<?>> ints = this.ints;
+                if (ints == null) {
+                    synchronized (this) {
+                        ints = this.ints;
+                        if (ints == null) {
+                            this.ints = ints = new AtomicReferenceArray<>(MAX_INTERNED_INT - MIN_INTERNED_INT + 1);
+                        }
+                    }
+                }
+                return ints;
+            } else if (arg instanceof Enum) {
+                final Class<?> enumType = ((Enum<?>) arg).getDeclaringClass();
+                AtomicReferenceArray<ImmutableValue<?>> enums = this.enums;
+                if (enums == null) {
+                    synchronized (this) {
+                        enums = this.enums;
+                        if (enums == null) {
+                            this.enumType = enumType;
+                            this.enums = enums = new AtomicReferenceArray<>(enumType.getEnumConstants().length);
+                        }
+                    }
+                }
+                // A key should only hold one enum type, but better safe than sorry
+                return this.enumType == enumType ? enums : null;
+            }
+            return null;
+        }
+
+        /**
+         * Gets the index of the given argument within the
+         * array returned by {@link #getValues(Object)}.
+         *
+         * @param arg The argument
+         * @return The index
+         */
+        int getIndex(@Nullable Object arg) {
+            if (arg == null) {
+                return ABSENT_INDEX;
+            } else if (arg instanceof Boolean) {
+                return (Boolean) arg ? TRUE_INDEX : FALSE_INDEX;
+            } else if (arg instanceof Integer) {
+                return (Integer) arg - MIN_INTERNED_INT;
+            }
+            return ((Enum<?>) arg).ordinal();
         }
     }
 
-    private static String getKey(final Class<?> immutableClass, final Object... args) {
-        final StringBuilder builder = new StringBuilder(immutableClass.getCanonicalName() + ":");
-        for (Object object : args) {
-            if (object instanceof CatalogType) {
-                builder.append("{").append(((CatalogType) object).getId()).append("}");
-            } else {
-                builder.append("{").append(object.toString()).append("}");
+    private static final class ValueKey {
+
+        private final Class<?> valueClass;
+        private final Key<?> key;
+        @Nullable private final Object defaultValue;
+        @Nullable private final Object value;
+        @Nullable private final Object[] extraArgs;
+        private final int hashCode;
+
+        ValueKey(Class<?> valueClass, Key<?> key, @Nullable Object defaultValue, @Nullable Object value, @Nullable Object[] extraArgs) {
+            this.valueClass = valueClass;
+            this.key = key;
+            this.defaultValue = defaultValue;
+            this.value = value;
+            this.extraArgs = extraArgs == null || extraArgs.length == 0 ? null : extraArgs;
+            int hashCode = System.identityHashCode(valueClass);
+            hashCode = 31 * hashCode + System.identityHashCode(key);
+            hashCode = 31 * hashCode + Objects.hashCode(defaultValue);
+            hashCode = 31 * hashCode + Objects.hashCode(value);
+            hashCode = 31 * hashCode + Arrays.hashCode(this.extraArgs);
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ValueKey)) {
+                return false;
             }
+            final ValueKey other = (ValueKey) obj;
+            return this.hashCode == other.hashCode &&
+                    this.valueClass == other.valueClass &&
+                    this.key == other.key &&
+                    Objects.equals(this.defaultValue, other.defaultValue) &&
+                    Objects.equals(this.value, other.value) &&
+                    Arrays.equals(this.extraArgs, other.extraArgs);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+
+    private static final class ManipulatorKey {
+
+        private final Class<?> manipulatorClass;
+        private final Object[] args;
+        private final int hashCode;
+
+        ManipulatorKey(Class<?> manipulatorClass, Object[] args) {
+            this.manipulatorClass = manipulatorClass;
+            this.args = args;
+            this.hashCode = 31 * System.identityHashCode(manipulatorClass) + Arrays.deepHashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ManipulatorKey)) {
+                return false;
+            }
+            final ManipulatorKey other = (ManipulatorKey) obj;
+            return this.hashCode == other.hashCode &&
+                    this.manipulatorClass == other.manipulatorClass &&
+                    Arrays.deepEquals(this.args, other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
         }
-        return builder.toString();
     }
 }
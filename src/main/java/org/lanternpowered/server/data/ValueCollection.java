@@ -30,6 +30,7 @@
 
 import org.lanternpowered.server.data.element.Element;
 import org.lanternpowered.server.data.element.ElementKeyRegistration;
+import org.lanternpowered.server.data.key.KeyIds;
 import org.lanternpowered.server.data.processor.ElementProcessorBuilder;
 import org.lanternpowered.server.data.processor.ValueProcessorKeyRegistration;
 import org.lanternpowered.server.data.processor.Processor;
@@ -45,10 +46,12 @@
 import org.spongepowered.api.data.value.mutable.MutableBoundedValue;
 import org.spongepowered.api.data.value.mutable.Value;
 
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
@@ -83,34 +86,64 @@ public static ValueCollection create() {
      */
     public static ValueCollection create(Mode mode) {
         checkNotNull(mode, "mode");
-        return new ValueCollection(new HashMap<>(), mode);
+        return new ValueCollection(EMPTY_IDS, EMPTY_REGISTRATIONS, 0, mode);
     }
 
-    private final Map<Key<?>, KeyRegistration> values;
-    private final Set<Key<?>> unmodifiableKeys;
-    private final Collection<KeyRegistration<?,?>> unmodifiableRegistrations;
+    private static final int[] EMPTY_IDS = new int[0];
+    private static final KeyRegistration[] EMPTY_REGISTRATIONS = new KeyRegistration[0];
+
+    /**
+     * The ids of the registered {@link Key}s in ascending order, the {@link KeyRegistration}
+     * of a key is stored at the same index within {@link #registrations}. A holder only
+     * registers a few keys, so a binary search keeps the arrays compact.
+     *
+     * @see KeyIds
+     */
+    private int[] ids;
+    private KeyRegistration[] registrations;
+    private int size;
+    private final Set<Key<?>> unmodifiableKeys = new KeySet();
+    private final Collection<KeyRegistration<?,?>> unmodifiableRegistrations = new RegistrationCollection();
     private final Mode mode;
 
-    private ValueCollection(Map<Key<?>, KeyRegistration> values, Mode mode) {
-        this.unmodifiableKeys = Collections.unmodifiableSet(values.keySet());
-        this.unmodifiableRegistrations = (Collection) Collections.unmodifiableCollection(values.values());
-        this.values = values;
+    private ValueCollection(int[] ids, KeyRegistration[] registrations, int size, Mode mode) {
+        this.ids = ids;
+        this.registrations = registrations;
+        this.size = size;
         this.mode = mode;
     }
 
     private void checkKey(Key<?> key) {
         checkNotNull(key, "key");
-        checkArgument(!this.values.containsKey(key), "The specified key (%s) is already registered.", key);
+        checkArgument(!has(key), "The specified key (%s) is already registered.", key);
+    }
+
+    private void put(Key<?> key, KeyRegistration registration) {
+        final int id = KeyIds.getOrAssignId(key);
+        final int size = this.size;
+        // The key isn't registered yet, so this is always the insertion point
+        final int index = -(Arrays.binarySearch(this.ids, 0, size, id) + 1);
+        if (size == this.ids.length) {
+            final int capacity = Math.max(4, size + (size >> 1));
+            this.ids = Arrays.copyOf(this.ids, capacity);
+            this.registrations = Arrays.copyOf(this.registrations, capacity);
+        }
+        System.arraycopy(this.ids, index, this.ids, index + 1, size - index);
+        System.arraycopy(this.registrations, index, this.registrations, index + 1, size - index);
+        this.ids[index] = id;
+        this.registrations[index] = registration;
+        this.size = size + 1;
     }
 
     @Override
     public ValueCollection copy() {
-        final Map<Key<?>, KeyRegistration> values = new HashMap<>();
-        for (Map.Entry<Key<?>, KeyRegistration> entry : this.values.entrySet()) {
-            final KeyRegistration registration = entry.getValue();
-            values.put(entry.getKey(), Copyable.copy(registration).orElse(registration));
+        final int size = this.size;
+        final KeyRegistration[] registrations = new KeyRegistration[size];
+        for (int i = 0; i < size; i++) {
+            final KeyRegistration registration = this.registrations[i];
+            registrations[i] = Copyable.copy(registration).orElse(registration);
         }
-        return new ValueCollection(values, this.mode);
+        return new ValueCollection(Arrays.copyOf(this.ids, size), registrations, size, this.mode);
     }
 
     /**
@@ -141,7 +174,7 @@ public Collection<KeyRegistration<?,?>> getAll() {
      * @return Is registered
      */
     public boolean has(Key<?> key) {
-        return this.values.containsKey(key);
+        return getOrNull(key) != null;
     }
 
     /**
@@ -153,7 +186,27 @@ public boolean has(Key<?> key) {
      * @return The key registration, if present
      */
     public <V extends BaseValue<E>, E> Optional<KeyRegistration<V, E>> get(Key<? extends BaseValue<E>> key) {
-        return Optional.ofNullable(this.values.get(key));
+        return Optional.ofNullable(getOrNull(key));
+    }
+
+    /**
+     * Gets the {@link KeyRegistration} for the given {@link Key}, or
+     * {@code null} if not present. Unlike {@link #get(Key)} this
+     * doesn't allocate any objects.
+     *
+     * @param key The key
+     * @param <V> The value type
+     * @param <E> The element type
+     * @return The key registration, or null if not present
+     */
+    @Nullable
+    public <V extends BaseValue<E>, E> KeyRegistration<V, E> getOrNull(Key<?> key) {
+        final int id = KeyIds.getId(key);
+        if (id == KeyIds.NO_ID) {
+            return null;
+        }
+        final int index = Arrays.binarySearch(this.ids, 0, this.size, id);
+        return index >= 0 ? this.registrations[index] : null;
     }
 
     /**
@@ -165,7 +218,7 @@ public <V extends BaseValue<E>, E> Optional<KeyRegistration<V, E>> get(Key<? ext
      */
     public <E> Optional<Element<E>> getElement(Key<? extends BaseValue<E>> key) {
         checkNotNull(key, "key");
-        final Object object = this.values.get(key);
+        final Object object = getOrNull(key);
         return object instanceof Element ? Optional.of((Element<E>) object) : Optional.empty();
     }
 
@@ -184,7 +237,7 @@ public <V extends BaseValue<E>, E> ElementKeyRegistration<V, E> registerNonRemov
         checkKey(key);
         final ElementKeyRegistration<V, E> processor = (ElementKeyRegistration<V, E>) ElementProcessorBuilder.createNonRemovable(key);
         processor.set(defaultValue);
-        this.values.put(key, processor);
+        put(key, processor);
         return processor;
     }
 
@@ -205,7 +258,7 @@ public <V extends BaseValue<E>, E> ElementKeyRegistration<V, E> register(
         checkKey(key);
         final ElementKeyRegistration<V, E> processor = (ElementKeyRegistration<V, E>) ElementProcessorBuilder.createDefault(key);
         processor.set(defaultValue);
-        this.values.put(key, processor);
+        put(key, processor);
         return processor;
     }
 
@@ -232,7 +285,7 @@ public <V extends BaseValue<E>, E> ElementKeyRegistration<V, E> register(
         builderConsumer.accept(builder);
         final ElementKeyRegistration<V, E> element = (ElementKeyRegistration<V, E>) builder.build();
         element.set(defaultValue);
-        this.values.put(key, element);
+        put(key, element);
         return element;
     }
 
@@ -247,7 +300,7 @@ public <V extends BaseValue<E>, E> ElementKeyRegistration<V, E> register(
     public <V extends BaseValue<E>, E> ValueProcessorKeyRegistration<V, E> registerProcessor(Key<? extends V> key) {
         checkKey(key);
         final ValueProcessorKeyRegistration<V, E> processor = ValueProcessorKeyRegistration.create(key);
-        this.values.put(key, processor);
+        put(key, processor);
         return processor;
     }
 
@@ -350,7 +403,7 @@ private <V extends BoundedValue<E>, E extends Comparable<E>> ElementKeyRegistrat
         });
         final ElementKeyRegistration<V, E> element = (ElementKeyRegistration<V, E>) builder.build();
         element.set(defaultValue);
-        this.values.put(key, element);
+        put(key, element);
         return element;
     }
 
@@ -396,4 +449,65 @@ public <V extends BoundedValue<E>, E extends Comparable<E>> ElementKeyRegistrati
                 container -> container.get(minimum).get(),
                 container -> maximum);
     }
+
+    private abstract class RegistrationIterator<T> implements Iterator<T> {
+
+        private int nextIndex;
+
+        @Override
+        public boolean hasNext() {
+            return this.nextIndex < ValueCollection.this.size;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return get(ValueCollection.this.registrations[this.nextIndex++]);
+        }
+
+        abstract T get(KeyRegistration registration);
+    }
+
+    private final class KeySet extends AbstractSet<Key<?>> {
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Key && has((Key<?>) o);
+        }
+
+        @Override
+        public Iterator<Key<?>> iterator() {
+            return new RegistrationIterator<Key<?>>() {
+                @Override
+                Key<?> get(KeyRegistration registration) {
+                    return registration.getKey();
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ValueCollection.this.size;
+        }
+    }
+
+    private final class RegistrationCollection extends AbstractCollection<KeyRegistration<?,?>> {
+
+        @Override
+        public Iterator<KeyRegistration<?,?>> iterator() {
+            return new RegistrationIterator<KeyRegistration<?,?>>() {
+                @Override
+                KeyRegistration<?,?> get(KeyRegistration registration) {
+                    return registration;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return ValueCollection.this.size;
+        }
+    }
 }
@@ -65,7 +65,8 @@ public interface ChunkIOService extends WorldStorage {
     boolean read(LanternChunk chunk) throws IOException;
 
     /**
-     * Writes a single chunk.
+     * Writes a single chunk. The data of the chunk is captured before
+     * this method returns, the data may be written asynchronously.
      * 
      * @param chunk The chunk to write from
      * @throws IOException If an i/o error occurs
@@ -73,7 +74,16 @@ public interface ChunkIOService extends WorldStorage {
     void write(LanternChunk chunk) throws IOException;
 
     /**
-     * Unload the service, performing any cleanup necessary.
+     * Waits until all the chunks that were written
+     * before are stored.
+     *
+     * @throws IOException If an i/o error occurs
+     */
+    void flush() throws IOException;
+
+    /**
+     * Unload the service, performing any cleanup necessary. All
+     * the chunks that were written before will be stored.
      * 
      * @throws IOException If an i/o error occurs
      */
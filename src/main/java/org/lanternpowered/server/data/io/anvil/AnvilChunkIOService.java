@@ -50,12 +50,15 @@
 import static org.lanternpowered.server.data.io.anvil.RegionFileCache.REGION_AREA;
 import static org.lanternpowered.server.data.io.anvil.RegionFileCache.REGION_MASK;
 import static org.lanternpowered.server.data.io.anvil.RegionFileCache.REGION_SIZE;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.INT_ARRAY;
+import static org.lanternpowered.server.world.chunk.LanternChunk.CHUNK_SECTION_VOLUME;
 import static org.lanternpowered.server.world.chunk.LanternChunk.fixEntityYSection;
 
 import com.flowpowered.math.vector.Vector3i;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
+import io.netty.buffer.ByteBuf;
 import it.unimi.dsi.fastutil.shorts.Short2ObjectMap;
 import it.unimi.dsi.fastutil.shorts.Short2ObjectOpenHashMap;
 import org.lanternpowered.server.block.tile.LanternTileEntity;
@@ -63,12 +66,13 @@
 import org.lanternpowered.server.data.io.store.ObjectSerializer;
 import org.lanternpowered.server.data.io.store.ObjectSerializerRegistry;
 import org.lanternpowered.server.data.persistence.nbt.NbtDataContainerInputStream;
-import org.lanternpowered.server.data.persistence.nbt.NbtDataContainerOutputStream;
+import org.lanternpowered.server.data.persistence.nbt.NbtReader;
 import org.lanternpowered.server.data.DataQueries;
 import org.lanternpowered.server.entity.LanternEntity;
 import org.lanternpowered.server.game.DirectoryKeys;
 import org.lanternpowered.server.scheduler.LanternScheduler;
 import org.lanternpowered.server.util.collect.array.NibbleArray;
+import org.lanternpowered.server.world.chunk.ChunkBlockStateStorage;
 import org.lanternpowered.server.world.chunk.LanternChunk;
 import org.lanternpowered.server.world.chunk.LanternChunk.ChunkSection;
 import org.lanternpowered.server.world.chunk.LanternChunk.ChunkSectionSnapshot;
@@ -132,6 +136,7 @@ public class AnvilChunkIOService implements ChunkIOService {
     private final Logger logger;
     private final LanternScheduler scheduler;
     private final RegionFileCache cache;
+    private final ChunkSaveQueue saveQueue;
     private final Path baseDir;
 
     // TODO: Consider the session.lock file
@@ -139,6 +144,7 @@ public class AnvilChunkIOService implements ChunkIOService {
     @Inject
     public AnvilChunkIOService(@Named(DirectoryKeys.WORLD) Path baseDir, World world, Logger logger, LanternScheduler scheduler) {
         this.cache = new RegionFileCache(baseDir);
+        this.saveQueue = new ChunkSaveQueue(this.cache);
         this.scheduler = scheduler;
         this.baseDir = baseDir;
         this.logger = logger;
@@ -147,6 +153,9 @@ public AnvilChunkIOService(@Named(DirectoryKeys.WORLD) Path baseDir, World world
 
     @Override
     public boolean exists(int x, int z) throws IOException {
+        if (this.saveQueue.isPending(x, z)) {
+            return true;
+        }
         final RegionFile region = this.cache.getRegionFileByChunk(x, z);
 
         final int regionX = x & REGION_MASK;
@@ -160,49 +169,44 @@ public boolean read(LanternChunk chunk) throws IOException {
         final int x = chunk.getX();
         final int z = chunk.getZ();
 
+        // Make sure that the latest version of the chunk is written
+        this.saveQueue.await(x, z);
+
         final RegionFile region = this.cache.getRegionFileByChunk(x, z);
         final int regionX = x & REGION_MASK;
         final int regionZ = z & REGION_MASK;
 
-        final DataInputStream is = region.getChunkDataInputStream(regionX, regionZ);
-        if (is == null) {
+        final ByteBuf buf = region.getChunkData(regionX, regionZ);
+        if (buf == null) {
             return false;
         }
 
-        final DataView levelDataView;
-        try (NbtDataContainerInputStream nbt = new NbtDataContainerInputStream(is)) {
-            levelDataView = nbt.read().getView(LEVEL).get();
-        }
-
-        // read the vertical sections
-        final List<DataView> sectionList = levelDataView.getViewList(SECTIONS).get();
-        final ChunkSection[] sections = new ChunkSection[16];
-        //noinspection unchecked
-        final Short2ObjectOpenHashMap<LanternTileEntity>[] tileEntitySections = new Short2ObjectOpenHashMap[sections.length];
-
-        for (DataView sectionTag : sectionList) {
-            final int y = sectionTag.getInt(Y).get();
-            final byte[] rawTypes = (byte[]) sectionTag.get(BLOCKS).get();
-
-            final byte[] extTypes = sectionTag.contains(BLOCKS_EXTRA) ? (byte[]) sectionTag.get(BLOCKS_EXTRA).get() : null;
-            final byte[] data = (byte[]) sectionTag.get(DATA).get();
-            final byte[] blockLight = (byte[]) sectionTag.get(BLOCK_LIGHT).get();
-            final byte[] skyLight = (byte[]) sectionTag.get(SKY_LIGHT).get();
-
-            final NibbleArray dataArray = new NibbleArray(rawTypes.length, data, true);
-            final NibbleArray extTypesArray = extTypes == null ? null : new NibbleArray(rawTypes.length, extTypes, true);
-
-            final short[] types = new short[rawTypes.length];
-            for (int i = 0; i < rawTypes.length; i++) {
-                types[i] = (short) ((extTypesArray == null ? 0 : extTypesArray.get(i)) << 12 | ((rawTypes[i] & 0xff) << 4) | dataArray.get(i));
+        // Stream the level data directly from the inflated chunk data, only the
+        // tile entities, entities and sponge data are materialized as data views
+        final LevelData level;
+        try {
+            final NbtReader reader = new NbtReader(buf);
+            reader.beginCompound();
+            LevelData levelData = null;
+            while (reader.hasNext()) {
+                if (reader.getName().equals("Level")) {
+                    levelData = readLevelData(reader);
+                } else {
+                    reader.skipValue();
+                }
             }
-
-            tileEntitySections[y] = new Short2ObjectOpenHashMap<>();
-            sections[y] = new ChunkSection(types, new NibbleArray(rawTypes.length, skyLight, true),
-                    new NibbleArray(rawTypes.length, blockLight, true), tileEntitySections[y]);
+            reader.endCompound();
+            if (levelData == null) {
+                throw new IOException("The chunk data is missing the level compound.");
+            }
+            level = levelData;
+        } finally {
+            buf.release();
         }
 
-        levelDataView.getViewList(TILE_ENTITIES).ifPresent(tileEntityViews -> {
+        final Short2ObjectOpenHashMap<LanternTileEntity>[] tileEntitySections = level.tileEntitySections;
+        if (level.tileEntities != null) {
+            final List<DataView> tileEntityViews = level.tileEntities;
             final ObjectSerializer<LanternTileEntity> tileEntitySerializer = ObjectSerializerRegistry.get().get(LanternTileEntity.class).get();
             for (DataView tileEntityView : tileEntityViews) {
                 final int tileY = tileEntityView.getInt(TILE_ENTITY_Y).get();
@@ -222,10 +226,10 @@ public boolean read(LanternChunk chunk) throws IOException {
                             tileX & 0xf, tileY & 0xf, tileZ & 0xf, x, z, getWorldProperties().getWorldName(), e);
                 }
             }
-        });
+        }
 
-        final DataView spongeDataView = levelDataView.getView(DataQueries.SPONGE_DATA).orElse(null);
-        final List<DataView> trackerDataViews = spongeDataView == null ? null : levelDataView.getViewList(TRACKER_DATA_TABLE).orElse(null);
+        final DataView spongeDataView = level.spongeData;
+        final List<DataView> trackerDataViews = spongeDataView == null ? null : spongeDataView.getViewList(TRACKER_DATA_TABLE).orElse(null);
 
         //noinspection unchecked
         final Short2ObjectMap<LanternChunk.TrackerData>[] trackerData = chunk.getTrackerData().getRawObjects();
@@ -249,12 +253,12 @@ public boolean read(LanternChunk chunk) throws IOException {
         }
 
         // initialize the chunk
-        chunk.initializeSections(sections);
-        chunk.setPopulated(levelDataView.getInt(TERRAIN_POPULATED).orElse(0) > 0);
+        chunk.initializeSections(level.sections);
+        chunk.setPopulated(level.terrainPopulated);
 
-        if (levelDataView.contains(BIOMES)) {
-            final byte[] biomes = (byte[]) levelDataView.get(BIOMES).get();
-            final byte[] biomesExtra = (byte[]) (levelDataView.contains(BIOMES_EXTRA) ? levelDataView.get(BIOMES_EXTRA).get() : null);
+        if (level.biomes != null) {
+            final byte[] biomes = level.biomes;
+            final byte[] biomesExtra = level.biomesExtra;
             final short[] newBiomes = new short[biomes.length];
             for (int i = 0; i < biomes.length; i++) {
                 newBiomes[i] = (short) ((biomesExtra == null ? 0 : biomesExtra[i]) << 8 | biomes[i]);
@@ -262,18 +266,15 @@ public boolean read(LanternChunk chunk) throws IOException {
             chunk.initializeBiomes(newBiomes);
         }
 
-        final Object heightMap;
-        if (levelDataView.contains(HEIGHT_MAP) && (heightMap = levelDataView.get(HEIGHT_MAP).get()) instanceof int[]) {
-            chunk.initializeHeightMap((int[]) heightMap);
-        } else {
-            chunk.initializeHeightMap(null);
+        chunk.initializeHeightMap(level.heightMap);
+        if (level.inhabitedTime != -1L) {
+            chunk.setInhabitedTime((int) level.inhabitedTime);
         }
-
-        levelDataView.getLong(INHABITED_TIME).ifPresent(time -> chunk.setInhabitedTime(time.intValue()));
-        chunk.setLightPopulated(levelDataView.getInt(LIGHT_POPULATED).orElse(0) > 0);
+        chunk.setLightPopulated(level.lightPopulated);
         chunk.initializeLight();
 
-        levelDataView.getViewList(ENTITIES).ifPresent(entityViews -> {
+        if (level.entities != null) {
+            final List<DataView> entityViews = level.entities;
             final ObjectSerializer<LanternEntity> entitySerializer = ObjectSerializerRegistry.get().get(LanternEntity.class).get();
             for (DataView entityView : entityViews) {
                 try {
@@ -285,20 +286,168 @@ public boolean read(LanternChunk chunk) throws IOException {
                             x, z, getWorldProperties().getWorldName(), e);
                 }
             }
-        });
+        }
 
         return true;
     }
 
+    /**
+     * The level data of a chunk that is read by {@link #readLevelData(NbtReader)}.
+     */
+    private static final class LevelData {
+
+        final ChunkSection[] sections = new ChunkSection[16];
+        @SuppressWarnings("unchecked")
+        final Short2ObjectOpenHashMap<LanternTileEntity>[] tileEntitySections = new Short2ObjectOpenHashMap[this.sections.length];
+
+        @Nullable List<DataView> tileEntities;
+        @Nullable List<DataView> entities;
+        @Nullable DataView spongeData;
+        @Nullable byte[] biomes;
+        @Nullable byte[] biomesExtra;
+        @Nullable int[] heightMap;
+        long inhabitedTime = -1L;
+        boolean terrainPopulated;
+        boolean lightPopulated;
+    }
+
+    private static LevelData readLevelData(NbtReader reader) throws IOException {
+        final LevelData level = new LevelData();
+        reader.beginCompound();
+        while (reader.hasNext()) {
+            switch (reader.getName()) {
+                case "Sections":
+                    reader.beginList();
+                    while (reader.hasNext()) {
+                        readSection(reader, level);
+                    }
+                    reader.endList();
+                    break;
+                case "TileEntities":
+                    level.tileEntities = readViewList(reader);
+                    break;
+                case "Entities":
+                    level.entities = readViewList(reader);
+                    break;
+                case "SpongeData":
+                    level.spongeData = reader.readContainer();
+                    break;
+                case "Biomes":
+                    level.biomes = reader.readByteArray();
+                    break;
+                case "BiomesE":
+                    level.biomesExtra = reader.readByteArray();
+                    break;
+                case "HeightMap":
+                    if (reader.getType() == INT_ARRAY) {
+                        level.heightMap = reader.readIntArray();
+                    } else {
+                        reader.skipValue();
+                    }
+                    break;
+                case "InhabitedTime":
+                    level.inhabitedTime = reader.readLong();
+                    break;
+                case "TerrainPopulated":
+                    level.terrainPopulated = reader.readInt() > 0;
+                    break;
+                case "LightPopulated":
+                    level.lightPopulated = reader.readInt() > 0;
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endCompound();
+        return level;
+    }
+
+    private static List<DataView> readViewList(NbtReader reader) throws IOException {
+        final List<DataView> views = new ArrayList<>(reader.beginList());
+        while (reader.hasNext()) {
+            views.add(reader.readContainer());
+        }
+        reader.endList();
+        return views;
+    }
+
+    private static void readSection(NbtReader reader, LevelData level) throws IOException {
+        int y = -1;
+        byte[] rawTypes = null;
+        byte[] extTypes = null;
+        byte[] data = null;
+        byte[] blockLight = null;
+        byte[] skyLight = null;
+
+        reader.beginCompound();
+        while (reader.hasNext()) {
+            switch (reader.getName()) {
+                case "Y":
+                    y = reader.readInt();
+                    break;
+                case "Blocks":
+                    rawTypes = reader.readByteArray();
+                    break;
+                case "Add":
+                    extTypes = reader.readByteArray();
+                    break;
+                case "Data":
+                    data = reader.readByteArray();
+                    break;
+                case "BlockLight":
+                    blockLight = reader.readByteArray();
+                    break;
+                case "SkyLight":
+                    skyLight = reader.readByteArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endCompound();
+
+        if (y < 0 || y >= level.sections.length || rawTypes == null || data == null || blockLight == null) {
+            throw new IOException("Invalid chunk section at y " + y);
+        }
+
+        final NibbleArray dataArray = new NibbleArray(rawTypes.length, data, true);
+        final NibbleArray extTypesArray = extTypes == null ? null : new NibbleArray(rawTypes.length, extTypes, true);
+
+        // Decode directly into the paletted storage
+        final ChunkBlockStateStorage types = new ChunkBlockStateStorage();
+        for (int i = 0; i < rawTypes.length; i++) {
+            types.set(i, (short) ((extTypesArray == null ? 0 : extTypesArray.get(i)) << 12 | ((rawTypes[i] & 0xff) << 4) | dataArray.get(i)));
+        }
+
+        final Short2ObjectOpenHashMap<LanternTileEntity> tileEntities = new Short2ObjectOpenHashMap<>();
+        level.tileEntitySections[y] = tileEntities;
+        level.sections[y] = new ChunkSection(types, skyLight == null ? new NibbleArray(rawTypes.length) :
+                new NibbleArray(rawTypes.length, skyLight, true), new NibbleArray(rawTypes.length, blockLight, true), tileEntities);
+    }
+
     @Override
     public void write(LanternChunk chunk) throws IOException {
-        final int x = chunk.getX();
-        final int z = chunk.getZ();
+        // Only the snapshot is taken on the current thread, serializing,
+        // compressing and writing the data is done by the save queue
+        this.saveQueue.queue(chunk.getX(), chunk.getZ(), createChunkData(chunk));
+    }
 
-        final RegionFile region = this.cache.getRegionFileByChunk(x, z);
+    @Override
+    public void flush() throws IOException {
+        this.saveQueue.flush();
+    }
 
-        final int regionX = x & REGION_MASK;
-        final int regionZ = z & REGION_MASK;
+    /**
+     * Creates a snapshot of the chunk that can be serialized
+     * independently of the chunk. All the data that may be
+     * modified after this method returns will be copied.
+     *
+     * @param chunk The chunk
+     * @return The chunk data
+     */
+    private DataContainer createChunkData(LanternChunk chunk) {
+        final int x = chunk.getX();
+        final int z = chunk.getZ();
 
         final DataContainer rootView = DataContainer.createNew(DataView.SafetyMode.NO_DATA_CLONED);
         final DataView levelDataView = rootView.createView(LEVEL);
@@ -326,22 +475,23 @@ public void write(LanternChunk chunk) throws IOException {
             final DataContainer sectionDataView = DataContainer.createNew(DataView.SafetyMode.NO_DATA_CLONED);
             sectionDataView.set(Y, i);
 
-            final byte[] rawTypes = new byte[section.types.length];
-            final short[] types = section.types;
+            final byte[] rawTypes = new byte[CHUNK_SECTION_VOLUME];
+            final ChunkBlockStateStorage types = section.types;
 
             NibbleArray extTypes = null;
             final NibbleArray data = new NibbleArray(rawTypes.length);
 
             for (int j = 0; j < rawTypes.length; j++) {
-                rawTypes[j] = (byte) ((types[j] >> 4) & 0xff);
-                byte extType = (byte) (types[j] >> 12);
+                final short type = types.get(j);
+                rawTypes[j] = (byte) ((type >> 4) & 0xff);
+                byte extType = (byte) (type >> 12);
                 if (extType != 0) {
                     if (extTypes == null) {
                         extTypes = new NibbleArray(rawTypes.length);
                     }
                     extTypes.set(j, extType);
                 }
-                data.set(j, (byte) (types[j] & 0xf));
+                data.set(j, (byte) (type & 0xf));
             }
             sectionDataView.set(BLOCKS, rawTypes);
             if (extTypes != null) {
@@ -436,14 +586,13 @@ public void write(LanternChunk chunk) throws IOException {
 
         levelDataView.set(ENTITIES, entityViews);
 
-        try (NbtDataContainerOutputStream nbt = new NbtDataContainerOutputStream(region.getChunkDataOutputStream(regionX, regionZ))) {
-            nbt.write(rootView);
-            nbt.flush();
-        }
+        return rootView;
     }
 
     @Override
     public void unload() throws IOException {
+        // Write all the pending chunks before the region files are closed
+        this.saveQueue.shutdown();
         this.cache.clear();
     }
 
@@ -0,0 +1,347 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.data.io.anvil;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.lanternpowered.server.data.io.anvil.RegionFileCache.REGION_COORDINATE_BITS;
+import static org.lanternpowered.server.data.io.anvil.RegionFileCache.REGION_MASK;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.concurrent.FastThreadLocal;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.lanternpowered.server.data.persistence.nbt.NbtWriter;
+import org.lanternpowered.server.game.Lantern;
+import org.lanternpowered.server.util.concurrent.FastThreadLocals;
+import org.lanternpowered.server.util.ThreadHelper;
+import org.lanternpowered.server.world.chunk.LanternChunk;
+import org.spongepowered.api.data.DataContainer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import javax.annotation.Nullable;
+
+/**
+ * A queue that serializes, compresses and writes chunk snapshots
+ * to their region files on a pool of worker threads.
+ * <p>
+ * A chunk is only processed by one worker at the same time, the
+ * snapshots that are queued for a chunk while it is still waiting
+ * to be written will replace each other, only the latest snapshot
+ * will be written. The compressed chunks are written per region
+ * file by a single task, multiple regions can be written in parallel.
+ * <p>
+ * The amount of snapshots that are waiting to be written is limited,
+ * queueing a chunk will block until there is room again.
+ */
+final class ChunkSaveQueue {
+
+    // The maximum amount of chunk snapshots that can be pending
+    private static final int MAX_PENDING_CHUNKS = 2048;
+
+    // The amount of threads that will serialize and write chunks
+    private static final int SAVE_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private static final FastThreadLocal<Deflater> deflater = FastThreadLocals.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private static final FastThreadLocal<ByteBuf> nbtBuffer = FastThreadLocals.withInitial(() -> Unpooled.buffer(8192));
+    private static final FastThreadLocal<ExposedByteArrayOutputStream> outputBuffer =
+            FastThreadLocals.withInitial(ExposedByteArrayOutputStream::new);
+
+    private final RegionFileCache cache;
+    private final Semaphore permits = new Semaphore(MAX_PENDING_CHUNKS);
+    private final ExecutorService executor = new ThreadPoolExecutor(SAVE_THREADS, SAVE_THREADS, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), ThreadHelper.newFastThreadLocalThreadFactory(() -> "chunk-saver-" + threadCounter.incrementAndGet()));
+
+    // All the following fields are guarded by this lock
+    private final Object lock = new Object();
+    private final Long2ObjectMap<Entry> entries = new Long2ObjectOpenHashMap<>();
+    private final Long2ObjectMap<RegionBatch> regionBatches = new Long2ObjectOpenHashMap<>();
+
+    ChunkSaveQueue(RegionFileCache cache) {
+        this.cache = checkNotNull(cache, "cache");
+        ((ThreadPoolExecutor) this.executor).allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues the snapshot of the chunk at the given coordinates to be
+     * written. If there is already a snapshot waiting for the chunk,
+     * it will be replaced by the new one.
+     *
+     * @param x The x coordinate of the chunk
+     * @param z The z coordinate of the chunk
+     * @param data The chunk data
+     */
+    void queue(int x, int z, DataContainer data) {
+        checkNotNull(data, "data");
+        // Block until there is room for a new snapshot
+        this.permits.acquireUninterruptibly();
+        final long key = LanternChunk.key(x, z);
+        synchronized (this.lock) {
+            Entry entry = this.entries.get(key);
+            if (entry == null) {
+                entry = new Entry(x, z);
+                this.entries.put(key, entry);
+            }
+            if (entry.data != null) {
+                // Coalesce with the snapshot that is still waiting
+                entry.data = data;
+                this.permits.release();
+                return;
+            }
+            entry.data = data;
+            if (!entry.busy) {
+                entry.busy = true;
+                submit(entry);
+            }
+        }
+    }
+
+    /**
+     * Gets whether there is a snapshot of the chunk
+     * at the given coordinates that isn't written yet.
+     *
+     * @param x The x coordinate of the chunk
+     * @param z The z coordinate of the chunk
+     * @return Whether a write is pending
+     */
+    boolean isPending(int x, int z) {
+        synchronized (this.lock) {
+            return this.entries.containsKey(LanternChunk.key(x, z));
+        }
+    }
+
+    /**
+     * Waits until all the snapshots of the chunk at
+     * the given coordinates are written.
+     *
+     * @param x The x coordinate of the chunk
+     * @param z The z coordinate of the chunk
+     */
+    void await(int x, int z) {
+        final long key = LanternChunk.key(x, z);
+        synchronized (this.lock) {
+            while (this.entries.containsKey(key)) {
+                waitUninterruptibly();
+            }
+        }
+    }
+
+    /**
+     * Waits until all the queued snapshots are written.
+     */
+    void flush() {
+        synchronized (this.lock) {
+            while (!this.entries.isEmpty()) {
+                waitUninterruptibly();
+            }
+        }
+    }
+
+    /**
+     * Flushes all the queued snapshots and stops the worker threads.
+     */
+    void shutdown() {
+        flush();
+        this.executor.shutdown();
+    }
+
+    private void waitUninterruptibly() {
+        try {
+            this.lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(Entry entry) {
+        this.executor.execute(() -> serialize(entry));
+    }
+
+    private void serialize(Entry entry) {
+        final DataContainer data;
+        synchronized (this.lock) {
+            data = entry.data;
+            entry.data = null;
+        }
+        final byte[] compressed;
+        try {
+            compressed = compress(data);
+        } catch (Exception e) {
+            Lantern.getLogger().error("Failed to serialize the chunk ({};{})", entry.x, entry.z, e);
+            complete(entry);
+            return;
+        }
+        final long regionKey = LanternChunk.key(entry.x >> REGION_COORDINATE_BITS, entry.z >> REGION_COORDINATE_BITS);
+        synchronized (this.lock) {
+            RegionBatch batch = this.regionBatches.get(regionKey);
+            if (batch == null) {
+                batch = new RegionBatch(regionKey);
+                this.regionBatches.put(regionKey, batch);
+            }
+            batch.queue.add(new CompressedChunk(entry, compressed));
+            if (!batch.scheduled) {
+                batch.scheduled = true;
+                final RegionBatch batch0 = batch;
+                this.executor.execute(() -> write(batch0));
+            }
+        }
+    }
+
+    private void write(RegionBatch batch) {
+        while (true) {
+            final CompressedChunk chunk;
+            synchronized (this.lock) {
+                chunk = batch.queue.poll();
+                if (chunk == null) {
+                    batch.scheduled = false;
+                    this.regionBatches.remove(batch.key);
+                    return;
+                }
+            }
+            final Entry entry = chunk.entry;
+            try {
+                // Keep the region file open while writing, it could
+                // otherwise be evicted and closed by another thread
+                final RegionFile region = this.cache.acquireRegionFileByChunk(entry.x, entry.z);
+                try {
+                    region.write(entry.x & REGION_MASK, entry.z & REGION_MASK, chunk.data, chunk.data.length);
+                } finally {
+                    region.release();
+                }
+            } catch (Exception e) {
+                Lantern.getLogger().error("Failed to write the chunk ({};{})", entry.x, entry.z, e);
+            }
+            complete(entry);
+        }
+    }
+
+    private void complete(Entry entry) {
+        this.permits.release();
+        synchronized (this.lock) {
+            if (entry.data != null) {
+                // A new snapshot was queued in the meantime
+                submit(entry);
+            } else {
+                entry.busy = false;
+                this.entries.remove(LanternChunk.key(entry.x, entry.z));
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+    private static byte[] compress(DataContainer data) throws IOException {
+        // Write the nbt data directly into a heap buffer, the
+        // backing array can then be passed to the deflater
+        final ByteBuf buf = nbtBuffer.get();
+        buf.clear();
+        new NbtWriter(buf).writeView(data);
+        final Deflater deflater = ChunkSaveQueue.deflater.get();
+        deflater.reset();
+        deflater.setInput(buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes());
+        deflater.finish();
+        final ExposedByteArrayOutputStream buffer = outputBuffer.get();
+        buffer.reset();
+        buffer.deflate(deflater);
+        return buffer.toByteArrayCopy();
+    }
+
+    private static final class Entry {
+
+        private final int x;
+        private final int z;
+
+        // The snapshot that is waiting to be serialized
+        @Nullable private DataContainer data;
+        // Whether the chunk is being serialized or written
+        private boolean busy;
+
+        private Entry(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+    }
+
+    private static final class CompressedChunk {
+
+        private final Entry entry;
+        private final byte[] data;
+
+        private CompressedChunk(Entry entry, byte[] data) {
+            this.entry = entry;
+            this.data = data;
+        }
+    }
+
+    private static final class RegionBatch {
+
+        private final long key;
+        private final ArrayDeque<CompressedChunk> queue = new ArrayDeque<>();
+        private boolean scheduled;
+
+        private RegionBatch(long key) {
+            this.key = key;
+        }
+    }
+
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        private ExposedByteArrayOutputStream() {
+            super(8192);
+        }
+
+        /**
+         * Writes all the remaining output of the {@link Deflater}
+         * directly into the internal buffer of this stream.
+         *
+         * @param deflater The deflater
+         */
+        private void deflate(Deflater deflater) {
+            while (!deflater.finished()) {
+                if (this.count == this.buf.length) {
+                    this.buf = Arrays.copyOf(this.buf, this.buf.length << 1);
+                }
+                this.count += deflater.deflate(this.buf, this.count, this.buf.length - this.count);
+            }
+        }
+
+        private byte[] toByteArrayCopy() {
+            return Arrays.copyOf(this.buf, this.count);
+        }
+    }
+}
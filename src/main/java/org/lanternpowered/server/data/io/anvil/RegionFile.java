@@ -67,7 +67,11 @@
  */
 package org.lanternpowered.server.data.io.anvil;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.concurrent.FastThreadLocal;
 import org.lanternpowered.server.game.Lantern;
+import org.lanternpowered.server.util.concurrent.FastThreadLocals;
 import org.slf4j.Marker;
 import org.slf4j.MarkerFactory;
 
@@ -78,17 +82,34 @@
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 
 import javax.annotation.Nullable;
 
+/**
+ * A region file which memory maps the header (offset and timestamp tables) and uses
+ * positional channel reads and writes for the chunk data.
+ *
+ * <p>Reads and writes of different chunks can happen concurrently, every chunk is
+ * guarded by one of the {@link #STRIPES} locks. Only the allocation of sectors is
+ * serialized by a single lock.</p>
+ */
 public final class RegionFile {
 
     private static final Marker REGION_FILE_MARKER = MarkerFactory.getMarker("REGION_FILE");
@@ -100,32 +121,56 @@ public final class RegionFile {
     private static final int SECTOR_INTS = SECTOR_BYTES / 4;
 
     private static final int CHUNK_HEADER_SIZE = 5;
-    private static final byte[] EMPTY_SECTOR = new byte[SECTOR_BYTES];
 
-    private final RandomAccessFile file;
-    private final int[] offsets;
-    private final BitSet usedSectors;
+    /**
+     * The amount of locks that guard the chunks in the region file.
+     */
+    private static final int STRIPES = 32;
+
+    /**
+     * The buffers that are used to read the compressed chunk data, the data is
+     * copied or inflated before the buffer can be reused by the current thread.
+     */
+    private static final FastThreadLocal<byte[][]> readBuffers = FastThreadLocals.withInitial(() -> new byte[][] { new byte[SECTOR_BYTES * 4] });
+
+    /**
+     * The inflaters that are used by {@link #getChunkData(int, int)}.
+     */
+    private static final FastThreadLocal<Inflater> inflater = FastThreadLocals.withInitial(Inflater::new);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final AtomicIntegerArray offsets;
+    private final StampedLock[] locks = new StampedLock[STRIPES];
     private final int regionX;
     private final int regionZ;
 
+    // The sector allocation, guarded by the allocator lock
+    private final Object allocatorLock = new Object();
+    private final BitSet usedSectors;
     private int sectorCount;
 
+    // The amount of references to this file, the region file cache holds
+    // one reference while the file is cached, the file is closed once all
+    // the references are released
+    private final AtomicInteger references = new AtomicInteger(1);
+
     RegionFile(Path path, int regionX, int regionZ) throws IOException {
         this.regionX = regionX;
         this.regionZ = regionZ;
-        this.offsets = new int[SECTOR_INTS];
+        this.offsets = new AtomicIntegerArray(SECTOR_INTS);
+        for (int i = 0; i < this.locks.length; i++) {
+            this.locks[i] = new StampedLock();
+        }
 
         long lastModified = 0;
         if (Files.isRegularFile(path)) {
             lastModified = Files.getLastModifiedTime(path).toMillis();
         }
 
-        this.file = new RandomAccessFile(path.toFile(), "rw");
-
-        long length = this.file.length();
-        // seek to the end to prepare size checking
-        this.file.seek(length);
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
 
+        long length = this.channel.size();
         // if the file size is under 8KB, grow it (4K chunk offset table, 4K timestamp table)
         if (length < 2 * SECTOR_BYTES) {
             if (lastModified != 0) {
@@ -133,44 +178,33 @@ public final class RegionFile {
                 Lantern.getLogger().warn(REGION_FILE_MARKER, "Region \"{}\" under 8K: {} increasing by {}",
                         path, length, 2 * SECTOR_BYTES - length);
             }
-
-            if (length == 0) {
-                this.file.write(EMPTY_SECTOR);
-                this.file.write(EMPTY_SECTOR);
-            } else {
-                for (; length < 2 * SECTOR_BYTES; length++) {
-                    this.file.write(0);
-                }
-            }
+            writeFully(ByteBuffer.allocate((int) (2 * SECTOR_BYTES - length)), length);
+            length = 2 * SECTOR_BYTES;
         }
 
-        length = this.file.length();
         // if the file size is not a multiple of 4KB, grow it
         if ((length & 0xfff) != 0) {
             Lantern.getLogger().warn(REGION_FILE_MARKER, "Region \"{}\" not aligned: {} increasing by {}",
                     path, length, SECTOR_BYTES - (length & 0xfff));
-
-            length = length & 0xfff;
-            for (; length < SECTOR_BYTES; length++) {
-                this.file.write(0);
-            }
+            writeFully(ByteBuffer.allocate((int) (SECTOR_BYTES - (length & 0xfff))), length);
+            length = this.channel.size();
         }
 
         // set up the available sector map
-        final int nSectors = (int) (this.file.length() / SECTOR_BYTES);
+        final int nSectors = (int) (length / SECTOR_BYTES);
         this.sectorCount = nSectors;
         this.usedSectors = new BitSet(nSectors);
         this.usedSectors.set(0, 2);
 
-        // set the following sectors
+        // map the sectors
         // 0 - chunk offset table
         // 1 - for the last modified
+        this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, 2 * SECTOR_BYTES);
 
         // read offsets from offset table
-        this.file.seek(0);
         for (int i = 0; i < SECTOR_INTS; ++i) {
-            final int offset = this.file.readInt();
-            this.offsets[i] = offset;
+            final int offset = this.header.getInt(i * 4);
+            this.offsets.set(i, offset);
 
             final int startSector = (offset >> 8);
             final int numSectors = (offset & 0xff);
@@ -182,10 +216,6 @@ public final class RegionFile {
                         path, i, offset, startSector, numSectors);
             }
         }
-        // read timestamps from timestamp table -- the timestamps aren't used, so there is no need to read them
-        // for (int i = 0; i < SECTOR_INTS; ++i) {
-        //     this.file.readInt();
-        // }
     }
 
     /**
@@ -196,9 +226,11 @@ public final class RegionFile {
      * @param z the z coordinate
      * @return whether the chunk data exists
      */
-    public synchronized boolean hasChunk(int x, int z) {
+    public boolean hasChunk(int x, int z) {
         checkBounds(x, z);
 
+        final StampedLock lock = getLock(x, z);
+        final long stamp = lock.readLock();
         try {
             final int offset = getOffset(x, z);
             if (offset == 0) {
@@ -208,72 +240,160 @@ public synchronized boolean hasChunk(int x, int z) {
 
             final int sectorNumber = offset >> 8;
             final int numSectors = offset & 0xff;
-            if (sectorNumber + numSectors > this.sectorCount) {
+            if (sectorNumber + numSectors > getSectorCount()) {
                 logWarning();
                 return false;
             }
 
-            this.file.seek(sectorNumber * SECTOR_BYTES);
-            final int length = this.file.readInt();
+            final ByteBuffer buf = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+            readFully(buf, (long) sectorNumber * SECTOR_BYTES);
+            final int length = buf.getInt(0);
             if (length > SECTOR_BYTES * numSectors) {
                 logWarning();
                 return false;
             }
 
-            final byte version = this.file.readByte();
+            final byte version = buf.get(4);
             if (version == VERSION_GZIP || version == VERSION_DEFLATE) {
                 return true;
             }
         } catch (IOException ignored) {
+        } finally {
+            lock.unlockRead(stamp);
         }
 
         logWarning();
         return false;
     }
 
-    /*
-     * gets an (uncompressed) stream representing the chunk data returns null if
-     * the chunk is not found or an error occurs
+    /**
+     * Gets an (uncompressed) stream representing the chunk data, returns {@code null} if
+     * the chunk is not found or an error occurs. The stream reads from a copy of the
+     * compressed data, {@link #getChunkData(int, int)} should be preferred.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     * @return the data input stream
      */
     @Nullable
-    public synchronized DataInputStream getChunkDataInputStream(int x, int z) {
+    public DataInputStream getChunkDataInputStream(int x, int z) {
+        final int length = readCompressedChunk(x, z);
+        if (length == -1) {
+            return null;
+        }
+        final byte[] data = readBuffers.get()[0];
+        final byte version = data[4];
+        // Copy the data, the read buffer will be reused by the next read on this thread
+        final ByteArrayInputStream is = new ByteArrayInputStream(
+                Arrays.copyOfRange(data, CHUNK_HEADER_SIZE, CHUNK_HEADER_SIZE + length - 1));
+        try {
+            if (version == VERSION_GZIP) {
+                return new DataInputStream(new BufferedInputStream(new GZIPInputStream(is)));
+            } else if (version == VERSION_DEFLATE) {
+                return new DataInputStream(new BufferedInputStream(new InflaterInputStream(is)));
+            }
+        } catch (IOException ignored) {
+        }
+        logWarning();
+        return null;
+    }
+
+    /**
+     * Gets a {@link ByteBuf} with the decompressed data for a chunk, or {@code null}
+     * if the chunk is not found or an error occurs. The data is inflated directly
+     * into the buffer, the buffer must be released by the caller.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     * @return the chunk data
+     */
+    @Nullable
+    public ByteBuf getChunkData(int x, int z) {
+        final int length = readCompressedChunk(x, z);
+        if (length == -1) {
+            return null;
+        }
+        final byte[] data = readBuffers.get()[0];
+        final byte version = data[4];
+        final ByteBuf buf = ByteBufAllocator.DEFAULT.heapBuffer(length * 4);
+        try {
+            if (version == VERSION_DEFLATE) {
+                final Inflater inflater = RegionFile.inflater.get();
+                inflater.reset();
+                inflater.setInput(data, CHUNK_HEADER_SIZE, length - 1);
+                while (!inflater.finished()) {
+                    buf.ensureWritable(SECTOR_BYTES);
+                    final int count = inflater.inflate(buf.array(), buf.arrayOffset() + buf.writerIndex(), buf.writableBytes());
+                    if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new DataFormatException("The chunk data is incomplete");
+                    }
+                    buf.writerIndex(buf.writerIndex() + count);
+                }
+                return buf;
+            } else if (version == VERSION_GZIP) {
+                try (GZIPInputStream is = new GZIPInputStream(new ByteArrayInputStream(data, CHUNK_HEADER_SIZE, length - 1))) {
+                    //noinspection StatementWithEmptyBody
+                    while (buf.writeBytes(is, SECTOR_BYTES) != -1);
+                }
+                return buf;
+            }
+        } catch (IOException | DataFormatException ignored) {
+        }
+        buf.release();
+        logWarning();
+        return null;
+    }
+
+    /**
+     * Reads the compressed data of a chunk into the read buffer of the
+     * current thread. The data starts with the chunk header.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     * @return the length of the compressed data and the version byte, or -1 if not found
+     */
+    private int readCompressedChunk(int x, int z) {
         checkBounds(x, z);
 
+        final StampedLock lock = getLock(x, z);
+        final long stamp = lock.readLock();
         try {
             final int offset = getOffset(x, z);
             if (offset == 0) {
                 // Does not exist
-                return null;
+                return -1;
             }
 
             final int sectorNumber = offset >> 8;
             final int numSectors = offset & 0xff;
-            if (sectorNumber + numSectors > this.sectorCount) {
+            if (sectorNumber + numSectors > getSectorCount()) {
                 logWarning();
-                return null;
+                return -1;
             }
 
-            this.file.seek(sectorNumber * SECTOR_BYTES);
-            final int length = this.file.readInt();
-            if (length > SECTOR_BYTES * numSectors) {
-                logWarning();
-                return null;
+            // Read all the sectors at once, the chunk header
+            // is at the start of the first sector
+            final byte[][] readBuffers = RegionFile.readBuffers.get();
+            byte[] data = readBuffers[0];
+            final int size = numSectors * SECTOR_BYTES;
+            if (data.length < size) {
+                readBuffers[0] = data = new byte[size];
             }
+            final ByteBuffer buf = ByteBuffer.wrap(data, 0, size);
+            readFully(buf, (long) sectorNumber * SECTOR_BYTES);
 
-            final byte version = this.file.readByte();
-            if (version == VERSION_GZIP) {
-                final byte[] data = new byte[length - 1];
-                this.file.read(data);
-                return new DataInputStream(new BufferedInputStream(new GZIPInputStream(new ByteArrayInputStream(data))));
-            } else if (version == VERSION_DEFLATE) {
-                final byte[] data = new byte[length - 1];
-                this.file.read(data);
-                return new DataInputStream(new BufferedInputStream(new InflaterInputStream(new ByteArrayInputStream(data))));
+            final int length = ((data[0] & 0xff) << 24) | ((data[1] & 0xff) << 16) | ((data[2] & 0xff) << 8) | (data[3] & 0xff);
+            if (length <= 0 || length + 4 > size) {
+                logWarning();
+                return -1;
             }
+            return length;
         } catch (IOException ignored) {
+        } finally {
+            lock.unlockRead(stamp);
         }
         logWarning();
-        return null;
+        return -1;
     }
 
     private void logWarning() {
@@ -316,10 +436,7 @@ public void close() throws IOException {
     }
 
     // write a chunk at (x,z) with length bytes of data to disk
-    protected synchronized void write(int x, int z, byte[] data, int length) throws IOException {
-        final int offset = getOffset(x, z);
-        int sectorNumber = offset >> 8;
-        final int sectorsAllocated = offset & 0xff;
+    protected void write(int x, int z, byte[] data, int length) throws IOException {
         final int sectorsNeeded = (length + CHUNK_HEADER_SIZE) / SECTOR_BYTES + 1;
 
         // maximum chunk size is 1MB
@@ -327,19 +444,56 @@ protected synchronized void write(int x, int z, byte[] data, int length) throws
             return;
         }
 
-        if (sectorNumber != 0 && sectorsAllocated == sectorsNeeded) {
-            // we can simply overwrite the old sectors
-            write(sectorNumber, data, length);
-        } else {
-            // we need to allocate new sectors
+        // Build the sectors, the remaining bytes
+        // of the last sector will be cleared
+        final ByteBuffer buf = ByteBuffer.allocate(sectorsNeeded * SECTOR_BYTES);
+        buf.putInt(length + 1); // chunk length
+        buf.put((byte) VERSION_DEFLATE); // chunk version number
+        buf.put(data, 0, length); // chunk data
+        buf.clear();
 
-            // mark the sectors previously used for this chunk as free
-            this.usedSectors.clear(sectorNumber, sectorNumber + sectorsAllocated);
+        final StampedLock lock = getLock(x, z);
+        final long stamp = lock.writeLock();
+        try {
+            final int offset = getOffset(x, z);
+            final int oldSectorNumber = offset >> 8;
+            final int sectorsAllocated = offset & 0xff;
 
+            if (oldSectorNumber != 0 && sectorsAllocated == sectorsNeeded) {
+                // we can simply overwrite the old sectors
+                writeFully(buf, (long) oldSectorNumber * SECTOR_BYTES);
+            } else {
+                // we need to allocate new sectors, the old sectors will only be
+                // released after the new ones are written, so that the old data
+                // is still available if something goes wrong
+                final int sectorNumber = allocate(sectorsNeeded);
+                writeFully(buf, (long) sectorNumber * SECTOR_BYTES);
+                setOffset(x, z, (sectorNumber << 8) | sectorsNeeded);
+                if (oldSectorNumber != 0) {
+                    synchronized (this.allocatorLock) {
+                        this.usedSectors.clear(oldSectorNumber, oldSectorNumber + sectorsAllocated);
+                    }
+                }
+            }
+            setTimestamp(x, z, (int) (System.currentTimeMillis() / 1000L));
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Allocates a run of free sectors, the file will be
+     * grown if there isn't enough space available.
+     *
+     * @param sectorsNeeded The amount of sectors
+     * @return The first sector
+     */
+    private int allocate(int sectorsNeeded) throws IOException {
+        synchronized (this.allocatorLock) {
             // scan for a free space large enough to store this chunk
             int runStart = this.usedSectors.nextClearBit(2);
             int runLength = 0;
-            if (runStart != -1 && runStart < this.sectorCount) {
+            if (runStart < this.sectorCount) {
                 for (int i = runStart; i < this.sectorCount; ++i) {
                     if (runLength != 0) {
                         if (!this.usedSectors.get(i)) {
@@ -359,32 +513,40 @@ protected synchronized void write(int x, int z, byte[] data, int length) throws
                 runStart = this.sectorCount;
             }
 
-            sectorNumber = runStart;
             if (runLength < sectorsNeeded) {
+                // the run is at the end of the file, grow it
+                if (runLength == 0) {
+                    runStart = this.sectorCount;
+                }
                 final int added = sectorsNeeded - runLength;
+                writeFully(ByteBuffer.allocate(added * SECTOR_BYTES), (long) this.sectorCount * SECTOR_BYTES);
                 this.sectorCount += added;
-                this.file.seek(this.file.length());
-                for (int i = 0; i < added; i++) {
-                    this.file.write(EMPTY_SECTOR);
-                }
             }
 
-            // Clear the sectors to set them in use
-            this.usedSectors.set(sectorNumber, sectorNumber + sectorsNeeded);
+            // Set the sectors in use
+            this.usedSectors.set(runStart, runStart + sectorsNeeded);
+            return runStart;
+        }
+    }
 
-            // Write chunk data and offset
-            write(sectorNumber, data, length);
-            setOffset(x, z, (sectorNumber << 8) | sectorsNeeded);
+    private int getSectorCount() {
+        synchronized (this.allocatorLock) {
+            return this.sectorCount;
         }
-        setTimestamp(x, z, (int) (System.currentTimeMillis() / 1000L));
     }
 
-    // write a chunk data to the region file at specified sector number
-    private void write(int sectorNumber, byte[] data, int length) throws IOException {
-        this.file.seek(sectorNumber * SECTOR_BYTES);
-        this.file.writeInt(length + 1); // chunk length
-        this.file.writeByte(VERSION_DEFLATE); // chunk version number
-        this.file.write(data, 0, length); // chunk data
+    private void readFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            if (this.channel.read(buf, position + buf.position()) < 0) {
+                throw new IOException("Unexpected end of region file (" + this.regionX + ";" + this.regionZ + ")");
+            }
+        }
+    }
+
+    private void writeFully(ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            this.channel.write(buf, position + buf.position());
+        }
     }
 
     // is this an invalid chunk coordinate?
@@ -394,23 +556,67 @@ private void checkBounds(int x, int z) {
         }
     }
 
+    private StampedLock getLock(int x, int z) {
+        // Spread neighbor chunks in both directions over different locks
+        return this.locks[(x * 31 + z) & (STRIPES - 1)];
+    }
+
     private int getOffset(int x, int z) {
-        return this.offsets[x + z * 32];
+        return this.offsets.get(x + z * 32);
+    }
+
+    private void setOffset(int x, int z, int offset) {
+        this.offsets.set(x + z * 32, offset);
+        this.header.putInt((x + z * 32) * 4, offset);
+    }
+
+    private void setTimestamp(int x, int z, int value) {
+        this.header.putInt(SECTOR_BYTES + (x + z * 32) * 4, value);
     }
 
-    private void setOffset(int x, int z, int offset) throws IOException {
-        this.offsets[x + z * 32] = offset;
-        this.file.seek((x + z * 32) * 4);
-        this.file.writeInt(offset);
+    /**
+     * Attempts to acquire a reference to this region file, the file
+     * won't be closed until the reference is {@link #release() released}.
+     *
+     * @return Whether a reference was acquired, false if the file is already closed
+     */
+    boolean retain() {
+        int references;
+        do {
+            references = this.references.get();
+            if (references == 0) {
+                return false;
+            }
+        } while (!this.references.compareAndSet(references, references + 1));
+        return true;
     }
 
-    private void setTimestamp(int x, int z, int value) throws IOException {
-        this.file.seek(SECTOR_BYTES + (x + z * 32) * 4);
-        this.file.writeInt(value);
+    /**
+     * Releases a reference to this region file, the file
+     * is closed when the last reference is released.
+     *
+     * @throws IOException If the file failed to close
+     */
+    void release() throws IOException {
+        if (this.references.decrementAndGet() == 0) {
+            close();
+        }
     }
 
     public void close() throws IOException {
-        this.file.getChannel().force(true);
-        this.file.close();
+        // Wait for all the reads and writes to complete
+        final long[] stamps = new long[this.locks.length];
+        for (int i = 0; i < this.locks.length; i++) {
+            stamps[i] = this.locks[i].writeLock();
+        }
+        try {
+            this.header.force();
+            this.channel.force(true);
+            this.channel.close();
+        } finally {
+            for (int i = 0; i < this.locks.length; i++) {
+                this.locks[i].unlockWrite(stamps[i]);
+            }
+        }
     }
 }
@@ -58,14 +58,15 @@
 import java.util.regex.Pattern;
 
 /**
- * A simple cache and wrapper for efficiently accessing multiple RegionFiles
- * simultaneously.
+ * A bounded cache and wrapper for efficiently accessing multiple RegionFiles
+ * simultaneously, the least recently used files are closed when the maximum
+ * amount of open region files is reached.
  */
 final class RegionFileCache {
 
     private static final String DEFAULT_REGION_FILE_EXTENSION = "mca";
 
-    private static final int REGION_COORDINATE_BITS = 5;
+    static final int REGION_COORDINATE_BITS = 5;
     static final int REGION_SIZE = 1 << REGION_COORDINATE_BITS;
     static final int REGION_AREA = REGION_SIZE * REGION_SIZE;
     static final int REGION_MASK = REGION_SIZE - 1;
@@ -92,13 +93,18 @@ final class RegionFileCache {
             Lantern.getLogger().warn("Failed to create directory: " + this.regionDir);
         }
 
+        // The region files keep their channel and mapped header open while they
+        // are cached, soft values would close them at unpredictable moments.
+        // Release the reference of the cache directly when they are evicted
+        // instead of later in a different thread, so that clear() guarantees
+        // that all the region files are closed once no writes are using them.
         this.cache = Caffeine.newBuilder()
                 .maximumSize(MAX_CACHE_SIZE)
-                .softValues()
+                .executor(Runnable::run)
                 .removalListener((key, value, cause) -> {
                     if (value != null) {
                         try {
-                            ((RegionFile) value).close();
+                            ((RegionFile) value).release();
                         } catch (IOException e) {
                             throw new RuntimeException(e);
                         }
@@ -121,6 +127,27 @@ public RegionFile getRegionFileByChunk(int chunkX, int chunkZ) throws IOExceptio
         return this.getRegionFile(regionX, regionZ);
     }
 
+    /**
+     * Gets the {@link RegionFile} for the given chunk coordinates and acquires
+     * a reference to it, the file won't be closed by an eviction until the
+     * reference is {@link RegionFile#release() released}.
+     *
+     * @param chunkX The chunk x coordinate
+     * @param chunkZ The chunk z coordinate
+     * @return The retained region file
+     * @throws IOException If the region file failed to open
+     */
+    RegionFile acquireRegionFileByChunk(int chunkX, int chunkZ) throws IOException {
+        while (true) {
+            final RegionFile regionFile = getRegionFileByChunk(chunkX, chunkZ);
+            // The file may be evicted and closed between the lookup and
+            // the retain, in that case will a new one be opened
+            if (regionFile.retain()) {
+                return regionFile;
+            }
+        }
+    }
+
     public RegionFile getRegionFile(int regionX, int regionZ) throws IOException {
         final long coords = (regionZ & 0xffffffffL) << 32 | regionX & 0xffffffffL;
         return this.cache.get(coords, coords0 -> {
@@ -135,6 +162,7 @@ public RegionFile getRegionFile(int regionX, int regionZ) throws IOException {
 
     public void clear() {
         this.cache.invalidateAll();
+        this.cache.cleanUp();
     }
 
     public Pattern getFilePattern() {
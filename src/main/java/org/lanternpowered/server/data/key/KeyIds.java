@@ -0,0 +1,132 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.data.key;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.spongepowered.api.data.key.Key;
+
+import java.util.Arrays;
+
+/**
+ * Assigns dense integer ids to {@link Key}s, these can be used to
+ * index arrays instead of looking up {@link Key}s in maps.
+ *
+ * <p>Ids are assigned to a {@link Key} the first time that it's
+ * registered somewhere and are never reused. {@link Key}s are
+ * compared by identity.</p>
+ */
+public final class KeyIds {
+
+    /**
+     * The id that is returned for {@link Key}s that don't have an id yet.
+     */
+    public static final int NO_ID = -1;
+
+    /**
+     * An immutable snapshot of the id table, it will be replaced
+     * every time that a new key gets an id assigned.
+     */
+    private static final class Table {
+
+        private final Key<?>[] keys;
+        private final int[] ids;
+        private final int mask;
+
+        private Table(Key<?>[] keysById) {
+            // Keep the load factor below 0.5
+            final int capacity = Math.max(16, Integer.highestOneBit(keysById.length) << 2);
+            this.keys = new Key<?>[capacity];
+            this.ids = new int[capacity];
+            this.mask = capacity - 1;
+            for (int id = 0; id < keysById.length; id++) {
+                int index = System.identityHashCode(keysById[id]) & this.mask;
+                while (this.keys[index] != null) {
+                    index = (index + 1) & this.mask;
+                }
+                this.keys[index] = keysById[id];
+                this.ids[index] = id;
+            }
+        }
+
+        private int get(Key<?> key) {
+            int index = System.identityHashCode(key) & this.mask;
+            Key<?> other;
+            while ((other = this.keys[index]) != null) {
+                if (other == key) {
+                    return this.ids[index];
+                }
+                index = (index + 1) & this.mask;
+            }
+            return NO_ID;
+        }
+    }
+
+    private static final Object lock = new Object();
+
+    private static Key<?>[] keysById = new Key<?>[0];
+    private static volatile Table table = new Table(keysById);
+
+    /**
+     * Gets the id of the given {@link Key}.
+     *
+     * @param key The key
+     * @return The id, or {@link #NO_ID} if the key doesn't have an id yet
+     */
+    public static int getId(Key<?> key) {
+        return table.get(key);
+    }
+
+    /**
+     * Gets the id of the given {@link Key}, assigns
+     * a new id if the key doesn't have one yet.
+     *
+     * @param key The key
+     * @return The id
+     */
+    public static int getOrAssignId(Key<?> key) {
+        checkNotNull(key, "key");
+        int id = table.get(key);
+        if (id != NO_ID) {
+            return id;
+        }
+        synchronized (lock) {
+            id = table.get(key);
+            if (id == NO_ID) {
+                id = keysById.length;
+                keysById = Arrays.copyOf(keysById, id + 1);
+                keysById[id] = key;
+                // Keys are only registered a few hundred times, so
+                // just rebuild the whole table every time
+                table = new Table(keysById);
+            }
+            return id;
+        }
+    }
+
+    private KeyIds() {
+    }
+}
@@ -110,16 +110,16 @@ public <E> M set(Key<? extends BaseValue<E>> key, E value) {
         checkNotNull(value, "value");
 
         // Check the local key registration
-        final KeyRegistration<BaseValue<E>, E> localKeyRegistration = getValueCollection().get(key).orElse(null);
+        final KeyRegistration<BaseValue<E>, E> localKeyRegistration = getValueCollection().getOrNull(key);
         if (localKeyRegistration != null) {
             ((Processor<?, E>) localKeyRegistration).offerTo(this, value);
             return (M) this;
         }
 
         // Check for a global registration
-        final Optional<ValueProcessorKeyRegistration<BaseValue<E>, E>> globalRegistration = LanternValueFactory.get().getKeyRegistration(key);
-        if (globalRegistration.isPresent()) {
-            ((Processor<BaseValue<E>, E>) globalRegistration.get()).offerTo(this, value);
+        final ValueProcessorKeyRegistration<BaseValue<E>, E> globalRegistration = LanternValueFactory.get().getKeyRegistrationOrNull(key);
+        if (globalRegistration != null) {
+            ((Processor<BaseValue<E>, E>) globalRegistration).offerTo(this, value);
             return (M) this;
         }
 
@@ -138,15 +138,15 @@ public <E> M transform(Key<? extends BaseValue<E>> key, Function<E, E> function)
         checkNotNull(function, "function");
 
         // Check the local key registration
-        final KeyRegistration<BaseValue<E>, E> localKeyRegistration = getValueCollection().get(key).orElse(null);
+        final KeyRegistration<BaseValue<E>, E> localKeyRegistration = getValueCollection().getOrNull(key);
         if (localKeyRegistration != null) {
             return transformWith(function, (Processor<BaseValue<E>, E>) localKeyRegistration);
         }
 
         // Check for a global registration
-        final Optional<ValueProcessorKeyRegistration<BaseValue<E>, E>> globalRegistration = LanternValueFactory.get().getKeyRegistration(key);
-        if (globalRegistration.isPresent()) {
-            return transformWith(function, (Processor<BaseValue<E>, E>) globalRegistration.get());
+        final ValueProcessorKeyRegistration<BaseValue<E>, E> globalRegistration = LanternValueFactory.get().getKeyRegistrationOrNull(key);
+        if (globalRegistration != null) {
+            return transformWith(function, (Processor<BaseValue<E>, E>) globalRegistration);
         }
 
         throwUnsupportedKeyException(key);
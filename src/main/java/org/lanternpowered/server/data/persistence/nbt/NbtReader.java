@@ -0,0 +1,690 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.data.persistence.nbt;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.BOOLEAN;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.BOOLEAN_IDENTIFER;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.BOOLEAN_LIST;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.BYTE;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.BYTE_ARRAY;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.COMPOUND;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.DOUBLE;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.END;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.FLOAT;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.INT;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.INT_ARRAY;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.LIST;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.LONG;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.SHORT;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.STRING;
+
+import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import org.spongepowered.api.data.DataContainer;
+import org.spongepowered.api.data.DataQuery;
+import org.spongepowered.api.data.DataView;
+
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * A cursor that reads nbt data directly from a {@link ByteBuf}, without
+ * materializing the whole tree of {@link DataView}s. Subtrees that aren't
+ * needed can be skipped with {@link #skipValue()}, others can be decoded
+ * into a {@link DataView} with {@link #readContainer()}.
+ *
+ * <p>A reader starts at the root entry, every value is consumed by calling
+ * exactly one of the read, skip or begin methods. Within compounds and
+ * lists {@link #hasNext()} moves the cursor to the next entry:</p>
+ * <pre>
+ * reader.beginCompound();
+ * while (reader.hasNext()) {
+ *     if (reader.getName().equals("Level")) {
+ *         ...
+ *     } else {
+ *         reader.skipValue();
+ *     }
+ * }
+ * reader.endCompound();
+ * </pre>
+ */
+public final class NbtReader {
+
+    /**
+     * The type that represents that there is no value
+     * available at the current position of the cursor.
+     */
+    private static final byte NONE = -1;
+
+    private final ByteBuf buf;
+    private final int maximumDepth;
+
+    // The type of every context, a compound or a list
+    private byte[] contextTypes = new byte[8];
+    // The remaining elements in a list, or whether a compound ended
+    private int[] remaining = new int[8];
+    // The element type of a list
+    private byte[] elementTypes = new byte[8];
+    private int depth;
+
+    private byte type;
+    @Nullable private String name;
+
+    /**
+     * Creates a new nbt reader.
+     *
+     * @param buf The byte buffer to read from
+     * @throws IOException If the root entry couldn't be read
+     */
+    public NbtReader(ByteBuf buf) throws IOException {
+        this(buf, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new nbt reader.
+     *
+     * @param buf The byte buffer to read from
+     * @param maximumDepth The maximum depth of the data
+     * @throws IOException If the root entry couldn't be read
+     */
+    public NbtReader(ByteBuf buf, int maximumDepth) throws IOException {
+        this.buf = checkNotNull(buf, "buf");
+        this.maximumDepth = maximumDepth;
+        this.type = NONE;
+        if (!readHeader()) {
+            throw new IOException("There is no more data to read.");
+        }
+    }
+
+    /**
+     * Gets whether there is another value available in the current compound
+     * or list, and moves the cursor to it. Returns {@code true} without
+     * moving if the current value wasn't consumed yet.
+     *
+     * @return Whether there is a next value
+     * @throws IOException If the data couldn't be read
+     */
+    public boolean hasNext() throws IOException {
+        if (this.type != NONE) {
+            return true;
+        }
+        if (this.depth == 0) {
+            // The root entry was already consumed
+            return false;
+        }
+        final int index = this.depth - 1;
+        if (this.contextTypes[index] == LIST) {
+            if (this.remaining[index] == 0) {
+                return false;
+            }
+            this.remaining[index]--;
+            this.type = this.elementTypes[index];
+            this.name = null;
+            return true;
+        }
+        // The compound already ended
+        if (this.remaining[index] != 0) {
+            return false;
+        }
+        if (!readHeader()) {
+            this.remaining[index] = 1;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean readHeader() throws IOException {
+        byte type = this.buf.readByte();
+        if (type == END) {
+            return false;
+        }
+        String name = readUTF();
+        final int index = name.lastIndexOf(BOOLEAN_IDENTIFER);
+        if (index != -1) {
+            name = name.substring(0, index);
+            type = type == LIST ? BOOLEAN_LIST : BOOLEAN;
+        }
+        this.type = type;
+        this.name = name;
+        return true;
+    }
+
+    /**
+     * Gets the type of the current value, one of the {@link NbtConstants}.
+     *
+     * @return The type
+     * @throws IOException If the data couldn't be read
+     */
+    public byte getType() throws IOException {
+        checkState(hasNext(), "There is no value available.");
+        return this.type;
+    }
+
+    /**
+     * Gets the name of the current value, the name will
+     * be empty if the value is an element of a list.
+     *
+     * @return The name
+     * @throws IOException If the data couldn't be read
+     */
+    public String getName() throws IOException {
+        checkState(hasNext(), "There is no value available.");
+        return this.name == null ? "" : this.name;
+    }
+
+    private byte consume() throws IOException {
+        checkState(hasNext(), "There is no value available.");
+        final byte type = this.type;
+        this.type = NONE;
+        return type;
+    }
+
+    private void push(byte contextType, int remaining, byte elementType) throws IOException {
+        checkDepth(this.depth);
+        if (this.depth == this.contextTypes.length) {
+            final int length = this.depth * 2;
+            this.contextTypes = Arrays.copyOf(this.contextTypes, length);
+            this.remaining = Arrays.copyOf(this.remaining, length);
+            this.elementTypes = Arrays.copyOf(this.elementTypes, length);
+        }
+        this.contextTypes[this.depth] = contextType;
+        this.remaining[this.depth] = remaining;
+        this.elementTypes[this.depth] = elementType;
+        this.depth++;
+    }
+
+    private void pop(byte contextType) {
+        checkState(this.depth > 0 && this.contextTypes[this.depth - 1] == contextType,
+                "Attempted to end a %s that wasn't started.", contextType == LIST ? "list" : "compound");
+        this.depth--;
+    }
+
+    private static IOException unexpectedType(byte type, String expected) {
+        return new IOException("Expected a " + expected + ", but found the nbt tag type: " + type);
+    }
+
+    /**
+     * Starts reading the current compound value.
+     *
+     * @throws IOException If the data couldn't be read or the value isn't a compound
+     */
+    public void beginCompound() throws IOException {
+        final byte type = consume();
+        if (type != COMPOUND) {
+            throw unexpectedType(type, "compound");
+        }
+        push(COMPOUND, 0, END);
+    }
+
+    /**
+     * Ends reading the current compound, all
+     * the remaining entries will be skipped.
+     *
+     * @throws IOException If the data couldn't be read
+     */
+    public void endCompound() throws IOException {
+        checkState(this.depth > 0 && this.contextTypes[this.depth - 1] == COMPOUND,
+                "Attempted to end a compound that wasn't started.");
+        while (hasNext()) {
+            skipValue();
+        }
+        pop(COMPOUND);
+    }
+
+    /**
+     * Starts reading the current list value.
+     *
+     * @return The size of the list
+     * @throws IOException If the data couldn't be read or the value isn't a list
+     */
+    public int beginList() throws IOException {
+        final byte type = consume();
+        if (type != LIST && type != BOOLEAN_LIST) {
+            throw unexpectedType(type, "list");
+        }
+        byte elementType = this.buf.readByte();
+        if (type == BOOLEAN_LIST) {
+            elementType = BOOLEAN;
+        }
+        int size = this.buf.readInt();
+        if (elementType == END || size < 0) {
+            size = 0;
+        } else {
+            checkListSize(size);
+        }
+        push(LIST, size, elementType);
+        return size;
+    }
+
+    /**
+     * Ends reading the current list, all the
+     * remaining elements will be skipped.
+     *
+     * @throws IOException If the data couldn't be read
+     */
+    public void endList() throws IOException {
+        checkState(this.depth > 0 && this.contextTypes[this.depth - 1] == LIST,
+                "Attempted to end a list that wasn't started.");
+        while (hasNext()) {
+            skipValue();
+        }
+        pop(LIST);
+    }
+
+    /**
+     * Reads the current value as a byte.
+     *
+     * @return The value
+     * @throws IOException If the data couldn't be read or the value isn't a byte
+     */
+    public byte readByte() throws IOException {
+        final byte type = consume();
+        if (type != BYTE && type != BOOLEAN) {
+            throw unexpectedType(type, "byte");
+        }
+        return this.buf.readByte();
+    }
+
+    /**
+     * Reads the current value as a boolean.
+     *
+     * @return The value
+     * @throws IOException If the data couldn't be read or the value isn't a boolean
+     */
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    /**
+     * Reads the current value as a short, bytes will be widened.
+     *
+     * @return The value
+     * @throws IOException If the data couldn't be read or the value isn't a short
+     */
+    public short readShort() throws IOException {
+        final byte type = consume();
+        if (type == SHORT) {
+            return this.buf.readShort();
+        } else if (type == BYTE || type == BOOLEAN) {
+            return this.buf.readByte();
+        }
+        throw unexpectedType(type, "short");
+    }
+
+    /**
+     * Reads the current value as an int, bytes and shorts will be widened.
+     *
+     * @return The value
+     * @throws IOException If the data couldn't be read or the value isn't an int
+     */
+    public int readInt() throws IOException {
+        final byte type = consume();
+        if (type == INT) {
+            return this.buf.readInt();
+        } else if (type == SHORT) {
+            return this.buf.readShort();
+        } else if (type == BYTE || type == BOOLEAN) {
+            return this.buf.readByte();
+        }
+        throw unexpectedType(type, "int");
+    }
+
+    /**
+     * Reads the current value as a long, all the
+     * other integer types will be widened.
+     *
+     * @return The value
+     * @throws IOException If the data couldn't be read or the value isn't a long
+     */
+    public long readLong() throws IOException {
+        final byte type = consume();
+        if (type == LONG) {
+            return this.buf.readLong();
+        } else if (type == INT) {
+            return this.buf.readInt();
+        } else if (type == SHORT) {
+            return this.buf.readShort();
+        } else if (type == BYTE || type == BOOLEAN) {
+            return this.buf.readByte();
+        }
+        throw unexpectedType(type, "long");
+    }
+
+    /**
+     * Reads the current value as a float.
+     *
+     * @return The value
+     * @throws IOException If the data couldn't be read or the value isn't a float
+     */
+    public float readFloat() throws IOException {
+        final byte type = consume();
+        if (type != FLOAT) {
+            throw unexpectedType(type, "float");
+        }
+        return this.buf.readFloat();
+    }
+
+    /**
+     * Reads the current value as a double, floats will be widened.
+     *
+     * @return The value
+     * @throws IOException If the data couldn't be read or the value isn't a double
+     */
+    public double readDouble() throws IOException {
+        final byte type = consume();
+        if (type == DOUBLE) {
+            return this.buf.readDouble();
+        } else if (type == FLOAT) {
+            return this.buf.readFloat();
+        }
+        throw unexpectedType(type, "double");
+    }
+
+    /**
+     * Reads the current value as a string.
+     *
+     * @return The value
+     * @throws IOException If the data couldn't be read or the value isn't a string
+     */
+    public String readString() throws IOException {
+        final byte type = consume();
+        if (type != STRING) {
+            throw unexpectedType(type, "string");
+        }
+        return readUTF();
+    }
+
+    /**
+     * Reads the current value as a byte array.
+     *
+     * @return The value
+     * @throws IOException If the data couldn't be read or the value isn't a byte array
+     */
+    public byte[] readByteArray() throws IOException {
+        final byte type = consume();
+        if (type != BYTE_ARRAY) {
+            throw unexpectedType(type, "byte array");
+        }
+        return readByteArray0();
+    }
+
+    /**
+     * Reads the current value as an int array.
+     *
+     * @return The value
+     * @throws IOException If the data couldn't be read or the value isn't an int array
+     */
+    public int[] readIntArray() throws IOException {
+        final byte type = consume();
+        if (type != INT_ARRAY) {
+            throw unexpectedType(type, "int array");
+        }
+        return readIntArray0();
+    }
+
+    /**
+     * Reads the current compound value as a {@link DataContainer}.
+     *
+     * @return The data container
+     * @throws IOException If the data couldn't be read or the value isn't a compound
+     */
+    public DataContainer readContainer() throws IOException {
+        final byte type = consume();
+        if (type != COMPOUND) {
+            throw unexpectedType(type, "compound");
+        }
+        return (DataContainer) readPayload(DataContainer.createNew(DataView.SafetyMode.NO_DATA_CLONED), COMPOUND, this.depth);
+    }
+
+    /**
+     * Reads the current value as a object, compounds will be
+     * decoded as {@link DataView}s and lists as {@link List}s.
+     *
+     * @return The value
+     * @throws IOException If the data couldn't be read
+     */
+    public Object readValue() throws IOException {
+        final byte type = consume();
+        return readPayload(null, type, this.depth);
+    }
+
+    /**
+     * Skips the current value without decoding it.
+     *
+     * @throws IOException If the data couldn't be read
+     */
+    public void skipValue() throws IOException {
+        skipPayload(consume(), this.depth);
+    }
+
+    private void checkDepth(int depth) throws IOException {
+        if (depth > this.maximumDepth) {
+            throw new IOException("Attempted to read a data container with too high complexity,"
+                    + " exceeded the maximum depth of " + this.maximumDepth);
+        }
+    }
+
+    private void skipPayload(byte type, int depth) throws IOException {
+        checkDepth(depth);
+        switch (type) {
+            case BYTE:
+            case BOOLEAN:
+                this.buf.skipBytes(1);
+                break;
+            case SHORT:
+                this.buf.skipBytes(2);
+                break;
+            case INT:
+            case FLOAT:
+                this.buf.skipBytes(4);
+                break;
+            case LONG:
+            case DOUBLE:
+                this.buf.skipBytes(8);
+                break;
+            case BYTE_ARRAY:
+                this.buf.skipBytes(this.buf.readInt());
+                break;
+            case INT_ARRAY:
+                this.buf.skipBytes(this.buf.readInt() * 4);
+                break;
+            case STRING:
+                this.buf.skipBytes(this.buf.readUnsignedShort());
+                break;
+            case LIST:
+            case BOOLEAN_LIST:
+                final byte elementType = this.buf.readByte();
+                final int size = this.buf.readInt();
+                if (elementType != END) {
+                    for (int i = 0; i < size; i++) {
+                        skipPayload(elementType, depth + 1);
+                    }
+                }
+                break;
+            case COMPOUND:
+                byte entryType;
+                while ((entryType = this.buf.readByte()) != END) {
+                    this.buf.skipBytes(this.buf.readUnsignedShort());
+                    skipPayload(entryType, depth + 1);
+                }
+                break;
+            default:
+                throw new IOException("Attempt to skip an unknown nbt tag type: " + type);
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private Object readPayload(@Nullable DataView container, byte type, int depth) throws IOException {
+        checkDepth(depth);
+        switch (type) {
+            case BYTE:
+                return this.buf.readByte();
+            case BOOLEAN:
+                return this.buf.readByte() != 0;
+            case SHORT:
+                return this.buf.readShort();
+            case INT:
+                return this.buf.readInt();
+            case LONG:
+                return this.buf.readLong();
+            case FLOAT:
+                return this.buf.readFloat();
+            case DOUBLE:
+                return this.buf.readDouble();
+            case BYTE_ARRAY:
+                return readByteArray0();
+            case INT_ARRAY:
+                return readIntArray0();
+            case STRING:
+                return readUTF();
+            case LIST:
+            case BOOLEAN_LIST:
+                byte elementType = this.buf.readByte();
+                if (type == BOOLEAN_LIST) {
+                    elementType = BOOLEAN;
+                }
+                final int size = this.buf.readInt();
+                if (size <= 0 || elementType == END) {
+                    return Lists.newArrayList();
+                }
+                checkListSize(size);
+                final List list = Lists.newArrayListWithExpectedSize(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readPayload(null, elementType, depth + 1));
+                }
+                return list;
+            case COMPOUND:
+                if (container == null) {
+                    container = DataContainer.createNew(DataView.SafetyMode.NO_DATA_CLONED);
+                }
+                byte entryType;
+                while ((entryType = this.buf.readByte()) != END) {
+                    String name = readUTF();
+                    final int index = name.lastIndexOf(BOOLEAN_IDENTIFER);
+                    if (index != -1) {
+                        name = name.substring(0, index);
+                        entryType = entryType == LIST ? BOOLEAN_LIST : BOOLEAN;
+                    }
+                    final DataQuery query = DataQuery.of(name);
+                    if (entryType == COMPOUND) {
+                        readPayload(container.createView(query), entryType, depth + 1);
+                    } else {
+                        container.set(query, readPayload(null, entryType, depth + 1));
+                    }
+                }
+                return container;
+            default:
+                throw new IOException("Attempt to deserialize an unknown nbt tag type: " + type);
+        }
+    }
+
+    private void checkListSize(int size) throws IOException {
+        // Every element takes at least one byte, don't
+        // allocate lists for data that isn't available
+        if (size > this.buf.readableBytes()) {
+            throw new IOException("Invalid list size: " + size);
+        }
+    }
+
+    private byte[] readByteArray0() throws IOException {
+        final int length = this.buf.readInt();
+        if (length < 0 || length > this.buf.readableBytes()) {
+            throw new IOException("Invalid byte array length: " + length);
+        }
+        final byte[] array = new byte[length];
+        this.buf.readBytes(array);
+        return array;
+    }
+
+    private int[] readIntArray0() throws IOException {
+        final int length = this.buf.readInt();
+        if (length < 0 || length > this.buf.readableBytes() / 4) {
+            throw new IOException("Invalid int array length: " + length);
+        }
+        final int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = this.buf.readInt();
+        }
+        return array;
+    }
+
+    /**
+     * Reads a string in the modified UTF-8 format that
+     * is used by {@link java.io.DataInput#readUTF()}.
+     *
+     * @return The string
+     * @throws IOException If the string is malformed
+     */
+    private String readUTF() throws IOException {
+        final int length = this.buf.readUnsignedShort();
+        final int start = this.buf.readerIndex();
+        final int end = start + length;
+        if (end > this.buf.writerIndex()) {
+            throw new IOException("Malformed string, the length exceeds the available data: " + length);
+        }
+        final char[] chars = new char[length];
+        int count = 0;
+        int index = start;
+        while (index < end) {
+            final int c = this.buf.getByte(index) & 0xff;
+            if (c < 0x80) {
+                chars[count++] = (char) c;
+                index++;
+            } else if ((c & 0xe0) == 0xc0) {
+                if (index + 1 >= end) {
+                    throw new UTFDataFormatException("Malformed string, partial character at end");
+                }
+                final int c1 = this.buf.getByte(index + 1);
+                if ((c1 & 0xc0) != 0x80) {
+                    throw new UTFDataFormatException("Malformed string around byte " + (index - start));
+                }
+                chars[count++] = (char) (((c & 0x1f) << 6) | (c1 & 0x3f));
+                index += 2;
+            } else if ((c & 0xf0) == 0xe0) {
+                if (index + 2 >= end) {
+                    throw new UTFDataFormatException("Malformed string, partial character at end");
+                }
+                final int c1 = this.buf.getByte(index + 1);
+                final int c2 = this.buf.getByte(index + 2);
+                if ((c1 & 0xc0) != 0x80 || (c2 & 0xc0) != 0x80) {
+                    throw new UTFDataFormatException("Malformed string around byte " + (index - start));
+                }
+                chars[count++] = (char) (((c & 0x0f) << 12) | ((c1 & 0x3f) << 6) | (c2 & 0x3f));
+                index += 3;
+            } else {
+                throw new UTFDataFormatException("Malformed string around byte " + (index - start));
+            }
+        }
+        this.buf.readerIndex(end);
+        return new String(chars, 0, count);
+    }
+}
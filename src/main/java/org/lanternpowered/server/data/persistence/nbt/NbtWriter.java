@@ -0,0 +1,530 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.data.persistence.nbt;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.BOOLEAN;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.BOOLEAN_IDENTIFER;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.BYTE;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.BYTE_ARRAY;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.COMPOUND;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.DOUBLE;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.END;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.FLOAT;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.INT;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.INT_ARRAY;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.LIST;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.LONG;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.SHORT;
+import static org.lanternpowered.server.data.persistence.nbt.NbtConstants.STRING;
+
+import io.netty.buffer.ByteBuf;
+import org.spongepowered.api.data.DataQuery;
+import org.spongepowered.api.data.DataSerializable;
+import org.spongepowered.api.data.DataView;
+
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * A writer that writes nbt data directly to a {@link ByteBuf}, without
+ * the need to build a {@link DataView} first.
+ *
+ * <p>Every value within a compound must be preceded by a {@link #name(String)},
+ * elements of a list don't have names. The elements of a list must all have
+ * the same type, the size doesn't have to be known up front.</p>
+ * <pre>
+ * writer.beginCompound();
+ * writer.name("xPos").writeInt(x);
+ * writer.name("Sections").beginList();
+ * ...
+ * writer.endList();
+ * writer.endCompound();
+ * </pre>
+ */
+public final class NbtWriter {
+
+    private final ByteBuf buf;
+
+    // The type of every context, a compound or a list
+    private byte[] contextTypes = new byte[8];
+    // The name of a list until its header is written
+    private String[] listNames = new String[8];
+    // The element type of a list, or END if the header wasn't written yet
+    private byte[] elementTypes = new byte[8];
+    // The index of the size of a list within the buffer
+    private int[] sizeIndexes = new int[8];
+    // The amount of elements within a list
+    private int[] sizes = new int[8];
+    private int depth;
+
+    private boolean rootWritten;
+    @Nullable private String name;
+
+    /**
+     * Creates a new nbt writer.
+     *
+     * @param buf The byte buffer to write to
+     */
+    public NbtWriter(ByteBuf buf) {
+        this.buf = checkNotNull(buf, "buf");
+    }
+
+    /**
+     * Sets the name of the next value, names are
+     * required for every value within a compound.
+     *
+     * @param name The name
+     * @return This writer, for chaining
+     */
+    public NbtWriter name(String name) {
+        checkNotNull(name, "name");
+        checkState(this.name == null, "The name of the next value is already set.");
+        checkState(this.depth == 0 || this.contextTypes[this.depth - 1] == COMPOUND, "Elements of a list cannot have names.");
+        this.name = name;
+        return this;
+    }
+
+    private String consumeName() {
+        String name = this.name;
+        if (name == null) {
+            checkState(this.depth == 0, "A name must be set for every value within a compound.");
+            name = "";
+        }
+        this.name = null;
+        return name;
+    }
+
+    /**
+     * Starts writing a value of the given type, this writes the header of the
+     * value within a compound or commits the element type of the current list.
+     *
+     * @param type The type of the value
+     */
+    private void beginValue(byte type) throws IOException {
+        if (this.depth == 0) {
+            checkState(!this.rootWritten, "The root value is already written.");
+            this.rootWritten = true;
+            writeHeader(type, consumeName());
+        } else if (this.contextTypes[this.depth - 1] == COMPOUND) {
+            writeHeader(type, consumeName());
+        } else {
+            addListElement(this.depth - 1, type);
+        }
+    }
+
+    private void writeHeader(byte type, String name) throws IOException {
+        if (type == BOOLEAN) {
+            this.buf.writeByte(BYTE);
+            writeUTF(name + BOOLEAN_IDENTIFER);
+        } else {
+            this.buf.writeByte(type);
+            writeUTF(name);
+        }
+    }
+
+    private void addListElement(int index, byte type) throws IOException {
+        final byte elementType = this.elementTypes[index];
+        if (elementType == END) {
+            writeListHeader(index, type);
+        } else if (elementType != type) {
+            throw new IOException("Attempted to add an element with the nbt tag type " + type
+                    + " to a list with the element type " + elementType);
+        }
+        this.sizes[index]++;
+    }
+
+    /**
+     * Writes the header of the list, this is delayed until the first element
+     * is added, the name of a list of booleans gets a special suffix.
+     */
+    private void writeListHeader(int index, byte elementType) throws IOException {
+        if (index == 0) {
+            checkState(!this.rootWritten, "The root value is already written.");
+            this.rootWritten = true;
+        }
+        if (index == 0 || this.contextTypes[index - 1] == COMPOUND) {
+            final String name = this.listNames[index];
+            this.listNames[index] = null;
+            this.buf.writeByte(LIST);
+            writeUTF(elementType == BOOLEAN ? name + BOOLEAN_IDENTIFER : name);
+        } else {
+            addListElement(index - 1, LIST);
+        }
+        this.buf.writeByte(elementType == BOOLEAN ? BYTE : elementType);
+        this.sizeIndexes[index] = this.buf.writerIndex();
+        this.buf.writeInt(0);
+        this.elementTypes[index] = elementType;
+    }
+
+    private void push(byte contextType) {
+        if (this.depth == this.contextTypes.length) {
+            final int length = this.depth * 2;
+            this.contextTypes = Arrays.copyOf(this.contextTypes, length);
+            this.listNames = Arrays.copyOf(this.listNames, length);
+            this.elementTypes = Arrays.copyOf(this.elementTypes, length);
+            this.sizeIndexes = Arrays.copyOf(this.sizeIndexes, length);
+            this.sizes = Arrays.copyOf(this.sizes, length);
+        }
+        this.contextTypes[this.depth] = contextType;
+        this.depth++;
+    }
+
+    /**
+     * Starts writing a compound value.
+     *
+     * @return This writer, for chaining
+     * @throws IOException If the compound couldn't be written
+     */
+    public NbtWriter beginCompound() throws IOException {
+        beginValue(COMPOUND);
+        push(COMPOUND);
+        return this;
+    }
+
+    /**
+     * Ends writing the current compound value.
+     *
+     * @return This writer, for chaining
+     */
+    public NbtWriter endCompound() {
+        checkState(this.depth > 0 && this.contextTypes[this.depth - 1] == COMPOUND,
+                "Attempted to end a compound that wasn't started.");
+        checkState(this.name == null, "A name was set without a value.");
+        this.buf.writeByte(END);
+        this.depth--;
+        return this;
+    }
+
+    /**
+     * Starts writing a list value.
+     *
+     * @return This writer, for chaining
+     */
+    public NbtWriter beginList() {
+        // The header will be written once the element type is known
+        final boolean named = this.depth == 0 || this.contextTypes[this.depth - 1] == COMPOUND;
+        final String name = named ? consumeName() : null;
+        push(LIST);
+        final int index = this.depth - 1;
+        this.listNames[index] = name;
+        this.elementTypes[index] = END;
+        this.sizes[index] = 0;
+        return this;
+    }
+
+    /**
+     * Ends writing the current list value.
+     *
+     * @return This writer, for chaining
+     * @throws IOException If the list couldn't be written
+     */
+    public NbtWriter endList() throws IOException {
+        checkState(this.depth > 0 && this.contextTypes[this.depth - 1] == LIST,
+                "Attempted to end a list that wasn't started.");
+        final int index = this.depth - 1;
+        if (this.elementTypes[index] == END) {
+            // An empty list
+            writeListHeader(index, END);
+        }
+        this.buf.setInt(this.sizeIndexes[index], this.sizes[index]);
+        this.depth--;
+        return this;
+    }
+
+    /**
+     * Writes a boolean value.
+     *
+     * @param value The value
+     * @return This writer, for chaining
+     * @throws IOException If the value couldn't be written
+     */
+    public NbtWriter writeBoolean(boolean value) throws IOException {
+        // Booleans within lists are stored as plain bytes
+        beginValue(this.depth > 0 && this.contextTypes[this.depth - 1] == LIST &&
+                this.elementTypes[this.depth - 1] == BYTE ? BYTE : BOOLEAN);
+        this.buf.writeByte(value ? 1 : 0);
+        return this;
+    }
+
+    /**
+     * Writes a byte value.
+     *
+     * @param value The value
+     * @return This writer, for chaining
+     * @throws IOException If the value couldn't be written
+     */
+    public NbtWriter writeByte(byte value) throws IOException {
+        beginValue(BYTE);
+        this.buf.writeByte(value);
+        return this;
+    }
+
+    /**
+     * Writes a short value.
+     *
+     * @param value The value
+     * @return This writer, for chaining
+     * @throws IOException If the value couldn't be written
+     */
+    public NbtWriter writeShort(short value) throws IOException {
+        beginValue(SHORT);
+        this.buf.writeShort(value);
+        return this;
+    }
+
+    /**
+     * Writes an int value.
+     *
+     * @param value The value
+     * @return This writer, for chaining
+     * @throws IOException If the value couldn't be written
+     */
+    public NbtWriter writeInt(int value) throws IOException {
+        beginValue(INT);
+        this.buf.writeInt(value);
+        return this;
+    }
+
+    /**
+     * Writes a long value.
+     *
+     * @param value The value
+     * @return This writer, for chaining
+     * @throws IOException If the value couldn't be written
+     */
+    public NbtWriter writeLong(long value) throws IOException {
+        beginValue(LONG);
+        this.buf.writeLong(value);
+        return this;
+    }
+
+    /**
+     * Writes a float value.
+     *
+     * @param value The value
+     * @return This writer, for chaining
+     * @throws IOException If the value couldn't be written
+     */
+    public NbtWriter writeFloat(float value) throws IOException {
+        beginValue(FLOAT);
+        this.buf.writeFloat(value);
+        return this;
+    }
+
+    /**
+     * Writes a double value.
+     *
+     * @param value The value
+     * @return This writer, for chaining
+     * @throws IOException If the value couldn't be written
+     */
+    public NbtWriter writeDouble(double value) throws IOException {
+        beginValue(DOUBLE);
+        this.buf.writeDouble(value);
+        return this;
+    }
+
+    /**
+     * Writes a string value.
+     *
+     * @param value The value
+     * @return This writer, for chaining
+     * @throws IOException If the value couldn't be written
+     */
+    public NbtWriter writeString(String value) throws IOException {
+        checkNotNull(value, "value");
+        beginValue(STRING);
+        writeUTF(value);
+        return this;
+    }
+
+    /**
+     * Writes a byte array value.
+     *
+     * @param value The value
+     * @return This writer, for chaining
+     * @throws IOException If the value couldn't be written
+     */
+    public NbtWriter writeByteArray(byte[] value) throws IOException {
+        checkNotNull(value, "value");
+        beginValue(BYTE_ARRAY);
+        this.buf.writeInt(value.length);
+        this.buf.writeBytes(value);
+        return this;
+    }
+
+    /**
+     * Writes an int array value.
+     *
+     * @param value The value
+     * @return This writer, for chaining
+     * @throws IOException If the value couldn't be written
+     */
+    public NbtWriter writeIntArray(int[] value) throws IOException {
+        checkNotNull(value, "value");
+        beginValue(INT_ARRAY);
+        this.buf.writeInt(value.length);
+        for (int v : value) {
+            this.buf.writeInt(v);
+        }
+        return this;
+    }
+
+    /**
+     * Writes the {@link DataView} as a compound value.
+     *
+     * @param dataView The data view
+     * @return This writer, for chaining
+     * @throws IOException If the data view couldn't be written
+     */
+    public NbtWriter writeView(DataView dataView) throws IOException {
+        return writeValue(checkNotNull(dataView, "dataView"));
+    }
+
+    /**
+     * Writes the object, {@link DataView}s, {@link DataSerializable}s and
+     * {@link Map}s are written as compounds and {@link List}s as lists.
+     *
+     * @param object The object
+     * @return This writer, for chaining
+     * @throws IOException If the object couldn't be written
+     */
+    @SuppressWarnings("unchecked")
+    public NbtWriter writeValue(Object object) throws IOException {
+        checkNotNull(object, "object");
+        if (object instanceof Boolean) {
+            writeBoolean((Boolean) object);
+        } else if (object instanceof Byte) {
+            writeByte((Byte) object);
+        } else if (object instanceof Short) {
+            writeShort((Short) object);
+        } else if (object instanceof Integer) {
+            writeInt((Integer) object);
+        } else if (object instanceof Long) {
+            writeLong((Long) object);
+        } else if (object instanceof Float) {
+            writeFloat((Float) object);
+        } else if (object instanceof Double) {
+            writeDouble((Double) object);
+        } else if (object instanceof String) {
+            writeString((String) object);
+        } else if (object instanceof byte[]) {
+            writeByteArray((byte[]) object);
+        } else if (object instanceof Byte[]) {
+            final Byte[] array = (Byte[]) object;
+            final byte[] array0 = new byte[array.length];
+            for (int i = 0; i < array0.length; i++) {
+                array0[i] = array[i];
+            }
+            writeByteArray(array0);
+        } else if (object instanceof int[]) {
+            writeIntArray((int[]) object);
+        } else if (object instanceof Integer[]) {
+            final Integer[] array = (Integer[]) object;
+            final int[] array0 = new int[array.length];
+            for (int i = 0; i < array0.length; i++) {
+                array0[i] = array[i];
+            }
+            writeIntArray(array0);
+        } else if (object instanceof List) {
+            beginList();
+            for (Object element : (List<Object>) object) {
+                writeValue(element);
+            }
+            endList();
+        } else if (object instanceof DataView || object instanceof DataSerializable || object instanceof Map) {
+            final Map<?, Object> values;
+            if (object instanceof DataView) {
+                values = ((DataView) object).getValues(false);
+            } else if (object instanceof DataSerializable) {
+                values = ((DataSerializable) object).toContainer().getValues(false);
+            } else {
+                values = (Map<?, Object>) object;
+            }
+            beginCompound();
+            for (Map.Entry<?, Object> entry : values.entrySet()) {
+                final Object key = entry.getKey();
+                name(key instanceof DataQuery ? ((DataQuery) key).asString('.') : key.toString());
+                try {
+                    writeValue(entry.getValue());
+                } catch (Exception e) {
+                    throw new IOException("Exception while serializing key: " + key, e);
+                }
+            }
+            endCompound();
+        } else {
+            throw new IOException("Attempted to serialize an unsupported object type: " + object.getClass().getName());
+        }
+        return this;
+    }
+
+    /**
+     * Writes a string in the modified UTF-8 format that
+     * is used by {@link java.io.DataOutput#writeUTF(String)}.
+     *
+     * @param value The string
+     * @throws IOException If the string is too long
+     */
+    private void writeUTF(String value) throws IOException {
+        final int length = value.length();
+        int utfLength = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x0001 && c <= 0x007f) {
+                utfLength++;
+            } else if (c > 0x07ff) {
+                utfLength += 3;
+            } else {
+                utfLength += 2;
+            }
+        }
+        if (utfLength > 65535) {
+            throw new UTFDataFormatException("Encoded string too long: " + utfLength + " bytes");
+        }
+        this.buf.ensureWritable(utfLength + 2);
+        this.buf.writeShort(utfLength);
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c >= 0x0001 && c <= 0x007f) {
+                this.buf.writeByte(c);
+            } else if (c > 0x07ff) {
+                this.buf.writeByte(0xe0 | ((c >> 12) & 0x0f));
+                this.buf.writeByte(0x80 | ((c >> 6) & 0x3f));
+                this.buf.writeByte(0x80 | (c & 0x3f));
+            } else {
+                this.buf.writeByte(0xc0 | ((c >> 6) & 0x1f));
+                this.buf.writeByte(0x80 | (c & 0x3f));
+            }
+        }
+    }
+}
@@ -29,6 +29,7 @@
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
+import org.lanternpowered.server.data.key.KeyIds;
 import org.lanternpowered.server.data.processor.ValueProcessorKeyRegistration;
 import org.lanternpowered.server.data.value.immutable.ImmutableLanternEntityValue;
 import org.lanternpowered.server.data.value.immutable.ImmutableLanternItemValue;
@@ -74,6 +75,7 @@
 import org.spongepowered.api.item.inventory.ItemStack;
 import org.spongepowered.api.util.weighted.WeightedTable;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -99,6 +101,8 @@ public static LanternValueFactory get() {
     private final Map<Key<?>, ValueProcessorKeyRegistration> keyRegistrations = new HashMap<>();
     private final Collection<ValueProcessorKeyRegistration<?,?>> unmodifiableKeyRegistrations =
             Collections.unmodifiableCollection((Collection) this.keyRegistrations.values());
+    // The key registrations indexed by the id of their key, for fast lookups
+    private volatile ValueProcessorKeyRegistration[] keyRegistrationsById = new ValueProcessorKeyRegistration[0];
 
     private final static Comparator<Integer> INT_COMPARATOR = Integer::compare;
     private final static Comparator<Double> DOUBLE_COMPARATOR = Double::compare;
@@ -189,11 +193,35 @@ private LanternValueFactory() {
     public <V extends BaseValue<E>, E> ValueProcessorKeyRegistration<V, E> registerKey(Key<? extends V> key) {
         final ValueProcessorKeyRegistration<V, E> registration = ValueProcessorKeyRegistration.create(key);
         this.keyRegistrations.put(key, registration);
+        final int id = KeyIds.getOrAssignId(key);
+        ValueProcessorKeyRegistration[] keyRegistrationsById = this.keyRegistrationsById;
+        if (id >= keyRegistrationsById.length) {
+            keyRegistrationsById = Arrays.copyOf(keyRegistrationsById, id + 1);
+        }
+        keyRegistrationsById[id] = registration;
+        this.keyRegistrationsById = keyRegistrationsById;
         return registration;
     }
 
     public <V extends BaseValue<E>, E> Optional<ValueProcessorKeyRegistration<V, E>> getKeyRegistration(Key<? extends V> key) {
-        return Optional.ofNullable(this.keyRegistrations.get(checkNotNull(key, "key")));
+        return Optional.ofNullable(getKeyRegistrationOrNull(checkNotNull(key, "key")));
+    }
+
+    /**
+     * Gets the global {@link ValueProcessorKeyRegistration} for the given
+     * {@link Key}, or {@code null} if not present. Unlike
+     * {@link #getKeyRegistration(Key)} this doesn't allocate any objects.
+     *
+     * @param key The key
+     * @param <V> The value type
+     * @param <E> The element type
+     * @return The key registration, or null if not present
+     */
+    @Nullable
+    public <V extends BaseValue<E>, E> ValueProcessorKeyRegistration<V, E> getKeyRegistrationOrNull(Key<?> key) {
+        final int id = KeyIds.getId(key);
+        final ValueProcessorKeyRegistration[] keyRegistrationsById = this.keyRegistrationsById;
+        return id >= 0 && id < keyRegistrationsById.length ? keyRegistrationsById[id] : null;
     }
 
     public Collection<ValueProcessorKeyRegistration<?,?>> getKeyRegistrations() {
@@ -148,6 +148,11 @@ public class LanternEntity implements Entity, IAdditionalDataHolder, AbstractPro
 
     @Nullable private volatile Vector3i lastChunkCoords;
 
+    /**
+     * The index of this entity in the ticked entities of the world, or -1.
+     */
+    private int tickIndex = -1;
+
     /**
      * The base of the {@link AABB} of this entity.
      */
@@ -336,6 +341,14 @@ public void setLastChunkCoords(@Nullable Vector3i coords) {
         this.lastChunkCoords = coords;
     }
 
+    public int getTickIndex() {
+        return this.tickIndex;
+    }
+
+    public void setTickIndex(int tickIndex) {
+        this.tickIndex = tickIndex;
+    }
+
     @Override
     public boolean isOnGround() {
         return this.onGround;
@@ -30,18 +30,24 @@
 import static org.lanternpowered.server.world.chunk.LanternChunk.CHUNK_SECTION_VOLUME;
 
 import com.flowpowered.math.vector.Vector2i;
+import com.flowpowered.math.vector.Vector3d;
 import com.flowpowered.math.vector.Vector3i;
 import com.google.common.collect.Sets;
+import io.netty.channel.Channel;
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
 import it.unimi.dsi.fastutil.shorts.Short2ObjectMap;
 import it.unimi.dsi.fastutil.shorts.Short2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.shorts.Short2ShortMap;
-import it.unimi.dsi.fastutil.shorts.Short2ShortOpenHashMap;
 import org.lanternpowered.server.block.action.BlockAction;
 import org.lanternpowered.server.block.tile.LanternTileEntity;
 import org.lanternpowered.server.data.io.store.ObjectSerializer;
 import org.lanternpowered.server.data.io.store.ObjectSerializerRegistry;
+import org.lanternpowered.server.game.Lantern;
 import org.lanternpowered.server.game.registry.type.block.BlockRegistryModule;
+import org.lanternpowered.server.network.NetworkSession;
 import org.lanternpowered.server.network.message.Message;
+import org.lanternpowered.server.network.pipeline.EncodedMessage;
 import org.lanternpowered.server.network.vanilla.message.type.play.MessagePlayOutBlockAction;
 import org.lanternpowered.server.network.vanilla.message.type.play.MessagePlayOutBlockChange;
 import org.lanternpowered.server.network.vanilla.message.type.play.MessagePlayOutChunkData;
@@ -50,6 +56,7 @@
 import org.lanternpowered.server.util.collect.array.VariableValueArray;
 import org.lanternpowered.server.world.LanternWorld;
 import org.lanternpowered.server.world.WorldEventListener;
+import org.lanternpowered.server.world.chunk.ChunkBlockStateStorage;
 import org.lanternpowered.server.world.chunk.LanternChunk;
 import org.spongepowered.api.block.BlockState;
 import org.spongepowered.api.block.BlockType;
@@ -59,15 +66,21 @@
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import javax.annotation.Nullable;
+
 public final class ObservedChunkManager implements WorldEventListener {
 
     /**
@@ -80,14 +93,210 @@ public final class ObservedChunkManager implements WorldEventListener {
      */
     private final Map<Long, ObservedChunk> observedChunks = new ConcurrentHashMap<>();
 
+    /**
+     * All the chunks that need to be resend completely, resending
+     * is expensive so this is done with the deferred work.
+     */
+    private final Set<ObservedChunk> dirtyChunks = new LinkedHashSet<>();
+
+    /**
+     * The chunks that are waiting to be send to each player.
+     */
+    private final Map<LanternPlayer, ChunkSendQueue> sendQueues = new ConcurrentHashMap<>();
+
+    /**
+     * The index of the player whose chunks will be send first, players
+     * take turns so that a single player can't use the complete budget.
+     */
+    private int nextSendQueue;
+
     public ObservedChunkManager(LanternWorld world) {
         this.world = world;
     }
 
+    /**
+     * Sends the chunks that are queued for the players until the deadline passes. A
+     * limited amount of chunks is send to each player per tick, and only while the
+     * channel of the player is writable, to avoid that the network buffers are
+     * flooded when a player joins or teleports.
+     *
+     * @param deadline The deadline, in terms of {@link System#nanoTime()}
+     */
+    public void sendQueuedChunks(long deadline) {
+        if (this.sendQueues.isEmpty()) {
+            return;
+        }
+        final List<ChunkSendQueue> sendQueues = new ArrayList<>(this.sendQueues.values());
+        final int maxChunks = this.world.getProperties().getConfig().getChunkSendsPerTick();
+        final int size = sendQueues.size();
+        final int start = this.nextSendQueue % size;
+        for (int i = 0; i < size; i++) {
+            final ChunkSendQueue sendQueue = sendQueues.get((start + i) % size);
+            if (sendQueue.player.getWorld() != this.world) {
+                // The player left the world, all the observed chunks were
+                // already removed, so there is nothing left to send
+                this.sendQueues.remove(sendQueue.player, sendQueue);
+                continue;
+            }
+            sendQueue.send(maxChunks, deadline);
+            if (System.nanoTime() >= deadline) {
+                this.nextSendQueue = start + i + 1;
+                return;
+            }
+        }
+    }
+
+    private void queueSend(ObservedChunk observedChunk, LanternPlayer player) {
+        final ChunkSendQueue sendQueue = this.sendQueues.computeIfAbsent(player, ChunkSendQueue::new);
+        if (sendQueue.pending.add(observedChunk)) {
+            sendQueue.changed.set(true);
+        }
+    }
+
+    private void cancelSend(ObservedChunk observedChunk, LanternPlayer player) {
+        final ChunkSendQueue sendQueue = this.sendQueues.get(player);
+        if (sendQueue != null) {
+            sendQueue.pending.remove(observedChunk);
+        }
+    }
+
+    private final class ChunkSendQueue {
+
+        private final LanternPlayer player;
+
+        /**
+         * The chunks that should be send, the chunks can be queued
+         * from any thread, chunks are loaded asynchronously.
+         */
+        private final Set<ObservedChunk> pending = Sets.newConcurrentHashSet();
+
+        /**
+         * Whether chunks were queued since the last time that the chunks were sorted.
+         */
+        private final AtomicBoolean changed = new AtomicBoolean();
+
+        /**
+         * The key of the chunk the player was located in when the chunks were sorted.
+         */
+        private long sortedChunkKey;
+
+        // The sorted snapshot of the pending chunks, the arrays are reused between the ticks,
+        // the order contains the indexes of the chunks sorted by their priorities
+        private ObservedChunk[] chunks = new ObservedChunk[0];
+        private double[] priorities = new double[0];
+        private int[] order = new int[0];
+        private int count;
+        private int index;
+
+        private final IntComparator comparator = new AbstractIntComparator() {
+            @Override
+            public int compare(int k1, int k2) {
+                return Double.compare(priorities[k1], priorities[k2]);
+            }
+        };
+
+        private ChunkSendQueue(LanternPlayer player) {
+            this.player = player;
+        }
+
+        void send(int maxChunks, long deadline) {
+            if (this.pending.isEmpty()) {
+                return;
+            }
+            final Channel channel = this.player.getConnection().getChannel();
+            if (!channel.isWritable()) {
+                // Wait for netty to flush the previous chunks
+                return;
+            }
+            final Vector3d position = this.player.getPosition();
+            final long chunkKey = LanternChunk.key(position.getFloorX() >> 4, position.getFloorZ() >> 4);
+            // Only sort the chunks again if the player moved to another chunk or if new
+            // chunks were queued, the remaining order is still valid in the other cases
+            if (this.changed.getAndSet(false) || chunkKey != this.sortedChunkKey) {
+                this.sortedChunkKey = chunkKey;
+                sort(position);
+            }
+
+            int sent = 0;
+            while (this.index < this.count) {
+                if (sent >= maxChunks || !channel.isWritable() || (sent > 0 && System.nanoTime() >= deadline)) {
+                    break;
+                }
+                final ObservedChunk observedChunk = this.chunks[this.order[this.index++]];
+                // Wait until the population is finished, otherwise
+                // the chunk would be send again once it's populated
+                if (observedChunk.isPopulating()) {
+                    continue;
+                }
+                if (this.pending.remove(observedChunk) && observedChunk.sendTo(this.player)) {
+                    sent++;
+                }
+            }
+            if (this.index >= this.count && !this.pending.isEmpty()) {
+                // Chunks that were skipped or queued in the meantime are left
+                this.changed.set(true);
+            }
+        }
+
+        private void sort(Vector3d position) {
+            int count = 0;
+            for (ObservedChunk observedChunk : this.pending) {
+                if (count == this.chunks.length) {
+                    final int length = Math.max(16, count << 1);
+                    this.chunks = Arrays.copyOf(this.chunks, length);
+                    this.priorities = Arrays.copyOf(this.priorities, length);
+                    this.order = Arrays.copyOf(this.order, length);
+                }
+                this.chunks[count++] = observedChunk;
+            }
+            if (count < this.count) {
+                // Clear the references to chunks that are no longer pending
+                Arrays.fill(this.chunks, count, this.count, null);
+            }
+            this.count = count;
+            this.index = 0;
+
+            // Closer chunks are send first, chunks in front of the player
+            // are preferred over the ones behind the player
+            final double yaw = Math.toRadians(this.player.getRotation().getY());
+            final double forwardX = -Math.sin(yaw);
+            final double forwardZ = Math.cos(yaw);
+            for (int i = 0; i < count; i++) {
+                final Vector2i coords = this.chunks[i].coords;
+                final double dx = coords.getX() + 0.5 - position.getX() / 16.0;
+                final double dz = coords.getY() + 0.5 - position.getZ() / 16.0;
+                final double distanceSquared = dx * dx + dz * dz;
+                // Between 0 (in front) and 1 (behind)
+                final double behind = distanceSquared < 1.0 ? 0.0 :
+                        (1.0 - (dx * forwardX + dz * forwardZ) / Math.sqrt(distanceSquared)) * 0.5;
+                this.priorities[i] = distanceSquared * (1.0 + behind);
+                this.order[i] = i;
+            }
+            IntArrays.quickSort(this.order, 0, count, this.comparator);
+        }
+    }
+
     public void pulse() {
         this.observedChunks.values().forEach(ObservedChunkManager.ObservedChunk::streamChanges);
     }
 
+    /**
+     * Resends the chunks that were modified completely
+     * to their observers until the deadline passes.
+     *
+     * @param deadline The deadline, in terms of {@link System#nanoTime()}
+     */
+    public void sendDirtyChunks(long deadline) {
+        final Iterator<ObservedChunk> it = this.dirtyChunks.iterator();
+        while (it.hasNext()) {
+            final ObservedChunk observedChunk = it.next();
+            it.remove();
+            if (observedChunk.streamDirtyChunk() && System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+    }
+
     @Override
     public void onLoadChunk(LanternChunk chunk) {
         final ObservedChunk observedChunk = this.observedChunks.get(chunk.getKey());
@@ -109,6 +318,7 @@ public void onPopulateChunk(LanternChunk chunk) {
         final ObservedChunk observedChunk = this.observedChunks.get(chunk.getKey());
         if (observedChunk != null) {
             observedChunk.dirtyChunk = true;
+            observedChunk.invalidateChunkData();
         }
     }
 
@@ -117,6 +327,7 @@ public void onBlockChange(int x, int y, int z, BlockState oldBlockState, BlockSt
         final long key = LanternChunk.key(x >> 4, z >> 4);
         final ObservedChunk observedChunk = this.observedChunks.get(key);
         if (observedChunk != null) {
+            observedChunk.invalidateChunkData();
             observedChunk.addBlockChange(() -> new Vector3i(x, y, z));
             if (oldBlockState.getType() != newBlockState.getType()) {
                 observedChunk.removeBlockAction(new Vector3i(x, y, z));
@@ -164,6 +375,10 @@ void removeObserver(Vector2i coords, LanternPlayer observer, boolean updateClien
     private static final MessagePlayOutChunkData.Section EMPTY_SECTION = new MessagePlayOutChunkData.Section(
             EMPTY_SECTION_TYPES, new int[1], EMPTY_SECTION_LIGHT, null, new Short2ObjectOpenHashMap<>());
 
+    // Whether a block state was found that doesn't fit in the client palette,
+    // this is only logged once to avoid flooding the console
+    private static final AtomicBoolean unsupportedStateLogged = new AtomicBoolean();
+
     private class ObservedChunk {
 
         private final class QueuedBlockAction {
@@ -211,10 +426,54 @@ private QueuedBlockAction(BlockAction blockAction, MessagePlayOutBlockAction blo
          */
         private volatile boolean dirtyChunk;
 
+        /**
+         * The version of the chunk data, this will be increased every time the
+         * chunk is modified and will invalidate the shared chunk data message.
+         */
+        private final AtomicInteger chunkDataVersion = new AtomicInteger();
+
+        /**
+         * The shared chunk data message, containing all the sections and biomes, that
+         * is already encoded/compressed and which can be send to all the observers.
+         */
+        @Nullable private EncodedMessage chunkDataMessage;
+        private int chunkDataMessageVersion;
+
         ObservedChunk(Vector2i coords) {
             this.coords = coords;
         }
 
+        void invalidateChunkData() {
+            this.chunkDataVersion.incrementAndGet();
+        }
+
+        /**
+         * Gets the shared chunk data message, a new message will be created if
+         * the chunk was modified since the last one. The returned message is
+         * retained and should be released by the caller.
+         *
+         * @param chunk The chunk
+         * @return The chunk data message
+         */
+        private synchronized EncodedMessage getChunkDataMessage(LanternChunk chunk) {
+            // Get the version before the sections are copied, modifications
+            // while copying will directly invalidate the new message
+            final int version = this.chunkDataVersion.get();
+            if (this.chunkDataMessage == null || this.chunkDataMessageVersion != version) {
+                releaseChunkDataMessage();
+                this.chunkDataMessage = new EncodedMessage(createLoadChunkMessage(chunk, ALL_SECTIONS_BIT_MASK, true));
+                this.chunkDataMessageVersion = version;
+            }
+            return this.chunkDataMessage.retain();
+        }
+
+        private synchronized void releaseChunkDataMessage() {
+            if (this.chunkDataMessage != null) {
+                this.chunkDataMessage.release();
+                this.chunkDataMessage = null;
+            }
+        }
+
         void removeBlockAction(Vector3i coords) {
             this.addedBlockActions.remove(coords);
             this.activeBlockActions.remove(coords);
@@ -242,6 +501,30 @@ void addBlockChange(Supplier<Vector3i> coords) {
             }
         }
 
+        /**
+         * Resends the complete chunk if it's dirty.
+         *
+         * @return Whether the chunk was send
+         */
+        boolean streamDirtyChunk() {
+            if (!this.dirtyChunk) {
+                return false;
+            }
+            final LanternChunk chunk = world.getChunkManager().getChunkIfLoaded(this.coords);
+            if (chunk == null || this.clientObservers.isEmpty()) {
+                return false;
+            }
+            final EncodedMessage message = getChunkDataMessage(chunk);
+            try {
+                this.clientObservers.forEach(player -> player.getConnection().send(message));
+            } finally {
+                message.release();
+            }
+            this.dirtyChunk = false;
+            this.dirtyBlocks.clear();
+            return true;
+        }
+
         void streamChanges() {
             final LanternChunk chunk = world.getChunkManager().getChunkIfLoaded(this.coords);
             if (chunk == null || this.clientObservers.isEmpty()) {
@@ -249,10 +532,8 @@ void streamChanges() {
             }
 
             if (this.dirtyChunk) {
-                final MessagePlayOutChunkData message = createLoadChunkMessage(chunk, ALL_SECTIONS_BIT_MASK, true);
-                this.clientObservers.forEach(player -> player.getConnection().send(message));
-                this.dirtyChunk = false;
-                this.dirtyBlocks.clear();
+                // The block changes are covered by the complete chunk
+                dirtyChunks.add(this);
                 return;
             }
 
@@ -273,7 +554,7 @@ void streamChanges() {
                 final int clumpingThreshold = world.getProperties().getConfig().getChunkClumpingThreshold();
                 if (changes.size() >= clumpingThreshold) {
                     final MessagePlayOutChunkData message = createLoadChunkMessage(chunk, dirtySections, false);
-                    this.clientObservers.forEach(player -> player.getConnection().send(message));
+                    NetworkSession.broadcast(this.clientObservers, message);
                 } else if (changes.size() > 1) {
                     final MessagePlayOutMultiBlockChange message = new MessagePlayOutMultiBlockChange(
                             this.coords.getX(), this.coords.getY(), changes.stream().map(coords -> {
@@ -281,11 +562,11 @@ void streamChanges() {
                                 final int z = coords.getZ() & 0xf;
                                 return new MessagePlayOutBlockChange(new Vector3i(x, coords.getY(), z), chunk.getType(coords));
                             }).collect(Collectors.toList()));
-                    this.clientObservers.forEach(player -> player.getConnection().send(message));
+                    NetworkSession.broadcast(this.clientObservers, message);
                 } else {
                     dirtyBlock = changes.iterator().next();
                     final MessagePlayOutBlockChange message = new MessagePlayOutBlockChange(dirtyBlock, chunk.getType(dirtyBlock));
-                    this.clientObservers.forEach(player -> player.getConnection().send(message));
+                    NetworkSession.broadcast(this.clientObservers, message);
                 }
 
                 // TODO: Also update tile entities
@@ -309,32 +590,65 @@ void streamChanges() {
             }
         }
 
-        private List<Message> createChunkLoadMessages(LanternChunk chunk) {
-            final List<Message> messages = new ArrayList<>();
-            messages.add(createLoadChunkMessage(chunk, ALL_SECTIONS_BIT_MASK, true));
+        private void sendChunkLoadMessages(LanternPlayer observer, EncodedMessage chunkDataMessage) {
+            final NetworkSession connection = observer.getConnection();
+            connection.send(chunkDataMessage);
             if (!this.activeBlockActions.isEmpty()) {
+                final List<Message> messages = new ArrayList<>();
                 this.activeBlockActions.values().forEach(queuedBlockAction -> messages.add(queuedBlockAction.blockActionData));
+                connection.send(messages);
+            }
+        }
+
+        /**
+         * Gets whether the chunk is queued for population or
+         * is currently being populated.
+         *
+         * @return Is populating
+         */
+        boolean isPopulating() {
+            final LanternChunk chunk = world.getChunkManager().getChunkIfLoaded(this.coords);
+            return chunk != null && chunk.isPopulating();
+        }
+
+        /**
+         * Sends the complete chunk to the observer, if the
+         * observer doesn't know the chunk yet.
+         *
+         * @param observer The observer
+         * @return Whether the chunk was send
+         */
+        boolean sendTo(LanternPlayer observer) {
+            if (!this.observers.contains(observer)) {
+                return false;
+            }
+            final LanternChunk chunk = world.getChunkManager().getChunkIfLoaded(this.coords);
+            // The chunk will be queued again once it's loaded
+            if (chunk == null || !this.clientObservers.add(observer)) {
+                return false;
+            }
+            final EncodedMessage chunkDataMessage = getChunkDataMessage(chunk);
+            try {
+                sendChunkLoadMessages(observer, chunkDataMessage);
+            } finally {
+                chunkDataMessage.release();
             }
-            return messages;
+            // TODO: Also send tile entities
+            return true;
         }
 
         /**
-         * Sends a chunk load message to all the observers
-         * of this chunk.
+         * Queues the chunk to be send to all the
+         * observers of this chunk.
          *
          * @param chunk The chunk
          */
         void streamChunkLoad(LanternChunk chunk) {
-            List<Message> messages = null;
             for (LanternPlayer observer : this.observers) {
-                if (this.clientObservers.add(observer)) {
-                    if (messages == null) {
-                        messages = createChunkLoadMessages(chunk);
-                    }
-                    observer.getConnection().send(messages);
+                if (!this.clientObservers.contains(observer)) {
+                    queueSend(this, observer);
                 }
             }
-            // TODO: Also send tile entities
         }
 
         void streamChunkUnload(LanternChunk chunk) {
@@ -347,6 +661,7 @@ void streamChunkUnload(LanternChunk chunk) {
                     observer.getConnection().send(message);
                 }
             }
+            releaseChunkDataMessage();
         }
 
         private MessagePlayOutChunkData createLoadChunkMessage(LanternChunk chunk, int sectionsBitMask, boolean biomes) {
@@ -359,49 +674,41 @@ private MessagePlayOutChunkData createLoadChunkMessage(LanternChunk chunk, int s
             for (int i = 0; i < sections.length; i++) {
                 if (sections[i] != null) {
                     final LanternChunk.ChunkSectionSnapshot section = sections[i];
-                    // The size of the palette
-                    int paletteSize = section.typesCountMap.size();
-                    // The amount of bits for every block state
-                    int bitsPerValue = Integer.highestOneBit(paletteSize);
+                    // The snapshot storage is already paletted in the format
+                    // the client expects, so it can be send without conversion
+                    final ChunkBlockStateStorage types = section.types;
+                    final int bitsPerValue = types.getBitsPerValue();
                     // The palette that will be send to the client
-                    int[] palette;
-                    // The lookup for global to local palette id
-                    Short2ShortMap globalToLocalPalette;
-                    // There seems to be a weird issue, some blocks are not rendered
-                    // on the client (bedrock with the flat generator) and it cannot
-                    // be placed in creative
-                    if (bitsPerValue <= 8) {
-                        // The vanilla client/server will not go lower then 4 bits
-                        if (bitsPerValue < 4) {
-                            bitsPerValue = 4;
-                        }
-                        globalToLocalPalette = new Short2ShortOpenHashMap(paletteSize);
-                        palette = new int[paletteSize];
-                        short currentId = 0;
-                        for (short type : section.typesCountMap.keySet().toShortArray()) {
-                            globalToLocalPalette.put(type, currentId);
-                            palette[currentId] = type;
-                            currentId++;
-                        }
+                    final int[] palette;
+                    final VariableValueArray array;
+                    if (bitsPerValue == 0) {
+                        // The client doesn't support single value palettes, fall back
+                        // to a linear palette where every value points to the state
+                        palette = types.getPaletteEntries();
+                        array = EMPTY_SECTION_TYPES;
+                    } else if (bitsPerValue <= ChunkBlockStateStorage.MAX_LOCAL_BITS_PER_VALUE ||
+                            bitsPerValue == ChunkBlockStateStorage.GLOBAL_BITS_PER_VALUE) {
+                        palette = types.getPaletteEntries();
+                        array = types.getValues();
                     } else {
-                        // int statesCount = Registries.getBlockRegistry().getBlockStatesCount();
-                        // bitsPerValue = Integer.highestOneBit(statesCount);
                         // The value should be the amount of bits per value of
                         // the CLIENT palette, it will otherwise not work.
-                        // This is sadly enough hardcoded in the client
-                        bitsPerValue = 13;
-                        globalToLocalPalette = null;
+                        // This is sadly enough hardcoded in the client, so states
+                        // that don't fit are send as air instead of corrupting them
                         palette = null;
-                    }
-                    final short[] types = section.types;
-                    final VariableValueArray array = new VariableValueArray(bitsPerValue, types.length);
-                    if (globalToLocalPalette != null) {
-                        for (int j = 0; j < types.length; j++) {
-                            array.set(j, globalToLocalPalette.get(types[j]));
-                        }
-                    } else {
-                        for (int j = 0; j < types.length; j++) {
-                            array.set(j, types[j]);
+                        array = new VariableValueArray(ChunkBlockStateStorage.GLOBAL_BITS_PER_VALUE, CHUNK_SECTION_VOLUME);
+                        final int maxValue = (1 << ChunkBlockStateStorage.GLOBAL_BITS_PER_VALUE) - 1;
+                        for (int j = 0; j < CHUNK_SECTION_VOLUME; j++) {
+                            int value = types.get(j) & 0xffff;
+                            if (value > maxValue) {
+                                if (unsupportedStateLogged.compareAndSet(false, true)) {
+                                    Lantern.getLogger().warn("The block state id {} in chunk {} doesn't fit in the {} bits of the client " +
+                                            "palette, it will be send as air. This is only logged once.",
+                                            value, chunk.getCoords(), ChunkBlockStateStorage.GLOBAL_BITS_PER_VALUE);
+                                }
+                                value = 0;
+                            }
+                            array.set(j, value);
                         }
                     }
                     final Short2ObjectMap<DataView> tileEntityDataViews = new Short2ObjectOpenHashMap<>();
@@ -448,6 +755,7 @@ private MessagePlayOutChunkData createLoadChunkMessage(LanternChunk chunk, int s
          *                     again.
          */
         public void removeObserver(LanternPlayer observer, boolean updateClient) {
+            cancelSend(this, observer);
             if (this.observers.remove(observer) &&
                     this.clientObservers.remove(observer) && updateClient) {
                 observer.getConnection().send(new MessagePlayOutUnloadChunk(this.coords.getX(), this.coords.getY()));
@@ -457,25 +765,25 @@ public void removeObserver(LanternPlayer observer, boolean updateClient) {
                 this.dirtyBlocks.clear();
                 this.dirtyChunk = false;
             }
+            if (this.observers.isEmpty()) {
+                releaseChunkDataMessage();
+            }
         }
 
         /**
-         * Adds the observer to this chunk, this may trigger the chunk to
-         * be loaded on the client if the chunk is already loaded.
+         * Adds the observer to this chunk, this will queue the chunk to
+         * be send to the client if the chunk is already loaded.
          *
          * @param observer the observer
          */
         public void addObserver(LanternPlayer observer) {
             if (this.observers.add(observer)) {
-                LanternChunk chunk = world.getChunkManager().getChunkIfLoaded(this.coords);
-                // The chunk is already loaded, we can directly send the messages
-                // to the player
-                if (chunk != null) {
-                    this.clientObservers.add(observer);
-                    observer.getConnection().send(createChunkLoadMessages(chunk));
+                // The chunk is already loaded, queue it to be send to the player
+                if (world.getChunkManager().getChunkIfLoaded(this.coords) != null) {
+                    queueSend(this, observer);
                 }
-                // Otherwise we will wait for the LoadChunkEvent to be called and
-                // send the messages at that point
+                // Otherwise we will wait for the chunk to be loaded
+                // and queue it at that point
             }
         }
     }
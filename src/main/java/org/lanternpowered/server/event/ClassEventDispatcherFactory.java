@@ -0,0 +1,247 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.event;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PROTECTED;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ASTORE;
+import static org.objectweb.asm.Opcodes.BIPUSH;
+import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.PUTFIELD;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.SIPUSH;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+import org.lanternpowered.server.util.DefineableClassLoader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.spongepowered.api.event.Event;
+import org.spongepowered.api.event.EventListener;
+
+import java.lang.reflect.Constructor;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates a {@link EventDispatcher} for every event type. Every listener
+ * gets its own call site in the generated dispatch method, which allows
+ * the JIT to inline the handlers instead of going through a single
+ * megamorphic call site that is shared by all the listeners.
+ */
+final class ClassEventDispatcherFactory {
+
+    /**
+     * The maximum amount of listeners that can be generated into a
+     * single dispatch method, the JIT refuses to compile huge methods.
+     */
+    static final int MAX_GENERATED_LISTENERS = 64;
+
+    private static final String BASE_DISPATCHER = Type.getInternalName(EventDispatcher.class);
+    private static final String EVENT_LISTENER = Type.getInternalName(EventListener.class);
+    private static final String EVENT_LISTENER_DESCRIPTOR = Type.getDescriptor(EventListener.class);
+    private static final String CONSTRUCTOR_DESCRIPTOR = Type.getMethodDescriptor(Type.VOID_TYPE,
+            Type.getType(List.class), Type.getType(Logger.class));
+    private static final String DISPATCH_DESCRIPTOR = Type.getMethodDescriptor(Type.VOID_TYPE,
+            Type.getType(Event.class), Type.getType(CauseStack.class));
+    private static final String GET_HANDLER_DESCRIPTOR = Type.getMethodDescriptor(Type.getType(EventListener.class), Type.INT_TYPE);
+    private static final String BEFORE_LISTENER_DESCRIPTOR = Type.getMethodDescriptor(Type.VOID_TYPE,
+            Type.getType(Event.class), Type.getType(CauseStack.class), Type.INT_TYPE);
+    private static final String AFTER_LISTENER_DESCRIPTOR = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(CauseStack.class));
+    private static final String HANDLE_ERROR_DESCRIPTOR = Type.getMethodDescriptor(Type.VOID_TYPE,
+            Type.getType(Event.class), Type.INT_TYPE, Type.getType(Throwable.class));
+    private static final String FINISH_DESCRIPTOR = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Event.class));
+    private static final String HANDLE_DESCRIPTOR = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Event.class));
+
+    private final AtomicInteger id = new AtomicInteger();
+
+    /**
+     * The generated dispatcher classes, indexed by the amount of listeners. The
+     * classes are reused when the listeners of an event type change, otherwise
+     * a new class would be defined for every change, which can never be unloaded.
+     * Every event type still gets its own classes, so the call sites aren't shared
+     * between the listeners of different event types.
+     */
+    private final ClassValue<Constructor<? extends EventDispatcher>[]> constructors =
+            new ClassValue<Constructor<? extends EventDispatcher>[]>() {
+                @SuppressWarnings("unchecked")
+                @Override
+                protected Constructor<? extends EventDispatcher>[] computeValue(Class<?> type) {
+                    return new Constructor[MAX_GENERATED_LISTENERS + 1];
+                }
+            };
+    private final DefineableClassLoader classLoader;
+    private final String targetPackage;
+    private final Logger logger;
+
+    ClassEventDispatcherFactory(String targetPackage, DefineableClassLoader classLoader, Logger logger) {
+        checkNotNull(targetPackage, "targetPackage");
+        checkArgument(!targetPackage.isEmpty(), "targetPackage cannot be empty");
+        this.targetPackage = targetPackage + '.';
+        this.classLoader = checkNotNull(classLoader, "classLoader");
+        this.logger = checkNotNull(logger, "logger");
+    }
+
+    /**
+     * Creates a new {@link EventDispatcher} for the given event type.
+     *
+     * @param eventClass The event type
+     * @param listeners The listeners, sorted by order
+     * @param timings Whether the listener timings should be tracked
+     * @return The event dispatcher
+     */
+    EventDispatcher create(Class<?> eventClass, List<RegisteredListener<?>> listeners, boolean timings) {
+        if (timings || listeners.isEmpty() || listeners.size() > MAX_GENERATED_LISTENERS) {
+            return new LoopEventDispatcher(listeners, this.logger, timings);
+        }
+        try {
+            return getConstructor(eventClass, listeners.size()).newInstance(listeners, this.logger);
+        } catch (Exception e) {
+            this.logger.error("Failed to generate the event dispatcher for {}", eventClass.getName(), e);
+            return new LoopEventDispatcher(listeners, this.logger, false);
+        }
+    }
+
+    private Constructor<? extends EventDispatcher> getConstructor(Class<?> eventClass, int listeners) throws NoSuchMethodException {
+        final Constructor<? extends EventDispatcher>[] constructors = this.constructors.get(eventClass);
+        synchronized (constructors) {
+            Constructor<? extends EventDispatcher> constructor = constructors[listeners];
+            if (constructor == null) {
+                final String name = this.targetPackage + eventClass.getSimpleName() + "Dispatcher_" + this.id.incrementAndGet();
+                final Class<? extends EventDispatcher> dispatcherClass = this.classLoader.defineClass(name, generateClass(name, listeners));
+                constructors[listeners] = constructor = dispatcherClass.getConstructor(List.class, Logger.class);
+            }
+            return constructor;
+        }
+    }
+
+    private static void visitInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else {
+            mv.visitIntInsn(SIPUSH, value);
+        }
+    }
+
+    private static byte[] generateClass(String name, int listeners) {
+        name = name.replace('.', '/');
+
+        final ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+        MethodVisitor mv;
+
+        cw.visit(V1_8, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, name, null, BASE_DISPATCHER, null);
+
+        for (int i = 0; i < listeners; i++) {
+            cw.visitField(ACC_PRIVATE + ACC_FINAL, "handler" + i, EVENT_LISTENER_DESCRIPTOR, null, null).visitEnd();
+        }
+        {
+            mv = cw.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESCRIPTOR, null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitMethodInsn(INVOKESPECIAL, BASE_DISPATCHER, "<init>", CONSTRUCTOR_DESCRIPTOR, false);
+            for (int i = 0; i < listeners; i++) {
+                // this.handler<i> = getHandler(i);
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitVarInsn(ALOAD, 0);
+                visitInt(mv, i);
+                mv.visitMethodInsn(INVOKEVIRTUAL, name, "getHandler", GET_HANDLER_DESCRIPTOR, false);
+                mv.visitFieldInsn(PUTFIELD, name, "handler" + i, EVENT_LISTENER_DESCRIPTOR);
+            }
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+        {
+            mv = cw.visitMethod(ACC_PROTECTED, "dispatch", DISPATCH_DESCRIPTOR, null, null);
+            mv.visitCode();
+            for (int i = 0; i < listeners; i++) {
+                final Label start = new Label();
+                final Label end = new Label();
+                final Label handler = new Label();
+                final Label next = new Label();
+                mv.visitTryCatchBlock(start, end, handler, "java/lang/Throwable");
+
+                // beforeListener(event, causeStack, i);
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitVarInsn(ALOAD, 2);
+                visitInt(mv, i);
+                mv.visitMethodInsn(INVOKEVIRTUAL, name, "beforeListener", BEFORE_LISTENER_DESCRIPTOR, false);
+                // try {
+                //     this.handler<i>.handle(event);
+                mv.visitLabel(start);
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitFieldInsn(GETFIELD, name, "handler" + i, EVENT_LISTENER_DESCRIPTOR);
+                mv.visitVarInsn(ALOAD, 1);
+                mv.visitMethodInsn(INVOKEINTERFACE, EVENT_LISTENER, "handle", HANDLE_DESCRIPTOR, true);
+                mv.visitLabel(end);
+                mv.visitJumpInsn(GOTO, next);
+                // } catch (Throwable t) {
+                //     handleError(event, i, t);
+                // }
+                mv.visitLabel(handler);
+                mv.visitVarInsn(ASTORE, 3);
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitVarInsn(ALOAD, 1);
+                visitInt(mv, i);
+                mv.visitVarInsn(ALOAD, 3);
+                mv.visitMethodInsn(INVOKEVIRTUAL, name, "handleError", HANDLE_ERROR_DESCRIPTOR, false);
+                // afterListener(causeStack);
+                mv.visitLabel(next);
+                mv.visitVarInsn(ALOAD, 0);
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitMethodInsn(INVOKEVIRTUAL, name, "afterListener", AFTER_LISTENER_DESCRIPTOR, false);
+            }
+            // finish(event);
+            mv.visitVarInsn(ALOAD, 0);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitMethodInsn(INVOKEVIRTUAL, name, "finish", FINISH_DESCRIPTOR, false);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+        cw.visitEnd();
+
+        return cw.toByteArray();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.event;
+
+import org.slf4j.Logger;
+import org.spongepowered.api.event.Event;
+import org.spongepowered.api.event.EventListener;
+import org.spongepowered.api.event.impl.AbstractEvent;
+
+import java.util.List;
+
+/**
+ * Posts events to all the {@link RegisteredListener}s of a specific event
+ * type. A dispatcher is immutable, a new one will be baked every time that
+ * the listeners of the event type change.
+ * <p>
+ * This class needs to be public, the dispatchers that are generated by the
+ * {@link ClassEventDispatcherFactory} are defined by a different class loader.
+ */
+public abstract class EventDispatcher {
+
+    private final RegisteredListener<?>[] listeners;
+    private final Logger logger;
+
+    protected EventDispatcher(List<RegisteredListener<?>> listeners, Logger logger) {
+        this.listeners = listeners.toArray(new RegisteredListener<?>[listeners.size()]);
+        this.logger = logger;
+    }
+
+    /**
+     * Gets whether there are any listeners that will receive the events.
+     *
+     * @return Has listeners
+     */
+    final boolean hasListeners() {
+        return this.listeners.length != 0;
+    }
+
+    final RegisteredListener<?> getListener(int index) {
+        return this.listeners[index];
+    }
+
+    final int getListenerCount() {
+        return this.listeners.length;
+    }
+
+    /**
+     * Posts the {@link Event} to all the listeners.
+     *
+     * @param event The event
+     * @param causeStack The cause stack
+     */
+    protected abstract void dispatch(Event event, CauseStack causeStack);
+
+    /**
+     * Gets the handler of the listener at the given index.
+     *
+     * @param index The index
+     * @return The handler
+     */
+    @SuppressWarnings("unchecked")
+    protected final EventListener<Event> getHandler(int index) {
+        return (EventListener<Event>) this.listeners[index].getHandler();
+    }
+
+    /**
+     * Prepares the {@link Event} and the {@link CauseStack} before
+     * the event is passed to the listener at the given index.
+     *
+     * @param event The event
+     * @param causeStack The cause stack
+     * @param index The index of the listener
+     */
+    protected final void beforeListener(Event event, CauseStack causeStack, int index) {
+        final RegisteredListener<?> listener = this.listeners[index];
+        // Add the calling plugin to the cause stack
+        causeStack.pushCause(listener.getPlugin());
+        if (event instanceof AbstractEvent) {
+            ((AbstractEvent) event).currentOrder = listener.getOrder();
+        }
+    }
+
+    /**
+     * Restores the {@link CauseStack} after the event was
+     * passed to a listener.
+     *
+     * @param causeStack The cause stack
+     */
+    protected final void afterListener(CauseStack causeStack) {
+        causeStack.popCause();
+    }
+
+    /**
+     * Handles a {@link Throwable} that was thrown by
+     * the listener at the given index.
+     *
+     * @param event The event
+     * @param index The index of the listener
+     * @param throwable The throwable
+     */
+    protected final void handleError(Event event, int index, Throwable throwable) {
+        this.logger.error("Could not pass {} to {}", event.getClass().getSimpleName(),
+                this.listeners[index].getPlugin(), throwable);
+    }
+
+    /**
+     * Finishes the {@link Event} after it was passed to all the listeners.
+     *
+     * @param event The event
+     */
+    protected final void finish(Event event) {
+        if (event instanceof AbstractEvent) {
+            ((AbstractEvent) event).currentOrder = null;
+        }
+    }
+}
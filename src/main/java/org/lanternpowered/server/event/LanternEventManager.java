@@ -28,14 +28,13 @@
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.lanternpowered.server.util.Conditions.checkPlugin;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.reflect.TypeToken;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import org.lanternpowered.server.event.filter.FilterFactory;
+import org.lanternpowered.server.timings.Timings;
 import org.lanternpowered.server.util.DefineableClassLoader;
 import org.slf4j.Logger;
 import org.spongepowered.api.event.Cancellable;
@@ -44,10 +43,8 @@
 import org.spongepowered.api.event.EventManager;
 import org.spongepowered.api.event.Listener;
 import org.spongepowered.api.event.Order;
-import org.spongepowered.api.event.impl.AbstractEvent;
 import org.spongepowered.api.plugin.PluginContainer;
 
-import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
@@ -75,38 +72,24 @@ public class LanternEventManager implements EventManager {
     private final Multimap<Class<?>, RegisteredListener<?>> listenersByEvent = HashMultimap.create();
     private final Set<Object> registeredListeners = new HashSet<>();
 
+    private final ClassEventDispatcherFactory dispatcherFactory;
+
+    /**
+     * All the baked dispatchers for event types for quick event posting. A dispatcher
+     * is baked when its event type is first posted and removed when the listeners change.
+     */
+    private final Map<Class<?>, EventDispatcher> dispatchers = new ConcurrentHashMap<>(150);
+
     /**
-     * A cache of all the handlers for an event type for quick event posting.
+     * The dispatchers that are used while {@link Timings} are enabled, these
+     * record the time that is spent in every listener.
      */
-    private final LoadingCache<Class<? extends Event>, List<RegisteredListener<?>>> listenersCache =
-            Caffeine.newBuilder().initialCapacity(150).build(this::bakeHandlers);
+    private final Map<Class<?>, EventDispatcher> timedDispatchers = new ConcurrentHashMap<>(150);
 
     @Inject
     public LanternEventManager(Logger logger) {
         this.logger = logger;
-
-        // Caffeine offers no control over the concurrency level of the
-        // ConcurrentHashMap which backs the cache. By default this concurrency
-        // level is 16. We replace the backing map before any use can occur
-        // a new ConcurrentHashMap with a concurrency level of 1
-        try {
-            // Cache impl class is UnboundedLocalLoadingCache which extends
-            // UnboundedLocalManualCache
-
-            // UnboundedLocalManualCache has a field 'cache' with an
-            // UnboundedLocalCache which contains the actual backing map
-            final Field innerCache = this.listenersCache.getClass().getSuperclass().getDeclaredField("cache");
-            innerCache.setAccessible(true);
-            final Object innerCacheValue = innerCache.get(this.listenersCache);
-            final Class<?> innerCacheClass = innerCacheValue.getClass(); // UnboundedLocalCache
-            final Field cacheData = innerCacheClass.getDeclaredField("data");
-            cacheData.setAccessible(true);
-            final ConcurrentHashMap<Class<? extends Event>, List<RegisteredListener<?>>> newBackingData = new ConcurrentHashMap<>(150, 0.75f, 1);
-            cacheData.set(innerCacheValue, newBackingData);
-        } catch (NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
-            this.logger.warn("Failed to set event cache backing array, type was " + this.listenersCache.getClass().getName());
-            this.logger.warn("  Caused by: " + e.getClass().getName() + ": " + e.getMessage());
-        }
+        this.dispatcherFactory = new ClassEventDispatcherFactory("org.lanternpowered.server.event.dispatcher", this.classLoader, logger);
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -122,6 +105,50 @@ private List<RegisteredListener<?>> bakeHandlers(Class<?> rootEvent) {
         return handlers;
     }
 
+    private EventDispatcher getDispatcher(Class<?> eventClass) {
+        final boolean timings = Timings.isEnabled();
+        final Map<Class<?>, EventDispatcher> dispatchers = timings ? this.timedDispatchers : this.dispatchers;
+        final EventDispatcher dispatcher = dispatchers.get(eventClass);
+        return dispatcher != null ? dispatcher : bakeDispatcher(dispatchers, eventClass, timings);
+    }
+
+    private EventDispatcher bakeDispatcher(Map<Class<?>, EventDispatcher> dispatchers, Class<?> eventClass, boolean timings) {
+        // Bake while holding the lock, this prevents that a dispatcher
+        // with outdated listeners is stored after an invalidation
+        synchronized (this.lock) {
+            EventDispatcher dispatcher = dispatchers.get(eventClass);
+            if (dispatcher == null) {
+                dispatcher = this.dispatcherFactory.create(eventClass, bakeHandlers(eventClass), timings);
+                dispatchers.put(eventClass, dispatcher);
+            }
+            return dispatcher;
+        }
+    }
+
+    /**
+     * Invalidates all the dispatchers of event types that
+     * are a subtype of one of the given event types.
+     *
+     * @param eventClasses The event types
+     */
+    private void invalidateDispatchers(Set<Class<?>> eventClasses) {
+        final Predicate<Class<?>> filter = type -> eventClasses.stream().anyMatch(eventClass -> eventClass.isAssignableFrom(type));
+        this.dispatchers.keySet().removeIf(filter);
+        this.timedDispatchers.keySet().removeIf(filter);
+    }
+
+    /**
+     * Gets whether there are any listeners that would receive an event of the given
+     * type. This allows callers to skip constructing events nobody listens to.
+     *
+     * @param eventClass The event type
+     * @return Whether there are listeners
+     */
+    public boolean hasListeners(Class<? extends Event> eventClass) {
+        checkNotNull(eventClass, "eventClass");
+        return getDispatcher(eventClass).hasListeners();
+    }
+
     @Nullable
     private static String getHandlerErrorOrNull(Method method) {
         final int modifiers = method.getModifiers();
@@ -161,10 +188,10 @@ private void register(List<RegisteredListener<?>> listeners) {
         synchronized (this.lock) {
             listeners.stream()
                     .filter(listener -> this.listenersByEvent.put(listener.getEventClass(), listener))
-                    .forEach(listener -> types.addAll(TypeToken.of(listener.getEventClass()).getTypes().rawTypes()));
-        }
-        if (!types.isEmpty()) {
-            this.listenersCache.invalidateAll(types);
+                    .forEach(listener -> types.add(listener.getEventClass()));
+            if (!types.isEmpty()) {
+                invalidateDispatchers(types);
+            }
         }
     }
 
@@ -277,13 +304,13 @@ private void unregister(Predicate<RegisteredListener<?>> unregister) {
                     synchronized (this.registeredListeners) {
                         this.registeredListeners.remove(listener.getHandle());
                     }
-                    types.addAll(TypeToken.of(listener.getEventClass()).getTypes().rawTypes());
+                    types.add(listener.getEventClass());
                     it.remove();
                 }
             }
-        }
-        if (!types.isEmpty()) {
-            this.listenersCache.invalidateAll(types);
+            if (!types.isEmpty()) {
+                invalidateDispatchers(types);
+            }
         }
     }
 
@@ -299,27 +326,12 @@ public void unregisterPluginListeners(Object pluginObj) {
         unregister(handler -> plugin.equals(handler.getPlugin()));
     }
 
-    @SuppressWarnings({"unchecked", "ConstantConditions"})
     @Override
     public boolean post(Event event) {
         checkNotNull(event, "event");
-        final CauseStack causeStack = CauseStack.currentOrEmpty();
-        for (RegisteredListener listener : this.listenersCache.get(event.getClass())) {
-            // Add the calling plugin to the cause stack
-            causeStack.pushCause(listener.getPlugin());
-            try {
-                if (event instanceof AbstractEvent) {
-                    ((AbstractEvent) event).currentOrder = listener.getOrder();
-                }
-                listener.handle(event);
-            } catch (Throwable e) {
-                this.logger.error("Could not pass {} to {}", event.getClass().getSimpleName(),
-                        listener.getPlugin(), e);
-            }
-            causeStack.popCause();
-        }
-        if (event instanceof AbstractEvent) {
-            ((AbstractEvent) event).currentOrder = null;
+        final EventDispatcher dispatcher = getDispatcher(event.getClass());
+        if (dispatcher.hasListeners()) {
+            dispatcher.dispatch(event, CauseStack.currentOrEmpty());
         }
         return event instanceof Cancellable && ((Cancellable) event).isCancelled();
     }
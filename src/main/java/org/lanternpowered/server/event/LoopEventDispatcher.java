@@ -0,0 +1,71 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.event;
+
+import org.slf4j.Logger;
+import org.spongepowered.api.event.Event;
+import org.spongepowered.api.event.EventListener;
+
+import java.util.List;
+
+/**
+ * A {@link EventDispatcher} that loops through all the listeners. Used
+ * when there are no listeners, when there are too many listeners to
+ * generate a dispatcher or when timings are enabled.
+ */
+final class LoopEventDispatcher extends EventDispatcher {
+
+    private final EventListener<Event>[] handlers;
+    private final boolean timings;
+
+    @SuppressWarnings("unchecked")
+    LoopEventDispatcher(List<RegisteredListener<?>> listeners, Logger logger, boolean timings) {
+        super(listeners, logger);
+        this.handlers = new EventListener[listeners.size()];
+        for (int i = 0; i < this.handlers.length; i++) {
+            this.handlers[i] = getHandler(i);
+        }
+        this.timings = timings;
+    }
+
+    @Override
+    protected void dispatch(Event event, CauseStack causeStack) {
+        for (int i = 0; i < this.handlers.length; i++) {
+            beforeListener(event, causeStack, i);
+            final long start = this.timings ? System.nanoTime() : 0L;
+            try {
+                this.handlers[i].handle(event);
+            } catch (Throwable e) {
+                handleError(event, i, e);
+            }
+            if (this.timings) {
+                getListener(i).getTiming().record(System.nanoTime() - start);
+            }
+            afterListener(causeStack);
+        }
+        finish(event);
+    }
+}
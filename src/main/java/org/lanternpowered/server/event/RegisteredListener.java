@@ -28,6 +28,9 @@
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.google.common.base.MoreObjects;
+import org.lanternpowered.server.timings.Timing;
+import org.lanternpowered.server.timings.TimingCategory;
+import org.lanternpowered.server.timings.Timings;
 import org.spongepowered.api.event.Event;
 import org.spongepowered.api.event.EventListener;
 import org.spongepowered.api.event.Order;
@@ -41,11 +44,16 @@
     private final Class<T> eventClass;
     private final Order order;
 
+    // The timing of this listener, only recorded while timings are enabled
+    private final Timing timing;
+
     RegisteredListener(PluginContainer plugin, Class<T> eventClass, Order order, EventListener<? super T> handler) {
         this.plugin = checkNotNull(plugin, "plugin");
         this.eventClass = checkNotNull(eventClass, "eventClass");
         this.order = checkNotNull(order, "order");
         this.handler = checkNotNull(handler, "handler");
+        this.timing = Timings.get(TimingCategory.EVENT_LISTENER, plugin.getId(),
+                getHandle().getClass().getName() + '#' + eventClass.getSimpleName());
     }
 
     public PluginContainer getPlugin() {
@@ -60,6 +68,24 @@ public Order getOrder() {
         return this.order;
     }
 
+    /**
+     * Gets the {@link EventListener} that is wrapped by this registration.
+     *
+     * @return The handler
+     */
+    public EventListener<? super T> getHandler() {
+        return this.handler;
+    }
+
+    /**
+     * Gets the {@link Timing} of this listener.
+     *
+     * @return The timing
+     */
+    public Timing getTiming() {
+        return this.timing;
+    }
+
     @Override
     public Object getHandle() {
         if (this.handler instanceof LanternEventListener) {
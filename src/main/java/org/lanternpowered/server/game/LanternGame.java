@@ -49,6 +49,7 @@
 import org.lanternpowered.server.data.property.LanternPropertyRegistry;
 import org.lanternpowered.server.event.CauseStack;
 import org.lanternpowered.server.event.LanternCauseStack;
+import org.lanternpowered.server.event.LanternEventManager;
 import org.lanternpowered.server.game.version.LanternMinecraftVersion;
 import org.lanternpowered.server.game.version.MinecraftVersionCache;
 import org.lanternpowered.server.inject.Option;
@@ -78,7 +79,6 @@
 import org.spongepowered.api.command.CommandManager;
 import org.spongepowered.api.config.ConfigManager;
 import org.spongepowered.api.event.CauseStackManager;
-import org.spongepowered.api.event.EventManager;
 import org.spongepowered.api.event.SpongeEventFactory;
 import org.spongepowered.api.event.cause.Cause;
 import org.spongepowered.api.event.game.state.GameStateEvent;
@@ -150,7 +150,7 @@ public static long currentTimeTicks() {
     @Inject private LanternPluginManager pluginManager;
 
     // The event manager
-    @Inject private EventManager eventManager;
+    @Inject private LanternEventManager eventManager;
 
     // The service manager
     @Inject private ServiceManager serviceManager;
@@ -447,7 +447,7 @@ public PluginManager getPluginManager() {
     }
 
     @Override
-    public EventManager getEventManager() {
+    public LanternEventManager getEventManager() {
         return this.eventManager;
     }
 
@@ -45,8 +45,10 @@
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Predicate;
@@ -61,8 +63,35 @@
 @SuppressWarnings("unchecked")
 public abstract class AbstractChildrenInventory extends AbstractMutableInventory {
 
+    /**
+     * The maximum amount of structural query results that will be cached,
+     * the least recently used result is removed once the cache is full.
+     */
+    static final int MAX_CACHED_QUERIES = 32;
+
+    /**
+     * A bounded cache of structural query results, it
+     * should only be accessed while holding its lock.
+     */
+    private static final class QueryCache extends LinkedHashMap<StructuralQuery, Inventory> {
+
+        private static final long serialVersionUID = 1L;
+
+        private QueryCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<StructuralQuery, Inventory> eldest) {
+            return size() > MAX_CACHED_QUERIES;
+        }
+    }
+
     @Nullable private Object2IntMap<AbstractMutableInventory> inventoryToIndex;
 
+    // The cached results of the structural queries, cleared when the inventory tree changes
+    @Nullable private volatile QueryCache queryCache;
+
     /**
      * Gets a {@link List} with all the children
      * in this inventory.
@@ -123,6 +152,35 @@ protected <T extends Inventory> T queryInventories(Predicate<AbstractMutableInve
         return (T) result;
     }
 
+    @Override
+    <T extends Inventory> T queryInventories(StructuralQuery query, Predicate<AbstractMutableInventory> predicate) {
+        QueryCache queryCache = this.queryCache;
+        if (queryCache == null) {
+            this.queryCache = queryCache = new QueryCache();
+        }
+        Inventory result;
+        synchronized (queryCache) {
+            result = queryCache.get(query);
+        }
+        if (result == null) {
+            // The tree is walked outside the lock, if the cache gets
+            // invalidated in the meantime the result ends up in the
+            // discarded cache instead of the new one
+            result = queryInventories(predicate);
+            synchronized (queryCache) {
+                queryCache.put(query, result);
+            }
+        }
+        return (T) result;
+    }
+
+    @Override
+    void invalidateQueries() {
+        this.inventoryToIndex = null;
+        this.queryCache = null;
+        super.invalidateQueries();
+    }
+
     void queryInventories(Set<AbstractMutableInventory> inventories, Predicate<AbstractMutableInventory> predicate) {
         for (AbstractMutableInventory child : getChildren()) {
             if (predicate.test(child)) {
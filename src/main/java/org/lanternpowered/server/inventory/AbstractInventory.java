@@ -55,6 +55,7 @@
 import org.spongepowered.api.text.translation.Translation;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -93,8 +94,23 @@ void setName(@Nullable Translation name) {
      * @param parent The parent inventory
      */
     void setParent(@Nullable AbstractInventory parent) {
+        // The structure of the old and new parent trees changes
+        invalidateQueries();
         this.parent = parent;
         this.cachedRoot = null;
+        invalidateQueries();
+    }
+
+    /**
+     * Invalidates the cached structural query results of this
+     * inventory and all of its parents. Should be called every
+     * time that the inventory tree is modified.
+     */
+    void invalidateQueries() {
+        final AbstractInventory parent = parent();
+        if (parent != this) {
+            parent.invalidateQueries();
+        }
     }
 
     /**
@@ -286,6 +302,62 @@ protected <T extends Inventory> T querySlots(Predicate<AbstractSlot> predicate)
 
     protected abstract <T extends Inventory> T queryInventories(Predicate<AbstractMutableInventory> predicate);
 
+    /**
+     * Queries for specific {@link AbstractMutableInventory}s, the result of
+     * the query may be cached until the inventory tree changes. The result of
+     * the predicate may only depend on the structure of the inventory and not
+     * on its contents.
+     *
+     * @param query The structural query
+     * @param predicate The predicate
+     * @param <T> The inventory type
+     * @return The query inventory
+     */
+    <T extends Inventory> T queryInventories(StructuralQuery query, Predicate<AbstractMutableInventory> predicate) {
+        return queryInventories(predicate);
+    }
+
+    /**
+     * Represents the arguments of a query of which the result only
+     * depends on the structure of the inventory tree.
+     */
+    static final class StructuralQuery {
+
+        private final String type;
+        private final Object[] args;
+
+        StructuralQuery(String type, Object[] args) {
+            this.type = type;
+            this.args = args.clone();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof StructuralQuery)) {
+                return false;
+            }
+            final StructuralQuery other = (StructuralQuery) obj;
+            return this.type.equals(other.type) && Arrays.equals(this.args, other.args);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.type.hashCode() + Arrays.hashCode(this.args);
+        }
+    }
+
+    /**
+     * Gets whether the query argument only matches
+     * against the structure of the inventory.
+     *
+     * @param arg The argument
+     * @return Is structural
+     */
+    private static boolean isStructuralArg(Object arg) {
+        // Inventories aren't cached to avoid keeping them alive through the cache
+        return !(arg instanceof ItemStack || arg instanceof ItemType || arg instanceof Inventory);
+    }
+
     @Override
     public <T extends Inventory> T query(ItemType... types) {
         checkNotNull(types, "types");
@@ -328,7 +400,7 @@ public <T extends Inventory> T queryAny(ItemStack... types) {
     @Override
     public <T extends Inventory> T queryNot(Class<?>... types) {
         checkNotNull(types, "types");
-        return queryInventories(inventory -> {
+        return queryInventories(new StructuralQuery("not_class", types), inventory -> {
             for (Class<?> type : types) {
                 if (type.isInstance(inventory)) {
                     return false;
@@ -341,7 +413,7 @@ public <T extends Inventory> T queryNot(Class<?>... types) {
     @Override
     public <T extends Inventory> T query(Class<?>... types) {
         checkNotNull(types, "types");
-        return queryInventories(inventory -> {
+        return queryInventories(new StructuralQuery("class", types), inventory -> {
             for (Class<?> type : types) {
                 if (type.isInstance(inventory)) {
                     return true;
@@ -354,7 +426,7 @@ public <T extends Inventory> T query(Class<?>... types) {
     @Override
     public <T extends Inventory> T query(InventoryProperty<?, ?>... props) {
         checkNotNull(props, "props");
-        return queryInventories(inventory -> {
+        return queryInventories(new StructuralQuery("property", props), inventory -> {
             for (InventoryProperty<?,?> prop : props) {
                 // Equipment slot types are a special case, because
                 // they can be grouped
@@ -384,7 +456,7 @@ public <T extends Inventory> T query(InventoryProperty<?, ?>... props) {
     @Override
     public <T extends Inventory> T query(Translation... names) {
         checkNotNull(names, "names");
-        return queryInventories(inventory -> {
+        return queryInventories(new StructuralQuery("translation", names), inventory -> {
             for (Translation name : names) {
                 if (inventory.getName().equals(name)) {
                     return true;
@@ -397,7 +469,7 @@ public <T extends Inventory> T query(Translation... names) {
     @Override
     public <T extends Inventory> T query(String... names) {
         checkNotNull(names, "names");
-        return queryInventories(inventory -> {
+        return queryInventories(new StructuralQuery("name", names), inventory -> {
             final String plainName = inventory.getName().get();
             for (String name : names) {
                 if (plainName.equals(name)) {
@@ -411,7 +483,7 @@ public <T extends Inventory> T query(String... names) {
     @Override
     public <T extends Inventory> T query(Object... args) {
         checkNotNull(args, "args");
-        return queryInventories(inventory -> {
+        final Predicate<AbstractMutableInventory> predicate = inventory -> {
             for (Object arg : args) {
                 if (arg instanceof Inventory) {
                     if (inventory.equals(arg)) {
@@ -470,7 +542,13 @@ public <T extends Inventory> T query(Object... args) {
                 }
             }
             return false;
-        });
+        };
+        for (Object arg : args) {
+            if (!isStructuralArg(arg)) {
+                return queryInventories(predicate);
+            }
+        }
+        return queryInventories(new StructuralQuery("object", args), predicate);
     }
 
     // Peek/poll operations
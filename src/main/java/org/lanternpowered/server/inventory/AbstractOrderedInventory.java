@@ -84,6 +84,7 @@ void initWithSlots(List<AbstractMutableInventory> children, List<? extends Abstr
         this.slots = ImmutableList.copyOf(slots);
         this.slotsToIndex = Object2IntMaps.unmodifiable(slotsToIndex);
         this.prioritizedSlots = prioritizedSlots != null ? ImmutableList.copyOf(prioritizedSlots) : null;
+        invalidateQueries();
         init();
     }
 
@@ -122,6 +123,7 @@ void initWithChildren(List<AbstractMutableInventory> children,
         }
         this.slots = slotsBuilder.build();
         this.slotsToIndex = Object2IntMaps.unmodifiable(slotsToIndex);
+        invalidateQueries();
         init();
     }
 
@@ -51,6 +51,7 @@ void init(List<? extends AbstractMutableInventory> children) {
     void init(List<? extends AbstractMutableInventory> children, @Nullable List<? extends AbstractSlot> slots) {
         this.children = (List<AbstractMutableInventory>) children;
         this.slots = (List<AbstractSlot>) slots;
+        invalidateQueries();
     }
 
     @Override
@@ -37,7 +37,9 @@
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoop;
 import io.netty.channel.SimpleChannelInboundHandler;
@@ -46,6 +48,7 @@
 import io.netty.handler.timeout.TimeoutException;
 import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.ScheduledFuture;
 import org.lanternpowered.server.LanternServer;
 import org.lanternpowered.server.config.world.WorldConfig;
@@ -63,6 +66,9 @@
 import org.lanternpowered.server.network.message.MessageRegistration;
 import org.lanternpowered.server.network.message.NullMessage;
 import org.lanternpowered.server.network.message.handler.Handler;
+import org.lanternpowered.server.network.pipeline.EncodedMessage;
+import org.lanternpowered.server.network.pipeline.MessageCodecHandler;
+import org.lanternpowered.server.network.pipeline.MessageCompressionHandler;
 import org.lanternpowered.server.network.protocol.Protocol;
 import org.lanternpowered.server.network.protocol.ProtocolState;
 import org.lanternpowered.server.network.vanilla.message.type.connection.MessageInOutKeepAlive;
@@ -70,6 +76,7 @@
 import org.lanternpowered.server.permission.Permissions;
 import org.lanternpowered.server.profile.LanternGameProfile;
 import org.lanternpowered.server.text.LanternTexts;
+import org.lanternpowered.server.util.concurrent.FastThreadLocals;
 import org.lanternpowered.server.world.LanternWorld;
 import org.lanternpowered.server.world.LanternWorldProperties;
 import org.spongepowered.api.Sponge;
@@ -97,14 +104,17 @@
 import java.net.SocketAddress;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 
 import javax.annotation.Nullable;
 
@@ -134,6 +144,12 @@ public final class NetworkSession extends SimpleChannelInboundHandler<Message> i
      */
     public static final AttributeKey<Boolean> FML_MARKER = AttributeKey.valueOf("fml-marker");
 
+    /**
+     * The sessions of the broadcast that is being send by the current thread,
+     * reused to avoid allocating a new list for every broadcast.
+     */
+    private static final FastThreadLocal<List<NetworkSession>> broadcastSessions = FastThreadLocals.withInitial(ArrayList::new);
+
     private final NetworkManager networkManager;
     private final LanternServer server;
     private final Channel channel;
@@ -536,6 +552,30 @@ private void closeChannel(Text reason) {
         this.channel.close();
     }
 
+    /**
+     * Gets the compression level that is used by this session, {@code -1} will be
+     * returned if compression isn't enabled or if the default level is used.
+     *
+     * @return The compression level
+     */
+    public int getCompressionLevel() {
+        final ChannelHandler handler = this.channel.pipeline().get(COMPRESSION);
+        return handler instanceof MessageCompressionHandler ? ((MessageCompressionHandler) handler).getCompressionLevel() : -1;
+    }
+
+    /**
+     * Sets the compression level that should be used by this session, this
+     * is ignored if compression isn't enabled for this session.
+     *
+     * @param compressionLevel The compression level (0-9), or {@code -1} for the default level
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        final ChannelHandler handler = this.channel.pipeline().get(COMPRESSION);
+        if (handler instanceof MessageCompressionHandler) {
+            ((MessageCompressionHandler) handler).setCompressionLevel(compressionLevel);
+        }
+    }
+
     /**
      * Sends a {@link Message} and returns the {@link ChannelFuture}.
      *
@@ -741,6 +781,146 @@ public void send(Iterable<Message> messages) {
         }
     }
 
+    /**
+     * Sends a {@link EncodedMessage}. The message will bypass the codec and
+     * compression handlers, the shared wire ready content will be used instead.
+     *
+     * @param message The encoded message
+     */
+    public void send(EncodedMessage message) {
+        checkNotNull(message, "message");
+        if (!this.channel.isActive()) {
+            return;
+        }
+        message.retain();
+        // Write the message within the event loop, the order of the
+        // messages will be maintained and the encoding/compression
+        // will be done on the network threads
+        final EventLoop eventLoop = this.channel.eventLoop();
+        if (eventLoop.inEventLoop()) {
+            writeEncoded(message);
+        } else {
+            eventLoop.execute(() -> writeEncoded(message));
+        }
+    }
+
+    private void writeEncoded(EncodedMessage message) {
+        try {
+            final ChannelPipeline pipeline = this.channel.pipeline();
+            final MessageCodecHandler codecHandler = (MessageCodecHandler) pipeline.get(CODECS);
+            final ChannelHandler compressionHandler = pipeline.get(COMPRESSION);
+            // Start writing at the handler that would normally
+            // produce the content, the next ones will be skipped
+            if (compressionHandler instanceof MessageCompressionHandler) {
+                final int compressionThreshold = ((MessageCompressionHandler) compressionHandler).getCompressionThreshold();
+                pipeline.context(compressionHandler).writeAndFlush(
+                        message.getWireBuffer(codecHandler.getCodecContext(), compressionThreshold), this.channel.voidPromise());
+            } else {
+                pipeline.context(codecHandler).writeAndFlush(
+                        message.getWireBuffer(codecHandler.getCodecContext(), -1), this.channel.voidPromise());
+            }
+        } catch (Exception e) {
+            this.channel.pipeline().fireExceptionCaught(e);
+        } finally {
+            message.release();
+        }
+    }
+
+    /**
+     * Sends the {@link Message} to all the given {@link LanternPlayer}s.
+     *
+     * @param players The players
+     * @param message The message
+     * @see #broadcast(Iterable, Message, Predicate)
+     */
+    public static void broadcast(Iterable<? extends LanternPlayer> players, Message message) {
+        broadcast(players, message, null);
+    }
+
+    /**
+     * Sends the {@link Message} to all the given {@link LanternPlayer}s that match
+     * the filter. The message will be encoded at most once and compressed at most
+     * once per compression threshold, the wire ready content will be shared between
+     * all the sessions that are in the same {@link ProtocolState}.
+     * <p>
+     * Messages with outbound processors will be send to every session
+     * separately, the processors could depend on the state of the session.
+     * Messages whose codec depends on the session, for example the ones that
+     * target the player itself, should never be broadcast.
+     *
+     * @param players The players
+     * @param message The message
+     * @param filter The filter, or {@code null} to send to all the players
+     */
+    public static void broadcast(Iterable<? extends LanternPlayer> players, Message message,
+            @Nullable Predicate<? super LanternPlayer> filter) {
+        checkNotNull(players, "players");
+        checkNotNull(message, "message");
+        List<NetworkSession> sessions = broadcastSessions.get();
+        // A broadcast that is triggered while sending, don't touch the list in use
+        if (!sessions.isEmpty()) {
+            sessions = new ArrayList<>();
+        }
+        try {
+            collectSessions(players, filter, sessions);
+            if (sessions.isEmpty()) {
+                return;
+            }
+            // Sharing the content isn't worth it for a single session
+            final ProtocolState protocolState = sessions.get(0).getProtocolState();
+            final int size = sessions.size();
+            if (size == 1 || !canShareEncoding(protocolState.getProtocol(), message)) {
+                for (int i = 0; i < size; i++) {
+                    sessions.get(i).send(message);
+                }
+                return;
+            }
+            // The encoded message will release the message once it's encoded
+            ReferenceCountUtil.retain(message);
+            final EncodedMessage encodedMessage = new EncodedMessage(message);
+            try {
+                for (int i = 0; i < size; i++) {
+                    final NetworkSession session = sessions.get(i);
+                    if (session.getProtocolState() == protocolState) {
+                        session.send(encodedMessage);
+                    } else {
+                        session.send(message);
+                    }
+                }
+            } finally {
+                encodedMessage.release();
+            }
+        } finally {
+            sessions.clear();
+        }
+    }
+
+    private static void collectSessions(Iterable<? extends LanternPlayer> players,
+            @Nullable Predicate<? super LanternPlayer> filter, List<NetworkSession> sessions) {
+        if (players instanceof List && players instanceof RandomAccess) {
+            final List<? extends LanternPlayer> list = (List<? extends LanternPlayer>) players;
+            for (int i = 0; i < list.size(); i++) {
+                final LanternPlayer player = list.get(i);
+                if (filter == null || filter.test(player)) {
+                    sessions.add(player.getConnection());
+                }
+            }
+        } else {
+            for (LanternPlayer player : players) {
+                if (filter == null || filter.test(player)) {
+                    sessions.add(player.getConnection());
+                }
+            }
+        }
+    }
+
+    private static boolean canShareEncoding(Protocol protocol, Message message) {
+        final MessageRegistration<?> registration = protocol.outbound().findByMessageType(message.getClass()).orElse(null);
+        // Let the normal pipeline throw the exception for
+        // messages that aren't registered
+        return registration != null && registration.getProcessors().isEmpty();
+    }
+
     /**
      * Disconnects the session with a unknown reason.
      */
@@ -28,15 +28,13 @@
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.ByteBufOutputStream;
 import io.netty.handler.codec.CodecException;
 import io.netty.handler.codec.DecoderException;
 import io.netty.handler.codec.EncoderException;
-import org.lanternpowered.server.data.persistence.nbt.NbtDataContainerInputStream;
-import org.lanternpowered.server.data.persistence.nbt.NbtStreamUtils;
+import org.lanternpowered.server.data.persistence.nbt.NbtReader;
+import org.lanternpowered.server.data.persistence.nbt.NbtWriter;
 import org.lanternpowered.server.network.buffer.objects.Type;
-import org.lanternpowered.server.util.io.LimitInputStream;
 import org.spongepowered.api.data.DataView;
 
 import java.io.IOException;
@@ -644,7 +642,7 @@ public LanternByteBuffer writeDataView(@Nullable DataView data) {
             return this;
         }
         try {
-            NbtStreamUtils.write(data, new ByteBufOutputStream(this.buf), false);
+            new NbtWriter(this.buf).writeView(data);
         } catch (IOException e) {
             throw new CodecException(e);
         }
@@ -668,14 +666,16 @@ public DataView readLimitedDataView(int maximumDepth, int maxBytes) {
             return null;
         }
         this.buf.readerIndex(index);
+        // Read directly from the buffer, the slice limits the amount of bytes that can be read
+        final ByteBuf slice = this.buf.slice(index, Math.min(this.buf.readableBytes(), maxBytes));
+        final DataView dataView;
         try {
-            try (NbtDataContainerInputStream input = new NbtDataContainerInputStream(
-                    new LimitInputStream(new ByteBufInputStream(this.buf), maxBytes), false, maximumDepth)) {
-                return input.read();
-            }
-        } catch (IOException e) {
+            dataView = new NbtReader(slice, maximumDepth).readContainer();
+        } catch (IOException | IndexOutOfBoundsException e) {
             throw new CodecException(e);
         }
+        this.buf.skipBytes(slice.readerIndex());
+        return dataView;
     }
 
     @Nullable
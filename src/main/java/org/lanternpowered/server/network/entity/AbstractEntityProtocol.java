@@ -37,6 +37,7 @@
 import org.lanternpowered.server.entity.event.EntityEvent;
 import org.lanternpowered.server.entity.event.EntityEventType;
 import org.lanternpowered.server.entity.living.player.LanternPlayer;
+import org.lanternpowered.server.network.NetworkSession;
 import org.lanternpowered.server.network.message.Message;
 import org.spongepowered.api.entity.Entity;
 import org.spongepowered.api.entity.living.player.Player;
@@ -83,6 +84,17 @@
 
     private int tickCounter = 0;
 
+    /**
+     * The tracker grid cell this entity protocol is currently stored in.
+     */
+    long trackerCell = EntityProtocolManager.NO_TRACKER_CELL;
+
+    /**
+     * The players that are close enough to be considered as tracker
+     * during the current tracker update, or {@code null} if none.
+     */
+    @Nullable private Set<LanternPlayer> trackerCandidates;
+
     final Object2LongMap<Player> playerInteractTimes = new Object2LongOpenHashMap<>();
 
     final List<EntityEvent> entityEvents = new ArrayList<>();
@@ -124,7 +136,7 @@ public void sendToSelf(Supplier<Message> messageSupplier) {
 
         @Override
         public void sendToAll(Message message) {
-            this.trackers.forEach(tracker -> tracker.getConnection().send(message));
+            NetworkSession.broadcast(this.trackers, message);
         }
 
         @Override
@@ -136,11 +148,7 @@ public void sendToAll(Supplier<Message> message) {
 
         @Override
         public void sendToAllExceptSelf(Message message) {
-            this.trackers.forEach(tracker -> {
-                if (tracker != entity) {
-                    tracker.getConnection().send(message);
-                }
-            });
+            NetworkSession.broadcast(this.trackers, message, tracker -> tracker != entity);
         }
 
         @Override
@@ -267,9 +275,39 @@ final class TrackerUpdateContextData {
         }
     }
 
+    void addTrackerCandidate(LanternPlayer player) {
+        if (this.trackerCandidates == null) {
+            this.trackerCandidates = new HashSet<>();
+        }
+        this.trackerCandidates.add(player);
+    }
+
+    void addTrackerCandidates(Set<LanternPlayer> players) {
+        if (this.trackerCandidates == null) {
+            this.trackerCandidates = new HashSet<>(players);
+        } else {
+            this.trackerCandidates.addAll(players);
+        }
+    }
+
+    /**
+     * Builds the {@link TrackerUpdateContextData} based on the tracker
+     * candidates that were collected for the current update.
+     *
+     * @return The context data, or {@code null} if nothing needs to be updated
+     */
     @Nullable
-    TrackerUpdateContextData buildUpdateContextData(Set<LanternPlayer> players) {
-        players = new HashSet<>(players);
+    TrackerUpdateContextData buildUpdateContextData() {
+        Set<LanternPlayer> players = this.trackerCandidates;
+        this.trackerCandidates = null;
+        if (players == null) {
+            // Nothing to track and no players nearby, skip
+            // the more expensive checks below
+            if (this.trackers.isEmpty()) {
+                return null;
+            }
+            players = new HashSet<>();
+        }
 
         final Set<LanternPlayer> removed = new HashSet<>();
         final Set<LanternPlayer> added = new HashSet<>();
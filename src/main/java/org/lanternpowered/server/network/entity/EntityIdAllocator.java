@@ -0,0 +1,173 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.network.entity;
+
+import io.netty.util.concurrent.FastThreadLocal;
+import org.lanternpowered.server.util.concurrent.FastThreadLocals;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Allocates network entity ids without any global locks.
+ *
+ * <p>Every thread acquires new ids from its own block of ids, a new block is
+ * claimed from a global counter when the current one is exhausted. Released
+ * ids are queued in a lock-free queue that is shared between all the threads
+ * of the allocator, ids are often released by a different thread than the one
+ * that acquired them. A released id will only be reused after {@link #REUSE_DELAY}
+ * milliseconds, clients may still reference the id of a destroyed entity for a
+ * short time. Released ids wait in a delay queue, which is drained into the queue
+ * of reusable ids by one thread at a time.</p>
+ *
+ * <p>All the allocators share the same global counter, so ids will
+ * never collide between different allocators.</p>
+ */
+final class EntityIdAllocator {
+
+    /**
+     * The amount of ids that are claimed at once by a thread.
+     */
+    private static final int BLOCK_SIZE = 256;
+
+    /**
+     * The delay (in milliseconds) before a released id can be reused.
+     */
+    private static final int REUSE_DELAY = 5000;
+
+    // Start at 1, using 0 may cause some issues
+    // on the client regarding elytra flying boost,
+    // and maybe other related bugs.
+    private static final AtomicInteger idCounter = new AtomicInteger(1);
+
+    private final FastThreadLocal<IdBlock> idBlocks = FastThreadLocals.withInitial(IdBlock::new);
+
+    // All the released ids that are waiting for the reuse delay, ordered by their release time
+    private final Queue<ReleasedId> releasedIds = new ConcurrentLinkedQueue<>();
+
+    // All the released ids of which the reuse delay passed
+    private final Queue<ReleasedId> reusableIds = new ConcurrentLinkedQueue<>();
+
+    // Whether a thread is moving ids from the released to the reusable ids
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    /**
+     * Acquires the next free id.
+     *
+     * @return The id
+     */
+    int acquire() {
+        ReleasedId reusableId = this.reusableIds.poll();
+        if (reusableId == null) {
+            drainReleasedIds();
+            reusableId = this.reusableIds.poll();
+        }
+        if (reusableId != null) {
+            return reusableId.id;
+        }
+        final IdBlock idBlock = this.idBlocks.get();
+        if (idBlock.next == idBlock.end) {
+            idBlock.next = idCounter.getAndAdd(BLOCK_SIZE);
+            idBlock.end = idBlock.next + BLOCK_SIZE;
+        }
+        return idBlock.next++;
+    }
+
+    /**
+     * Acquires the given amount of consecutive ids, for example: 4 -> { 5, 6, 7, 8 }
+     *
+     * @param count The amount of ids
+     * @return The first id
+     */
+    int acquireRow(int count) {
+        // A single id can be taken from the released ids
+        if (count == 1) {
+            return acquire();
+        }
+        final IdBlock idBlock = this.idBlocks.get();
+        // Use the current block if possible, otherwise claim
+        // a separate range so that the block isn't wasted
+        if (idBlock.end - idBlock.next >= count) {
+            final int id = idBlock.next;
+            idBlock.next += count;
+            return id;
+        }
+        return idCounter.getAndAdd(count);
+    }
+
+    /**
+     * Releases the id so that it can be reused.
+     *
+     * @param id The id
+     */
+    void release(int id) {
+        this.releasedIds.offer(new ReleasedId(id, currentTime()));
+    }
+
+    private void drainReleasedIds() {
+        // Don't wait for the thread that is currently draining, new ids can be claimed instead
+        if (!this.draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // Only the draining thread polls the released ids, so the
+            // peeked id is always the one that will be polled
+            final int time = currentTime();
+            ReleasedId releasedId;
+            while ((releasedId = this.releasedIds.peek()) != null && time - releasedId.time >= REUSE_DELAY) {
+                this.releasedIds.poll();
+                this.reusableIds.offer(releasedId);
+            }
+        } finally {
+            this.draining.set(false);
+        }
+    }
+
+    private static int currentTime() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    private static final class ReleasedId {
+
+        private final int id;
+        private final int time;
+
+        private ReleasedId(int id, int time) {
+            this.id = id;
+            this.time = time;
+        }
+    }
+
+    private static final class IdBlock {
+
+        // The remaining range of ids that were never used
+        private int next;
+        private int end;
+    }
+}
@@ -28,17 +28,15 @@
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import com.flowpowered.math.vector.Vector3d;
-import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.ints.IntIterator;
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
-import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import org.lanternpowered.server.entity.LanternEntity;
 import org.lanternpowered.server.entity.event.EntityEvent;
 import org.lanternpowered.server.entity.living.player.LanternPlayer;
 import org.spongepowered.api.entity.Entity;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -47,7 +45,6 @@
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.locks.StampedLock;
 import java.util.function.Consumer;
 
 import javax.annotation.Nullable;
@@ -58,12 +55,49 @@ public final class EntityProtocolManager {
 
     private static final int UPDATE_RATE = 3;
 
+    /**
+     * The size of a tracker grid cell is 16 blocks (1 << 4), which
+     * matches the size of a chunk column.
+     */
+    private static final int CELL_SHIFT = 4;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    /**
+     * Entity protocols with a tracking range above this value will not be stored
+     * in the tracker grid, and will be checked against all the players instead.
+     * This prevents that a few long range entities (lightning bolts, etc.) blow
+     * up the amount of cells every player has to look up.
+     */
+    private static final double MAX_GRID_TRACKING_RANGE = 128;
+
+    /**
+     * The initial capacity of the protocols by id array.
+     */
+    private static final int INITIAL_PROTOCOLS_BY_ID_SIZE = 1024;
+
+    /**
+     * The key of the cell of protocols that aren't stored in the grid.
+     */
+    static final long NO_TRACKER_CELL = Long.MIN_VALUE;
+
+    /**
+     * The key of the cell of protocols that exceed the {@link #MAX_GRID_TRACKING_RANGE}.
+     */
+    static final long UNBOUNDED_TRACKER_CELL = Long.MAX_VALUE;
+
+    /**
+     * The allocator for ids that aren't bound to a specific world.
+     */
+    private static final EntityIdAllocator globalIdAllocator = new EntityIdAllocator();
+
     public static int acquireEntityId() {
-        return new EntityProtocolInitContextImpl(null).acquire();
+        return globalIdAllocator.acquire();
     }
 
     public static void releaseEntityId(int id) {
-        new EntityProtocolInitContextImpl(null).release(id);
+        if (id != INVALID_ENTITY_ID) {
+            globalIdAllocator.release(id);
+        }
     }
 
     private final Map<Entity, AbstractEntityProtocol<?>> entityProtocols = new ConcurrentHashMap<>();
@@ -73,24 +107,39 @@ public static void releaseEntityId(int id) {
      */
     private final Queue<AbstractEntityProtocol<?>> queuedForRemoval = new ConcurrentLinkedDeque<>();
 
-    private final Int2ObjectMap<AbstractEntityProtocol<?>> idToEntityProtocolMap = new Int2ObjectOpenHashMap<>();
+    /**
+     * The allocator for the ids of entities in this world.
+     */
+    private final EntityIdAllocator idAllocator = new EntityIdAllocator();
 
-    // Start at 1, using 0 may cause some issues
-    // on the client regarding elytra flying boost,
-    // and maybe other related bugs.
-    private static int allocatorIdCounter = 1;
+    /**
+     * All the {@link AbstractEntityProtocol}s indexed by their entity ids. The array
+     * grows up to the highest id in this world, modifications are guarded by the
+     * {@link #protocolsByIdLock} and are published by reassigning the array.
+     */
+    private volatile AbstractEntityProtocol<?>[] protocolsById = new AbstractEntityProtocol<?>[INITIAL_PROTOCOLS_BY_ID_SIZE];
+    private final Object protocolsByIdLock = new Object();
+
+    /**
+     * All the {@link AbstractEntityProtocol}s grouped by the column cell the entity is
+     * located in, only accessed while updating the trackers.
+     */
+    private final Long2ObjectMap<Set<AbstractEntityProtocol<?>>> trackerGrid = new Long2ObjectOpenHashMap<>();
 
-    private final static IntSet allocatorReusableIds = new IntOpenHashSet();
-    private final static StampedLock allocatorLock = new StampedLock();
+    /**
+     * All the {@link AbstractEntityProtocol}s that aren't stored in the {@link #trackerGrid}
+     * because of their tracking range.
+     */
+    private final Set<AbstractEntityProtocol<?>> unboundedProtocols = new HashSet<>();
 
     /**
      * The {@link EntityProtocolInitContext}.
      */
-    private static class EntityProtocolInitContextImpl implements EntityProtocolInitContext {
+    private final class EntityProtocolInitContextImpl implements EntityProtocolInitContext {
 
-        @Nullable private final AbstractEntityProtocol<?> entityProtocol;
+        private final AbstractEntityProtocol<?> entityProtocol;
 
-        private EntityProtocolInitContextImpl(@Nullable AbstractEntityProtocol<?> entityProtocol) {
+        private EntityProtocolInitContextImpl(AbstractEntityProtocol<?> entityProtocol) {
             this.entityProtocol = entityProtocol;
         }
 
@@ -101,12 +150,9 @@ private EntityProtocolInitContextImpl(@Nullable AbstractEntityProtocol<?> entity
          */
         @Override
         public int acquire() {
-            final long stamp = allocatorLock.writeLock();
-            try {
-                return acquire0();
-            } finally {
-                allocatorLock.unlockWrite(stamp);
-            }
+            final int id = idAllocator.acquire();
+            setProtocolById(id, this.entityProtocol);
+            return id;
         }
 
         @Override
@@ -117,13 +163,8 @@ public int[] acquire(int count) {
         @Override
         public int[] acquire(int[] array) {
             checkNotNull(array, "array");
-            final long stamp = allocatorLock.writeLock();
-            try {
-                for (int i = 0; i < array.length; i++) {
-                    array[i] = acquire0();
-                }
-            } finally {
-                allocatorLock.unlockWrite(stamp);
+            for (int i = 0; i < array.length; i++) {
+                array[i] = acquire();
             }
             return array;
         }
@@ -136,108 +177,59 @@ public int[] acquireRow(int count) {
         @Override
         public int[] acquireRow(int[] array) {
             checkNotNull(array, "array");
-            final long stamp = allocatorLock.writeLock();
-            try {
-                IntIterator it = allocatorReusableIds.iterator();
-                boolean fail = false;
-                for (int i = 0; i < array.length; i++) {
-                    if (!it.hasNext()) {
-                        fail = true;
-                        break;
-                    }
-                    array[i] = it.nextInt();
-                    if (i != 0 && array[i - 1] != array[i] - 1) {
-                        fail = true;
-                        break;
-                    }
-                }
-                if (fail) {
-                    for (int i = 0; i < array.length; i++) {
-                        array[i] = allocatorIdCounter++;
-                        if (this.entityProtocol != null) {
-                            this.entityProtocol.entityProtocolManager.idToEntityProtocolMap.put(array[i], this.entityProtocol);
-                        }
-                    }
-                } else {
-                    it = allocatorReusableIds.iterator();
-                    for (int id : array) {
-                        it.nextInt();
-                        it.remove();
-                        if (this.entityProtocol != null) {
-                            this.entityProtocol.entityProtocolManager.idToEntityProtocolMap.put(id, this.entityProtocol);
-                        }
-                    }
-                }
-            } finally {
-                allocatorLock.unlockWrite(stamp);
+            final int first = idAllocator.acquireRow(array.length);
+            for (int i = 0; i < array.length; i++) {
+                array[i] = first + i;
+                setProtocolById(array[i], this.entityProtocol);
             }
             return array;
         }
 
-        private int acquire0() {
-            final int id;
-            final IntIterator it = allocatorReusableIds.iterator();
-            if (it.hasNext()) {
-                try {
-                    id = it.nextInt();
-                } finally {
-                    it.remove();
-                }
-            } else {
-                id = allocatorIdCounter++;
-            }
-            if (this.entityProtocol != null) {
-                this.entityProtocol.entityProtocolManager.idToEntityProtocolMap.put(id, this.entityProtocol);
-            }
-            return id;
-        }
-
         @Override
         public void release(int id) {
             if (id != INVALID_ENTITY_ID) {
-                final long stamp = allocatorLock.writeLock();
-                try {
-                    allocatorReusableIds.add(id);
-                    if (this.entityProtocol != null) {
-                        this.entityProtocol.entityProtocolManager.idToEntityProtocolMap.remove(id);
-                    }
-                } finally {
-                    allocatorLock.unlockWrite(stamp);
-                }
+                // Remove the mapping before the id can be reused
+                removeProtocolById(id, this.entityProtocol);
+                idAllocator.release(id);
             }
         }
 
         @Override
         public void release(int[] array) {
             checkNotNull(array, "array");
-            final long stamp = allocatorLock.writeLock();
-            try {
-                for (int id : array) {
-                    allocatorReusableIds.add(id);
-                    if (this.entityProtocol != null) {
-                        this.entityProtocol.entityProtocolManager.idToEntityProtocolMap.remove(id);
-                    }
-                }
-            } finally {
-                allocatorLock.unlockWrite(stamp);
+            for (int id : array) {
+                release(id);
             }
         }
     }
 
-    private int pulseCounter;
+    private void setProtocolById(int id, AbstractEntityProtocol<?> entityProtocol) {
+        synchronized (this.protocolsByIdLock) {
+            AbstractEntityProtocol<?>[] protocolsById = this.protocolsById;
+            if (id >= protocolsById.length) {
+                protocolsById = Arrays.copyOf(protocolsById, Math.max(protocolsById.length << 1, id + 1));
+            }
+            protocolsById[id] = entityProtocol;
+            // The volatile write publishes the modified element
+            this.protocolsById = protocolsById;
+        }
+    }
 
-    Optional<AbstractEntityProtocol<?>> getEntityProtocolById(int id) {
-        long stamp = allocatorLock.tryOptimisticRead();
-        AbstractEntityProtocol<?> entityProtocol = stamp != 0L ? this.idToEntityProtocolMap.get(id) : null;
-        if (stamp == 0L || !allocatorLock.validate(stamp)) {
-            stamp = allocatorLock.readLock();
-            try {
-                entityProtocol = this.idToEntityProtocolMap.get(id);
-            } finally {
-                allocatorLock.unlockRead(stamp);
+    private void removeProtocolById(int id, AbstractEntityProtocol<?> entityProtocol) {
+        synchronized (this.protocolsByIdLock) {
+            final AbstractEntityProtocol<?>[] protocolsById = this.protocolsById;
+            if (id < protocolsById.length && protocolsById[id] == entityProtocol) {
+                protocolsById[id] = null;
+                this.protocolsById = protocolsById;
             }
         }
-        return Optional.ofNullable(entityProtocol);
+    }
+
+    private int pulseCounter;
+
+    Optional<AbstractEntityProtocol<?>> getEntityProtocolById(int id) {
+        final AbstractEntityProtocol<?>[] protocolsById = this.protocolsById;
+        return id >= 0 && id < protocolsById.length ? Optional.ofNullable(protocolsById[id]) : Optional.empty();
     }
 
     Optional<AbstractEntityProtocol<?>> getEntityProtocolByEntity(Entity entity) {
@@ -283,12 +275,7 @@ public <E extends LanternEntity> void add(E entity, EntityProtocolType<E> protoc
         }
         entityProtocol.init(new EntityProtocolInitContextImpl(entityProtocol));
         if (entity instanceof NetworkIdHolder) {
-            final long stamp = allocatorLock.writeLock();
-            try {
-                this.idToEntityProtocolMap.put(((NetworkIdHolder) entity).getNetworkId(), entityProtocol);
-            } finally {
-                allocatorLock.unlockWrite(stamp);
-            }
+            setProtocolById(((NetworkIdHolder) entity).getNetworkId(), entityProtocol);
         }
     }
 
@@ -319,14 +306,61 @@ public void updateTrackers(Set<LanternPlayer> players) {
 
         AbstractEntityProtocol<?> removed;
         while ((removed = this.queuedForRemoval.poll()) != null) {
+            removeFromTrackerGrid(removed);
             removed.destroy(new EntityProtocolInitContextImpl(removed));
+            if (removed.entity instanceof NetworkIdHolder) {
+                removeProtocolById(((NetworkIdHolder) removed.entity).getNetworkId(), removed);
+            }
+        }
+
+        // Move the entity protocols to the cells their entities are currently
+        // located in, only the protocols that crossed a cell boundary are touched
+        final List<AbstractEntityProtocol<?>> protocols = new ArrayList<>(this.entityProtocols.values());
+        double maxTrackingRange = 0;
+        for (AbstractEntityProtocol<?> protocol : protocols) {
+            final double trackingRange = protocol.getTrackingRange();
+            final long cell;
+            if (trackingRange > MAX_GRID_TRACKING_RANGE) {
+                cell = UNBOUNDED_TRACKER_CELL;
+            } else {
+                final Vector3d pos = protocol.getEntity().getPosition();
+                cell = getTrackerCell(pos.getFloorX() >> CELL_SHIFT, pos.getFloorZ() >> CELL_SHIFT);
+                maxTrackingRange = Math.max(maxTrackingRange, trackingRange);
+            }
+            if (cell != protocol.trackerCell) {
+                removeFromTrackerGrid(protocol);
+                addToTrackerGrid(protocol, cell);
+            }
+        }
+
+        // Every player only considers the entities within the cells
+        // that could be in range, instead of all the entities
+        final int cellRadius = (int) Math.ceil(maxTrackingRange / CELL_SIZE);
+        for (LanternPlayer player : players) {
+            final Vector3d pos = player.getPosition();
+            final int cellX = pos.getFloorX() >> CELL_SHIFT;
+            final int cellZ = pos.getFloorZ() >> CELL_SHIFT;
+            for (int x = cellX - cellRadius; x <= cellX + cellRadius; x++) {
+                for (int z = cellZ - cellRadius; z <= cellZ + cellRadius; z++) {
+                    final Set<AbstractEntityProtocol<?>> cellProtocols = this.trackerGrid.get(getTrackerCell(x, z));
+                    if (cellProtocols != null) {
+                        for (AbstractEntityProtocol<?> protocol : cellProtocols) {
+                            protocol.addTrackerCandidate(player);
+                        }
+                    }
+                }
+            }
+        }
+        if (!players.isEmpty()) {
+            for (AbstractEntityProtocol<?> protocol : this.unboundedProtocols) {
+                protocol.addTrackerCandidates(players);
+            }
         }
 
         final List<AbstractEntityProtocol.TrackerUpdateContextData> updateContextDataList = new ArrayList<>();
 
-        final Set<AbstractEntityProtocol<?>> protocols = new HashSet<>(this.entityProtocols.values());
         for (AbstractEntityProtocol<?> protocol : protocols) {
-            final AbstractEntityProtocol.TrackerUpdateContextData contextData = protocol.buildUpdateContextData(players);
+            final AbstractEntityProtocol.TrackerUpdateContextData contextData = protocol.buildUpdateContextData();
             if (contextData != null) {
                 //noinspection unchecked
                 protocol.updateTrackers(contextData);
@@ -339,6 +373,37 @@ public void updateTrackers(Set<LanternPlayer> players) {
         }
     }
 
+    private static long getTrackerCell(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xffffffffL);
+    }
+
+    private void addToTrackerGrid(AbstractEntityProtocol<?> protocol, long cell) {
+        if (cell == UNBOUNDED_TRACKER_CELL) {
+            this.unboundedProtocols.add(protocol);
+        } else {
+            Set<AbstractEntityProtocol<?>> cellProtocols = this.trackerGrid.get(cell);
+            if (cellProtocols == null) {
+                cellProtocols = new HashSet<>();
+                this.trackerGrid.put(cell, cellProtocols);
+            }
+            cellProtocols.add(protocol);
+        }
+        protocol.trackerCell = cell;
+    }
+
+    private void removeFromTrackerGrid(AbstractEntityProtocol<?> protocol) {
+        final long cell = protocol.trackerCell;
+        if (cell == UNBOUNDED_TRACKER_CELL) {
+            this.unboundedProtocols.remove(protocol);
+        } else if (cell != NO_TRACKER_CELL) {
+            final Set<AbstractEntityProtocol<?>> cellProtocols = this.trackerGrid.get(cell);
+            if (cellProtocols != null && cellProtocols.remove(protocol) && cellProtocols.isEmpty()) {
+                this.trackerGrid.remove(cell);
+            }
+        }
+        protocol.trackerCell = NO_TRACKER_CELL;
+    }
+
     private static final int INTERACT_DELAY = 50;
 
     public void playerInteract(LanternPlayer player, int entityId, @Nullable Vector3d position) {
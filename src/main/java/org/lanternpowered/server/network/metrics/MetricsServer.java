@@ -0,0 +1,78 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.network.metrics;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import org.lanternpowered.server.network.ServerBase;
+
+import java.net.SocketAddress;
+
+import javax.annotation.Nullable;
+
+/**
+ * A small http server that exposes the tick statistics of
+ * the server in the prometheus text format on {@code /metrics}.
+ */
+public final class MetricsServer extends ServerBase {
+
+    private static final int MAX_CONTENT_LENGTH = 8192;
+
+    @Nullable private ServerBootstrap bootstrap;
+    @Nullable private EventLoopGroup group;
+
+    @Override
+    protected ChannelFuture init0(SocketAddress address, boolean epoll) {
+        this.bootstrap = new ServerBootstrap();
+        this.group = createEventLoopGroup(epoll);
+        return this.bootstrap
+                .group(this.group)
+                .channel(getServerSocketChannelClass(epoll))
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    public void initChannel(SocketChannel ch) throws Exception {
+                        ch.pipeline()
+                                .addLast(new HttpServerCodec())
+                                .addLast(new HttpObjectAggregator(MAX_CONTENT_LENGTH))
+                                .addLast(new MetricsHandler());
+                    }
+                })
+                .bind(address);
+    }
+
+    @SuppressWarnings("ConstantConditions")
+    @Override
+    protected void shutdown0() {
+        this.group.shutdownGracefully();
+        this.group = null;
+        this.bootstrap = null;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.network.metrics;
+
+import org.lanternpowered.server.game.Lantern;
+import org.lanternpowered.server.game.LanternGame;
+import org.lanternpowered.server.network.pipeline.CompressionStatistics;
+import org.lanternpowered.server.tick.TickLoop;
+import org.lanternpowered.server.timings.TickPhase;
+import org.lanternpowered.server.timings.TickRecorder;
+import org.lanternpowered.server.world.LanternWorld;
+import org.spongepowered.api.world.World;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Writes the tick statistics in the prometheus text format.
+ */
+final class MetricsWriter {
+
+    private static final double[] QUANTILES = { 0.5, 0.95, 0.99 };
+
+    static void write(StringBuilder builder) {
+        final List<TickRecorder> recorders = new ArrayList<>();
+        recorders.add(Lantern.getServer().getTickRecorder());
+        for (World world : Lantern.getServer().getWorlds()) {
+            recorders.add(((LanternWorld) world).getTickRecorder());
+        }
+        final List<TickRecorder.Snapshot> snapshots = new ArrayList<>();
+        final List<TickRecorder.Snapshot> recentSnapshots = new ArrayList<>();
+        for (TickRecorder recorder : recorders) {
+            snapshots.add(recorder.snapshot());
+            recentSnapshots.add(recorder.snapshot(LanternGame.TICKS_PER_SECOND * 5));
+        }
+
+        header(builder, "lantern_tps", "gauge", "The average amount of ticks per second.");
+        for (int i = 0; i < recorders.size(); i++) {
+            sample(builder, "lantern_tps", recorders.get(i), "window", "5s", recentSnapshots.get(i).getTicksPerSecond());
+            sample(builder, "lantern_tps", recorders.get(i), "window", "1m", snapshots.get(i).getTicksPerSecond());
+        }
+        // The quantiles are computed over the last minute, the sum and
+        // count are cumulative as required for summaries
+        header(builder, "lantern_mspt", "summary", "The duration of the ticks in milliseconds, quantiles over the last minute.");
+        for (int i = 0; i < recorders.size(); i++) {
+            final TickRecorder recorder = recorders.get(i);
+            final TickRecorder.Snapshot snapshot = snapshots.get(i);
+            for (double quantile : QUANTILES) {
+                sample(builder, "lantern_mspt", recorder, "quantile", Double.toString(quantile),
+                        toMillis(snapshot.getPercentileNanos(quantile)));
+            }
+            sample(builder, "lantern_mspt_sum", recorder, null, null, toMillis(snapshot.getTotalTickNanos()));
+            sample(builder, "lantern_mspt_count", recorder, null, null, snapshot.getTotalTicks());
+        }
+        header(builder, "lantern_mspt_max", "gauge", "The longest tick of the last minute in milliseconds.");
+        for (int i = 0; i < recorders.size(); i++) {
+            sample(builder, "lantern_mspt_max", recorders.get(i), null, null, toMillis(snapshots.get(i).getMaxNanos()));
+        }
+        header(builder, "lantern_tick_phase_ms", "gauge", "The average time per tick of the last minute spent in a tick phase.");
+        for (int i = 0; i < recorders.size(); i++) {
+            final TickRecorder recorder = recorders.get(i);
+            for (TickPhase phase : recorder.getPhases()) {
+                sample(builder, "lantern_tick_phase_ms", recorder, "phase", phase.getId(),
+                        toMillis(snapshots.get(i).getAverageNanos(phase)));
+            }
+        }
+        header(builder, "lantern_ticks_total", "counter", "The amount of ticks.");
+        for (int i = 0; i < recorders.size(); i++) {
+            sample(builder, "lantern_ticks_total", recorders.get(i), null, null, snapshots.get(i).getTotalTicks());
+        }
+        header(builder, "lantern_skipped_ticks_total", "counter", "The amount of ticks that didn't start within their interval.");
+        for (int i = 0; i < recorders.size(); i++) {
+            sample(builder, "lantern_skipped_ticks_total", recorders.get(i), null, null, snapshots.get(i).getSkippedTicks());
+        }
+        final TickLoop tickLoop = Lantern.getServer().getTickLoop();
+        header(builder, "lantern_overloaded", "gauge", "Whether the server is overloaded.");
+        builder.append("lantern_overloaded ").append(tickLoop.isOverloaded() ? 1 : 0).append('\n');
+        header(builder, "lantern_tick_lag_ms", "gauge", "How far the current tick started behind schedule.");
+        builder.append("lantern_tick_lag_ms ").append(toMillis(tickLoop.getLagNanos())).append('\n');
+        header(builder, "lantern_tick_loop_skipped_ticks_total", "counter", "The amount of ticks that were skipped by the tick loop.");
+        builder.append("lantern_tick_loop_skipped_ticks_total ").append(tickLoop.getSkippedTicks()).append('\n');
+        header(builder, "lantern_players_online", "gauge", "The amount of online players.");
+        builder.append("lantern_players_online ").append(Lantern.getServer().getOnlinePlayers().size()).append('\n');
+
+        counter(builder, "lantern_network_compressed_messages_total", "The amount of outbound messages that were compressed.",
+                CompressionStatistics.getCompressedMessages());
+        counter(builder, "lantern_network_uncompressed_messages_total", "The amount of outbound messages that were send uncompressed.",
+                CompressionStatistics.getUncompressedMessages());
+        counter(builder, "lantern_network_decompressed_messages_total", "The amount of inbound messages that were decompressed.",
+                CompressionStatistics.getDecompressedMessages());
+        counter(builder, "lantern_network_compression_input_bytes_total", "The size of the compressed messages before compression.",
+                CompressionStatistics.getBytesBeforeCompression());
+        counter(builder, "lantern_network_compression_output_bytes_total", "The size of the compressed messages after compression.",
+                CompressionStatistics.getBytesAfterCompression());
+        counter(builder, "lantern_network_compression_buffer_allocations_total", "The amount of buffers allocated by the compression.",
+                CompressionStatistics.getBufferAllocations());
+        counter(builder, "lantern_network_compression_scratch_allocations_total", "The amount of scratch arrays allocated by the compression.",
+                CompressionStatistics.getScratchAllocations());
+        counter(builder, "lantern_network_compression_copied_bytes_total", "The amount of bytes copied from direct buffers by the compression.",
+                CompressionStatistics.getCopiedBytes());
+    }
+
+    private static void counter(StringBuilder builder, String name, String help, long value) {
+        header(builder, name, "counter", help);
+        builder.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1000000.0;
+    }
+
+    private static void header(StringBuilder builder, String name, String type, String help) {
+        builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder builder, String name, TickRecorder recorder,
+            @Nullable String labelName, @Nullable String labelValue, double value) {
+        builder.append(name).append("{source=\"");
+        final boolean server = recorder == Lantern.getServer().getTickRecorder();
+        builder.append(server ? "server" : "world").append('"');
+        if (!server) {
+            builder.append(",world=\"");
+            escape(builder, recorder.getName());
+            builder.append('"');
+        }
+        if (labelName != null) {
+            builder.append(',').append(labelName).append("=\"");
+            //noinspection ConstantConditions
+            escape(builder, labelValue);
+            builder.append('"');
+        }
+        builder.append("} ").append(value).append('\n');
+    }
+
+    private static void escape(StringBuilder builder, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                builder.append('\\').append(c);
+            } else if (c == '\n') {
+                builder.append("\\n");
+            } else {
+                builder.append(c);
+            }
+        }
+    }
+
+    private MetricsWriter() {
+    }
+}
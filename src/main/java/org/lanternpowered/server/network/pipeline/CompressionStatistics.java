@@ -0,0 +1,124 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.network.pipeline;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work that is done by the {@link MessageCompressionHandler}s
+ * of all the sessions. These are exported by the metrics server to monitor
+ * the allocations and copies that are caused by the compression under load.
+ */
+public final class CompressionStatistics {
+
+    static final LongAdder compressedMessages = new LongAdder();
+    static final LongAdder uncompressedMessages = new LongAdder();
+    static final LongAdder decompressedMessages = new LongAdder();
+    static final LongAdder bytesBeforeCompression = new LongAdder();
+    static final LongAdder bytesAfterCompression = new LongAdder();
+    static final LongAdder bufferAllocations = new LongAdder();
+    static final LongAdder scratchAllocations = new LongAdder();
+    static final LongAdder copiedBytes = new LongAdder();
+
+    /**
+     * Gets the amount of outbound messages that were compressed.
+     *
+     * @return The compressed messages
+     */
+    public static long getCompressedMessages() {
+        return compressedMessages.sum();
+    }
+
+    /**
+     * Gets the amount of outbound messages that were send uncompressed,
+     * because they didn't reach the threshold or didn't shrink.
+     *
+     * @return The uncompressed messages
+     */
+    public static long getUncompressedMessages() {
+        return uncompressedMessages.sum();
+    }
+
+    /**
+     * Gets the amount of inbound messages that were decompressed.
+     *
+     * @return The decompressed messages
+     */
+    public static long getDecompressedMessages() {
+        return decompressedMessages.sum();
+    }
+
+    /**
+     * Gets the total size of the compressed messages before compression.
+     *
+     * @return The bytes before compression
+     */
+    public static long getBytesBeforeCompression() {
+        return bytesBeforeCompression.sum();
+    }
+
+    /**
+     * Gets the total size of the compressed messages after compression.
+     *
+     * @return The bytes after compression
+     */
+    public static long getBytesAfterCompression() {
+        return bytesAfterCompression.sum();
+    }
+
+    /**
+     * Gets the amount of buffers that were allocated to hold
+     * compressed or decompressed content.
+     *
+     * @return The buffer allocations
+     */
+    public static long getBufferAllocations() {
+        return bufferAllocations.sum();
+    }
+
+    /**
+     * Gets the amount of times that a scratch array had to be (re)allocated
+     * to copy the content of a direct buffer into.
+     *
+     * @return The scratch allocations
+     */
+    public static long getScratchAllocations() {
+        return scratchAllocations.sum();
+    }
+
+    /**
+     * Gets the amount of bytes that had to be copied from direct
+     * buffers before they could be (de)compressed.
+     *
+     * @return The copied bytes
+     */
+    public static long getCopiedBytes() {
+        return copiedBytes.sum();
+    }
+
+    private CompressionStatistics() {
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.network.pipeline;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.EncoderException;
+import io.netty.util.AbstractReferenceCounted;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.FastThreadLocal;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import org.lanternpowered.server.network.NetworkSession;
+import org.lanternpowered.server.network.message.Message;
+import org.lanternpowered.server.network.message.codec.CodecContext;
+import org.lanternpowered.server.network.protocol.ProtocolState;
+import org.lanternpowered.server.util.concurrent.FastThreadLocals;
+
+import java.util.zip.Deflater;
+
+import javax.annotation.Nullable;
+
+/**
+ * Represents a {@link Message} that will only be encoded once and can be send
+ * to multiple {@link NetworkSession}s. The encoded content will be compressed
+ * at most once per compression threshold, the wire ready buffers are shared
+ * between all the sessions through reference counting.
+ * <p>
+ * The message will be encoded lazily by the first session that
+ * attempts to write it, this happens on the network threads.
+ * <p>
+ * Only messages without outbound processors are supported, the
+ * processors could depend on the state of the session. The message
+ * can only be written to sessions that are in the same {@link ProtocolState}
+ * as the session that encoded it.
+ */
+public final class EncodedMessage extends AbstractReferenceCounted {
+
+    private static final FastThreadLocal<MessageCompressor> compressor = FastThreadLocals.withInitial(
+            () -> MessageCompressionHandler.getCompressorFactory().create(Deflater.DEFAULT_COMPRESSION));
+
+    @Nullable private Message message;
+
+    /**
+     * The encoded content of the message, including the opcode.
+     */
+    @Nullable private ByteBuf content;
+
+    /**
+     * The protocol state the content was encoded for.
+     */
+    @Nullable private ProtocolState protocolState;
+
+    /**
+     * The compressed contents for every compression threshold.
+     */
+    private final Int2ObjectMap<ByteBuf> compressedContents = new Int2ObjectOpenHashMap<>();
+
+    public EncodedMessage(Message message) {
+        this.message = checkNotNull(message, "message");
+    }
+
+    /**
+     * Gets a wire ready {@link ByteBuf} for the given compression threshold, the
+     * returned buffer is a retained duplicate and should be released by the caller.
+     *
+     * @param codecContext The codec context that should be used to encode the message
+     * @param compressionThreshold The compression threshold, or {@code -1} if compression is disabled
+     * @return The wire ready byte buf
+     */
+    public synchronized ByteBuf getWireBuffer(CodecContext codecContext, int compressionThreshold) {
+        final ProtocolState protocolState = codecContext.getSession().getProtocolState();
+        if (this.content == null) {
+            if (this.message == null) {
+                throw new IllegalStateException("The encoded message is already released.");
+            }
+            try {
+                this.content = MessageCodecHandler.encode(codecContext, PooledByteBufAllocator.DEFAULT, this.message);
+                this.protocolState = protocolState;
+            } finally {
+                ReferenceCountUtil.release(this.message);
+                this.message = null;
+            }
+        } else if (protocolState != this.protocolState) {
+            throw new EncoderException("The message was encoded in state " + this.protocolState +
+                    " and cannot be written in state " + protocolState + "!");
+        }
+        if (compressionThreshold == -1) {
+            return this.content.retainedDuplicate();
+        }
+        ByteBuf compressed = this.compressedContents.get(compressionThreshold);
+        if (compressed == null) {
+            compressed = MessageCompressionHandler.compress(PooledByteBufAllocator.DEFAULT,
+                    this.content.duplicate(), compressionThreshold, compressor.get());
+            this.compressedContents.put(compressionThreshold, compressed);
+        }
+        return compressed.retainedDuplicate();
+    }
+
+    @Override
+    public EncodedMessage retain() {
+        super.retain();
+        return this;
+    }
+
+    @Override
+    public EncodedMessage touch(Object hint) {
+        return this;
+    }
+
+    @Override
+    protected synchronized void deallocate() {
+        if (this.message != null) {
+            ReferenceCountUtil.release(this.message);
+            this.message = null;
+        }
+        if (this.content != null) {
+            this.content.release();
+            this.content = null;
+        }
+        this.compressedContents.values().forEach(ByteBuf::release);
+        this.compressedContents.clear();
+    }
+}
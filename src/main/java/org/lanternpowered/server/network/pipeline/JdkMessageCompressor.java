@@ -0,0 +1,158 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.network.pipeline;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The {@link MessageCompressor} that is backed by the
+ * {@link Deflater} and {@link Inflater} of the jdk.
+ * <p>
+ * The input will be read directly from the backing arrays of the heap
+ * components of the source buffer, only the direct components have to be
+ * copied into a reusable scratch array. The output will be written directly
+ * into the backing array of the heap destination buffer.
+ */
+final class JdkMessageCompressor implements MessageCompressor {
+
+    /**
+     * The minimum amount of bytes that should be
+     * writable before every deflate call.
+     */
+    private static final int MIN_DEFLATE_WRITABLE = 256;
+
+    private final Deflater deflater;
+    private final Inflater inflater = new Inflater();
+
+    /**
+     * The scratch array that is used to copy the
+     * content of direct buffers into.
+     */
+    private byte[] scratch = new byte[0];
+
+    JdkMessageCompressor(int level) {
+        this.deflater = new Deflater(level);
+    }
+
+    @Override
+    public void setLevel(int level) {
+        this.deflater.setLevel(level);
+    }
+
+    @Override
+    public void deflate(ByteBuf source, ByteBuf destination) {
+        for (ByteBuffer buffer : source.nioBuffers()) {
+            setInput(this.deflater, buffer);
+            while (!this.deflater.needsInput()) {
+                deflate0(destination);
+            }
+        }
+        source.skipBytes(source.readableBytes());
+        this.deflater.finish();
+        while (!this.deflater.finished()) {
+            deflate0(destination);
+        }
+        this.deflater.reset();
+    }
+
+    private void deflate0(ByteBuf destination) {
+        destination.ensureWritable(MIN_DEFLATE_WRITABLE);
+        final int writerIndex = destination.writerIndex();
+        final int length = this.deflater.deflate(destination.array(),
+                destination.arrayOffset() + writerIndex, destination.writableBytes());
+        destination.writerIndex(writerIndex + length);
+    }
+
+    @Override
+    public int inflate(ByteBuf source, ByteBuf destination, int uncompressedSize) throws DataFormatException {
+        destination.ensureWritable(uncompressedSize);
+        final int startIndex = destination.writerIndex();
+        final int endIndex = startIndex + uncompressedSize;
+        try {
+            for (ByteBuffer buffer : source.nioBuffers()) {
+                setInput(this.inflater, buffer);
+                int writerIndex;
+                while (!this.inflater.needsInput() && !this.inflater.finished() &&
+                        (writerIndex = destination.writerIndex()) < endIndex) {
+                    final int length = this.inflater.inflate(destination.array(),
+                            destination.arrayOffset() + writerIndex, endIndex - writerIndex);
+                    if (length == 0) {
+                        if (this.inflater.needsDictionary()) {
+                            throw new DataFormatException("A preset dictionary is not supported.");
+                        }
+                        break;
+                    }
+                    destination.writerIndex(writerIndex + length);
+                }
+            }
+            source.skipBytes(source.readableBytes());
+            return destination.writerIndex() - startIndex;
+        } finally {
+            this.inflater.reset();
+        }
+    }
+
+    private void setInput(Deflater deflater, ByteBuffer buffer) {
+        final int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            deflater.setInput(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+        } else {
+            deflater.setInput(copyToScratch(buffer), 0, length);
+        }
+    }
+
+    private void setInput(Inflater inflater, ByteBuffer buffer) {
+        final int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            inflater.setInput(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+        } else {
+            inflater.setInput(copyToScratch(buffer), 0, length);
+        }
+    }
+
+    private byte[] copyToScratch(ByteBuffer buffer) {
+        final int length = buffer.remaining();
+        if (this.scratch.length < length) {
+            // Round up to the next power of two to avoid growing too often
+            this.scratch = new byte[Math.max(length, Integer.highestOneBit(length - 1) << 1)];
+            CompressionStatistics.scratchAllocations.increment();
+        }
+        buffer.duplicate().get(this.scratch, 0, length);
+        CompressionStatistics.copiedBytes.add(length);
+        return this.scratch;
+    }
+
+    @Override
+    public void release() {
+        this.deflater.end();
+        this.inflater.end();
+    }
+}
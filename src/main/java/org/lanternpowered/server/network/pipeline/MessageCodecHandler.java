@@ -30,6 +30,7 @@
 
 import com.google.common.collect.Sets;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.DecoderException;
@@ -65,9 +66,35 @@ public MessageCodecHandler(CodecContext codecContext) {
         this.codecContext = codecContext;
     }
 
+    /**
+     * Gets the {@link CodecContext} of this handler.
+     *
+     * @return The codec context
+     */
+    public CodecContext getCodecContext() {
+        return this.codecContext;
+    }
+
     @Override
     protected void encode(ChannelHandlerContext ctx, Message message, List<Object> output) throws Exception {
-        final Protocol protocol = this.codecContext.getSession().getProtocol();
+        try {
+            output.add(encode(this.codecContext, ctx.alloc(), message));
+        } finally {
+            ReferenceCountUtil.release(message);
+        }
+    }
+
+    /**
+     * Encodes the {@link Message} into a {@link ByteBuf}, the
+     * opcode of the message will be prepended.
+     *
+     * @param codecContext The codec context
+     * @param alloc The byte buf allocator
+     * @param message The message to encode
+     * @return The encoded message
+     */
+    static ByteBuf encode(CodecContext codecContext, ByteBufAllocator alloc, Message message) {
+        final Protocol protocol = codecContext.getSession().getProtocol();
         final MessageRegistration<Message> registration = (MessageRegistration<Message>) protocol.outbound()
                 .findByMessageType(message.getClass()).orElse(null);
 
@@ -87,21 +114,16 @@ protected void encode(ChannelHandlerContext ctx, Message message, List<Object> o
         }
         */
 
-        final ByteBuf opcode = ctx.alloc().buffer();
+        final Codec codec = codecRegistration.getCodec();
+        final ByteBuffer content = codec.encode(codecContext, message);
+
+        final ByteBuf opcode = alloc.buffer();
 
         // Write the opcode of the message
         writeVarInt(opcode, codecRegistration.getOpcode());
 
-        final Codec codec = codecRegistration.getCodec();
-        final ByteBuffer content;
-        try {
-            content = codec.encode(this.codecContext, message);
-        } finally {
-            ReferenceCountUtil.release(message);
-        }
-
         // Add the buffer to the output
-        output.add(Unpooled.wrappedBuffer(opcode, ((LanternByteBuffer) content).getDelegate()));
+        return Unpooled.wrappedBuffer(opcode, ((LanternByteBuffer) content).getDelegate());
     }
 
     private static final Set<Integer> warnedMissingOpcodes = Sets.newConcurrentHashSet();
@@ -47,10 +47,12 @@
  */
 package org.lanternpowered.server.network.pipeline;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static org.lanternpowered.server.network.buffer.LanternByteBuffer.readVarInt;
 import static org.lanternpowered.server.network.buffer.LanternByteBuffer.writeVarInt;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.DecoderException;
@@ -59,61 +61,154 @@
 
 import java.util.List;
 import java.util.zip.Deflater;
-import java.util.zip.Inflater;
 
 public final class MessageCompressionHandler extends MessageToMessageCodec<ByteBuf, ByteBuf> {
 
-    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
-    private final Inflater inflater = new Inflater();
+    /**
+     * The factory that will be used to construct the {@link MessageCompressor}s.
+     */
+    private static volatile MessageCompressor.Factory compressorFactory = JdkMessageCompressor::new;
 
+    /**
+     * Sets the {@link MessageCompressor.Factory} that should be used by all the
+     * compression handlers that are created after this call. This allows a native
+     * compression backend to be plugged in when it's present.
+     *
+     * @param factory The compressor factory
+     */
+    public static void setCompressorFactory(MessageCompressor.Factory factory) {
+        compressorFactory = checkNotNull(factory, "factory");
+    }
+
+    /**
+     * Gets the {@link MessageCompressor.Factory} that is currently used.
+     *
+     * @return The compressor factory
+     */
+    public static MessageCompressor.Factory getCompressorFactory() {
+        return compressorFactory;
+    }
+
+    private final MessageCompressor compressor;
     private final int compressionThreshold;
 
+    /**
+     * The compression level that should be used, changes
+     * will be applied within the event loop.
+     */
+    private volatile int compressionLevel;
+    private int appliedCompressionLevel;
+
     public MessageCompressionHandler(int compressionThreshold) {
+        this(compressionThreshold, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public MessageCompressionHandler(int compressionThreshold, int compressionLevel) {
+        this.compressor = compressorFactory.create(compressionLevel);
         this.compressionThreshold = compressionThreshold;
+        this.compressionLevel = compressionLevel;
+        this.appliedCompressionLevel = compressionLevel;
+    }
+
+    /**
+     * Gets the compression threshold.
+     *
+     * @return The compression threshold
+     */
+    public int getCompressionThreshold() {
+        return this.compressionThreshold;
+    }
+
+    /**
+     * Gets the compression level.
+     *
+     * @return The compression level
+     */
+    public int getCompressionLevel() {
+        return this.compressionLevel;
+    }
+
+    /**
+     * Sets the compression level, this may be called from any thread.
+     *
+     * @param compressionLevel The compression level
+     */
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel != Deflater.DEFAULT_COMPRESSION &&
+                (compressionLevel < Deflater.NO_COMPRESSION || compressionLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+        }
+        this.compressionLevel = compressionLevel;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        this.compressor.release();
+        super.handlerRemoved(ctx);
     }
 
     @Override
     protected void encode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out) throws Exception {
-        ByteBuf prefixBuf = ctx.alloc().buffer(5);
-        ByteBuf contentsBuf;
+        final int compressionLevel = this.compressionLevel;
+        if (compressionLevel != this.appliedCompressionLevel) {
+            this.compressor.setLevel(compressionLevel);
+            this.appliedCompressionLevel = compressionLevel;
+        }
+        out.add(compress(ctx.alloc(), msg, this.compressionThreshold, this.compressor));
+    }
 
-        if (msg.readableBytes() >= this.compressionThreshold) {
+    /**
+     * Compresses the {@link ByteBuf} if it exceeds the compression
+     * threshold and prepends the uncompressed length.
+     *
+     * @param alloc The byte buf allocator
+     * @param msg The byte buf to compress
+     * @param compressionThreshold The compression threshold
+     * @param compressor The compressor
+     * @return The compressed byte buf
+     */
+    static ByteBuf compress(ByteBufAllocator alloc, ByteBuf msg, int compressionThreshold, MessageCompressor compressor) {
+        final int length = msg.readableBytes();
+        if (length >= compressionThreshold) {
             // Message should be compressed
-            int index = msg.readerIndex();
-            int length = msg.readableBytes();
-
-            byte[] sourceData = new byte[length];
-            msg.readBytes(sourceData);
-            this.deflater.setInput(sourceData);
-            this.deflater.finish();
+            final int index = msg.readerIndex();
 
-            byte[] compressedData = new byte[length];
-            int compressedLength = this.deflater.deflate(compressedData);
-            this.deflater.reset();
+            // Deflate directly into the buffer that will be send, it's very
+            // likely that the content will shrink, so reserve the length
+            final ByteBuf compressed = alloc.heapBuffer(length + 5);
+            CompressionStatistics.bufferAllocations.increment();
+            writeVarInt(compressed, length);
+            final int prefixLength = compressed.writerIndex();
+            try {
+                compressor.deflate(msg, compressed);
+            } catch (Throwable t) {
+                compressed.release();
+                throw t;
+            }
+            final int compressedLength = compressed.writerIndex() - prefixLength;
 
             if (compressedLength == 0) {
                 // Compression failed in some weird way
+                compressed.release();
                 throw new EncoderException("Failed to compress message of size " + length);
-            } else if (compressedLength >= length) {
-                // Compression increased the size. threshold is probably too low
-                // Send as an uncompressed packet
-                writeVarInt(prefixBuf, 0);
-                msg.readerIndex(index);
-                msg.retain();
-                contentsBuf = msg;
-            } else {
+            } else if (compressedLength < length) {
                 // All is well
-                writeVarInt(prefixBuf, length);
-                contentsBuf = Unpooled.wrappedBuffer(compressedData, 0, compressedLength);
+                CompressionStatistics.compressedMessages.increment();
+                CompressionStatistics.bytesBeforeCompression.add(length);
+                CompressionStatistics.bytesAfterCompression.add(compressedLength);
+                return compressed;
             }
-        } else {
-            // Message should be sent through
-            writeVarInt(prefixBuf, 0);
-            msg.retain();
-            contentsBuf = msg;
+            // Compression increased the size. threshold is probably too low
+            // Send as an uncompressed packet
+            compressed.release();
+            msg.readerIndex(index);
         }
-
-        out.add(Unpooled.wrappedBuffer(prefixBuf, contentsBuf));
+        // Message should be sent through
+        CompressionStatistics.uncompressedMessages.increment();
+        final ByteBuf prefixBuf = alloc.buffer(1);
+        writeVarInt(prefixBuf, 0);
+        msg.retain();
+        return Unpooled.wrappedBuffer(prefixBuf, msg);
     }
 
     @Override
@@ -129,30 +224,36 @@ protected void decode(ChannelHandlerContext ctx, ByteBuf msg, List<Object> out)
                         + this.compressionThreshold);
             }
 
-            ByteBuf buf = ctx.alloc().buffer(length);
-            msg.readBytes(buf, length);
-            out.add(buf);
+            // The content can be passed through, the message
+            // will be released after the decode call
+            out.add(msg.retainedSlice());
         } else {
-            // Message is compressed
-            byte[] sourceData = new byte[msg.readableBytes()];
-            msg.readBytes(sourceData);
-            this.inflater.setInput(sourceData);
-
-            byte[] destData = new byte[uncompressedSize];
-            int resultLength = this.inflater.inflate(destData);
-            this.inflater.reset();
+            // Message is compressed, inflate directly
+            // into the buffer that will be passed through
+            final ByteBuf buf = ctx.alloc().heapBuffer(uncompressedSize);
+            CompressionStatistics.bufferAllocations.increment();
+            final int resultLength;
+            try {
+                resultLength = this.compressor.inflate(msg, buf, uncompressedSize);
+            } catch (Throwable t) {
+                buf.release();
+                throw t;
+            }
 
             if (resultLength == 0) {
                 // Might be a leftover from before compression was enabled (no compression header)
                 // UncompressedSize is likely to be < threshold
+                buf.release();
                 msg.readerIndex(index);
                 msg.retain();
                 out.add(msg);
             } else if (resultLength != uncompressedSize) {
+                buf.release();
                 throw new DecoderException("Received compressed message claiming to be of size "
                         + uncompressedSize + " but actually " + resultLength);
             } else {
-                out.add(Unpooled.wrappedBuffer(destData));
+                CompressionStatistics.decompressedMessages.increment();
+                out.add(buf);
             }
         }
     }
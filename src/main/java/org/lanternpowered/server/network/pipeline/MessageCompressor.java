@@ -0,0 +1,87 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.network.pipeline;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.zip.DataFormatException;
+
+/**
+ * Represents a backend that can deflate and inflate the content of messages. The
+ * destination buffers are always heap buffers, which allows the backends to write
+ * directly into the backing arrays without intermediate copies.
+ * <p>
+ * A compressor isn't thread safe, every {@link MessageCompressionHandler} has
+ * its own instance which is only accessed from the event loop of the channel.
+ */
+public interface MessageCompressor {
+
+    /**
+     * Sets the compression level that should be used.
+     *
+     * @param level The compression level
+     */
+    void setLevel(int level);
+
+    /**
+     * Deflates all the readable bytes of the source into the destination.
+     *
+     * @param source The source buffer
+     * @param destination The destination buffer
+     */
+    void deflate(ByteBuf source, ByteBuf destination);
+
+    /**
+     * Inflates all the readable bytes of the source into the destination.
+     *
+     * @param source The source buffer
+     * @param destination The destination buffer
+     * @param uncompressedSize The expected uncompressed size
+     * @return The amount of bytes that were inflated
+     * @throws DataFormatException If the compressed data format is invalid
+     */
+    int inflate(ByteBuf source, ByteBuf destination, int uncompressedSize) throws DataFormatException;
+
+    /**
+     * Releases all the resources that are held by this compressor.
+     */
+    void release();
+
+    /**
+     * A factory to construct {@link MessageCompressor}s.
+     */
+    @FunctionalInterface
+    interface Factory {
+
+        /**
+         * Creates a new {@link MessageCompressor} with the given compression level.
+         *
+         * @param level The compression level
+         * @return The message compressor
+         */
+        MessageCompressor create(int level);
+    }
+}
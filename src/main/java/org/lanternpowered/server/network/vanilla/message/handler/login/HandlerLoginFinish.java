@@ -48,9 +48,10 @@ public void handle(NetworkContext context, MessageLoginInFinish message) {
         final NetworkSession session = context.getSession();
         int compressionThreshold = Lantern.getGame().getGlobalConfig().getNetworkCompressionThreshold();
         if (compressionThreshold != -1) {
+            final int compressionLevel = Lantern.getGame().getGlobalConfig().getNetworkCompressionLevel();
             session.sendWithFuture(new MessageLoginOutSetCompression(compressionThreshold)).addListener(future ->
                     context.getChannel().pipeline().replace(NetworkSession.COMPRESSION, NetworkSession.COMPRESSION,
-                            new MessageCompressionHandler(compressionThreshold)));
+                            new MessageCompressionHandler(compressionThreshold, compressionLevel)));
         } else {
             // Remove the compression handler placeholder
             context.getChannel().pipeline().remove(NetworkSession.COMPRESSION);
@@ -26,6 +26,9 @@
 package org.lanternpowered.server.scheduler;
 
 import com.google.common.base.MoreObjects;
+import org.lanternpowered.server.timings.Timing;
+import org.lanternpowered.server.timings.TimingCategory;
+import org.lanternpowered.server.timings.Timings;
 import org.spongepowered.api.plugin.PluginContainer;
 import org.spongepowered.api.scheduler.Task;
 
@@ -33,6 +36,8 @@
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import javax.annotation.Nullable;
+
 /**
  * An internal representation of a {@link Task} created by a plugin.
  */
@@ -50,6 +55,7 @@ public class ScheduledTask implements Task {
     private final String name;
     final TaskSynchronicity syncType;
     private final String stringRepresentation;
+    @Nullable private Timing timing;
 
     // Internal Task state. Not for user-service use.
     public enum ScheduledTaskState {
@@ -154,6 +160,20 @@ public boolean isAsynchronous() {
         return this.syncType == TaskSynchronicity.ASYNCHRONOUS;
     }
 
+    /**
+     * Gets the {@link Timing} of this task. Tasks are timed by the
+     * class of their consumer, generated task names are unique per
+     * task and would split up repeated submissions.
+     *
+     * @return The timing
+     */
+    Timing getTiming() {
+        if (this.timing == null) {
+            this.timing = Timings.get(TimingCategory.SCHEDULED_TASK, this.owner.getId(), this.executor.getClass().getName());
+        }
+        return this.timing;
+    }
+
     /**
      * Returns a timestamp after which the next execution will take place.
      * Should only be compared to
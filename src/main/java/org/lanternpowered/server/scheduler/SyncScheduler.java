@@ -26,6 +26,7 @@
 package org.lanternpowered.server.scheduler;
 
 import org.lanternpowered.server.event.CauseStack;
+import org.lanternpowered.server.timings.Timings;
 
 final class SyncScheduler extends SchedulerBase {
 
@@ -69,7 +70,13 @@ protected void executeTaskRunnable(ScheduledTask task, Runnable runnable) {
         final CauseStack causeStack = CauseStack.current();
         causeStack.pushCause(task.getOwner());
         causeStack.pushCause(task);
-        runnable.run();
+        if (Timings.isEnabled()) {
+            final long start = System.nanoTime();
+            runnable.run();
+            task.getTiming().record(System.nanoTime() - start);
+        } else {
+            runnable.run();
+        }
         causeStack.popCauses(2);
     }
 }
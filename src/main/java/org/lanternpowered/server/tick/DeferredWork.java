@@ -0,0 +1,107 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.tick;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.lanternpowered.server.game.Lantern;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A collection of {@link DeferrableTask}s that share the time that is left
+ * at the end of a tick. The tasks are run in a round robin fashion, the task
+ * that runs out of time will be followed by the next task in the next tick.
+ * <p>
+ * Tasks can be added from any thread, but the work
+ * should only be run by a single thread.
+ */
+public final class DeferredWork {
+
+    /**
+     * The minimum time that deferred work gets every tick, even when the server
+     * is overloaded, this prevents that deferred work is starved completely.
+     */
+    public static final long MIN_BUDGET_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    /**
+     * The time that is kept free at the end of a tick, so that the
+     * deferred work doesn't cause the next tick to start late.
+     */
+    public static final long MARGIN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final List<DeferrableTask> tasks = new CopyOnWriteArrayList<>();
+    private int next;
+
+    /**
+     * Adds a {@link DeferrableTask}.
+     *
+     * @param task The task
+     */
+    public void add(DeferrableTask task) {
+        this.tasks.add(checkNotNull(task, "task"));
+    }
+
+    /**
+     * Removes a {@link DeferrableTask}.
+     *
+     * @param task The task
+     */
+    public void remove(DeferrableTask task) {
+        this.tasks.remove(checkNotNull(task, "task"));
+    }
+
+    /**
+     * Runs the tasks until the deadline passes. The deadline will
+     * be extended to the minimum budget if needed.
+     *
+     * @param deadline The deadline, in terms of {@link System#nanoTime()}
+     */
+    public void run(long deadline) {
+        final List<DeferrableTask> tasks = this.tasks;
+        final int size = tasks.size();
+        if (size == 0) {
+            return;
+        }
+        deadline = Math.max(deadline, System.nanoTime() + MIN_BUDGET_NANOS);
+        final int start = this.next % size;
+        for (int i = 0; i < size; i++) {
+            final int index = (start + i) % size;
+            try {
+                tasks.get(index).run(deadline);
+            } catch (Throwable t) {
+                Lantern.getLogger().error("An error occurred while running deferred work", t);
+            }
+            if (System.nanoTime() >= deadline) {
+                // Continue with the next task in the next tick
+                this.next = index + 1;
+                return;
+            }
+        }
+    }
+}
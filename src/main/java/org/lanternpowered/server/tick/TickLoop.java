@@ -0,0 +1,200 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.tick;
+
+import static com.google.common.base.Preconditions.checkState;
+
+import org.lanternpowered.server.game.LanternGame;
+import org.slf4j.Logger;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The loop that pulses the server at a fixed rate.
+ * <p>
+ * Ticks that are late will be caught up by running them directly after each
+ * other, but if the server falls too far behind the missed ticks are skipped
+ * instead. The {@link #getTickDeadline() deadline} of the current tick can be
+ * used to fill the time that is left with {@link DeferredWork}.
+ */
+public final class TickLoop {
+
+    /**
+     * The maximum amount of ticks that will be caught up,
+     * ticks beyond this are skipped.
+     */
+    private static final int MAX_CATCH_UP_TICKS = 10;
+
+    /**
+     * The amount of ticks that need to finish within their interval
+     * before the server is no longer considered overloaded.
+     */
+    private static final int RECOVERY_TICKS = LanternGame.TICKS_PER_SECOND;
+
+    /**
+     * The minimum interval between "can't keep up" warnings.
+     */
+    private static final long WARNING_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+    private final Logger logger;
+    private final Runnable pulse;
+    private final Thread thread;
+
+    private volatile boolean running;
+    private volatile boolean overloaded;
+    private volatile long lagNanos;
+    private volatile long skippedTicks;
+    private volatile long tickDeadline;
+
+    // The amount of ticks in a row that finished within their interval
+    private int ticksWithinInterval;
+    private long lastWarning;
+
+    /**
+     * Creates a new tick loop.
+     *
+     * @param logger The logger
+     * @param threadName The name of the tick thread
+     * @param initializer The initializer that will be called on the tick thread before the first tick
+     * @param pulse The pulse of a single tick
+     */
+    public TickLoop(Logger logger, String threadName, Runnable initializer, Runnable pulse) {
+        this.logger = logger;
+        this.pulse = pulse;
+        this.thread = new Thread(() -> {
+            initializer.run();
+            run();
+        }, threadName);
+    }
+
+    /**
+     * Gets the {@link Thread} that runs the ticks.
+     *
+     * @return The thread
+     */
+    public Thread getThread() {
+        return this.thread;
+    }
+
+    /**
+     * Gets the time at which the current tick should be finished, this
+     * is the time at which the next tick is scheduled to start.
+     *
+     * @return The deadline, in terms of {@link System#nanoTime()}
+     */
+    public long getTickDeadline() {
+        return this.tickDeadline;
+    }
+
+    /**
+     * Gets whether the server is overloaded. The server is overloaded once a tick
+     * doesn't finish within its interval and it stays overloaded until the ticks
+     * of one second finish within their interval.
+     *
+     * @return Whether the server is overloaded
+     */
+    public boolean isOverloaded() {
+        return this.overloaded;
+    }
+
+    /**
+     * Gets how far the current tick started behind schedule.
+     *
+     * @return The lag in nanoseconds
+     */
+    public long getLagNanos() {
+        return this.lagNanos;
+    }
+
+    /**
+     * Gets the amount of ticks that were skipped
+     * because the server was too far behind.
+     *
+     * @return The skipped ticks
+     */
+    public long getSkippedTicks() {
+        return this.skippedTicks;
+    }
+
+    /**
+     * Starts the tick loop.
+     */
+    public void start() {
+        checkState(!this.running, "The tick loop is already running.");
+        this.running = true;
+        this.thread.start();
+    }
+
+    /**
+     * Stops the tick loop, the tick that is
+     * currently running will be completed.
+     */
+    public void stop() {
+        this.running = false;
+        LockSupport.unpark(this.thread);
+    }
+
+    private void run() {
+        final long interval = LanternGame.TICK_DURATION_NS;
+        long nextTick = System.nanoTime();
+        while (this.running) {
+            long now = System.nanoTime();
+            long lag = now - nextTick;
+            if (lag > interval * MAX_CATCH_UP_TICKS) {
+                final long skipped = lag / interval;
+                if (now - this.lastWarning > WARNING_INTERVAL_NANOS) {
+                    this.logger.warn("Can't keep up! Is the server overloaded? Skipping {} ticks ({}ms behind)",
+                            skipped, TimeUnit.NANOSECONDS.toMillis(lag));
+                    this.lastWarning = now;
+                }
+                //noinspection NonAtomicOperationOnVolatileField
+                this.skippedTicks += skipped;
+                nextTick += skipped * interval;
+                lag = now - nextTick;
+            }
+            this.lagNanos = Math.max(0L, lag);
+            this.tickDeadline = nextTick + interval;
+            try {
+                this.pulse.run();
+            } catch (Throwable t) {
+                this.logger.error("Error while pulsing", t);
+            }
+            nextTick += interval;
+            now = System.nanoTime();
+            if (now > nextTick) {
+                this.overloaded = true;
+                this.ticksWithinInterval = 0;
+            } else if (this.overloaded && ++this.ticksWithinInterval >= RECOVERY_TICKS) {
+                this.overloaded = false;
+            }
+            // Wait for the next tick
+            while (this.running && (now = System.nanoTime()) < nextTick) {
+                LockSupport.parkNanos(this, nextTick - now);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.timings;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * The phases of a server or world tick that are
+ * tracked by a {@link TickRecorder}.
+ */
+public enum TickPhase {
+    /**
+     * The pulse of all the network sessions.
+     */
+    NETWORK             ("network"),
+    /**
+     * The pulse of the sync scheduler.
+     */
+    SCHEDULER           ("scheduler"),
+    /**
+     * The time the server waits for the worlds to finish their previous tick.
+     */
+    WORLDS              ("worlds"),
+    /**
+     * The pulse of the advancement trees.
+     */
+    ADVANCEMENTS        ("advancements"),
+    /**
+     * The pulse of the time universe of a world.
+     */
+    TIME                ("time"),
+    /**
+     * The pulse of the weather universe of a world.
+     */
+    WEATHER             ("weather"),
+    /**
+     * The dispatch of the scheduled block updates of a world.
+     */
+    SCHEDULED_UPDATES   ("scheduled_updates"),
+    /**
+     * The pulse of the entities of a world.
+     */
+    ENTITIES            ("entities"),
+    /**
+     * The pulse of the tile entities of a world.
+     */
+    TILE_ENTITIES       ("tile_entities"),
+    /**
+     * The pulse of the observed chunk manager of a world.
+     */
+    OBSERVED_CHUNKS     ("observed_chunks"),
+    /**
+     * The update of the entity trackers of a world.
+     */
+    ENTITY_TRACKERS     ("entity_trackers"),
+    ;
+
+    /**
+     * All the phases of a server tick.
+     */
+    public static final List<TickPhase> SERVER_PHASES = ImmutableList.of(NETWORK, SCHEDULER, WORLDS, ADVANCEMENTS);
+
+    /**
+     * All the phases of a world tick.
+     */
+    public static final List<TickPhase> WORLD_PHASES = ImmutableList.of(
+            TIME, WEATHER, SCHEDULED_UPDATES, ENTITIES, TILE_ENTITIES, OBSERVED_CHUNKS, ENTITY_TRACKERS);
+
+    private final String id;
+
+    TickPhase(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the id of this phase.
+     *
+     * @return The id
+     */
+    public String getId() {
+        return this.id;
+    }
+}
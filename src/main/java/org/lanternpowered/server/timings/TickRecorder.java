@@ -0,0 +1,333 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.timings;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import org.lanternpowered.server.game.LanternGame;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the duration of the last ticks of the server or a world, and
+ * the time that was spent in every {@link TickPhase} of those ticks. The
+ * recorder is always active, recording a tick only costs a few
+ * {@link System#nanoTime()} calls.
+ * <p>
+ * Ticks are recorded by a single thread:
+ * <pre>
+ * recorder.start();
+ * pulseChunks();
+ * recorder.mark(TickPhase.CHUNKS);
+ * pulseEntities();
+ * recorder.mark(TickPhase.ENTITIES);
+ * recorder.end();
+ * </pre>
+ * {@link Snapshot}s can be taken from any thread.
+ */
+public final class TickRecorder {
+
+    /**
+     * The default amount of ticks that are kept in history, one minute.
+     */
+    public static final int DEFAULT_CAPACITY = LanternGame.TICKS_PER_SECOND * 60;
+
+    private static final int PHASES = TickPhase.values().length;
+
+    private final String name;
+    private final List<TickPhase> phases;
+
+    // The ring buffer with the tick history, guarded by this
+    private final long[] starts;
+    private final long[] durations;
+    private final long[][] phaseDurations;
+    private int index;
+    private int size;
+    private long ticks;
+    private long tickNanos;
+    private long skippedTicks;
+
+    // The state of the tick that is being recorded
+    private final long[] currentPhaseDurations = new long[PHASES];
+    private long tickStart;
+    private long markTime;
+    private long lastTickStart;
+
+    public TickRecorder(String name, List<TickPhase> phases) {
+        this(name, phases, DEFAULT_CAPACITY);
+    }
+
+    public TickRecorder(String name, List<TickPhase> phases, int capacity) {
+        checkArgument(capacity > 1, "The capacity must be greater than 1");
+        this.name = name;
+        this.phases = phases;
+        this.starts = new long[capacity];
+        this.durations = new long[capacity];
+        this.phaseDurations = new long[PHASES][capacity];
+    }
+
+    /**
+     * Gets the name of this recorder.
+     *
+     * @return The name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Gets the {@link TickPhase}s that are recorded.
+     *
+     * @return The phases
+     */
+    public List<TickPhase> getPhases() {
+        return this.phases;
+    }
+
+    /**
+     * Starts recording a new tick.
+     */
+    public void start() {
+        final long now = System.nanoTime();
+        this.tickStart = now;
+        this.markTime = now;
+        Arrays.fill(this.currentPhaseDurations, 0L);
+    }
+
+    /**
+     * Records the time since the start of the tick or the
+     * previous mark as time spent in the given {@link TickPhase}.
+     *
+     * @param phase The phase
+     */
+    public void mark(TickPhase phase) {
+        final long now = System.nanoTime();
+        this.currentPhaseDurations[phase.ordinal()] += now - this.markTime;
+        this.markTime = now;
+    }
+
+    /**
+     * Stops recording the current tick.
+     */
+    public void end() {
+        record(this.tickStart, System.nanoTime() - this.tickStart, this.currentPhaseDurations);
+    }
+
+    void record(long start, long duration, long[] phaseDurations) {
+        // Count the ticks that didn't start within their interval
+        long skipped = 0;
+        if (this.lastTickStart != 0L) {
+            final long gap = start - this.lastTickStart;
+            if (gap >= LanternGame.TICK_DURATION_NS * 2) {
+                skipped = gap / LanternGame.TICK_DURATION_NS - 1;
+            }
+        }
+        this.lastTickStart = start;
+        synchronized (this) {
+            final int index = this.index;
+            this.starts[index] = start;
+            this.durations[index] = duration;
+            for (int i = 0; i < PHASES; i++) {
+                this.phaseDurations[i][index] = phaseDurations[i];
+            }
+            this.index = (index + 1) % this.durations.length;
+            if (this.size < this.durations.length) {
+                this.size++;
+            }
+            this.ticks++;
+            this.tickNanos += duration;
+            this.skippedTicks += skipped;
+        }
+    }
+
+    /**
+     * Creates a {@link Snapshot} of all the ticks in history.
+     *
+     * @return The snapshot
+     */
+    public Snapshot snapshot() {
+        return snapshot(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a {@link Snapshot} of the last ticks.
+     *
+     * @param ticks The maximum amount of ticks
+     * @return The snapshot
+     */
+    public synchronized Snapshot snapshot(int ticks) {
+        final int size = Math.min(this.size, ticks);
+        final int capacity = this.durations.length;
+        final int first = (this.index - size + capacity) % capacity;
+        final long[] durations = new long[size];
+        final long[] phaseTotals = new long[PHASES];
+        for (int i = 0; i < size; i++) {
+            final int index = (first + i) % capacity;
+            durations[i] = this.durations[index];
+            for (int j = 0; j < PHASES; j++) {
+                phaseTotals[j] += this.phaseDurations[j][index];
+            }
+        }
+        final long elapsed = size < 2 ? 0L : this.starts[(first + size - 1) % capacity] - this.starts[first];
+        return new Snapshot(this.name, durations, phaseTotals, elapsed, this.ticks, this.tickNanos, this.skippedTicks);
+    }
+
+    /**
+     * The statistics of a range of recorded ticks.
+     */
+    public static final class Snapshot {
+
+        private final String name;
+        private final long[] sortedDurations;
+        private final long[] phaseTotals;
+        private final long totalDuration;
+        private final double ticksPerSecond;
+        private final long totalTicks;
+        private final long totalTickNanos;
+        private final long skippedTicks;
+
+        private Snapshot(String name, long[] durations, long[] phaseTotals, long elapsed,
+                long totalTicks, long totalTickNanos, long skippedTicks) {
+            this.name = name;
+            this.phaseTotals = phaseTotals;
+            this.totalTicks = totalTicks;
+            this.totalTickNanos = totalTickNanos;
+            this.skippedTicks = skippedTicks;
+            long totalDuration = 0;
+            for (long duration : durations) {
+                totalDuration += duration;
+            }
+            this.totalDuration = totalDuration;
+            Arrays.sort(durations);
+            this.sortedDurations = durations;
+            // The elapsed time is measured between the first and the last tick start
+            this.ticksPerSecond = elapsed == 0L ? 0.0 : (durations.length - 1) * 1000000000.0 / elapsed;
+        }
+
+        /**
+         * Gets the name of the recorder.
+         *
+         * @return The name
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Gets the amount of ticks in this snapshot.
+         *
+         * @return The amount of ticks
+         */
+        public int getTicks() {
+            return this.sortedDurations.length;
+        }
+
+        /**
+         * Gets the amount of ticks that were recorded since the recorder was created.
+         *
+         * @return The total amount of ticks
+         */
+        public long getTotalTicks() {
+            return this.totalTicks;
+        }
+
+        /**
+         * Gets the duration of all the ticks that were
+         * recorded since the recorder was created.
+         *
+         * @return The total duration in nanoseconds
+         */
+        public long getTotalTickNanos() {
+            return this.totalTickNanos;
+        }
+
+        /**
+         * Gets the amount of ticks that didn't start within their
+         * interval since the recorder was created.
+         *
+         * @return The skipped ticks
+         */
+        public long getSkippedTicks() {
+            return this.skippedTicks;
+        }
+
+        /**
+         * Gets the average amount of ticks per second.
+         *
+         * @return The ticks per second
+         */
+        public double getTicksPerSecond() {
+            return this.ticksPerSecond;
+        }
+
+        /**
+         * Gets the average duration of a tick.
+         *
+         * @return The average duration in nanoseconds
+         */
+        public long getAverageNanos() {
+            return this.sortedDurations.length == 0 ? 0L : this.totalDuration / this.sortedDurations.length;
+        }
+
+        /**
+         * Gets the duration of a tick at the given percentile.
+         *
+         * @param percentile The percentile, between 0 and 1
+         * @return The duration in nanoseconds
+         */
+        public long getPercentileNanos(double percentile) {
+            checkArgument(percentile >= 0.0 && percentile <= 1.0, "The percentile must be between 0 and 1");
+            final int length = this.sortedDurations.length;
+            if (length == 0) {
+                return 0L;
+            }
+            final int index = (int) Math.ceil(percentile * length) - 1;
+            return this.sortedDurations[Math.max(0, index)];
+        }
+
+        /**
+         * Gets the longest duration of a tick.
+         *
+         * @return The maximum duration in nanoseconds
+         */
+        public long getMaxNanos() {
+            final int length = this.sortedDurations.length;
+            return length == 0 ? 0L : this.sortedDurations[length - 1];
+        }
+
+        /**
+         * Gets the average time that was spent in the {@link TickPhase} per tick.
+         *
+         * @param phase The phase
+         * @return The average duration in nanoseconds
+         */
+        public long getAverageNanos(TickPhase phase) {
+            final int length = this.sortedDurations.length;
+            return length == 0 ? 0L : this.phaseTotals[phase.ordinal()] / length;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.timings;
+
+import com.google.common.base.MoreObjects;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the time that was spent in something that is timed, for
+ * example a event listener or the pulses of a entity type. Timings
+ * can be recorded from multiple threads.
+ */
+public final class Timing {
+
+    private final TimingCategory category;
+    private final String pluginId;
+    private final String name;
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    Timing(TimingCategory category, String pluginId, String name) {
+        this.category = category;
+        this.pluginId = pluginId;
+        this.name = name;
+    }
+
+    /**
+     * Gets the category of this timing.
+     *
+     * @return The category
+     */
+    public TimingCategory getCategory() {
+        return this.category;
+    }
+
+    /**
+     * Gets the id of the plugin that owns the timed thing.
+     *
+     * @return The plugin id
+     */
+    public String getPluginId() {
+        return this.pluginId;
+    }
+
+    /**
+     * Gets the name of the timed thing.
+     *
+     * @return The name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Records the time of a single invocation.
+     *
+     * @param nanos The time in nanoseconds
+     */
+    public void record(long nanos) {
+        this.count.increment();
+        this.totalNanos.add(nanos);
+        if (nanos > this.maxNanos.get()) {
+            this.maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    /**
+     * Gets the amount of recorded invocations.
+     *
+     * @return The count
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * Gets the total recorded time.
+     *
+     * @return The total time in nanoseconds
+     */
+    public long getTotalNanos() {
+        return this.totalNanos.sum();
+    }
+
+    /**
+     * Gets the longest recorded invocation.
+     *
+     * @return The maximum time in nanoseconds
+     */
+    public long getMaxNanos() {
+        return this.maxNanos.get();
+    }
+
+    void reset() {
+        this.count.reset();
+        this.totalNanos.reset();
+        this.maxNanos.set(0L);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("category", this.category.getId())
+                .add("plugin", this.pluginId)
+                .add("name", this.name)
+                .add("count", getCount())
+                .add("totalNanos", getTotalNanos())
+                .add("maxNanos", getMaxNanos())
+                .toString();
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.timings;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.gson.stream.JsonWriter;
+import org.spongepowered.api.CatalogType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of all the {@link Timing}s. Timings are only recorded while
+ * they are enabled, callers check {@link #isEnabled()} once before they
+ * start timing, so there is nearly no overhead while they are disabled.
+ * <pre>
+ * final boolean timings = Timings.isEnabled();
+ * final long start = timings ? System.nanoTime() : 0L;
+ * ...
+ * if (timings) {
+ *     timing.record(System.nanoTime() - start);
+ * }
+ * </pre>
+ */
+public final class Timings {
+
+    private static final String DEFAULT_PLUGIN_ID = "minecraft";
+
+    private static final Map<String, Timing> timings = new ConcurrentHashMap<>();
+    private static final Map<CatalogType, Timing>[] catalogTypeTimings;
+
+    static {
+        //noinspection unchecked
+        catalogTypeTimings = new Map[TimingCategory.values().length];
+        for (int i = 0; i < catalogTypeTimings.length; i++) {
+            catalogTypeTimings[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    private static volatile boolean enabled;
+
+    // The time when the timings were last enabled or reset,
+    // and the time when they were disabled
+    private static volatile long startTime;
+    private static volatile long stopTime;
+    // Only modified by the main thread
+    private static volatile long ticks;
+
+    /**
+     * Gets whether timings are being recorded.
+     *
+     * @return Whether timings are enabled
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Sets whether timings should be recorded. Enabling
+     * the timings will reset all the collected timings.
+     *
+     * @param enabled Whether timings should be enabled
+     */
+    public static synchronized void setEnabled(boolean enabled) {
+        if (Timings.enabled == enabled) {
+            return;
+        }
+        if (enabled) {
+            reset();
+        } else {
+            stopTime = System.nanoTime();
+        }
+        Timings.enabled = enabled;
+    }
+
+    /**
+     * Resets all the collected timings.
+     */
+    public static synchronized void reset() {
+        timings.values().forEach(Timing::reset);
+        ticks = 0;
+        startTime = System.nanoTime();
+        stopTime = 0L;
+    }
+
+    /**
+     * Is called at the start of every server tick.
+     */
+    public static void tick() {
+        if (enabled) {
+            //noinspection NonAtomicOperationOnVolatileField
+            ticks++;
+        }
+    }
+
+    /**
+     * Gets the amount of ticks that timings were collected for.
+     *
+     * @return The amount of ticks
+     */
+    public static long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * Gets the duration that timings were collected for.
+     *
+     * @return The duration in nanoseconds
+     */
+    public static long getDurationNanos() {
+        final long startTime = Timings.startTime;
+        if (startTime == 0L) {
+            return 0L;
+        }
+        final long stopTime = Timings.stopTime;
+        return (stopTime == 0L ? System.nanoTime() : stopTime) - startTime;
+    }
+
+    /**
+     * Gets the {@link Timing} for the given category, plugin and name. The
+     * timing will be created if it doesn't exist yet. Callers should keep
+     * a reference to the timing instead of looking it up for every use.
+     *
+     * @param category The category
+     * @param pluginId The id of the plugin that owns the timed thing
+     * @param name The name of the timed thing
+     * @return The timing
+     */
+    public static Timing get(TimingCategory category, String pluginId, String name) {
+        checkNotNull(category, "category");
+        checkNotNull(pluginId, "pluginId");
+        checkNotNull(name, "name");
+        return timings.computeIfAbsent(category.getId() + '/' + pluginId + '/' + name,
+                key -> new Timing(category, pluginId, name));
+    }
+
+    /**
+     * Gets the {@link Timing} for the given category and {@link CatalogType}, the plugin
+     * is derived from the id of the catalog type. Lookups don't allocate, this
+     * can be used for every timed invocation.
+     *
+     * @param category The category
+     * @param catalogType The catalog type
+     * @return The timing
+     */
+    public static Timing get(TimingCategory category, CatalogType catalogType) {
+        final Map<CatalogType, Timing> catalogTimings = catalogTypeTimings[category.ordinal()];
+        final Timing timing = catalogTimings.get(catalogType);
+        if (timing != null) {
+            return timing;
+        }
+        return catalogTimings.computeIfAbsent(catalogType, type -> {
+            final String id = type.getId();
+            final int index = id.indexOf(':');
+            return get(category, index == -1 ? DEFAULT_PLUGIN_ID : id.substring(0, index), id);
+        });
+    }
+
+    /**
+     * Gets all the {@link Timing}s that recorded something, sorted
+     * by the total time that was spent in them.
+     *
+     * @return The timings
+     */
+    public static List<Timing> getTimings() {
+        final List<Timing> list = new ArrayList<>();
+        for (Timing timing : timings.values()) {
+            if (timing.getCount() > 0) {
+                list.add(timing);
+            }
+        }
+        list.sort((o1, o2) -> Long.compare(o2.getTotalNanos(), o1.getTotalNanos()));
+        return list;
+    }
+
+    /**
+     * Gets the total time that was spent per plugin, sorted by the total time.
+     *
+     * @param timings The timings to aggregate
+     * @return The total time in nanoseconds per plugin id
+     */
+    public static List<Map.Entry<String, Long>> getTotalNanosByPlugin(List<Timing> timings) {
+        final Map<String, Long> map = new HashMap<>();
+        for (Timing timing : timings) {
+            map.merge(timing.getPluginId(), timing.getTotalNanos(), Long::sum);
+        }
+        final List<Map.Entry<String, Long>> list = new ArrayList<>(map.entrySet());
+        list.sort((o1, o2) -> Long.compare(o2.getValue(), o1.getValue()));
+        return list;
+    }
+
+    /**
+     * Writes all the collected timings as json.
+     *
+     * @param writer The writer
+     * @throws IOException If an error occurred while writing
+     */
+    public static void writeJson(Writer writer) throws IOException {
+        final List<Timing> timings = getTimings();
+        final JsonWriter json = new JsonWriter(writer);
+        json.setIndent("  ");
+        json.beginObject();
+        json.name("enabled").value(enabled);
+        json.name("ticks").value(getTicks());
+        json.name("duration_ns").value(getDurationNanos());
+        json.name("plugins").beginArray();
+        for (Map.Entry<String, Long> entry : getTotalNanosByPlugin(timings)) {
+            json.beginObject();
+            json.name("plugin").value(entry.getKey());
+            json.name("total_ns").value(entry.getValue());
+            json.endObject();
+        }
+        json.endArray();
+        json.name("timings").beginArray();
+        for (Timing timing : timings) {
+            json.beginObject();
+            json.name("category").value(timing.getCategory().getId());
+            json.name("plugin").value(timing.getPluginId());
+            json.name("name").value(timing.getName());
+            json.name("count").value(timing.getCount());
+            json.name("total_ns").value(timing.getTotalNanos());
+            json.name("max_ns").value(timing.getMaxNanos());
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    private Timings() {
+    }
+}
@@ -0,0 +1,409 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.util.collect.concurrent;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongFunction;
+
+import javax.annotation.Nullable;
+
+/**
+ * A concurrent hash map with primitive {@code long} keys.
+ *
+ * <p>Reads are lock-free and don't allocate any objects, which makes this map
+ * suitable for lookups in hot paths. Modifications are serialized through a lock,
+ * the bucket chains are never modified in place, so a reader will always see a
+ * consistent chain. Iteration is weakly consistent, like the iterators of the
+ * {@link java.util.concurrent.ConcurrentHashMap}.</p>
+ *
+ * @param <V> The value type
+ */
+public final class ConcurrentLong2ObjectHashMap<V> {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private static final class Node<V> implements Long2ObjectMap.Entry<V> {
+
+        private final long key;
+        @Nullable private final Node<V> next;
+        private volatile V value;
+
+        private Node(long key, V value, @Nullable Node<V> next) {
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        @Override
+        public long getLongKey() {
+            return this.key;
+        }
+
+        @Override
+        public Long getKey() {
+            return this.key;
+        }
+
+        @Override
+        public V getValue() {
+            return this.value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private volatile AtomicReferenceArray<Node<V>> table;
+    private volatile int size;
+    private int threshold;
+
+    @Nullable private Collection<V> values;
+
+    /**
+     * Constructs a new {@link ConcurrentLong2ObjectHashMap}
+     * with the default initial capacity.
+     */
+    public ConcurrentLong2ObjectHashMap() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs a new {@link ConcurrentLong2ObjectHashMap}.
+     *
+     * @param initialCapacity The initial capacity
+     */
+    public ConcurrentLong2ObjectHashMap(int initialCapacity) {
+        checkArgument(initialCapacity >= 0, "The initial capacity cannot be negative");
+        int capacity = 1;
+        while (capacity < initialCapacity && capacity < MAXIMUM_CAPACITY) {
+            capacity <<= 1;
+        }
+        this.table = new AtomicReferenceArray<>(capacity);
+        this.threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int index(long key, int length) {
+        long hash = key * 0x9e3779b97f4a7c15L;
+        hash ^= hash >>> 32;
+        return (int) hash & (length - 1);
+    }
+
+    /**
+     * Gets the value that is mapped to the given key.
+     *
+     * @param key The key
+     * @return The value, or {@code null} if not present
+     */
+    @Nullable
+    public V get(long key) {
+        final AtomicReferenceArray<Node<V>> table = this.table;
+        Node<V> node = table.get(index(key, table.length()));
+        while (node != null) {
+            if (node.key == key) {
+                return node.value;
+            }
+            node = node.next;
+        }
+        return null;
+    }
+
+    /**
+     * Gets whether the given key is present in this map.
+     *
+     * @param key The key
+     * @return Whether the key is present
+     */
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Maps the value to the given key.
+     *
+     * @param key The key
+     * @param value The value
+     * @return The previous value, or {@code null} if not present
+     */
+    @Nullable
+    public synchronized V put(long key, V value) {
+        checkNotNull(value, "value");
+        final Node<V> node = getNode(key);
+        if (node != null) {
+            final V old = node.value;
+            node.value = value;
+            return old;
+        }
+        insert(key, value);
+        return null;
+    }
+
+    /**
+     * Maps the value to the given key, only if there isn't
+     * a value present for the given key.
+     *
+     * @param key The key
+     * @param value The value
+     * @return The current value, or {@code null} if not present
+     */
+    @Nullable
+    public synchronized V putIfAbsent(long key, V value) {
+        checkNotNull(value, "value");
+        final Node<V> node = getNode(key);
+        if (node != null) {
+            return node.value;
+        }
+        insert(key, value);
+        return null;
+    }
+
+    /**
+     * Gets the value that is mapped to the given key, or computes a
+     * new value if not present. The mapping function is called outside
+     * the write lock, so it may be called by multiple threads at the
+     * same time for the same key, only one of the values will be mapped.
+     *
+     * @param key The key
+     * @param mappingFunction The mapping function
+     * @return The current or computed value
+     */
+    public V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+        checkNotNull(mappingFunction, "mappingFunction");
+        final V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        final V newValue = checkNotNull(mappingFunction.apply(key), "value");
+        final V current = putIfAbsent(key, newValue);
+        return current != null ? current : newValue;
+    }
+
+    /**
+     * Removes the value that is mapped to the given key.
+     *
+     * @param key The key
+     * @return The removed value, or {@code null} if not present
+     */
+    @Nullable
+    public synchronized V remove(long key) {
+        return remove0(key, null);
+    }
+
+    /**
+     * Removes the value that is mapped to the given key, only
+     * if it's mapped to the given value.
+     *
+     * @param key The key
+     * @param value The value
+     * @return Whether the value was removed
+     */
+    public synchronized boolean remove(long key, Object value) {
+        checkNotNull(value, "value");
+        return remove0(key, value) != null;
+    }
+
+    /**
+     * Removes all the values from this map.
+     */
+    public synchronized void clear() {
+        this.table = new AtomicReferenceArray<>(this.table.length());
+        this.size = 0;
+    }
+
+    /**
+     * Gets the amount of values in this map.
+     *
+     * @return The size
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Gets whether this map is empty.
+     *
+     * @return Is empty
+     */
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Gets a {@link Collection} view of all the values in this map. The
+     * iterator of the view is weakly consistent and doesn't support removal.
+     *
+     * @return The values
+     */
+    public Collection<V> values() {
+        Collection<V> values = this.values;
+        if (values == null) {
+            this.values = values = new AbstractCollection<V>() {
+                @Override
+                public Iterator<V> iterator() {
+                    final Iterator<Long2ObjectMap.Entry<V>> it = entryIterator();
+                    return new Iterator<V>() {
+                        @Override
+                        public boolean hasNext() {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public V next() {
+                            return it.next().getValue();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return ConcurrentLong2ObjectHashMap.this.size;
+                }
+            };
+        }
+        return values;
+    }
+
+    /**
+     * Gets a weakly consistent {@link Iterator} over all the entries in this map.
+     *
+     * @return The entry iterator
+     */
+    public Iterator<Long2ObjectMap.Entry<V>> entryIterator() {
+        return new EntryIterator<>(this.table);
+    }
+
+    @Nullable
+    private Node<V> getNode(long key) {
+        final AtomicReferenceArray<Node<V>> table = this.table;
+        Node<V> node = table.get(index(key, table.length()));
+        while (node != null) {
+            if (node.key == key) {
+                return node;
+            }
+            node = node.next;
+        }
+        return null;
+    }
+
+    private void insert(long key, V value) {
+        AtomicReferenceArray<Node<V>> table = this.table;
+        if (this.size >= this.threshold && table.length() < MAXIMUM_CAPACITY) {
+            table = resize(table);
+        }
+        final int index = index(key, table.length());
+        table.set(index, new Node<>(key, value, table.get(index)));
+        this.size++;
+    }
+
+    @Nullable
+    private V remove0(long key, @Nullable Object expectedValue) {
+        final AtomicReferenceArray<Node<V>> table = this.table;
+        final int index = index(key, table.length());
+        final Node<V> first = table.get(index);
+        Node<V> node = first;
+        while (node != null && node.key != key) {
+            node = node.next;
+        }
+        if (node == null) {
+            return null;
+        }
+        final V value = node.value;
+        if (expectedValue != null && !expectedValue.equals(value)) {
+            return null;
+        }
+        // Copy all the nodes in front of the removed node, the
+        // chain behind the removed node can be shared
+        Node<V> newFirst = node.next;
+        for (Node<V> node1 = first; node1 != node; node1 = node1.next) {
+            newFirst = new Node<>(node1.key, node1.value, newFirst);
+        }
+        table.set(index, newFirst);
+        this.size--;
+        return value;
+    }
+
+    private AtomicReferenceArray<Node<V>> resize(AtomicReferenceArray<Node<V>> oldTable) {
+        final int length = oldTable.length() << 1;
+        final AtomicReferenceArray<Node<V>> newTable = new AtomicReferenceArray<>(length);
+        for (int i = 0; i < oldTable.length(); i++) {
+            for (Node<V> node = oldTable.get(i); node != null; node = node.next) {
+                final int index = index(node.key, length);
+                newTable.set(index, new Node<>(node.key, node.value, newTable.get(index)));
+            }
+        }
+        this.threshold = (int) (length * LOAD_FACTOR);
+        this.table = newTable;
+        return newTable;
+    }
+
+    private static final class EntryIterator<V> implements Iterator<Long2ObjectMap.Entry<V>> {
+
+        private final AtomicReferenceArray<Node<V>> table;
+        private int index;
+        @Nullable private Node<V> next;
+
+        private EntryIterator(AtomicReferenceArray<Node<V>> table) {
+            this.table = table;
+            advance();
+        }
+
+        private void advance() {
+            if (this.next != null) {
+                this.next = this.next.next;
+            }
+            while (this.next == null && this.index < this.table.length()) {
+                this.next = this.table.get(this.index++);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public Long2ObjectMap.Entry<V> next() {
+            final Node<V> node = this.next;
+            if (node == null) {
+                throw new NoSuchElementException();
+            }
+            advance();
+            return node;
+        }
+    }
+}
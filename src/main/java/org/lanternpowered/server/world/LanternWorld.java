@@ -27,6 +27,8 @@
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.lanternpowered.server.world.chunk.LanternChunk.CHUNK_SECTIONS;
+import static org.lanternpowered.server.world.chunk.LanternChunk.ENTITY_SECTION_MARGIN;
 import static org.lanternpowered.server.world.chunk.LanternChunk.fixEntityYSection;
 import static org.lanternpowered.server.world.chunk.LanternChunkLayout.SPACE_MAX;
 import static org.lanternpowered.server.world.chunk.LanternChunkLayout.SPACE_MIN;
@@ -38,16 +40,21 @@
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import io.netty.util.concurrent.FastThreadLocal;
 import org.lanternpowered.api.world.weather.WeatherUniverse;
 import org.lanternpowered.server.behavior.Behavior;
 import org.lanternpowered.server.behavior.BehaviorContextImpl;
 import org.lanternpowered.server.behavior.ContextKeys;
 import org.lanternpowered.server.behavior.pipeline.BehaviorPipeline;
+import org.lanternpowered.server.behavior.pipeline.SubBehaviorPipeline;
 import org.lanternpowered.server.block.LanternBlockType;
+import org.lanternpowered.server.block.LanternScheduledBlockUpdate;
+import org.lanternpowered.server.block.ScheduledBlockUpdateWheel;
 import org.lanternpowered.server.block.action.BlockAction;
 import org.lanternpowered.server.block.behavior.types.BreakBlockBehavior;
 import org.lanternpowered.server.block.behavior.types.InteractWithBlockBehavior;
 import org.lanternpowered.server.block.behavior.types.PlaceBlockBehavior;
+import org.lanternpowered.server.block.behavior.types.ScheduledUpdateBehavior;
 import org.lanternpowered.server.config.world.WorldConfig;
 import org.lanternpowered.server.data.io.ChunkIOService;
 import org.lanternpowered.server.data.io.ScoreboardIO;
@@ -59,8 +66,10 @@
 import org.lanternpowered.server.entity.living.player.LanternPlayer;
 import org.lanternpowered.server.entity.living.player.ObservedChunkManager;
 import org.lanternpowered.server.event.CauseStack;
+import org.lanternpowered.server.event.LanternEventManager;
 import org.lanternpowered.server.game.Lantern;
 import org.lanternpowered.server.game.LanternGame;
+import org.lanternpowered.server.network.NetworkSession;
 import org.lanternpowered.server.network.entity.EntityProtocolManager;
 import org.lanternpowered.server.network.entity.EntityProtocolType;
 import org.lanternpowered.server.network.message.Message;
@@ -69,8 +78,15 @@
 import org.lanternpowered.server.network.vanilla.message.type.play.MessagePlayOutStopSounds;
 import org.lanternpowered.server.text.chat.LanternChatType;
 import org.lanternpowered.server.text.title.LanternTitles;
+import org.lanternpowered.server.tick.DeferredWork;
+import org.lanternpowered.server.timings.TickPhase;
+import org.lanternpowered.server.timings.TickRecorder;
+import org.lanternpowered.server.timings.TimingCategory;
+import org.lanternpowered.server.timings.Timings;
 import org.lanternpowered.server.util.VecHelper;
+import org.lanternpowered.server.util.concurrent.FastThreadLocals;
 import org.lanternpowered.server.world.chunk.ChunkLoadingTicket;
+import org.lanternpowered.server.world.chunk.ChunkSectionRayWalker;
 import org.lanternpowered.server.world.chunk.LanternChunk;
 import org.lanternpowered.server.world.chunk.LanternChunkManager;
 import org.lanternpowered.server.world.chunk.LanternChunkTicketManager;
@@ -159,6 +175,7 @@
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -167,9 +184,12 @@
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -189,6 +209,22 @@ public class LanternWorld implements AbstractExtent, org.lanternpowered.api.worl
     public static final Vector3i BIOME_MAX = BLOCK_MAX.mul(1, 0, 1);
     public static final Vector3i BIOME_SIZE = BIOME_MAX.sub(BLOCK_MIN).add(1, 1, 1);
 
+    /**
+     * The range in which players can see particles that are spawned without a radius.
+     */
+    private static final double DEFAULT_PARTICLE_RANGE = 32.0;
+
+    /**
+     * The range in which players can hear records.
+     */
+    private static final double RECORD_RANGE = 64.0;
+
+    /**
+     * The players that are collected for a broadcast within a range, reused
+     * to avoid allocating a new list for every sound and particle.
+     */
+    private static final FastThreadLocal<List<LanternPlayer>> nearbyPlayers = FastThreadLocals.withInitial(ArrayList::new);
+
     // The spawn size starting from the spawn point and expanded
     // by this size in the directions +x, +z, -x, -z
     private final static int SPAWN_SIZE = 12;
@@ -211,6 +247,9 @@ public class LanternWorld implements AbstractExtent, org.lanternpowered.api.worl
     // All the players in this world
     private final Collection<Player> unmodifiablePlayers = Collections.unmodifiableCollection(this.players);
 
+    // All the players in this world, grouped by the chunk they are located in
+    private final PlayerSpatialIndex playerIndex = new PlayerSpatialIndex();
+
     // The chunk manager of this world
     private final LanternChunkManager chunkManager;
 
@@ -219,12 +258,49 @@ public class LanternWorld implements AbstractExtent, org.lanternpowered.api.worl
      */
     private final Map<UUID, LanternEntity> entitiesByUniqueId = new ConcurrentHashMap<>();
 
+    /**
+     * The entities that are pulsed by this world, removed entities
+     * leave a {@code null} slot behind until the next pulse.
+     */
+    private LanternEntity[] tickedEntities = new LanternEntity[256];
+    private int tickedEntityCount;
+
+    /**
+     * The entities that were added or removed since the
+     * last pulse, they can be modified from any thread.
+     */
+    private final Queue<LanternEntity> addedTickedEntities = new ConcurrentLinkedQueue<>();
+    private final Queue<LanternEntity> removedTickedEntities = new ConcurrentLinkedQueue<>();
+
     /**
      * The chunk manager that will allows observers to track
      * changes in chunks.
      */
     private final ObservedChunkManager observedChunkManager = new ObservedChunkManager(this);
 
+    /**
+     * The wheel that holds all the scheduled block updates.
+     */
+    private final ScheduledBlockUpdateWheel scheduledUpdateWheel = new ScheduledBlockUpdateWheel(this);
+
+    /**
+     * All the tile entities that need to be pulsed.
+     */
+    private final TileEntityTicker tileEntityTicker = new TileEntityTicker();
+
+    /**
+     * The recorder of the tick durations of this world.
+     */
+    private final TickRecorder tickRecorder;
+
+    /**
+     * The work that uses the time that is left at the end of a tick.
+     */
+    private final DeferredWork deferredWork = new DeferredWork();
+
+    // The time of the next automatic save
+    private long nextAutoSave;
+
     /**
      * The {@link Scoreboard} that is attached to this {@link World}.
      */
@@ -265,6 +341,7 @@ public class LanternWorld implements AbstractExtent, org.lanternpowered.api.worl
     public LanternWorld(LanternGame game, WorldConfig worldConfig, Path directory,
             Scoreboard scoreboard, LanternWorldProperties properties) {
         this.logger = LoggerFactory.getLogger("world/" + properties.getWorldName());
+        this.tickRecorder = new TickRecorder(properties.getWorldName(), TickPhase.WORLD_PHASES);
         this.directory = directory;
         this.worldConfig = worldConfig;
         this.scoreboard = scoreboard;
@@ -295,6 +372,11 @@ public LanternWorld(LanternGame game, WorldConfig worldConfig, Path directory,
         this.worldContext = new Context(Context.WORLD_KEY, getName());
         this.worldEventListener.add(this.observedChunkManager);
         getWorldBorder().updateCurrentTime();
+        // The work that can be deferred to the end of the ticks
+        this.deferredWork.add(this.observedChunkManager::sendQueuedChunks);
+        this.deferredWork.add(this.observedChunkManager::sendDirtyChunks);
+        this.deferredWork.add(deadline -> this.chunkManager.unloadPendingChunks(CauseStack.current(), deadline));
+        this.deferredWork.add(this::autoSave);
     }
 
     @Override
@@ -394,12 +476,15 @@ public Set<LanternPlayer> getRawPlayers() {
 
     public void addPlayer(LanternPlayer player) {
         this.players.add(player);
+        this.playerIndex.add(player);
         checkArgument(addEntity(player) == null);
     }
 
     public void removePlayer(LanternPlayer player) {
         this.players.remove(player);
+        this.playerIndex.remove(player);
         this.entitiesByUniqueId.remove(player.getUniqueId());
+        this.removedTickedEntities.add(player);
         final Vector3i lastChunkSection = player.getLastChunkSectionCoords();
         LanternChunk chunk;
         if (lastChunkSection != null && (chunk = this.chunkManager.getChunkIfLoaded(
@@ -430,23 +515,68 @@ public Location<World> getLocation(Vector3d position) {
 
     @Override
     public Collection<ScheduledBlockUpdate> getScheduledUpdates(int x, int y, int z) {
-        LanternChunk chunk = this.chunkManager.getChunk(x >> 4, z >> 4);
-        if (chunk != null) {
-            return chunk.getScheduledUpdates(x, y, z);
-        }
-        return ImmutableSet.of();
+        return this.scheduledUpdateWheel.getUpdates(x, y, z);
     }
 
     @Override
     public ScheduledBlockUpdate addScheduledUpdate(int x, int y, int z, int priority, int ticks) {
-        // TODO Auto-generated method stub
-        return null;
+        checkVolumeBounds(x, y, z);
+        return this.scheduledUpdateWheel.add(x, y, z, priority, ticks);
     }
 
     @Override
     public void removeScheduledUpdate(int x, int y, int z, ScheduledBlockUpdate update) {
-        // TODO Auto-generated method stub
-        
+        this.scheduledUpdateWheel.remove(update);
+    }
+
+    /**
+     * Gets the {@link ScheduledBlockUpdateWheel} that holds
+     * all the scheduled block updates of this world.
+     *
+     * @return The scheduled update wheel
+     */
+    public ScheduledBlockUpdateWheel getScheduledUpdateWheel() {
+        return this.scheduledUpdateWheel;
+    }
+
+    /**
+     * Gets the {@link TileEntityTicker} that pulses
+     * all the tickable tile entities of this world.
+     *
+     * @return The tile entity ticker
+     */
+    public TileEntityTicker getTileEntityTicker() {
+        return this.tileEntityTicker;
+    }
+
+    private void dispatchScheduledUpdate(LanternScheduledBlockUpdate update) {
+        final Location<World> location = update.getLocation();
+        final int x = location.getBlockX();
+        final int z = location.getBlockZ();
+        // Updates in chunks that are no longer loaded are dropped
+        if (this.chunkManager.getChunkIfLoaded(x >> 4, z >> 4) == null) {
+            return;
+        }
+        final LanternBlockType blockType = (LanternBlockType) getBlockType(x, location.getBlockY(), z);
+        final BehaviorPipeline<Behavior> pipeline = blockType.getPipeline();
+        final SubBehaviorPipeline<ScheduledUpdateBehavior> updatePipeline = pipeline.pipeline(ScheduledUpdateBehavior.class);
+        if (updatePipeline.getBehaviors().isEmpty()) {
+            return;
+        }
+        final CauseStack causeStack = CauseStack.current();
+        try (CauseStack.Frame frame = causeStack.pushCauseFrame()) {
+            frame.pushCause(update);
+            frame.addContext(ContextKeys.BLOCK_LOCATION, location);
+            frame.addContext(ContextKeys.BLOCK_TYPE, blockType);
+            final BehaviorContextImpl context = new BehaviorContextImpl(causeStack);
+            if (context.process(updatePipeline, (ctx, behavior) -> behavior.tryScheduledUpdate(pipeline, ctx)).isSuccess()) {
+                context.accept();
+            } else {
+                context.revert();
+            }
+        } catch (Throwable t) {
+            this.logger.error("Failed to dispatch the scheduled update at ({};{};{})", x, location.getBlockY(), z, t);
+        }
     }
 
     @Override
@@ -585,12 +715,31 @@ public Set<Entity> getIntersectingEntities(AABB box, Predicate<Entity> filter) {
 
     @Override
     public Set<EntityHit> getIntersectingEntities(Vector3d start, Vector3d end, Predicate<EntityHit> filter) {
-        return Collections.emptySet();
+        checkNotNull(start, "start");
+        checkNotNull(end, "end");
+        final Vector3d diff = end.sub(start);
+        return getIntersectingEntities(start, diff, diff.length(), filter);
     }
 
     @Override
     public Set<EntityHit> getIntersectingEntities(Vector3d start, Vector3d direction, double distance, Predicate<EntityHit> filter) {
-        return Collections.emptySet();
+        checkNotNull(start, "start");
+        checkNotNull(direction, "direction");
+        checkNotNull(filter, "filter");
+        final ImmutableSet.Builder<EntityHit> entities = ImmutableSet.builder();
+        if (direction.lengthSquared() == 0) {
+            return entities.build();
+        }
+        final Vector3d dir = direction.normalize();
+        // Only the entity sections along the ray will be checked
+        ChunkSectionRayWalker.walk(start.getX(), start.getY(), start.getZ(), dir.getX(), dir.getY(), dir.getZ(), distance,
+                ENTITY_SECTION_MARGIN, 0, CHUNK_SECTIONS - 1, (x, y, z) -> {
+                    final LanternChunk chunk = getChunkManager().getChunkIfLoaded(x, z);
+                    if (chunk != null) {
+                        chunk.addIntersectingEntities(entities, y, start, dir, distance, filter);
+                    }
+                });
+        return entities.build();
     }
 
     @Override
@@ -655,12 +804,15 @@ public Entity createEntity(EntityType type, Vector3d position, Consumer<Entity>
         final LanternEntity entity = (LanternEntity) entityType.getEntityConstructor().apply(UUID.randomUUID());
         entity.setPositionAndWorld(this, position);
         entityConsumer.accept(entity);
-        final CauseStack causeStack = CauseStack.current();
         // Only throw the post event, the pre event will
         // only be called in specific cases.
-        final ConstructEntityEvent.Post event = SpongeEventFactory.createConstructEntityEventPost(
-                causeStack.getCurrentCause(), entity, type, entity.getTransform());
-        Sponge.getEventManager().post(event);
+        final LanternEventManager eventManager = Lantern.getGame().getEventManager();
+        if (eventManager.hasListeners(ConstructEntityEvent.Post.class)) {
+            final CauseStack causeStack = CauseStack.current();
+            final ConstructEntityEvent.Post event = SpongeEventFactory.createConstructEntityEventPost(
+                    causeStack.getCurrentCause(), entity, type, entity.getTransform());
+            eventManager.post(event);
+        }
         return entity;
     }
 
@@ -1002,16 +1154,14 @@ public void setWeather(Weather weather, long duration) {
     public void spawnParticles(ParticleEffect particleEffect, Vector3d position) {
         checkNotNull(particleEffect, "particleEffect");
         checkNotNull(position, "position");
-        this.spawnParticles(this.players.iterator(), particleEffect, position);
+        broadcast(position, DEFAULT_PARTICLE_RANGE, () -> new MessagePlayOutParticleEffect(position, particleEffect));
     }
 
     @Override
     public void spawnParticles(ParticleEffect particleEffect, Vector3d position, int radius) {
         checkNotNull(particleEffect, "particleEffect");
         checkNotNull(position, "position");
-        this.spawnParticles(this.players.stream().filter(
-                player -> player.getLocation().getPosition().distanceSquared(position) < radius * radius).iterator(),
-                particleEffect, position);
+        broadcast(position, radius, () -> new MessagePlayOutParticleEffect(position, particleEffect));
     }
 
     @Override
@@ -1019,8 +1169,20 @@ public void playSound(SoundType sound, SoundCategory category, Vector3d position
         checkNotNull(sound, "sound");
         checkNotNull(position, "position");
         checkNotNull(category, "category");
-        this.broadcast(() -> ((LanternSoundType) sound).createMessage(position,
-                category, (float) Math.max(minVolume, volume), (float) pitch));
+        final float volume0 = (float) Math.max(minVolume, volume);
+        broadcast(position, getHearingRange(volume0), () -> ((LanternSoundType) sound).createMessage(position,
+                category, volume0, (float) pitch));
+    }
+
+    /**
+     * Gets the range in which players can hear a sound with the given volume,
+     * the volume only increases the range of sounds that are louder than normal.
+     *
+     * @param volume The volume
+     * @return The hearing range
+     */
+    private static double getHearingRange(double volume) {
+        return volume > 1.0 ? 16.0 * volume : 16.0;
     }
 
     @Override
@@ -1059,17 +1221,7 @@ public void stopRecord(Vector3i position) {
 
     private void playOrStopRecord(Vector3i position, @Nullable RecordType recordType) {
         checkNotNull(position, "position");
-        broadcast(() -> new MessagePlayOutRecord(position, recordType));
-    }
-
-    private void spawnParticles(Iterator<LanternPlayer> players, ParticleEffect particleEffect, Vector3d position) {
-        if (!players.hasNext()) {
-            return;
-        }
-        final MessagePlayOutParticleEffect message = new MessagePlayOutParticleEffect(position, particleEffect);
-        while (players.hasNext()) {
-            players.next().getConnection().send(message);
-        }
+        broadcast(position.toDouble().add(0.5, 0.5, 0.5), RECORD_RANGE, () -> new MessagePlayOutRecord(position, recordType));
     }
 
     @Override
@@ -1092,11 +1244,14 @@ public void sendMessage(ChatType type, Text message) {
         checkNotNull(type, "chatType");
         checkNotNull(message, "message");
         if (!this.players.isEmpty()) {
-            final Map<Locale, Message> networkMessages = new HashMap<>();
+            // Every locale results in a different message, which can be shared
+            // between all the players that use that locale
+            final Map<Locale, List<LanternPlayer>> playersByLocale = new HashMap<>();
             for (LanternPlayer player : this.players) {
-                player.getConnection().send(networkMessages.computeIfAbsent(player.getLocale(),
-                        locale -> ((LanternChatType) type).getMessageProvider().apply(message, locale)));
+                playersByLocale.computeIfAbsent(player.getLocale(), locale -> new ArrayList<>()).add(player);
             }
+            playersByLocale.forEach((locale, players) -> NetworkSession.broadcast(players,
+                    ((LanternChatType) type).getMessageProvider().apply(message, locale)));
         }
     }
 
@@ -1254,12 +1409,17 @@ public static List<Entity> handlePreEntitySpawning(Iterable<EntitySpawningEntry>
 
     private static List<Entity> handlePreEntitySpawning(CauseStack causeStack, Iterable<EntitySpawningEntry> entries) {
         final List<Entity> entities = new ArrayList<>();
+        final LanternEventManager eventManager = Lantern.getGame().getEventManager();
+        final boolean postPreConstruct = eventManager.hasListeners(ConstructEntityEvent.Pre.class);
         for (EntitySpawningEntry entry : entries) {
             // Call the pre construction event
-            final ConstructEntityEvent.Pre preConstructEvent = SpongeEventFactory.createConstructEntityEventPre(
-                    causeStack.getCurrentCause(), entry.entityType, entry.transform);
-            Sponge.getEventManager().post(preConstructEvent);
-            if (!preConstructEvent.isCancelled()) {
+            boolean cancelled = false;
+            if (postPreConstruct) {
+                final ConstructEntityEvent.Pre preConstructEvent = SpongeEventFactory.createConstructEntityEventPre(
+                        causeStack.getCurrentCause(), entry.entityType, entry.transform);
+                cancelled = eventManager.post(preConstructEvent);
+            }
+            if (!cancelled) {
                 // Calls the post construction event
                 entities.add(((LanternWorld) entry.transform.getExtent())
                         .createEntity(entry.entityType, entry.transform.getPosition(), entry.entityConsumer));
@@ -1273,6 +1433,9 @@ public boolean spawnEntity(Entity entity) {
         checkNotNull(entity, "entity");
         checkArgument(!entity.isRemoved(), "The entity may not be removed.");
         checkArgument(entity.getWorld() == this, "The entity is not be located in this world.");
+        if (!Lantern.getGame().getEventManager().hasListeners(SpawnEntityEvent.Custom.class)) {
+            return spawnEntity0(entity);
+        }
         final CauseStack causeStack = CauseStack.current();
         final SpawnEntityEvent.Custom event = SpongeEventFactory.createSpawnEntityEventCustom(
                 causeStack.getCurrentCause(), Lists.newArrayList(entity));
@@ -1287,6 +1450,13 @@ public boolean spawnEntities(Iterable<? extends Entity> entities) {
             checkArgument(!entity.isRemoved(), "The entity may not be removed.");
             checkArgument(entity.getWorld() == this, "The entity is not be located in this world.");
         }
+        if (!Lantern.getGame().getEventManager().hasListeners(SpawnEntityEvent.Custom.class)) {
+            boolean success = false;
+            for (Entity entity : entities) {
+                success |= spawnEntity0(entity);
+            }
+            return success;
+        }
         final CauseStack causeStack = CauseStack.current();
         final SpawnEntityEvent.Custom event = SpongeEventFactory.createSpawnEntityEventCustom(
                 causeStack.getCurrentCause(), Lists.newArrayList(entities));
@@ -1329,12 +1499,23 @@ private LanternEntity addEntity(LanternEntity entity) {
             this.entityProtocolManager.add(entity, entityProtocolType);
         }
         entity.setPositionAndWorld(this, entity.getPosition());
+        this.addedTickedEntities.add(entity);
         return null;
     }
 
     private void pulseEntities() {
-        // Pulse the entities
-        for (LanternEntity entity : new ArrayList<>(this.entitiesByUniqueId.values())) {
+        updateTickedEntities();
+        final LanternEntity[] entities = this.tickedEntities;
+        final int count = this.tickedEntityCount;
+        final boolean timings = Timings.isEnabled();
+        // The entities are compacted while they are being pulsed,
+        // this removes the tombstones of the removed entities
+        int index = 0;
+        for (int i = 0; i < count; i++) {
+            final LanternEntity entity = entities[i];
+            if (entity == null) {
+                continue;
+            }
             if (entity.isRemoved()) {
                 final Vector3i lastChunk = entity.getLastChunkSectionCoords();
                 if (lastChunk != null && entity.getRemoveState() == LanternEntity.RemoveState.DESTROYED) {
@@ -1345,23 +1526,71 @@ private void pulseEntities() {
                 }
                 this.entityProtocolManager.remove(entity);
                 this.entitiesByUniqueId.remove(entity.getUniqueId());
+                entity.setTickIndex(-1);
+                continue;
+            }
+            final Vector3i lastChunkSection = entity.getLastChunkSectionCoords();
+            if (timings) {
+                final long start = System.nanoTime();
+                entity.pulse();
+                Timings.get(TimingCategory.ENTITY, entity.getType()).record(System.nanoTime() - start);
             } else {
-                final Vector3i lastChunkSection = entity.getLastChunkSectionCoords();
                 entity.pulse();
-                final Vector3i pos = entity.getPosition().toInt();
-                final Vector3i newChunk = new Vector3i(pos.getX() >> 4, fixEntityYSection(pos.getY() >> 4), pos.getZ() >> 4);
-                if (lastChunkSection == null || !lastChunkSection.equals(newChunk)) {
-                    LanternChunk chunk;
-                    if (lastChunkSection != null && (chunk = this.chunkManager.getChunkIfLoaded(
-                            lastChunkSection.getX(), lastChunkSection.getZ())) != null) {
-                        chunk.removeEntity(entity, lastChunkSection.getY());
+            }
+            final Vector3d pos = entity.getPosition();
+            final int chunkX = pos.getFloorX() >> 4;
+            final int chunkY = fixEntityYSection(pos.getFloorY() >> 4);
+            final int chunkZ = pos.getFloorZ() >> 4;
+            if (lastChunkSection == null || lastChunkSection.getX() != chunkX ||
+                    lastChunkSection.getY() != chunkY || lastChunkSection.getZ() != chunkZ) {
+                LanternChunk chunk;
+                if (lastChunkSection != null && (chunk = this.chunkManager.getChunkIfLoaded(
+                        lastChunkSection.getX(), lastChunkSection.getZ())) != null) {
+                    chunk.removeEntity(entity, lastChunkSection.getY());
+                }
+                chunk = this.chunkManager.getOrLoadChunk(chunkX, chunkZ);
+                chunk.addEntity(entity, chunkY);
+                entity.setLastChunkCoords(new Vector3i(chunkX, chunkY, chunkZ));
+            }
+            entities[index] = entity;
+            entity.setTickIndex(index++);
+        }
+        Arrays.fill(entities, index, count, null);
+        this.tickedEntityCount = index;
+    }
+
+    private void updateTickedEntities() {
+        LanternEntity entity;
+        while ((entity = this.removedTickedEntities.poll()) != null) {
+            if (isTicked(entity)) {
+                this.tickedEntities[entity.getTickIndex()] = null;
+                entity.setTickIndex(-1);
+            } else {
+                // The index may already be claimed by another world
+                for (int i = 0; i < this.tickedEntityCount; i++) {
+                    if (this.tickedEntities[i] == entity) {
+                        this.tickedEntities[i] = null;
+                        break;
                     }
-                    chunk = this.chunkManager.getOrLoadChunk(newChunk.getX(), newChunk.getZ());
-                    chunk.addEntity(entity, newChunk.getY());
-                    entity.setLastChunkCoords(newChunk);
                 }
             }
         }
+        while ((entity = this.addedTickedEntities.poll()) != null) {
+            // The entity was removed and added again before it was cleaned up
+            if (isTicked(entity)) {
+                continue;
+            }
+            if (this.tickedEntityCount == this.tickedEntities.length) {
+                this.tickedEntities = Arrays.copyOf(this.tickedEntities, this.tickedEntities.length << 1);
+            }
+            entity.setTickIndex(this.tickedEntityCount);
+            this.tickedEntities[this.tickedEntityCount++] = entity;
+        }
+    }
+
+    private boolean isTicked(LanternEntity entity) {
+        final int index = entity.getTickIndex();
+        return index >= 0 && index < this.tickedEntityCount && this.tickedEntities[index] == entity;
     }
 
     @Override
@@ -1461,27 +1690,86 @@ public int getSeaLevel() {
         return IGeneratorType.getSeaLevel(getProperties().getGeneratorType(), getProperties().getGeneratorSettings());
     }
 
-    public void pulse() {
+    /**
+     * Pulses this world.
+     *
+     * @param tickDeadline The deadline of the server tick, the deferred work
+     *                     may use the time that is left until this deadline
+     */
+    public void pulse(long tickDeadline) {
+        final long deadline = tickDeadline - DeferredWork.MARGIN_NANOS;
+        final TickRecorder tickRecorder = this.tickRecorder;
+        tickRecorder.start();
+
         final CauseStack causeStack = CauseStack.current();
         causeStack.pushCause(this);
 
-        this.chunkManager.pulse(causeStack);
         this.timeUniverse.pulse();
+        tickRecorder.mark(TickPhase.TIME);
         if (this.weatherUniverse != null) {
             this.weatherUniverse.pulse(causeStack);
+            tickRecorder.mark(TickPhase.WEATHER);
         }
 
+        // Dispatch the scheduled block updates
+        this.scheduledUpdateWheel.pulse(this::dispatchScheduledUpdate);
+        tickRecorder.mark(TickPhase.SCHEDULED_UPDATES);
+
         // Pulse the entities
         pulseEntities();
+        this.playerIndex.update(this.players);
+        tickRecorder.mark(TickPhase.ENTITIES);
 
         // Pulse the tile entities
-        getLoadedChunks().forEach(chunk -> ((LanternChunk) chunk).pulse());
+        this.tileEntityTicker.pulse(causeStack);
+        tickRecorder.mark(TickPhase.TILE_ENTITIES);
 
         causeStack.popCause();
 
         // TODO: Maybe async?
         this.observedChunkManager.pulse();
+        tickRecorder.mark(TickPhase.OBSERVED_CHUNKS);
         this.entityProtocolManager.updateTrackers(this.players);
+        tickRecorder.mark(TickPhase.ENTITY_TRACKERS);
+
+        tickRecorder.end();
+
+        // Only the minimum budget is available if the server is overloaded
+        causeStack.pushCause(this);
+        this.deferredWork.run(Lantern.getServer().isOverloaded() ? 0L : deadline);
+        causeStack.popCause();
+    }
+
+    private void autoSave(long deadline) {
+        final int interval = this.worldConfig.getAutoSaveInterval();
+        if (interval > 0) {
+            final long now = System.nanoTime();
+            if (this.nextAutoSave == 0L) {
+                this.nextAutoSave = now + TimeUnit.SECONDS.toNanos(interval);
+            } else if (now >= this.nextAutoSave) {
+                this.nextAutoSave = now + TimeUnit.SECONDS.toNanos(interval);
+                this.chunkManager.queueSave();
+            }
+        }
+        this.chunkManager.saveQueuedChunks(deadline);
+    }
+
+    /**
+     * Gets the {@link DeferredWork} that is run at the end of every tick of this world.
+     *
+     * @return The deferred work
+     */
+    public DeferredWork getDeferredWork() {
+        return this.deferredWork;
+    }
+
+    /**
+     * Gets the {@link TickRecorder} of the ticks of this world.
+     *
+     * @return The tick recorder
+     */
+    public TickRecorder getTickRecorder() {
+        return this.tickRecorder;
     }
 
     public void broadcast(Supplier<Message> message) {
@@ -1496,8 +1784,31 @@ public void broadcast(Supplier<Message> message, @Nullable Predicate<LanternPlay
         if (players.isEmpty()) {
             return;
         }
-        final Message message0 = message.get();
-        players.forEach(player -> player.getConnection().send(message0));
+        NetworkSession.broadcast(players, message.get());
+    }
+
+    /**
+     * Sends the {@link Message} to all the {@link LanternPlayer}s that
+     * are within the range of the given position.
+     *
+     * @param position The position
+     * @param range The range
+     * @param message The message supplier, only called if there are players within range
+     */
+    public void broadcast(Vector3d position, double range, Supplier<Message> message) {
+        List<LanternPlayer> players = nearbyPlayers.get();
+        // A broadcast that is triggered while sending, don't touch the list in use
+        if (!players.isEmpty()) {
+            players = new ArrayList<>();
+        }
+        try {
+            this.playerIndex.collect(position, range, players);
+            if (!players.isEmpty()) {
+                NetworkSession.broadcast(players, message.get());
+            }
+        } finally {
+            players.clear();
+        }
     }
 
     @Override
@@ -713,7 +713,7 @@ private void addWorldTask(LanternWorld world) {
                 while (!thread0.isInterrupted() && !this.tickEnd.isTerminated()) {
                     this.tickBegin.arriveAndAwaitAdvance();
                     try {
-                        world.pulse();
+                        world.pulse(this.tickDeadline);
                     } catch (Exception e) {
                         this.logger.error("Error occurred while pulsing the world {}", world.getName(), e);
                     } finally {
@@ -744,6 +744,9 @@ private void removeWorldTask(LanternWorld world) {
     // The current tick that is executing
     private volatile int currentTick = -1;
 
+    // The deadline of the server tick that started the current world tick
+    private volatile long tickDeadline;
+
     private void tickEnd() {
         int nextTick = this.currentTick + 1;
         // Mark ourselves as arrived so world threads automatically trigger advance once done
@@ -756,10 +759,13 @@ private void tickEnd() {
 
     /**
      * Pulses the world for the next tick.
+     *
+     * @param deadline The deadline of the server tick, in terms of {@link System#nanoTime()}
      */
-    public void pulse() {
+    public void pulse(long deadline) {
         try {
             this.tickEnd.awaitAdvanceInterruptibly(this.currentTick);
+            this.tickDeadline = deadline;
             this.currentTick = this.tickBegin.arrive();
 
             try {
@@ -0,0 +1,181 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.world;
+
+import com.flowpowered.math.GenericMath;
+import com.flowpowered.math.vector.Vector3d;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2LongMap;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import org.lanternpowered.server.entity.living.player.LanternPlayer;
+import org.lanternpowered.server.world.chunk.LanternChunk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A spatial index of the {@link LanternPlayer}s in a world, the players
+ * are grouped per chunk column they are located in.
+ * <p>
+ * The buckets are updated once per tick, so a player may be stored in the
+ * bucket of the chunk it was located in the previous tick. Queries always
+ * check the current position of the players and search one chunk further
+ * than needed to cover the players that moved since the last update.
+ */
+public final class PlayerSpatialIndex {
+
+    private static final long NO_BUCKET = Long.MIN_VALUE;
+
+    /**
+     * All the players grouped by the key of the chunk column they are located in.
+     */
+    private final Long2ObjectMap<List<LanternPlayer>> buckets = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * The key of the bucket every player is currently stored in.
+     */
+    private final Object2LongMap<LanternPlayer> bucketKeys = new Object2LongOpenHashMap<>();
+
+    {
+        this.bucketKeys.defaultReturnValue(NO_BUCKET);
+    }
+
+    /**
+     * Adds the {@link LanternPlayer} to the index.
+     *
+     * @param player The player
+     */
+    public synchronized void add(LanternPlayer player) {
+        move(player, this.bucketKeys.getLong(player), getBucketKey(player.getPosition()));
+    }
+
+    /**
+     * Removes the {@link LanternPlayer} from the index.
+     *
+     * @param player The player
+     */
+    public synchronized void remove(LanternPlayer player) {
+        final long key = this.bucketKeys.removeLong(player);
+        if (key != NO_BUCKET) {
+            removeFromBucket(player, key);
+        }
+    }
+
+    /**
+     * Moves all the given {@link LanternPlayer}s to the buckets of the
+     * chunks they are currently located in.
+     *
+     * @param players The players
+     */
+    public synchronized void update(Iterable<LanternPlayer> players) {
+        for (LanternPlayer player : players) {
+            final long key = this.bucketKeys.getLong(player);
+            // Players that were removed in the mean time will be in no bucket
+            if (key != NO_BUCKET) {
+                move(player, key, getBucketKey(player.getPosition()));
+            }
+        }
+    }
+
+    /**
+     * Adds all the {@link LanternPlayer}s that are within the range of the
+     * position to the target collection.
+     *
+     * @param position The position
+     * @param range The range
+     * @param target The target collection
+     */
+    public synchronized void collect(Vector3d position, double range, Collection<? super LanternPlayer> target) {
+        if (this.buckets.isEmpty()) {
+            return;
+        }
+        final double rangeSquared = range * range;
+        // One extra chunk for the players that moved since the last update
+        final int chunkRange = GenericMath.floor(Math.min(range, Integer.MAX_VALUE) / 16.0) + 2;
+        final int chunkX = GenericMath.floor(position.getX()) >> 4;
+        final int chunkZ = GenericMath.floor(position.getZ()) >> 4;
+        final long diameter = (long) chunkRange * 2 + 1;
+        if (diameter * diameter > this.buckets.size()) {
+            // It's cheaper to visit all the buckets
+            for (Long2ObjectMap.Entry<List<LanternPlayer>> entry : this.buckets.long2ObjectEntrySet()) {
+                final long key = entry.getLongKey();
+                if (Math.abs(LanternChunk.keyX(key) - chunkX) <= chunkRange &&
+                        Math.abs(LanternChunk.keyZ(key) - chunkZ) <= chunkRange) {
+                    collect(entry.getValue(), position, rangeSquared, target);
+                }
+            }
+        } else {
+            for (int x = chunkX - chunkRange; x <= chunkX + chunkRange; x++) {
+                for (int z = chunkZ - chunkRange; z <= chunkZ + chunkRange; z++) {
+                    final List<LanternPlayer> bucket = this.buckets.get(LanternChunk.key(x, z));
+                    if (bucket != null) {
+                        collect(bucket, position, rangeSquared, target);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void collect(List<LanternPlayer> bucket, Vector3d position, double rangeSquared,
+            Collection<? super LanternPlayer> target) {
+        // Avoid the iterator, this is called a lot
+        for (int i = 0; i < bucket.size(); i++) {
+            final LanternPlayer player = bucket.get(i);
+            if (player.getPosition().distanceSquared(position) < rangeSquared) {
+                target.add(player);
+            }
+        }
+    }
+
+    private void move(LanternPlayer player, long oldKey, long newKey) {
+        if (oldKey == newKey) {
+            return;
+        }
+        if (oldKey != NO_BUCKET) {
+            removeFromBucket(player, oldKey);
+        }
+        List<LanternPlayer> bucket = this.buckets.get(newKey);
+        if (bucket == null) {
+            bucket = new ArrayList<>(4);
+            this.buckets.put(newKey, bucket);
+        }
+        bucket.add(player);
+        this.bucketKeys.put(player, newKey);
+    }
+
+    private void removeFromBucket(LanternPlayer player, long key) {
+        final List<LanternPlayer> bucket = this.buckets.get(key);
+        if (bucket != null && bucket.remove(player) && bucket.isEmpty()) {
+            this.buckets.remove(key);
+        }
+    }
+
+    private static long getBucketKey(Vector3d position) {
+        return LanternChunk.key(GenericMath.floor(position.getX()) >> 4, GenericMath.floor(position.getZ()) >> 4);
+    }
+}
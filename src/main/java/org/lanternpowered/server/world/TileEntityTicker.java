@@ -0,0 +1,192 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.world;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.flowpowered.math.vector.Vector3i;
+import org.lanternpowered.server.block.tile.LanternTileEntity;
+import org.lanternpowered.server.event.CauseStack;
+import org.lanternpowered.server.game.Lantern;
+import org.lanternpowered.server.timings.TimingCategory;
+import org.lanternpowered.server.timings.Timings;
+import org.lanternpowered.server.world.chunk.LanternChunk;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.annotation.Nullable;
+
+/**
+ * Keeps track of all the {@link LanternTileEntity}s of a world that
+ * need to be pulsed every tick. Tile entities that don't override
+ * {@link LanternTileEntity#pulse()} are never added.
+ */
+public final class TileEntityTicker {
+
+    private static final class Change {
+
+        @Nullable private final LanternChunk chunk;
+        private final LanternTileEntity tileEntity;
+        private final boolean add;
+
+        private Change(@Nullable LanternChunk chunk, LanternTileEntity tileEntity, boolean add) {
+            this.chunk = chunk;
+            this.tileEntity = tileEntity;
+            this.add = add;
+        }
+    }
+
+    // The tile entities that are pulsed, removed tile entities
+    // leave a null slot behind until the next pulse
+    private LanternTileEntity[] tileEntities = new LanternTileEntity[64];
+    // The chunk of every tile entity, at the same index
+    private LanternChunk[] chunks = new LanternChunk[64];
+    private int count;
+
+    // The changes can be queued from any thread, chunks are loaded async
+    private final Queue<Change> changes = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Starts pulsing the tile entity if it's tickable.
+     *
+     * @param chunk The chunk that contains the tile entity
+     * @param tileEntity The tile entity
+     */
+    public void add(LanternChunk chunk, LanternTileEntity tileEntity) {
+        checkNotNull(chunk, "chunk");
+        checkNotNull(tileEntity, "tileEntity");
+        if (tileEntity.isTickable()) {
+            this.changes.add(new Change(chunk, tileEntity, true));
+        }
+    }
+
+    /**
+     * Stops pulsing the tile entity. Tile entities that are
+     * invalidated will be removed automatically.
+     *
+     * @param tileEntity The tile entity
+     */
+    public void remove(LanternTileEntity tileEntity) {
+        checkNotNull(tileEntity, "tileEntity");
+        if (tileEntity.isTickable()) {
+            this.changes.add(new Change(null, tileEntity, false));
+        }
+    }
+
+    /**
+     * Gets the amount of tile entities that are being pulsed.
+     *
+     * @return The amount of tile entities
+     */
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Pulses all the tickable tile entities, the chunk and the
+     * tile entity that is being pulsed are added to the cause.
+     *
+     * @param causeStack The cause stack
+     */
+    public void pulse(CauseStack causeStack) {
+        applyChanges();
+        final LanternTileEntity[] tileEntities = this.tileEntities;
+        final LanternChunk[] chunks = this.chunks;
+        final int count = this.count;
+        final boolean timings = Timings.isEnabled();
+        // The tile entities of a chunk are added together, so
+        // the chunk only changes every few tile entities
+        LanternChunk currentChunk = null;
+        int index = 0;
+        for (int i = 0; i < count; i++) {
+            final LanternTileEntity tileEntity = tileEntities[i];
+            if (tileEntity == null) {
+                continue;
+            }
+            if (!tileEntity.isValid()) {
+                tileEntity.setTickIndex(-1);
+                continue;
+            }
+            final LanternChunk chunk = chunks[i];
+            if (chunk != currentChunk) {
+                if (currentChunk != null) {
+                    causeStack.popCause(); // Pop the previous chunk
+                }
+                causeStack.pushCause(chunk); // Add the chunk that is being pulsed
+                currentChunk = chunk;
+            }
+            causeStack.pushCause(tileEntity); // Add the tile entity to the cause
+            final long start = timings ? System.nanoTime() : 0L;
+            try {
+                tileEntity.pulse();
+            } catch (Throwable t) {
+                final Vector3i pos = tileEntity.getLocation().getBlockPosition();
+                Lantern.getLogger().error("Failed to pulse TileEntity at ({};{};{})", pos.getX(), pos.getY(), pos.getZ(), t);
+            } finally {
+                causeStack.popCause(); // Pop the tile entity
+            }
+            if (timings) {
+                Timings.get(TimingCategory.TILE_ENTITY, tileEntity.getType()).record(System.nanoTime() - start);
+            }
+            tileEntities[index] = tileEntity;
+            chunks[index] = chunk;
+            tileEntity.setTickIndex(index++);
+        }
+        if (currentChunk != null) {
+            causeStack.popCause(); // Pop the chunk
+        }
+        Arrays.fill(tileEntities, index, count, null);
+        Arrays.fill(chunks, index, count, null);
+        this.count = index;
+    }
+
+    private void applyChanges() {
+        Change change;
+        while ((change = this.changes.poll()) != null) {
+            final LanternTileEntity tileEntity = change.tileEntity;
+            final int index = tileEntity.getTickIndex();
+            final boolean ticked = index >= 0 && index < this.count && this.tileEntities[index] == tileEntity;
+            if (change.add) {
+                if (ticked) {
+                    continue;
+                }
+                if (this.count == this.tileEntities.length) {
+                    this.tileEntities = Arrays.copyOf(this.tileEntities, this.tileEntities.length << 1);
+                    this.chunks = Arrays.copyOf(this.chunks, this.chunks.length << 1);
+                }
+                tileEntity.setTickIndex(this.count);
+                this.chunks[this.count] = change.chunk;
+                this.tileEntities[this.count++] = tileEntity;
+            } else if (ticked) {
+                this.tileEntities[index] = null;
+                this.chunks[index] = null;
+                tileEntity.setTickIndex(-1);
+            }
+        }
+    }
+}
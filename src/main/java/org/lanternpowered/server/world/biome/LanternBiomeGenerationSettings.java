@@ -94,6 +94,13 @@ public List<GenerationPopulator> getGenerationPopulators(Class<? extends Generat
         return this.generationPopulators.stream().filter(type::isInstance).collect(ImmutableList.toImmutableList());
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The chunks of a world are populated in parallel, so every {@link Populator}
+     * in this list must be thread-safe. The populators may be called at the same time
+     * for different chunks, mutable state shouldn't be shared without synchronization.</p>
+     */
     @Override
     public List<Populator> getPopulators() {
         return this.populators;
@@ -0,0 +1,524 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.world.chunk;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.lanternpowered.server.world.chunk.LanternChunk.CHUNK_SECTION_VOLUME;
+
+import it.unimi.dsi.fastutil.shorts.Short2ShortMap;
+import it.unimi.dsi.fastutil.shorts.Short2ShortOpenHashMap;
+import org.lanternpowered.server.util.collect.array.VariableValueArray;
+
+import javax.annotation.Nullable;
+
+/**
+ * A paletted storage of the block states within a chunk section. The
+ * block states are represented by their internal id and data value.
+ * <p>
+ * Depending on the amount of different block states, one of the
+ * following palettes will be used:
+ * <ul>
+ *     <li>A single value palette, no value array will be allocated</li>
+ *     <li>A linear palette, for up to 16 states (4 bits per value)</li>
+ *     <li>A hashed palette, for up to 256 states (5 to 8 bits per value)</li>
+ *     <li>The global palette, the raw state ids will be stored</li>
+ * </ul>
+ * The bits per value of the local and global palettes match the
+ * ones that are expected by the client, this allows the backing
+ * value arrays to be send without any conversion.
+ * <p>
+ * The palette is never shrunk when block states are removed,
+ * {@link #compact()} can be used to rebuild it.
+ * <p>
+ * This storage isn't thread safe, it is expected to be guarded by
+ * the lock of the {@link LanternChunk.ChunkSection}. Reads will never
+ * fail while a resize is in progress, which allows it to be used
+ * with optimistic reads.
+ */
+public final class ChunkBlockStateStorage {
+
+    /**
+     * The minimum amount of bits per value that will
+     * be used by a local palette.
+     */
+    public static final int MIN_LOCAL_BITS_PER_VALUE = 4;
+
+    /**
+     * The maximum amount of bits per value that will
+     * be used by a local palette.
+     */
+    public static final int MAX_LOCAL_BITS_PER_VALUE = 8;
+
+    /**
+     * The amount of bits per value that will be used by the
+     * global palette, this is the amount the client expects.
+     */
+    public static final int GLOBAL_BITS_PER_VALUE = 13;
+
+    /**
+     * The amount of bits per value that will be used by the global
+     * palette if there are states that don't fit in {@link #GLOBAL_BITS_PER_VALUE}.
+     */
+    private static final int MAX_GLOBAL_BITS_PER_VALUE = 16;
+
+    private Palette palette;
+    @Nullable private VariableValueArray values;
+
+    /**
+     * Constructs a new {@link ChunkBlockStateStorage}
+     * which is filled with air.
+     */
+    public ChunkBlockStateStorage() {
+        this((short) 0);
+    }
+
+    /**
+     * Constructs a new {@link ChunkBlockStateStorage}
+     * which is filled with the given state.
+     *
+     * @param state The state
+     */
+    public ChunkBlockStateStorage(short state) {
+        this.palette = new SingleValuePalette(state);
+    }
+
+    /**
+     * Constructs a new {@link ChunkBlockStateStorage}
+     * from the given raw states array.
+     *
+     * @param states The states
+     */
+    public ChunkBlockStateStorage(short[] states) {
+        checkArgument(states.length == CHUNK_SECTION_VOLUME, "States array length mismatch: Got "
+                + states.length + ", but expected " + CHUNK_SECTION_VOLUME);
+        this.palette = new SingleValuePalette(states[0]);
+        for (int i = 1; i < states.length; i++) {
+            set(i, states[i]);
+        }
+    }
+
+    private ChunkBlockStateStorage(Palette palette, @Nullable VariableValueArray values) {
+        this.palette = palette;
+        this.values = values;
+    }
+
+    /**
+     * Gets the state at the given index.
+     *
+     * @param index The index
+     * @return The state
+     */
+    public short get(int index) {
+        // Copy the references, a resize could be in progress
+        // while a optimistic read is being performed
+        final VariableValueArray values = this.values;
+        final Palette palette = this.palette;
+        return palette.get(values == null ? 0 : values.get(index));
+    }
+
+    /**
+     * Sets the state at the given index.
+     *
+     * @param index The index
+     * @param state The state
+     * @return The previous state
+     */
+    public short set(int index, short state) {
+        int id = this.palette.getOrAssign(state);
+        if (id == -1) {
+            resize(state);
+            id = this.palette.getOrAssign(state);
+        }
+        final VariableValueArray values = this.values;
+        if (values == null) {
+            // Single value palette, the state didn't change
+            return state;
+        }
+        final short oldState = this.palette.get(values.get(index));
+        values.set(index, id);
+        return oldState;
+    }
+
+    /**
+     * Grows the palette and the value array to
+     * be able to fit the given state.
+     *
+     * @param state The state that didn't fit in the current palette
+     */
+    private void resize(short state) {
+        final Palette oldPalette = this.palette;
+        final VariableValueArray oldValues = this.values;
+
+        final Palette palette;
+        final int[] entries = oldPalette.getEntries();
+        if (entries == null) {
+            palette = new GlobalPalette(MAX_GLOBAL_BITS_PER_VALUE);
+        } else {
+            final int bits = 32 - Integer.numberOfLeadingZeros(entries.length);
+            if (bits <= MIN_LOCAL_BITS_PER_VALUE) {
+                palette = new LinearPalette(MIN_LOCAL_BITS_PER_VALUE);
+            } else if (bits <= MAX_LOCAL_BITS_PER_VALUE) {
+                palette = new HashedPalette(bits);
+            } else {
+                // Check whether all the states fit within the global palette the client expects
+                int maxState = state & 0xffff;
+                for (int entry : entries) {
+                    maxState = Math.max(maxState, entry);
+                }
+                palette = new GlobalPalette(maxState < (1 << GLOBAL_BITS_PER_VALUE) ?
+                        GLOBAL_BITS_PER_VALUE : MAX_GLOBAL_BITS_PER_VALUE);
+            }
+        }
+        final VariableValueArray values = new VariableValueArray(palette.getBitsPerValue(), CHUNK_SECTION_VOLUME);
+        if (oldValues == null) {
+            final int id = palette.getOrAssign(oldPalette.get(0));
+            if (id != 0) {
+                for (int i = 0; i < CHUNK_SECTION_VOLUME; i++) {
+                    values.set(i, id);
+                }
+            }
+        } else {
+            for (int i = 0; i < CHUNK_SECTION_VOLUME; i++) {
+                values.set(i, palette.getOrAssign(oldPalette.get(oldValues.get(i))));
+            }
+        }
+        // Assign the values first, the palette is a superset
+        this.values = values;
+        this.palette = palette;
+    }
+
+    /**
+     * Rebuilds the palette so that it only contains the
+     * states that are currently present in this storage.
+     */
+    public void compact() {
+        final ChunkBlockStateStorage storage = new ChunkBlockStateStorage(get(0));
+        for (int i = 1; i < CHUNK_SECTION_VOLUME; i++) {
+            storage.set(i, get(i));
+        }
+        this.values = storage.values;
+        this.palette = storage.palette;
+    }
+
+    /**
+     * Counts the amount of states that aren't air.
+     *
+     * @return The non air count
+     */
+    public int countNonAir() {
+        final VariableValueArray values = this.values;
+        if (values == null) {
+            return this.palette.get(0) == 0 ? 0 : CHUNK_SECTION_VOLUME;
+        }
+        int count = 0;
+        for (int i = 0; i < CHUNK_SECTION_VOLUME; i++) {
+            if (this.palette.get(values.get(i)) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Gets the amount of bits per value that are used by the value array,
+     * {@code 0} means that all the values are represented by a single state.
+     *
+     * @return The bits per value
+     */
+    public int getBitsPerValue() {
+        return this.palette.getBitsPerValue();
+    }
+
+    /**
+     * Gets the backing value array, this value array can
+     * be {@code null} if a single state is present.
+     *
+     * @return The value array
+     */
+    @Nullable
+    public VariableValueArray getValues() {
+        return this.values;
+    }
+
+    /**
+     * Gets a array with all the entries of the palette, the index of each
+     * element represents the value in the value array. {@code null}
+     * will be returned if the global palette is being used.
+     *
+     * @return The palette entries
+     */
+    @Nullable
+    public int[] getPaletteEntries() {
+        return this.palette.getEntries();
+    }
+
+    /**
+     * Creates a copy of this {@link ChunkBlockStateStorage}.
+     *
+     * @return The copy
+     */
+    public ChunkBlockStateStorage copy() {
+        return new ChunkBlockStateStorage(this.palette.copy(), this.values == null ? null : this.values.copy());
+    }
+
+    interface Palette {
+
+        /**
+         * Gets the id for the given state, the state will be
+         * assigned a new id if it isn't present yet.
+         *
+         * @param state The state
+         * @return The id, or {@code -1} if the palette is full
+         */
+        int getOrAssign(short state);
+
+        /**
+         * Gets the state for the given id, this method will
+         * not fail if the id isn't assigned.
+         *
+         * @param id The id
+         * @return The state
+         */
+        short get(int id);
+
+        int size();
+
+        int getBitsPerValue();
+
+        @Nullable
+        int[] getEntries();
+
+        Palette copy();
+    }
+
+    private static final class SingleValuePalette implements Palette {
+
+        private final short state;
+
+        SingleValuePalette(short state) {
+            this.state = state;
+        }
+
+        @Override
+        public int getOrAssign(short state) {
+            return state == this.state ? 0 : -1;
+        }
+
+        @Override
+        public short get(int id) {
+            return this.state;
+        }
+
+        @Override
+        public int size() {
+            return 1;
+        }
+
+        @Override
+        public int getBitsPerValue() {
+            return 0;
+        }
+
+        @Override
+        public int[] getEntries() {
+            return new int[] { this.state & 0xffff };
+        }
+
+        @Override
+        public Palette copy() {
+            return this;
+        }
+    }
+
+    private static final class LinearPalette implements Palette {
+
+        private final int bitsPerValue;
+        private final short[] states;
+        private int size;
+
+        LinearPalette(int bitsPerValue) {
+            this.states = new short[1 << bitsPerValue];
+            this.bitsPerValue = bitsPerValue;
+        }
+
+        private LinearPalette(LinearPalette other) {
+            this.bitsPerValue = other.bitsPerValue;
+            this.states = other.states.clone();
+            this.size = other.size;
+        }
+
+        @Override
+        public int getOrAssign(short state) {
+            for (int i = 0; i < this.size; i++) {
+                if (this.states[i] == state) {
+                    return i;
+                }
+            }
+            if (this.size >= this.states.length) {
+                return -1;
+            }
+            this.states[this.size] = state;
+            return this.size++;
+        }
+
+        @Override
+        public short get(int id) {
+            return id < this.states.length ? this.states[id] : 0;
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public int getBitsPerValue() {
+            return this.bitsPerValue;
+        }
+
+        @Override
+        public int[] getEntries() {
+            final int[] entries = new int[this.size];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = this.states[i] & 0xffff;
+            }
+            return entries;
+        }
+
+        @Override
+        public Palette copy() {
+            return new LinearPalette(this);
+        }
+    }
+
+    private static final class HashedPalette implements Palette {
+
+        private final int bitsPerValue;
+        private final short[] states;
+        private final Short2ShortMap ids;
+
+        HashedPalette(int bitsPerValue) {
+            this.states = new short[1 << bitsPerValue];
+            this.ids = new Short2ShortOpenHashMap(this.states.length);
+            this.ids.defaultReturnValue((short) -1);
+            this.bitsPerValue = bitsPerValue;
+        }
+
+        private HashedPalette(HashedPalette other) {
+            this.bitsPerValue = other.bitsPerValue;
+            this.states = other.states.clone();
+            this.ids = new Short2ShortOpenHashMap(other.ids);
+            this.ids.defaultReturnValue((short) -1);
+        }
+
+        @Override
+        public int getOrAssign(short state) {
+            final short id = this.ids.get(state);
+            if (id != -1) {
+                return id;
+            }
+            final int size = this.ids.size();
+            if (size >= this.states.length) {
+                return -1;
+            }
+            this.states[size] = state;
+            this.ids.put(state, (short) size);
+            return size;
+        }
+
+        @Override
+        public short get(int id) {
+            return id < this.states.length ? this.states[id] : 0;
+        }
+
+        @Override
+        public int size() {
+            return this.ids.size();
+        }
+
+        @Override
+        public int getBitsPerValue() {
+            return this.bitsPerValue;
+        }
+
+        @Override
+        public int[] getEntries() {
+            final int[] entries = new int[this.ids.size()];
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = this.states[i] & 0xffff;
+            }
+            return entries;
+        }
+
+        @Override
+        public Palette copy() {
+            return new HashedPalette(this);
+        }
+    }
+
+    private static final class GlobalPalette implements Palette {
+
+        private final int bitsPerValue;
+        private final int maxValue;
+
+        GlobalPalette(int bitsPerValue) {
+            this.bitsPerValue = bitsPerValue;
+            this.maxValue = (1 << bitsPerValue) - 1;
+        }
+
+        @Override
+        public int getOrAssign(short state) {
+            final int id = state & 0xffff;
+            return id <= this.maxValue ? id : -1;
+        }
+
+        @Override
+        public short get(int id) {
+            return (short) id;
+        }
+
+        @Override
+        public int size() {
+            return this.maxValue + 1;
+        }
+
+        @Override
+        public int getBitsPerValue() {
+            return this.bitsPerValue;
+        }
+
+        @Nullable
+        @Override
+        public int[] getEntries() {
+            return null;
+        }
+
+        @Override
+        public Palette copy() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.world.chunk;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+/**
+ * Walks through all the chunk sections (16x16x16 cells) that are
+ * traversed by a ray segment, using a voxel DDA walk.
+ * <p>
+ * Objects that are registered in a section may extend outside of it,
+ * a margin can be specified to visit the neighbor sections the
+ * ray passes within the margin of as well. Each section will
+ * only be visited once.
+ */
+public final class ChunkSectionRayWalker {
+
+    private static final int SECTION_SIZE = 16;
+
+    /**
+     * Represents a visitor of chunk sections.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        /**
+         * Visits the chunk section at the given section coordinates.
+         *
+         * @param x The x coordinate of the chunk
+         * @param y The y coordinate of the section
+         * @param z The z coordinate of the chunk
+         */
+        void visit(int x, int y, int z);
+    }
+
+    /**
+     * Walks through all the chunk sections that are within
+     * the margin of the ray segment.
+     *
+     * @param startX The x coordinate of the start of the ray
+     * @param startY The y coordinate of the start of the ray
+     * @param startZ The z coordinate of the start of the ray
+     * @param dirX The x component of the normalized direction
+     * @param dirY The y component of the normalized direction
+     * @param dirZ The z component of the normalized direction
+     * @param distance The length of the ray segment
+     * @param margin The margin around the sections
+     * @param minSectionY The minimum section y coordinate, sections below are clamped to it
+     * @param maxSectionY The maximum section y coordinate, sections above are clamped to it
+     * @param visitor The visitor
+     */
+    public static void walk(double startX, double startY, double startZ, double dirX, double dirY, double dirZ,
+            double distance, double margin, int minSectionY, int maxSectionY, Visitor visitor) {
+        checkArgument(Double.isFinite(startX) && Double.isFinite(startY) && Double.isFinite(startZ), "start must be finite");
+        checkArgument(Double.isFinite(dirX) && Double.isFinite(dirY) && Double.isFinite(dirZ), "direction must be finite");
+        checkArgument(Double.isFinite(distance), "distance must be finite");
+        checkArgument(margin >= 0 && margin < SECTION_SIZE, "margin must be between 0 and %s", SECTION_SIZE);
+        checkArgument(minSectionY <= maxSectionY, "minSectionY may not be greater than maxSectionY");
+        checkNotNull(visitor, "visitor");
+        distance = Math.max(distance, 0);
+
+        int x = floorSection(startX);
+        int y = floorSection(startY);
+        int z = floorSection(startZ);
+
+        final int stepX = dirX > 0 ? 1 : dirX < 0 ? -1 : 0;
+        final int stepY = dirY > 0 ? 1 : dirY < 0 ? -1 : 0;
+        final int stepZ = dirZ > 0 ? 1 : dirZ < 0 ? -1 : 0;
+
+        final double deltaX = stepX == 0 ? Double.POSITIVE_INFINITY : SECTION_SIZE / Math.abs(dirX);
+        final double deltaY = stepY == 0 ? Double.POSITIVE_INFINITY : SECTION_SIZE / Math.abs(dirY);
+        final double deltaZ = stepZ == 0 ? Double.POSITIVE_INFINITY : SECTION_SIZE / Math.abs(dirZ);
+
+        double maxX = boundary(startX, dirX, x, stepX);
+        double maxY = boundary(startY, dirY, y, stepY);
+        double maxZ = boundary(startZ, dirZ, z, stepZ);
+
+        final LongSet visited = new LongOpenHashSet();
+        double t = 0;
+        while (true) {
+            final double exit = Math.min(Math.min(Math.min(maxX, maxY), maxZ), distance);
+
+            // Search for the neighbor sections that are within the margin of
+            // the part of the ray segment that is inside the current section
+            final int minOffX = offset(startX, dirX, t, exit, x, margin, true);
+            final int maxOffX = offset(startX, dirX, t, exit, x, margin, false);
+            final int minOffY = offset(startY, dirY, t, exit, y, margin, true);
+            final int maxOffY = offset(startY, dirY, t, exit, y, margin, false);
+            final int minOffZ = offset(startZ, dirZ, t, exit, z, margin, true);
+            final int maxOffZ = offset(startZ, dirZ, t, exit, z, margin, false);
+            for (int ox = minOffX; ox <= maxOffX; ox++) {
+                for (int oz = minOffZ; oz <= maxOffZ; oz++) {
+                    for (int oy = minOffY; oy <= maxOffY; oy++) {
+                        final int sectionY = Math.max(minSectionY, Math.min(maxSectionY, y + oy));
+                        if (visited.add(key(x + ox, sectionY, z + oz))) {
+                            visitor.visit(x + ox, sectionY, z + oz);
+                        }
+                    }
+                }
+            }
+
+            if (exit >= distance) {
+                break;
+            }
+            t = exit;
+            if (maxX <= maxY && maxX <= maxZ) {
+                x += stepX;
+                maxX += deltaX;
+            } else if (maxY <= maxZ) {
+                y += stepY;
+                maxY += deltaY;
+            } else {
+                z += stepZ;
+                maxZ += deltaZ;
+            }
+        }
+    }
+
+    private static int floorSection(double value) {
+        return ((int) Math.floor(value)) >> 4;
+    }
+
+    private static double boundary(double start, double dir, int section, int step) {
+        if (step > 0) {
+            return ((section + 1) * SECTION_SIZE - start) / dir;
+        } else if (step < 0) {
+            return (section * SECTION_SIZE - start) / dir;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private static int offset(double start, double dir, double t0, double t1, int section, double margin, boolean min) {
+        final double a = start + dir * t0;
+        final double b = start + dir * t1;
+        if (min) {
+            return Math.min(a, b) - section * SECTION_SIZE < margin ? -1 : 0;
+        }
+        // Coordinates on the upper boundary already belong to the next section
+        return (section + 1) * SECTION_SIZE - Math.max(a, b) <= margin ? 1 : 0;
+    }
+
+    private static long key(int x, int y, int z) {
+        return ((long) x & 0x3ffffff) << 38 | ((long) z & 0x3ffffff) << 12 | (long) y & 0xfff;
+    }
+
+    private ChunkSectionRayWalker() {
+    }
+}
@@ -41,11 +41,8 @@
 import it.unimi.dsi.fastutil.objects.ObjectIterator;
 import it.unimi.dsi.fastutil.shorts.Short2ObjectMap;
 import it.unimi.dsi.fastutil.shorts.Short2ObjectOpenHashMap;
-import it.unimi.dsi.fastutil.shorts.Short2ShortMap;
-import it.unimi.dsi.fastutil.shorts.Short2ShortOpenHashMap;
 import org.lanternpowered.server.block.LanternBlockSnapshot;
 import org.lanternpowered.server.block.LanternBlockType;
-import org.lanternpowered.server.block.LanternScheduledBlockUpdate;
 import org.lanternpowered.server.block.TileEntityProvider;
 import org.lanternpowered.server.block.action.BlockAction;
 import org.lanternpowered.server.block.provider.CachedSimpleObjectProvider;
@@ -65,6 +62,7 @@
 import org.lanternpowered.server.util.VecHelper;
 import org.lanternpowered.server.util.collect.array.NibbleArray;
 import org.lanternpowered.server.world.LanternWorld;
+import org.lanternpowered.server.world.TileEntityTicker;
 import org.lanternpowered.server.world.TrackerIdAllocator;
 import org.lanternpowered.server.world.extent.AbstractExtent;
 import org.lanternpowered.server.world.extent.ExtentViewDownsize;
@@ -96,6 +94,7 @@
 import org.spongepowered.api.util.AABB;
 import org.spongepowered.api.util.Direction;
 import org.spongepowered.api.util.PositionOutOfBoundsException;
+import org.spongepowered.api.util.Tuple;
 import org.spongepowered.api.world.BlockChangeFlag;
 import org.spongepowered.api.world.BlockChangeFlags;
 import org.spongepowered.api.world.Chunk;
@@ -116,8 +115,7 @@
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.PriorityBlockingQueue;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.StampedLock;
@@ -133,6 +131,14 @@ public static long key(int cx, int cz) {
         return ((long) cx & 0x3ffffff) << 38 | ((long) cz & 0x3ffffff);
     }
 
+    public static int keyX(long key) {
+        return (int) (key >> 38);
+    }
+
+    public static int keyZ(long key) {
+        return (int) (key << 38 >> 38);
+    }
+
     // The size of a chunk section in the x, y and z directions
     public static final int CHUNK_SECTION_SIZE = 16;
     // The volume of a chunk and a chunk section (xz plane)
@@ -147,6 +153,8 @@ public static long key(int cx, int cz) {
     public static final int CHUNK_HEIGHT = CHUNK_SECTION_SIZE * CHUNK_SECTIONS;
     // A bit mask that can be used to get ALL the chunk sections
     public static final int ALL_SECTIONS_BIT_MASK = (1 << CHUNK_SECTIONS) - 1;
+    // The distance that entity bounding boxes may extend outside the section they are stored in
+    public static final double ENTITY_SECTION_MARGIN = 2.0;
 
     public static final class TrackerData {
 
@@ -174,15 +182,9 @@ public int getCreatorId() {
     public static class ChunkSection {
 
         /**
-         * The block types array.
-         */
-        final short[] types;
-
-        /**
-         * The amount of blocks per block type/state in
-         * this chunk section.
+         * The block types storage.
          */
-        final Short2ShortMap typesCountMap = new Short2ShortOpenHashMap();
+        final ChunkBlockStateStorage types;
 
         /**
          * The light level arrays.
@@ -198,28 +200,23 @@ public static class ChunkSection {
         int nonAirCount;
 
         ChunkSection() {
-            this(null);
+            this((short[]) null);
         }
 
         ChunkSection(@Nullable short[] types) {
             if (types != null) {
-                checkArgument(types.length == CHUNK_SECTION_VOLUME, "Type array length mismatch: Got "
-                        + types.length + ", but expected " + CHUNK_SECTION_VOLUME);
-                this.types = new short[CHUNK_SECTION_VOLUME];
-                System.arraycopy(types, 0, this.types, 0, CHUNK_SECTION_VOLUME);
+                this.types = new ChunkBlockStateStorage(types);
                 recountTypes();
             } else {
-                this.types = new short[CHUNK_SECTION_VOLUME];
+                this.types = new ChunkBlockStateStorage();
             }
             this.tileEntities = new Short2ObjectOpenHashMap<>();
             this.lightFromBlock = new NibbleArray(CHUNK_SECTION_VOLUME);
             this.lightFromSky = new NibbleArray(CHUNK_SECTION_VOLUME);
         }
 
-        public ChunkSection(short[] types, NibbleArray lightFromSky, NibbleArray lightFromBlock,
+        public ChunkSection(ChunkBlockStateStorage types, NibbleArray lightFromSky, NibbleArray lightFromBlock,
                 Short2ObjectMap<LanternTileEntity> tileEntities) {
-            checkArgument(types.length == CHUNK_SECTION_VOLUME, "Type array length mismatch: Got "
-                    + types.length + ", but expected " + CHUNK_SECTION_VOLUME);
             checkArgument(lightFromSky.length() == CHUNK_SECTION_VOLUME, "Sky light nibble array length mismatch: Got "
                     + lightFromSky.length() + ", but expected " + CHUNK_SECTION_VOLUME);
             checkArgument(lightFromSky.length() == CHUNK_SECTION_VOLUME, "Block light nibble array length mismatch: Got "
@@ -249,33 +246,19 @@ public static int index(int x, int y, int z) {
          * Recounts the amount of non air blocks.
          */
         private void recountTypes() {
-            this.nonAirCount = 0;
-            this.typesCountMap.clear();
-            for (short type : this.types) {
-                if (type != 0) {
-                    this.nonAirCount++;
-                    this.typesCountMap.put(type, (short) (this.typesCountMap.get(type) + 1));
-                }
-            }
+            this.nonAirCount = this.types.countNonAir();
         }
 
         private ChunkSectionSnapshot asSnapshot(boolean skylight) {
-            final Short2ShortMap typeCounts = new Short2ShortOpenHashMap(this.typesCountMap);
-            final int count = this.types.length - this.nonAirCount;
-            if (count > 0) {
-                typeCounts.put((short) 0, (short) count);
-            }
-            return new ChunkSectionSnapshot(this.types.clone(), typeCounts, new Short2ObjectOpenHashMap<>(this.tileEntities),
+            return new ChunkSectionSnapshot(this.types.copy(), new Short2ObjectOpenHashMap<>(this.tileEntities),
                     this.lightFromBlock.getPackedArray(), skylight ? this.lightFromSky.getPackedArray() : null);
         }
     }
 
     public static class ChunkSectionSnapshot {
 
-        // The block types array.
-        public final short[] types;
-        // The types count map.
-        public final Short2ShortMap typesCountMap;
+        // The block types storage.
+        public final ChunkBlockStateStorage types;
         // The tile entities
         public final Short2ObjectMap<LanternTileEntity> tileEntities;
 
@@ -283,20 +266,15 @@ public static class ChunkSectionSnapshot {
         @Nullable public final byte[] lightFromSky;
         public final byte[] lightFromBlock;
 
-        private ChunkSectionSnapshot(short[] types, Short2ShortMap typesCountMap, Short2ObjectMap<LanternTileEntity> tileEntities,
+        private ChunkSectionSnapshot(ChunkBlockStateStorage types, Short2ObjectMap<LanternTileEntity> tileEntities,
                 byte[] lightFromBlock, @Nullable byte[] lightFromSky) {
             this.tileEntities = tileEntities;
             this.lightFromBlock = lightFromBlock;
-            this.typesCountMap = typesCountMap;
             this.lightFromSky = lightFromSky;
             this.types = types;
         }
     }
 
-    private final PriorityBlockingQueue<LanternScheduledBlockUpdate> scheduledBlockUpdateQueue =
-            new PriorityBlockingQueue<>();
-    private final AtomicInteger scheduledBlockUpdateCounter = new AtomicInteger();
-
     private final ConcurrentObjectArray<Short2ObjectMap<TrackerData>> trackerData;
 
     // The chunk sections column
@@ -363,8 +341,11 @@ private ChunkSectionSnapshot(short[] types, Short2ShortMap typesCountMap, Short2
     // Whether this is populated by the world generator
     volatile boolean populated;
 
-    // Whether this chunk is currently being populated
-    volatile boolean populating;
+    // Whether this chunk is queued for population or currently being populated
+    final AtomicBoolean populating = new AtomicBoolean();
+
+    // Whether this chunk has an entry in the queue of chunks that are pending for unload
+    final AtomicBoolean pendingUnload = new AtomicBoolean();
 
     // The state of the lock
     volatile LockState lockState = LockState.NONE;
@@ -467,6 +448,7 @@ public void initializeSections(ChunkSection[] sections) {
                 + sections.length + ", but expected " + CHUNK_SECTIONS);
         this.chunkSections = new ConcurrentObjectArray<>(sections);
         this.loaded = true;
+        registerTileEntities();
     }
 
     /**
@@ -603,7 +585,7 @@ public int getHighestYAt(int x, int z) {
                         // Loop down in the section until we may find a
                         // non empty block
                         while (--y >= 0) {
-                            if (section.types[(y << 8) | index] != 0) {
+                            if (section.types.get((y << 8) | index) != 0) {
                                 values0[0] = j << 4 | y;
                                 values1[0] = true;
                                 break;
@@ -677,7 +659,7 @@ private void automaticHeightMap() {
                         // Loop down in the section until we may find a
                         // non empty block
                         while (--y >= 0) {
-                            if (section.types[(y << 8) | index] != 0) {
+                            if (section.types.get((y << 8) | index) != 0) {
                                 finished[index] = true;
                                 heightMap[index] = (byte) y;
                                 if (++values0[0] >= CHUNK_AREA) {
@@ -842,7 +824,7 @@ public short getType(int x, int y, int z) {
         }
         return this.chunkSections.work(y >> 4, section -> {
             if (section != null) {
-                return section.types[ChunkSection.index(x & 0xf, y & 0xf, z & 0xf)];
+                return section.types.get(ChunkSection.index(x & 0xf, y & 0xf, z & 0xf));
             }
             return (short) 0;
         }, false);
@@ -886,22 +868,11 @@ public boolean setBlock(int x, int y, int z, BlockState block, BlockChangeFlag f
                 section = new ChunkSection();
             }
             final int index = ChunkSection.index(rx, y & 0xf, rz);
-            final short oldType = section.types[index];
+            final short oldType = section.types.get(index);
             if (oldType == type1) {
                 return section;
             }
-            if (oldType != 0) {
-                short count = section.typesCountMap.get(oldType);
-                if (count > 0) {
-                    if (--count <= 0) {
-                        section.typesCountMap.remove(oldType);
-                    } else {
-                        section.typesCountMap.put(oldType, count);
-                    }
-                }
-            }
             if (type1 != 0) {
-                section.typesCountMap.put(type1, (short) (section.typesCountMap.get(type1) + 1));
                 if (oldType == 0) {
                     section.nonAirCount++;
                 }
@@ -947,10 +918,11 @@ public boolean setBlock(int x, int y, int z, BlockState block, BlockChangeFlag f
                 section.tileEntities.put((short) index, newTileEntity);
                 newTileEntity.setLocation(location);
                 newTileEntity.setValid(true);
+                this.world.getTileEntityTicker().add(this, newTileEntity);
             } else if (remove) {
                 section.tileEntities.remove((short) index);
             }
-            section.types[index] = type1;
+            section.types.set(index, type1);
             return section;
         });
 
@@ -1062,16 +1034,29 @@ public boolean spawnEntities(Iterable<? extends Entity> entities) {
 
     @Override
     public Set<EntityHit> getIntersectingEntities(Vector3d start, Vector3d end, Predicate<EntityHit> filter) {
-        return null;
+        checkNotNull(start, "start");
+        checkNotNull(end, "end");
+        final Vector3d diff = end.sub(start);
+        return getIntersectingEntities(start, diff, diff.length(), filter);
     }
 
     @Override
     public Set<EntityHit> getIntersectingEntities(Vector3d start, Vector3d direction, double distance, Predicate<EntityHit> filter) {
-        return null;
-    }
-
-    public PriorityBlockingQueue<LanternScheduledBlockUpdate> getScheduledBlockUpdateQueue() {
-        return this.scheduledBlockUpdateQueue;
+        checkNotNull(start, "start");
+        checkNotNull(direction, "direction");
+        checkNotNull(filter, "filter");
+        final ImmutableSet.Builder<EntityHit> entities = ImmutableSet.builder();
+        if (direction.lengthSquared() == 0) {
+            return entities.build();
+        }
+        final Vector3d dir = direction.normalize();
+        ChunkSectionRayWalker.walk(start.getX(), start.getY(), start.getZ(), dir.getX(), dir.getY(), dir.getZ(), distance,
+                ENTITY_SECTION_MARGIN, 0, CHUNK_SECTIONS - 1, (x, y, z) -> {
+                    if (x == this.x && z == this.z) {
+                        addIntersectingEntities(entities, y, start, dir, distance, filter);
+                    }
+                });
+        return entities.build();
     }
 
     @Override
@@ -1080,51 +1065,19 @@ public Collection<ScheduledBlockUpdate> getScheduledUpdates(int x, int y, int z)
         if (!this.loaded) {
             return Collections.emptyList();
         }
-        final Vector3i position = new Vector3i(x, y, z);
-        return this.scheduledBlockUpdateQueue.stream()
-                .filter(update -> update.getLocation().getBlockPosition().equals(position))
-                .collect(ImmutableSet.toImmutableSet());
+        return this.world.getScheduledUpdateWheel().getUpdates(x, y, z);
     }
 
     @Override
     public ScheduledBlockUpdate addScheduledUpdate(int x, int y, int z, int priority, int ticks) {
         checkVolumeBounds(x, y, z);
-        final int entryId = this.scheduledBlockUpdateCounter.getAndIncrement();
-        final Location<World> location = new Location<>(this.world, new Vector3i(x, y, z));
-        final LanternScheduledBlockUpdate update = new LanternScheduledBlockUpdate(entryId, location, ticks, priority);
-        this.scheduledBlockUpdateQueue.add(update);
-        return update;
+        return this.world.getScheduledUpdateWheel().add(x, y, z, priority, ticks);
     }
 
     @Override
     public void removeScheduledUpdate(int x, int y, int z, ScheduledBlockUpdate update) {
         checkVolumeBounds(x, y, z);
-        this.scheduledBlockUpdateQueue.remove(update);
-    }
-
-    public void pulse() {
-        // The update entry
-        LanternScheduledBlockUpdate update;
-        while ((update = this.scheduledBlockUpdateQueue.peek()) != null && update.getTicks() <= 0) {
-            // Remove the entry from the queue
-            this.scheduledBlockUpdateQueue.poll();
-            // TODO: Update
-        }
-
-        final CauseStack causeStack = CauseStack.current();
-        causeStack.pushCause(this); // Add the chunk that is being pulsed
-        getTileEntities().forEach(tileEntity -> {
-            causeStack.pushCause(tileEntity); // Add the tile entity to the cause
-            try {
-                ((LanternTileEntity) tileEntity).pulse();
-            } catch (Throwable t) {
-                final Vector3i pos = tileEntity.getLocation().getBlockPosition();
-                Lantern.getLogger().error("Failed to pulse TileEntity at ({};{};{})", pos.getX(), pos.getY(), pos.getZ(), t);
-            } finally {
-                causeStack.popCause(); // Pop the tile entity
-            }
-        });
-        causeStack.popCause(); // Pop the chunk
+        this.world.getScheduledUpdateWheel().remove(update);
     }
 
     @Override
@@ -1325,6 +1278,38 @@ public void addIntersectingEntities(ImmutableSet.Builder<Entity> builder, int ma
         }
     }
 
+    /**
+     * Adds all the entities in the given section that are hit by the ray.
+     *
+     * @param builder The builder to add the hits to
+     * @param section The entity section
+     * @param start The start of the ray
+     * @param direction The normalized direction of the ray
+     * @param distance The maximum distance of the hits
+     * @param filter The filter of the hits
+     */
+    public void addIntersectingEntities(ImmutableSet.Builder<EntityHit> builder, int section,
+            Vector3d start, Vector3d direction, double distance, Predicate<EntityHit> filter) {
+        forEachEntity(section, entity -> {
+            final Optional<AABB> aabb = entity.getBoundingBox();
+            if (!aabb.isPresent()) {
+                return;
+            }
+            final Optional<Tuple<Vector3d, Vector3d>> intersection = aabb.get().intersects(start, direction);
+            if (!intersection.isPresent()) {
+                return;
+            }
+            final Vector3d point = intersection.get().getFirst();
+            final double hitDistance = point.distance(start);
+            if (hitDistance <= distance) {
+                final EntityHit hit = new EntityHit(entity, point, intersection.get().getSecond(), hitDistance);
+                if (filter.test(hit)) {
+                    builder.add(hit);
+                }
+            }
+        });
+    }
+
     public void addIntersectingEntitiesBoxes(ImmutableSet.Builder<AABB> builder, int maxYSection, int minYSection,
             AABB box, Predicate<Entity> filter) {
         for (int i = minYSection; i <= maxYSection; i++) {
@@ -1382,6 +1367,24 @@ void buryEntities() {
         forEachEntity(entity -> entity.remove(LanternEntity.RemoveState.CHUNK_UNLOAD));
     }
 
+    /**
+     * Registers all the tickable {@link TileEntity}s
+     * of this chunk to the world.
+     */
+    void registerTileEntities() {
+        final TileEntityTicker ticker = this.world.getTileEntityTicker();
+        getTileEntities().forEach(tileEntity -> ticker.add(this, (LanternTileEntity) tileEntity));
+    }
+
+    /**
+     * Unregisters all the tickable {@link TileEntity}s
+     * of this chunk from the world (chunk being unloaded).
+     */
+    void unregisterTileEntities() {
+        final TileEntityTicker ticker = this.world.getTileEntityTicker();
+        getTileEntities().forEach(tileEntity -> ticker.remove((LanternTileEntity) tileEntity));
+    }
+
     public void addEntity(LanternEntity entity, int section) {
         this.entities[section].add(entity);
     }
@@ -1831,6 +1834,16 @@ public boolean isPopulated() {
         return this.populated;
     }
 
+    /**
+     * Gets whether this chunk is queued for population
+     * or is currently being populated.
+     *
+     * @return Is populating
+     */
+    public boolean isPopulating() {
+        return this.populating.get();
+    }
+
     @Override
     public boolean loadChunk(boolean generate) {
         if (this.world.getChunkManager().load(this, CauseStack.currentOrEmpty(), generate)) {
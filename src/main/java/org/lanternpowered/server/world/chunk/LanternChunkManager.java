@@ -46,16 +46,23 @@
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
+import io.netty.util.concurrent.FastThreadLocal;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
 import org.lanternpowered.server.config.world.WorldConfig;
 import org.lanternpowered.server.data.io.ChunkIOService;
 import org.lanternpowered.server.event.CauseStack;
+import org.lanternpowered.server.event.LanternEventManager;
 import org.lanternpowered.server.game.DirectoryKeys;
 import org.lanternpowered.server.game.Lantern;
 import org.lanternpowered.server.game.LanternGame;
 import org.lanternpowered.server.game.registry.type.block.BlockRegistryModule;
 import org.lanternpowered.server.plugin.InternalPluginsInfo;
+import org.lanternpowered.server.timings.TimingCategory;
+import org.lanternpowered.server.timings.Timings;
 import org.lanternpowered.server.util.ThreadHelper;
+import org.lanternpowered.server.util.collect.concurrent.ConcurrentLong2ObjectHashMap;
 import org.lanternpowered.server.util.concurrent.FastSoftThreadLocal;
+import org.lanternpowered.server.util.concurrent.FastThreadLocals;
 import org.lanternpowered.server.util.gen.biome.ObjectArrayImmutableBiomeBuffer;
 import org.lanternpowered.server.util.gen.biome.ShortArrayMutableBiomeBuffer;
 import org.lanternpowered.server.util.gen.block.AbstractMutableBlockBuffer;
@@ -70,9 +77,12 @@
 import org.spongepowered.api.block.BlockState;
 import org.spongepowered.api.block.BlockTypes;
 import org.spongepowered.api.entity.Entity;
-import org.spongepowered.api.event.EventManager;
 import org.spongepowered.api.event.SpongeEventFactory;
 import org.spongepowered.api.event.cause.Cause;
+import org.spongepowered.api.event.world.chunk.GenerateChunkEvent;
+import org.spongepowered.api.event.world.chunk.LoadChunkEvent;
+import org.spongepowered.api.event.world.chunk.PopulateChunkEvent;
+import org.spongepowered.api.event.world.chunk.UnloadChunkEvent;
 import org.spongepowered.api.plugin.PluginContainer;
 import org.spongepowered.api.world.Chunk;
 import org.spongepowered.api.world.ChunkTicketManager;
@@ -96,6 +106,7 @@
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -111,12 +122,13 @@
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
@@ -126,6 +138,12 @@ public final class LanternChunkManager {
     // The maximum amount of threads that can load chunks asynchronously
     private static final int CHUNK_LOADING_MAX_POOL_SIZE = 10;
 
+    /**
+     * The maximum amount of seconds to wait for a background task
+     * or the chunk tasks to stop.
+     */
+    private static final int BACKGROUND_TASK_TIMEOUT = 30;
+
     // The core amount of threads that can load chunks asynchronously
     private static final int CHUNK_LOADING_CORE_POOL_SIZE = 4;
 
@@ -134,13 +152,30 @@ public final class LanternChunkManager {
     private static final long UNLOAD_DELAY = TimeUnit.SECONDS.toMillis(1);
 
     // All the attached tickets mapped by the forced chunk coordinates
-    private final Map<Vector2i, Set<ChunkLoadingTicket>> ticketsByPos = new ConcurrentHashMap<>();
+    private final ConcurrentLong2ObjectHashMap<Set<ChunkLoadingTicket>> ticketsByPos = new ConcurrentLong2ObjectHashMap<>();
 
     // All the loading tickets that are still usable
     private final Set<LanternLoadingTicket> tickets = Sets.newConcurrentHashSet();
 
+    // The background tasks that load chunks of this manager
+    private final Set<BackgroundTask> backgroundTasks = Sets.newConcurrentHashSet();
+
     // All the chunks that are loaded into the server
-    private final Map<Vector2i, LanternChunk> loadedChunks = new ConcurrentHashMap<>();
+    private final ConcurrentLong2ObjectHashMap<LanternChunk> loadedChunks = new ConcurrentLong2ObjectHashMap<>();
+
+    // A counter that is increased every time that a chunk is removed from the
+    // loaded chunks, used to invalidate the last accessed chunk caches
+    private final AtomicInteger unloadCounter = new AtomicInteger();
+
+    private static final class LastChunk {
+
+        @Nullable LanternChunk chunk;
+        int unloadCounter;
+    }
+
+    // The last chunk that was accessed by every thread, successive block
+    // accesses are most of the time located in the same chunk
+    private final FastThreadLocal<LastChunk> lastChunk = FastThreadLocals.withInitial(LastChunk::new);
 
     // A cache that can be used to get chunks that weren't unloaded
     // so much after all, because of active references to the chunk
@@ -151,6 +186,10 @@ public final class LanternChunkManager {
     // and using a queue for removal should prevent the chunks from unloading too early
     private final Queue<UnloadingChunkEntry> pendingForUnload = new ConcurrentLinkedQueue<>();
 
+    // The chunks that still need to be saved by the current
+    // incremental save, only accessed by the world thread
+    private final Queue<LanternChunk> saveQueue = new ArrayDeque<>();
+
     private final PluginContainer minecraftPluginContainer;
 
     private class UnloadingChunkEntry {
@@ -176,24 +215,20 @@ public int hashCode() {
 
     // All the futures that will cause chunk loading/unloading, they are stored
     // here to allow them to be cancelled
-    private final Map<Vector2i, LanternChunkQueueTask> chunkQueueTasks = new ConcurrentHashMap<>();
+    private final ConcurrentLong2ObjectHashMap<LanternChunkQueueTask> chunkQueueTasks = new ConcurrentLong2ObjectHashMap<>();
 
     // The chunk load executor
     private final ThreadPoolExecutor chunkTaskExecutor = new ThreadPoolExecutor(
             CHUNK_LOADING_CORE_POOL_SIZE, CHUNK_LOADING_MAX_POOL_SIZE, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
             ThreadHelper.newFastThreadLocalThreadFactory());
 
+    // The population tasks that reserved the chunks, by chunk key
+    private final ConcurrentLong2ObjectHashMap<PopulationTask> populationReservations = new ConcurrentLong2ObjectHashMap<>();
+
     // Some objects that can be used in {@link Chunk} population.
     private class PopulationData {
 
         private final Random random = new Random();
-        private final ChunkLoadingTicket lockTicket = new InternalLoadingTicket();
-    }
-
-    private LanternChunkQueueTask queueTask(Vector2i coords, Runnable runnable) {
-        final LanternChunkQueueTask task = new LanternChunkQueueTask(coords, runnable);
-        task.setFuture(this.chunkTaskExecutor.submit(task));
-        return task;
     }
 
     private class LanternChunkQueueTask implements Callable<Void> {
@@ -287,7 +322,7 @@ public void run() {
     }
 
     private void doChunkLoad(Vector2i coords) {
-        Set<ChunkLoadingTicket> tickets = this.ticketsByPos.get(coords);
+        Set<ChunkLoadingTicket> tickets = this.ticketsByPos.get(key(coords));
         if (tickets == null) {
             return;
         }
@@ -383,7 +418,7 @@ public WorldGenerator getWorldGenerator() {
      * @return has ticket
      */
     public boolean hasTicket(Vector2i coords) {
-        return this.ticketsByPos.containsKey(checkNotNull(coords, "coords"));
+        return this.ticketsByPos.containsKey(key(checkNotNull(coords, "coords")));
     }
 
     /**
@@ -395,7 +430,7 @@ public boolean hasTicket(Vector2i coords) {
      * @return has ticket
      */
     public boolean hasTicket(int x, int z) {
-        return this.ticketsByPos.containsKey(new Vector2i(x, z));
+        return this.ticketsByPos.containsKey(LanternChunk.key(x, z));
     }
 
     /**
@@ -406,9 +441,11 @@ public boolean hasTicket(int x, int z) {
     public ImmutableSetMultimap<Vector3i, LoadingTicket> getForced() {
         final ImmutableSetMultimap.Builder<Vector3i, LoadingTicket> builder =
                 ImmutableSetMultimap.builder();
-        for (Entry<Vector2i, Set<ChunkLoadingTicket>> en : this.ticketsByPos.entrySet()) {
-            final Vector2i pos0 = en.getKey();
-            final Vector3i pos = new Vector3i(pos0.getX(), 0, pos0.getY());
+        final Iterator<Long2ObjectMap.Entry<Set<ChunkLoadingTicket>>> it = this.ticketsByPos.entryIterator();
+        while (it.hasNext()) {
+            final Long2ObjectMap.Entry<Set<ChunkLoadingTicket>> en = it.next();
+            final long key = en.getLongKey();
+            final Vector3i pos = new Vector3i(LanternChunk.keyX(key), 0, LanternChunk.keyZ(key));
             for (ChunkLoadingTicket ticket : en.getValue()) {
                 builder.put(pos, ticket);
             }
@@ -589,21 +626,60 @@ public LanternChunk getChunk(Vector2i coords) {
 
     @Nullable
     public LanternChunk getChunkIfLoaded(Vector2i coords) {
-        final LanternChunk chunk = this.loadedChunks.get(checkNotNull(coords, "coords"));
-        if (chunk != null && !chunk.loaded) {
+        checkNotNull(coords, "coords");
+        return getChunkIfLoaded(coords.getX(), coords.getY());
+    }
+
+    @Nullable
+    public LanternChunk getChunkIfLoaded(int x, int z) {
+        final long key = LanternChunk.key(x, z);
+        final LastChunk lastChunk = this.lastChunk.get();
+        LanternChunk chunk = getLastChunk(lastChunk, key);
+        if (chunk != null) {
+            return chunk;
+        }
+        // Read the counter before the lookup, an unload in between will
+        // result in a outdated counter instead of a outdated chunk
+        final int unloadCounter = this.unloadCounter.get();
+        chunk = this.loadedChunks.get(key);
+        if (chunk == null || !chunk.loaded) {
             return null;
         }
+        lastChunk.chunk = chunk;
+        lastChunk.unloadCounter = unloadCounter;
         return chunk;
     }
 
+    /**
+     * Gets the last chunk that was accessed by the current thread
+     * if it matches the key and if it's still loaded.
+     *
+     * @param lastChunk The last chunk cache of the current thread
+     * @param key The key of the chunk
+     * @return The chunk, or {@code null} if not cached
+     */
     @Nullable
-    public LanternChunk getChunkIfLoaded(int x, int z) {
-        return getChunkIfLoaded(new Vector2i(x, z));
+    private LanternChunk getLastChunk(LastChunk lastChunk, long key) {
+        final LanternChunk chunk = lastChunk.chunk;
+        if (chunk != null && chunk.getKey() == key && chunk.loaded &&
+                lastChunk.unloadCounter == this.unloadCounter.get()) {
+            return chunk;
+        }
+        return null;
+    }
+
+    private static long key(Vector2i coords) {
+        return LanternChunk.key(coords.getX(), coords.getY());
     }
 
     @Nullable
     private LanternChunk getChunk(Vector2i coords, boolean wait) {
-        final LanternChunk chunk = this.loadedChunks.get(checkNotNull(coords, "coords"));
+        return getChunk(key(checkNotNull(coords, "coords")), wait);
+    }
+
+    @Nullable
+    private LanternChunk getChunk(long key, boolean wait) {
+        final LanternChunk chunk = this.loadedChunks.get(key);
         if (wait && chunk != null && !chunk.loaded &&
                 chunk.lockState == LanternChunk.LockState.LOADING) {
             // Wait for the chunk to finish loading
@@ -621,7 +697,7 @@ private LanternChunk getChunk(Vector2i coords, boolean wait) {
      */
     @Nullable
     public LanternChunk getChunk(int x, int z) {
-        return getChunk(new Vector2i(x, z));
+        return getChunk(LanternChunk.key(x, z), true);
     }
 
     /**
@@ -647,7 +723,11 @@ public LanternChunk getOrLoadChunk(int x, int z) {
      * @return the chunk
      */
     public LanternChunk getOrCreateChunk(int x, int z, boolean generate) {
-        return getOrCreateChunk(x, z, CauseStack.currentOrEmpty(), generate);
+        final LanternChunk chunk = getLoadedChunk(x, z);
+        if (chunk != null) {
+            return chunk;
+        }
+        return getOrCreateChunk(new Vector2i(x, z), CauseStack.currentOrEmpty(), generate);
     }
 
     /**
@@ -659,9 +739,47 @@ public LanternChunk getOrCreateChunk(int x, int z, boolean generate) {
      * @return the chunk
      */
     public LanternChunk getOrCreateChunk(int x, int z, CauseStack causeStack, boolean generate) {
+        final LanternChunk chunk = getLoadedChunk(x, z);
+        if (chunk != null) {
+            return chunk;
+        }
         return getOrCreateChunk(new Vector2i(x, z), causeStack, generate);
     }
 
+    /**
+     * Gets the chunk at the coordinates if it's loaded, and queues it for
+     * unloading again like every other access through {@code getOrCreateChunk},
+     * the previous entry may already be processed.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     * @return the chunk, or null if it isn't loaded
+     */
+    @Nullable
+    private LanternChunk getLoadedChunk(int x, int z) {
+        final LanternChunk chunk = getChunkIfLoaded(x, z);
+        if (chunk != null) {
+            queueUnload(chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Queues the chunk for unloading if there are no tickets that
+     * keep it loaded, and if it isn't already pending for unload.
+     *
+     * @param chunk the chunk
+     */
+    private void queueUnload(LanternChunk chunk) {
+        // Check the flag first, this is the common case and doesn't allocate
+        if (chunk.pendingUnload.get() || this.ticketsByPos.containsKey(LanternChunk.key(chunk.getX(), chunk.getZ()))) {
+            return;
+        }
+        if (chunk.pendingUnload.compareAndSet(false, true)) {
+            this.pendingForUnload.add(new UnloadingChunkEntry(chunk.getCoords()));
+        }
+    }
+
     /**
      * Gets a chunk safely (new one will be created) for the coordinates, may
      * not be loaded yet.
@@ -686,38 +804,38 @@ public LanternChunk getOrCreateChunk(Vector2i coords, CauseStack cause, boolean
      */
     private LanternChunk getOrCreateChunk(Vector2i coords, CauseStack causeStack, boolean generate, boolean wait) {
         checkNotNull(causeStack, "causeStack");
-        LanternChunk chunk = this.loadedChunks.get(checkNotNull(coords, "coords"));
+        final long key = key(checkNotNull(coords, "coords"));
+        LanternChunk chunk = this.loadedChunks.get(key);
         // Chunk is already loaded
         if (chunk != null) {
-            if (!this.ticketsByPos.containsKey(coords)) {
-                this.pendingForUnload.add(new UnloadingChunkEntry(coords));
-            }
+            queueUnload(chunk);
             return chunk;
         }
         // Lets try to visit the graveyard, try to retrieve chunks that where
         // not gc yet, allowing us to reuse them to avoid loading a new chunk
         chunk = this.reusableChunks.get(coords);
         if (chunk != null) {
-            this.loadedChunks.put(coords, chunk);
+            this.loadedChunks.put(key, chunk);
             this.reusableChunks.remove(coords);
-            if (!this.ticketsByPos.containsKey(coords)) {
-                this.pendingForUnload.add(new UnloadingChunkEntry(coords));
+            // The entry of the previous unload was already processed
+            chunk.pendingUnload.set(false);
+            queueUnload(chunk);
+            if (this.game.getEventManager().hasListeners(LoadChunkEvent.class)) {
+                this.game.getEventManager().post(SpongeEventFactory.createLoadChunkEvent(causeStack.getCurrentCause(), chunk));
             }
-            this.game.getEventManager().post(SpongeEventFactory.createLoadChunkEvent(causeStack.getCurrentCause(), chunk));
             this.world.getEventListener().onLoadChunk(chunk);
             // Resurrect all the entities in the chunk
             chunk.resurrectEntities();
             this.world.addEntities(chunk.getEntities());
+            chunk.registerTileEntities();
             return chunk;
         }
-        boolean[] newChunk = new boolean[1];
-        // Finally, create a new chunk if needed
-        chunk = this.loadedChunks.computeIfAbsent(coords, coords0 -> {
-            newChunk[0] = true;
-            return new LanternChunk(this.world, coords0.getX(), coords0.getY());
-        });
+        // Finally, create a new chunk if needed, the chunk is constructed
+        // outside the lock of the map and discarded if another thread was first
+        final LanternChunk newChunk = new LanternChunk(this.world, coords.getX(), coords.getY());
+        chunk = this.loadedChunks.putIfAbsent(key, newChunk);
         // This method call was too late
-        if (!newChunk[0]) {
+        if (chunk != null) {
             // If the chunk is already loaded, just return it
             if (chunk.loaded) {
                 return chunk;
@@ -733,12 +851,11 @@ private LanternChunk getOrCreateChunk(Vector2i coords, CauseStack causeStack, bo
             // Loading is not triggered?
             return chunk;
         }
+        chunk = newChunk;
         // Try to load the chunk
         load(chunk, causeStack, generate);
         this.world.addEntities(chunk.getEntities());
-        if (!this.ticketsByPos.containsKey(coords)) {
-            this.pendingForUnload.add(new UnloadingChunkEntry(coords));
-        }
+        queueUnload(chunk);
         return chunk;
     }
 
@@ -781,64 +898,166 @@ private static Vector2i[] getSides(Vector2i center) {
      * +----------+----------+
      *
      * @param chunk the chunk
+     * @param cause the cause
      */
-    private void tryPopulateSurroundingChunks(LanternChunk chunk, Cause cause) {
-        final Vector2i pos = chunk.chunkPos;
-        final Vector2i[] sides = getSides(pos);
-        final PopulationData populationData = this.populationData.get();
-        final Random random = populationData.random;
-        // TODO: Populating must be done in the sync thread???
-        for (Vector2i side : sides) {
-            lockInternally(side, populationData.lockTicket);
-        }
-        LanternChunk up = isChunkLoaded(sides[UP]);
-        LanternChunk right = isChunkLoaded(sides[RIGHT]);
-        LanternChunk rightUp = isChunkLoaded(sides[RIGHT_UP]);
-        if (up != null && right != null && rightUp != null) {
-            if (!chunk.populating && !chunk.populated) {
-                populateChunk(chunk, cause, random);
-            }
-        }
-        LanternChunk left = isChunkLoaded(sides[LEFT]);
-        LanternChunk leftDown = isChunkLoaded(sides[LEFT_DOWN]);
-        LanternChunk down = isChunkLoaded(sides[DOWN]);
+    private void queuePopulationOfSurroundingChunks(LanternChunk chunk, Cause cause) {
+        final Vector2i[] sides = getSides(chunk.chunkPos);
+        final LanternChunk up = isChunkLoaded(sides[UP]);
+        final LanternChunk right = isChunkLoaded(sides[RIGHT]);
+        final LanternChunk left = isChunkLoaded(sides[LEFT]);
+        final LanternChunk down = isChunkLoaded(sides[DOWN]);
+        if (up != null && right != null && isChunkLoaded(sides[RIGHT_UP]) != null) {
+            queuePopulation(chunk, cause);
+        }
+        final LanternChunk leftDown = isChunkLoaded(sides[LEFT_DOWN]);
         if (leftDown != null && left != null && down != null) {
-            if (!leftDown.populating && !leftDown.populated) {
-                populateChunk(leftDown, cause, random);
-            }
+            queuePopulation(leftDown, cause);
+        }
+        if (left != null && up != null && isChunkLoaded(sides[LEFT_UP]) != null) {
+            queuePopulation(left, cause);
         }
-        if (up == null) { // Maybe it is loaded by now?
-            up = isChunkLoaded(sides[UP]);
+        if (down != null && right != null && isChunkLoaded(sides[RIGHT_DOWN]) != null) {
+            queuePopulation(down, cause);
         }
-        if (left == null) { // Maybe it is loaded by now?
-            left = isChunkLoaded(sides[LEFT]);
+    }
+
+    private void queuePopulation(LanternChunk chunk, Cause cause) {
+        // Only one population task can be queued per chunk
+        if (chunk.populated || !chunk.populating.compareAndSet(false, true)) {
+            return;
         }
-        LanternChunk leftUp = isChunkLoaded(sides[LEFT_UP]);
-        if (left != null && leftUp != null && up != null) {
-            if (!left.populating && !left.populated) {
-                populateChunk(left, cause, random);
+        final PopulationTask task = new PopulationTask(chunk, cause);
+        // Keep the chunks of the window loaded until they are populated
+        for (Vector2i coords : task.window) {
+            lockInternally(coords, task.ticket);
+        }
+        task.submit();
+    }
+
+    /**
+     * Populates a chunk, populating modifies the chunk itself and the chunks at the
+     * positive x and z sides. The tasks reserve these four chunks, so tasks of windows
+     * that don't overlap can run at the same time. A task that can't reserve its window
+     * waits for the task that holds the reservation, instead of blocking a thread.
+     * <p>
+     * Generated chunks are loaded in two phases, the {@link LoadChunkEvent} is posted
+     * once the chunk is generated and the population follows later, when all the chunks
+     * of the window are loaded. The {@link PopulateChunkEvent.Post} marks the end of the
+     * population, the chunk isn't send to players while it's being populated.
+     * <p>
+     * The tasks run on the chunk task executor, so the same {@link Populator}
+     * can be used by multiple tasks at the same time.
+     */
+    private final class PopulationTask implements Runnable {
+
+        private final LanternChunk chunk;
+        private final Cause cause;
+        private final Vector2i[] window;
+        private final ChunkLoadingTicket ticket = new InternalLoadingTicket();
+
+        // The tasks that are waiting for this task to release its
+        // reservations, or null if they are already released
+        @Nullable private List<PopulationTask> waiters = new ArrayList<>();
+
+        private PopulationTask(LanternChunk chunk, Cause cause) {
+            final Vector2i pos = chunk.chunkPos;
+            this.chunk = chunk;
+            this.cause = cause;
+            this.window = new Vector2i[] { pos, pos.add(1, 0), pos.add(0, 1), pos.add(1, 1) };
+        }
+
+        @Override
+        public void run() {
+            if (!reserve()) {
+                return;
+            }
+            try {
+                //noinspection ConstantConditions
+                populateChunk(this.chunk, this.cause, populationData.get().random);
+            } catch (Throwable t) {
+                game.getLogger().error("Error while populating chunk ({};{})", this.chunk.getX(), this.chunk.getZ(), t);
+                this.chunk.populating.set(false);
+            } finally {
+                try {
+                    release();
+                } finally {
+                    unlockWindow();
+                }
             }
         }
-        if (right == null) { // Maybe it is loaded by now?
-            right = isChunkLoaded(sides[RIGHT]);
+
+        /**
+         * Submits this task to the executor, the task is aborted
+         * if the executor is already shut down.
+         */
+        private void submit() {
+            try {
+                chunkTaskExecutor.execute(this);
+            } catch (RejectedExecutionException e) {
+                this.chunk.populating.set(false);
+                unlockWindow();
+            }
         }
-        if (down == null) { // Maybe it is loaded by now?
-            down = isChunkLoaded(sides[DOWN]);
+
+        private void unlockWindow() {
+            for (Vector2i coords : this.window) {
+                unlockInternally(coords, this.ticket);
+                // The chunk may have skipped unloading while the window was held
+                final LanternChunk windowChunk = loadedChunks.get(key(coords));
+                if (windowChunk != null) {
+                    queueUnload(windowChunk);
+                }
+            }
         }
-        LanternChunk rightDown = isChunkLoaded(sides[RIGHT_DOWN]);
-        if (down != null && rightDown != null && right != null) {
-            if (!down.populating && !down.populated) {
-                populateChunk(down, cause, random);
+
+        /**
+         * Attempts to reserve all the chunks of the window.
+         *
+         * @return Whether it was successful, otherwise this task will be resubmitted later
+         */
+        private boolean reserve() {
+            int index = 0;
+            while (index < this.window.length) {
+                final PopulationTask other = populationReservations.putIfAbsent(key(this.window[index]), this);
+                if (other == null) {
+                    index++;
+                    continue;
+                }
+                for (int i = 0; i < index; i++) {
+                    populationReservations.remove(key(this.window[i]), this);
+                }
+                if (other.addWaiter(this)) {
+                    return false;
+                }
+                // The other task released its reservations in the mean time
+                index = 0;
             }
+            return true;
+        }
+
+        private void release() {
+            for (Vector2i coords : this.window) {
+                populationReservations.remove(key(coords), this);
+            }
+            final List<PopulationTask> waiters;
+            synchronized (this) {
+                waiters = this.waiters;
+                this.waiters = null;
+            }
+            //noinspection ConstantConditions
+            waiters.forEach(PopulationTask::submit);
         }
-        for (Vector2i side : sides) {
-            unlockInternally(side, populationData.lockTicket);
+
+        private synchronized boolean addWaiter(PopulationTask task) {
+            if (this.waiters == null) {
+                return false;
+            }
+            this.waiters.add(task);
+            return true;
         }
     }
 
     private void populateChunk(LanternChunk chunk, Cause cause, Random random) {
-        chunk.populating = true;
-
         // Populate
         int chunkX = chunk.getX() * 16;
         int chunkZ = chunk.getZ() * 16;
@@ -872,7 +1091,7 @@ private void populateChunk(LanternChunk chunk, Cause cause, Random random) {
         final List<Populator> populators = new LinkedList<>(biomeGenSettings.getPopulators());
         populators.addAll(this.worldGenerator.getPopulators());
 
-        final EventManager eventManager = Sponge.getEventManager();
+        final LanternEventManager eventManager = this.game.getEventManager();
 
         final Vector3i min = new Vector3i(chunkX + 8, 0, chunkZ + 8);
         final Extent volume = new SoftBufferExtentViewDownsize(chunk.getWorld(), min, min.add(15, 0, 15), min.sub(8, 0, 8), min.add(23, 0, 23));
@@ -880,22 +1099,36 @@ private void populateChunk(LanternChunk chunk, Cause cause, Random random) {
         // Call the pre populate event, this allows
         // modifications to the populators list
         // Called before a chunk begins populating. (javadoc)
-        eventManager.post(SpongeEventFactory.createPopulateChunkEventPre(cause, populators, chunk));
+        if (eventManager.hasListeners(PopulateChunkEvent.Pre.class)) {
+            eventManager.post(SpongeEventFactory.createPopulateChunkEventPre(cause, populators, chunk));
+        }
 
         // First populate the chunk with the biome populators
+        final boolean postPopulate = eventManager.hasListeners(PopulateChunkEvent.Populate.class);
+        final boolean timings = Timings.isEnabled();
         for (Populator populator : populators) {
             // Called when a populator is about to run against a chunk. (javadoc)
-            eventManager.post(SpongeEventFactory.createPopulateChunkEventPopulate(cause, populator, chunk));
-            populator.populate(this.world, volume, random);
+            if (postPopulate) {
+                eventManager.post(SpongeEventFactory.createPopulateChunkEventPopulate(cause, populator, chunk));
+            }
+            if (timings) {
+                final long start = System.nanoTime();
+                populator.populate(this.world, volume, random);
+                Timings.get(TimingCategory.POPULATOR, populator.getType()).record(System.nanoTime() - start);
+            } else {
+                populator.populate(this.world, volume, random);
+            }
         }
 
         // Called when a chunk finishes populating. (javadoc)
-        eventManager.post(SpongeEventFactory.createPopulateChunkEventPost(cause, ImmutableList.copyOf(populators), chunk));
+        if (eventManager.hasListeners(PopulateChunkEvent.Post.class)) {
+            eventManager.post(SpongeEventFactory.createPopulateChunkEventPost(cause, ImmutableList.copyOf(populators), chunk));
+        }
         this.world.getEventListener().onPopulateChunk(chunk);
 
         // We are done
         chunk.populated = true;
-        chunk.populating = false;
+        chunk.populating.set(false);
     }
 
     @Nullable
@@ -944,9 +1177,10 @@ private boolean load0(LanternChunk chunk, CauseStack causeStack, boolean generat
             }
         }
         boolean success = true;
+        Cause populateCause = null;
         try {
             chunk.lockState = LanternChunk.LockState.LOADING;
-            final LanternChunkQueueTask task = this.chunkQueueTasks.remove(chunk.getCoords());
+            final LanternChunkQueueTask task = this.chunkQueueTasks.remove(chunk.getKey());
             // Try to cancel the task, the task will probably be ignored
             // because we are already locked
             if (task != null) {
@@ -955,7 +1189,9 @@ private boolean load0(LanternChunk chunk, CauseStack causeStack, boolean generat
             try {
                 // Try to load the chunk
                 if (this.chunkIOService.read(chunk)) {
-                    this.game.getEventManager().post(SpongeEventFactory.createLoadChunkEvent(causeStack.getCurrentCause(), chunk));
+                    if (this.game.getEventManager().hasListeners(LoadChunkEvent.class)) {
+                        this.game.getEventManager().post(SpongeEventFactory.createLoadChunkEvent(causeStack.getCurrentCause(), chunk));
+                    }
                     this.world.getEventListener().onLoadChunk(chunk);
                     return true;
                 }
@@ -979,9 +1215,11 @@ private boolean load0(LanternChunk chunk, CauseStack causeStack, boolean generat
                 this.game.getLogger().error("Error while generating chunk ({};{})", chunk.getX(), chunk.getZ(), e);
                 return success = false;
             }
-            // Try to populate the chunk
-            tryPopulateSurroundingChunks(chunk, cause0);
-            this.game.getEventManager().post(SpongeEventFactory.createLoadChunkEvent(cause0, chunk));
+            // The chunk can only be populated once it's marked as loaded
+            populateCause = cause0;
+            if (this.game.getEventManager().hasListeners(LoadChunkEvent.class)) {
+                this.game.getEventManager().post(SpongeEventFactory.createLoadChunkEvent(cause0, chunk));
+            }
             this.world.getEventListener().onLoadChunk(chunk);
             return true;
         } finally {
@@ -990,6 +1228,10 @@ private boolean load0(LanternChunk chunk, CauseStack causeStack, boolean generat
             chunk.loadingSuccess = success;
             chunk.lockCondition.signalAll();
             chunk.lock.unlock();
+            if (populateCause != null) {
+                // Queue the population of this chunk and the surrounding ones
+                queuePopulationOfSurroundingChunks(chunk, populateCause);
+            }
         }
     }
 
@@ -1000,8 +1242,10 @@ private boolean load0(LanternChunk chunk, CauseStack causeStack, boolean generat
      * @param cause The cause
      */
     private void generate(LanternChunk chunk, Cause cause) {
-        final EventManager eventManager = Sponge.getEventManager();
-        eventManager.post(SpongeEventFactory.createGenerateChunkEventPre(cause, chunk));
+        final LanternEventManager eventManager = this.game.getEventManager();
+        if (eventManager.hasListeners(GenerateChunkEvent.Pre.class)) {
+            eventManager.post(SpongeEventFactory.createGenerateChunkEventPre(cause, chunk));
+        }
 
         final GenerationBuffers buffers = this.genBuffers.get();
         //noinspection ConstantConditions
@@ -1051,7 +1295,9 @@ private void generate(LanternChunk chunk, Cause cause) {
         chunk.initializeHeightMap(null);
         chunk.initializeLight();
 
-        eventManager.post(SpongeEventFactory.createGenerateChunkEventPost(cause, chunk));
+        if (eventManager.hasListeners(GenerateChunkEvent.Post.class)) {
+            eventManager.post(SpongeEventFactory.createGenerateChunkEventPost(cause, chunk));
+        }
     }
 
     private static final Vector3i CHUNK_SIZE = new Vector3i(
@@ -1247,8 +1493,9 @@ public boolean unload(LanternChunk chunk, CauseStack causeStack) {
 
     private boolean unload0(LanternChunk chunk, CauseStack causeStack, boolean wait) {
         final Vector2i coords = chunk.getCoords();
+        final long key = chunk.getKey();
         // Forced chunks cannot be unloaded
-        if (this.ticketsByPos.containsKey(coords)) {
+        if (this.ticketsByPos.containsKey(key)) {
             chunk.unloadingSuccess = false;
             return false;
         }
@@ -1273,20 +1520,24 @@ private boolean unload0(LanternChunk chunk, CauseStack causeStack, boolean wait)
             if (!chunk.loaded) {
                 return true;
             }
-            final LanternChunkQueueTask task = this.chunkQueueTasks.remove(coords);
+            final LanternChunkQueueTask task = this.chunkQueueTasks.remove(key);
             // Try to cancel all the current tasks
             if (task != null) {
                 task.cancel();
             }
             // Post the chunk unload event
-            this.game.getEventManager().post(SpongeEventFactory.createUnloadChunkEvent(causeStack.getCurrentCause(), chunk));
+            if (this.game.getEventManager().hasListeners(UnloadChunkEvent.class)) {
+                this.game.getEventManager().post(SpongeEventFactory.createUnloadChunkEvent(causeStack.getCurrentCause(), chunk));
+            }
             this.world.getEventListener().onUnloadChunk(chunk);
             // Remove from the loaded chunks
-            this.loadedChunks.remove(coords);
+            this.loadedChunks.remove(key);
+            this.unloadCounter.incrementAndGet();
             // Move the chunk to the graveyard
             this.reusableChunks.put(coords, chunk);
             // Bury the entities
             chunk.buryEntities();
+            chunk.unregisterTileEntities();
             save0(chunk);
             return true;
         } finally {
@@ -1297,6 +1548,105 @@ private boolean unload0(LanternChunk chunk, CauseStack causeStack, boolean wait)
         }
     }
 
+    /**
+     * Represents a task that loads chunks of this chunk manager outside
+     * the world thread, for example the chunk pre-generation.
+     */
+    public interface BackgroundTask {
+
+        /**
+         * Cancels the task, the task should release
+         * all its chunks as soon as possible.
+         */
+        void cancel();
+
+        /**
+         * Waits until the task is stopped.
+         *
+         * @param timeout The maximum time to wait
+         * @param unit The unit of the timeout
+         * @return Whether the task stopped before the timeout
+         * @throws InterruptedException If the thread was interrupted while waiting
+         */
+        boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException;
+    }
+
+    /**
+     * Adds a {@link BackgroundTask}, the task will be cancelled
+     * and awaited before this chunk manager shuts down.
+     *
+     * @param task The background task
+     */
+    public void addBackgroundTask(BackgroundTask task) {
+        checkNotNull(task, "task");
+        this.backgroundTasks.add(task);
+    }
+
+    /**
+     * Removes a {@link BackgroundTask}.
+     *
+     * @param task The background task
+     */
+    public void removeBackgroundTask(BackgroundTask task) {
+        checkNotNull(task, "task");
+        this.backgroundTasks.remove(task);
+    }
+
+    private void stopBackgroundTasks() {
+        final List<BackgroundTask> tasks = new ArrayList<>(this.backgroundTasks);
+        tasks.forEach(BackgroundTask::cancel);
+        for (BackgroundTask task : tasks) {
+            try {
+                if (!task.awaitTermination(BACKGROUND_TASK_TIMEOUT, TimeUnit.SECONDS)) {
+                    this.game.getLogger().warn("The background task {} didn't stop within {} seconds", task, BACKGROUND_TASK_TIMEOUT);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        this.backgroundTasks.clear();
+    }
+
+    /**
+     * Creates a new {@link ChunkLoadingTicket} that can be used to
+     * hold chunks internally, see {@link #hold(Vector2i, ChunkLoadingTicket)}.
+     *
+     * @return The internal ticket
+     */
+    public ChunkLoadingTicket createInternalTicket() {
+        return new InternalLoadingTicket();
+    }
+
+    /**
+     * Holds the chunk at the coordinates with the internal ticket, the chunk won't be
+     * unloaded until it's released through {@link #release(Vector2i, ChunkLoadingTicket, CauseStack)}.
+     * This method does not trigger the loading of the chunk.
+     *
+     * @param coords The coordinates
+     * @param ticket The internal ticket
+     */
+    public void hold(Vector2i coords, ChunkLoadingTicket ticket) {
+        checkNotNull(coords, "coords");
+        checkNotNull(ticket, "ticket");
+        lockInternally(coords, ticket);
+    }
+
+    /**
+     * Releases the chunk at the coordinates from the internal ticket and unloads
+     * it directly if there are no tickets left, instead of waiting for the unload queue.
+     *
+     * @param coords The coordinates
+     * @param ticket The internal ticket
+     * @param causeStack The cause stack
+     * @return Whether the chunk was unloaded
+     */
+    public boolean release(Vector2i coords, ChunkLoadingTicket ticket, CauseStack causeStack) {
+        checkNotNull(coords, "coords");
+        checkNotNull(ticket, "ticket");
+        return unlockInternally(coords, ticket) && !this.ticketsByPos.containsKey(key(coords)) && unload(coords, causeStack);
+    }
+
     /**
      * Locks the chunk of the coordinates with a internal loading ticket. This
      * method does not trigger the loading of a chunk but locks the chunk from
@@ -1307,7 +1657,7 @@ private boolean unload0(LanternChunk chunk, CauseStack causeStack, boolean wait)
      */
     private boolean lockInternally(Vector2i coords, ChunkLoadingTicket ticket) {
         final boolean[] empty = new boolean[1];
-        this.ticketsByPos.computeIfAbsent(coords, coords0 -> {
+        this.ticketsByPos.computeIfAbsent(key(coords), key0 -> {
             empty[0] = true;
             return Sets.newConcurrentHashSet();
         }).add(ticket);
@@ -1315,10 +1665,11 @@ private boolean lockInternally(Vector2i coords, ChunkLoadingTicket ticket) {
     }
 
     private boolean unlockInternally(Vector2i coords, ChunkLoadingTicket ticket) {
-        final Set<ChunkLoadingTicket> set = this.ticketsByPos.get(coords);
+        final long key = key(coords);
+        final Set<ChunkLoadingTicket> set = this.ticketsByPos.get(key);
         if (set != null && set.remove(ticket)) {
             if (set.isEmpty()) {
-                this.ticketsByPos.remove(coords);
+                this.ticketsByPos.remove(key);
             }
             return true;
         }
@@ -1349,6 +1700,9 @@ void force(LanternLoadingTicket ticket, Vector2i coords, boolean callEvents) {
         lockInternally(coords, ticket);
         // Remove from unload through loadChunk
         this.pendingForUnload.removeIf(e -> e.coords.equals(coords));
+        if (chunk != null) {
+            chunk.pendingUnload.set(false);
+        }
         // Whether the chunk should be queued for loading
         boolean queueLoad = false;
         if (chunk != null) {
@@ -1360,10 +1714,15 @@ void force(LanternLoadingTicket ticket, Vector2i coords, boolean callEvents) {
             queueLoad = true;
         }
         if (queueLoad) {
-            LanternChunkQueueTask task = this.chunkQueueTasks.get(coords);
+            final long key = key(coords);
+            LanternChunkQueueTask task = this.chunkQueueTasks.get(key);
             if (task == null || !(task.runnable instanceof LanternChunkLoadTask)) {
-                this.chunkQueueTasks.computeIfAbsent(coords, coords1 ->
-                        queueTask(coords1, new LanternChunkLoadTask(coords1)));
+                // Only submit the task if it was mapped, the task waits for its future
+                // to be set, so it can't run before it's in the map
+                task = new LanternChunkQueueTask(coords, new LanternChunkLoadTask(coords));
+                if (this.chunkQueueTasks.putIfAbsent(key, task) == null) {
+                    task.setFuture(this.chunkTaskExecutor.submit(task));
+                }
             }
         }
         if  (callEvents) {
@@ -1392,16 +1751,13 @@ void unforce(LanternLoadingTicket ticket, Vector2i coords, @Nullable CauseStack
             final LanternChunk chunk = getChunk(coords, false);
             // Try to cancel any queued chunk loadings
             if (chunk != null && chunk.lock.isLocked() && chunk.lockState == LanternChunk.LockState.LOADING) {
-                final LanternChunkQueueTask task = this.chunkQueueTasks.get(coords);
+                final LanternChunkQueueTask task = this.chunkQueueTasks.get(key(coords));
                 if (task != null && task.runnable instanceof LanternChunkLoadTask) {
                     task.cancel();
                 }
             // Queue the chunk for unload, will be some ticks later
-            } else {
-                final UnloadingChunkEntry entry = new UnloadingChunkEntry(coords);
-                if (!this.pendingForUnload.contains(entry)) {
-                    this.pendingForUnload.offer(entry);
-                }
+            } else if (chunk != null) {
+                queueUnload(chunk);
             }
         }
         if (causeStack != null) {
@@ -1429,9 +1785,9 @@ public void save() {
         } catch (IOException e) {
             this.game.getLogger().warn("An error occurred while saving the chunk loading tickets", e);
         }
-        for (Entry<Vector2i, LanternChunk> entry : this.loadedChunks.entrySet()) {
+        for (LanternChunk chunk : this.loadedChunks.values()) {
             // Save the chunk
-            save(entry.getValue());
+            save(chunk);
         }
     }
 
@@ -1440,6 +1796,19 @@ public void save() {
      * be saved in the process.
      */
     public void shutdown() {
+        // The background tasks may still save chunks
+        stopBackgroundTasks();
+        // Finish the chunk tasks before the chunks are saved, population tasks
+        // that are still waiting for their window are dropped, these chunks
+        // will be populated the next time that they are loaded
+        this.chunkTaskExecutor.shutdown();
+        try {
+            if (!this.chunkTaskExecutor.awaitTermination(BACKGROUND_TASK_TIMEOUT, TimeUnit.SECONDS)) {
+                this.game.getLogger().warn("The chunk tasks didn't finish within {} seconds", BACKGROUND_TASK_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         try {
             LanternLoadingTicketIO.save(this.worldFolder, this.tickets);
         } catch (IOException e) {
@@ -1447,8 +1816,7 @@ public void shutdown() {
         }
         final CauseStack causeStack = CauseStack.current();
         final Cause cause = causeStack.getCurrentCause();
-        for (Entry<Vector2i, LanternChunk> entry : this.loadedChunks.entrySet()) {
-            final LanternChunk chunk = entry.getValue();
+        for (LanternChunk chunk : this.loadedChunks.values()) {
             // Post the chunk unload event
             this.game.getEventManager().post(SpongeEventFactory.createUnloadChunkEvent(cause, chunk));
             // Save the chunk
@@ -1456,8 +1824,8 @@ public void shutdown() {
         }
         // Cleanup
         this.loadedChunks.clear();
+        this.unloadCounter.incrementAndGet();
         this.reusableChunks.clear();
-        this.chunkTaskExecutor.shutdown();
         try {
             this.chunkIOService.unload();
         } catch (IOException e) {
@@ -1466,16 +1834,62 @@ public void shutdown() {
     }
 
     /**
-     * Pulses the chunk manager.
+     * Unloads the chunks that are pending for unload until the deadline passes.
+     *
+     * @param causeStack The cause stack
+     * @param deadline The deadline, in terms of {@link System#nanoTime()}
      */
-    public void pulse(CauseStack causeStack) {
+    public void unloadPendingChunks(CauseStack causeStack, long deadline) {
         UnloadingChunkEntry entry;
         while ((entry = this.pendingForUnload.peek()) != null &&
                 (System.currentTimeMillis() - entry.time) > UNLOAD_DELAY) {
             this.pendingForUnload.poll();
-            if (!this.ticketsByPos.containsKey(entry.coords)) {
+            final long key = key(entry.coords);
+            final LanternChunk chunk = this.loadedChunks.get(key);
+            if (chunk != null) {
+                // Accessing the chunk from now on will queue it again
+                chunk.pendingUnload.set(false);
+            }
+            if (!this.ticketsByPos.containsKey(key)) {
                 // TODO: Create unload tasks
                 unload(entry.coords, causeStack);
+                if (System.nanoTime() >= deadline) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues all the loaded chunks to be saved by {@link #saveQueuedChunks(long)},
+     * if the chunks of the previous save are all saved.
+     */
+    public void queueSave() {
+        if (!this.saveQueue.isEmpty()) {
+            return;
+        }
+        try {
+            LanternLoadingTicketIO.save(this.worldFolder, this.tickets);
+        } catch (IOException e) {
+            this.game.getLogger().warn("An error occurred while saving the chunk loading tickets", e);
+        }
+        this.saveQueue.addAll(this.loadedChunks.values());
+    }
+
+    /**
+     * Saves the chunks that were queued by {@link #queueSave()} until the deadline
+     * passes. Chunks that were unloaded in the meantime were already saved.
+     *
+     * @param deadline The deadline, in terms of {@link System#nanoTime()}
+     */
+    public void saveQueuedChunks(long deadline) {
+        LanternChunk chunk;
+        while ((chunk = this.saveQueue.poll()) != null) {
+            if (this.loadedChunks.get(chunk.getKey()) == chunk) {
+                save(chunk);
+                if (System.nanoTime() >= deadline) {
+                    break;
+                }
             }
         }
     }
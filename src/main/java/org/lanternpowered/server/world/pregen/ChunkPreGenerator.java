@@ -0,0 +1,430 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.world.pregen;
+
+import com.flowpowered.math.vector.Vector2i;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+import org.lanternpowered.server.data.io.ChunkIOService;
+import org.lanternpowered.server.event.CauseStack;
+import org.lanternpowered.server.event.LanternCauseStack;
+import org.lanternpowered.server.game.Lantern;
+import org.lanternpowered.server.util.ThreadHelper;
+import org.lanternpowered.server.world.LanternWorld;
+import org.lanternpowered.server.world.chunk.ChunkLoadingTicket;
+import org.lanternpowered.server.world.chunk.LanternChunk;
+import org.lanternpowered.server.world.chunk.LanternChunkManager;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.Nullable;
+
+/**
+ * Generates the chunks of a pre-generation task on a dedicated worker thread, the
+ * main thread is only used to report the progress through the events. The worker
+ * only loads the batches one by one, the chunks are populated in parallel by the
+ * population tasks of the chunk manager, like any other generated chunk.
+ * <p>
+ * The chunks are generated in batches of regions (32x32 chunks), row by row. Every batch
+ * also loads a border of one chunk around the region, populating a chunk requires its
+ * neighbors to be loaded. Chunks are held with an internal ticket and are saved and
+ * unloaded as soon as no neighbor can populate into them anymore, so only the chunks
+ * along the edge of the generated area are kept in memory.
+ * <p>
+ * The index of the next region is written to a progress file after every batch, a
+ * task that is started again with the same area will continue where it left off.
+ */
+final class ChunkPreGenerator implements Runnable, LanternChunkManager.BackgroundTask {
+
+    private static final Gson GSON = new Gson();
+
+    // The amount of chunks in a region is 1 << 5
+    private static final int REGION_SHIFT = 5;
+
+    // The amount of pre-generation tasks that can run at the same time
+    private static final int WORKER_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private static final ExecutorService executor;
+
+    static {
+        final ThreadPoolExecutor executor0 = new ThreadPoolExecutor(WORKER_THREADS, WORKER_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                ThreadHelper.newFastThreadLocalThreadFactory(() -> "chunk-pregen-" + threadCounter.incrementAndGet()));
+        executor0.allowCoreThreadTimeOut(true);
+        executor = executor0;
+    }
+
+    private final LanternWorld world;
+    private final LanternChunkManager chunkManager;
+    private final ChunkLoadingTicket ticket;
+    private final Object cause;
+
+    // Whether the owner of this generator is still active, the generator stops otherwise
+    private final BooleanSupplier active;
+
+    // The bounds of the area that should be generated, in chunk coordinates
+    private final int minX;
+    private final int minZ;
+    private final int maxX;
+    private final int maxZ;
+
+    // The bounds of the regions that intersect with the area
+    private final int minRegionX;
+    private final int minRegionZ;
+    private final int regionsX;
+    private final int regionCount;
+
+    private final Path progressFile;
+
+    // All the chunks that are currently held by this generator, only accessed by the worker
+    private final LongSet heldChunks = new LongOpenHashSet();
+
+    // The chunks that were generated or skipped since the last time they were drained
+    private final AtomicInteger generated = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    // The progress of all the completed regions, only accessed by the worker
+    private int nextRegion;
+    private int totalGenerated;
+    private int totalSkipped;
+
+    // The progress of the region that is currently being generated
+    private int regionGenerated;
+    private int regionSkipped;
+
+    private volatile boolean paused;
+    private volatile boolean cancelled;
+    private volatile boolean done;
+    private volatile boolean completed;
+
+    // Counted down once the generator stopped
+    private final CountDownLatch terminated = new CountDownLatch(1);
+    @Nullable private volatile Future<?> future;
+
+    ChunkPreGenerator(LanternWorld world, Object cause, BooleanSupplier active, int minX, int minZ, int maxX, int maxZ) {
+        this.world = world;
+        this.chunkManager = world.getChunkManager();
+        this.ticket = this.chunkManager.createInternalTicket();
+        this.cause = cause;
+        this.active = active;
+        this.minX = minX;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxZ = maxZ;
+        this.minRegionX = minX >> REGION_SHIFT;
+        this.minRegionZ = minZ >> REGION_SHIFT;
+        this.regionsX = (maxX >> REGION_SHIFT) - this.minRegionX + 1;
+        this.regionCount = this.regionsX * ((maxZ >> REGION_SHIFT) - this.minRegionZ + 1);
+        this.progressFile = world.getDirectory().resolve("pregen").resolve(
+                String.format("%d_%d_%d_%d.json", minX, minZ, maxX, maxZ));
+        loadProgress();
+    }
+
+    /**
+     * Starts generating the chunks on a worker thread. The chunk manager
+     * cancels and awaits the generator before it shuts down.
+     */
+    void start() {
+        this.chunkManager.addBackgroundTask(this);
+        this.future = executor.submit(this);
+    }
+
+    /**
+     * Gets the amount of chunks that were generated before this
+     * generator was started, loaded from the progress file.
+     *
+     * @return The previously generated chunks
+     */
+    int getPreviouslyGenerated() {
+        return this.totalGenerated;
+    }
+
+    /**
+     * Gets the amount of chunks that were skipped before this
+     * generator was started, loaded from the progress file.
+     *
+     * @return The previously skipped chunks
+     */
+    int getPreviouslySkipped() {
+        return this.totalSkipped;
+    }
+
+    /**
+     * Gets and resets the amount of chunks that were generated.
+     *
+     * @return The generated chunks
+     */
+    int drainGenerated() {
+        return this.generated.getAndSet(0);
+    }
+
+    /**
+     * Gets and resets the amount of chunks that were skipped.
+     *
+     * @return The skipped chunks
+     */
+    int drainSkipped() {
+        return this.skipped.getAndSet(0);
+    }
+
+    void setPaused(boolean paused) {
+        this.paused = paused;
+    }
+
+    @Override
+    public void cancel() {
+        this.cancelled = true;
+        final Future<?> future = this.future;
+        // The generator will never run if it was still queued
+        if (future != null && future.cancel(false)) {
+            terminate();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return this.terminated.await(timeout, unit);
+    }
+
+    private void terminate() {
+        this.chunkManager.removeBackgroundTask(this);
+        this.done = true;
+        this.terminated.countDown();
+    }
+
+    private boolean isStopped() {
+        return this.cancelled || !this.active.getAsBoolean();
+    }
+
+    /**
+     * Gets whether the generator stopped, because it was
+     * completed, cancelled or because of an error.
+     *
+     * @return Is done
+     */
+    boolean isDone() {
+        return this.done;
+    }
+
+    /**
+     * Gets whether all the chunks were generated.
+     *
+     * @return Is completed
+     */
+    boolean isCompleted() {
+        return this.completed;
+    }
+
+    @Override
+    public void run() {
+        if (CauseStack.currentOrNull() == null) {
+            CauseStack.set(new LanternCauseStack());
+        }
+        final CauseStack causeStack = CauseStack.current();
+        causeStack.pushCause(this.cause);
+        try {
+            for (int region = this.nextRegion; region < this.regionCount && !isStopped(); region++) {
+                while (this.paused && !isStopped()) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+                }
+                if (!generateRegion(region, causeStack)) {
+                    break;
+                }
+                releaseChunks(causeStack);
+                this.nextRegion = region + 1;
+                this.totalGenerated += this.regionGenerated;
+                this.totalSkipped += this.regionSkipped;
+                saveProgress();
+            }
+            this.completed = this.nextRegion >= this.regionCount;
+        } catch (Throwable t) {
+            Lantern.getLogger().error("An error occurred while pre-generating the chunks of world {}", this.world.getName(), t);
+        } finally {
+            // Release all the chunks that are still held, they are saved
+            // and a next run can populate them if needed
+            final LongIterator it = this.heldChunks.iterator();
+            while (it.hasNext()) {
+                final long key = it.nextLong();
+                this.chunkManager.release(new Vector2i(LanternChunk.keyX(key), LanternChunk.keyZ(key)), this.ticket, causeStack);
+            }
+            this.heldChunks.clear();
+            if (this.completed) {
+                try {
+                    Files.deleteIfExists(this.progressFile);
+                } catch (IOException e) {
+                    Lantern.getLogger().warn("Failed to delete the chunk pre-generation progress file: {}", this.progressFile, e);
+                }
+            }
+            causeStack.popCause();
+            terminate();
+        }
+    }
+
+    private boolean generateRegion(int region, CauseStack causeStack) throws IOException {
+        final int regionX = this.minRegionX + region % this.regionsX;
+        final int regionZ = this.minRegionZ + region / this.regionsX;
+        final int x0 = Math.max(this.minX, regionX << REGION_SHIFT);
+        final int z0 = Math.max(this.minZ, regionZ << REGION_SHIFT);
+        final int x1 = Math.min(this.maxX, ((regionX + 1) << REGION_SHIFT) - 1);
+        final int z1 = Math.min(this.maxZ, ((regionZ + 1) << REGION_SHIFT) - 1);
+
+        this.regionGenerated = 0;
+        this.regionSkipped = 0;
+
+        final ChunkIOService chunkIOService = this.chunkManager.getChunkIOService();
+        // Regions that are already completely generated can be skipped
+        if (allChunksExist(chunkIOService, x0, z0, x1, z1)) {
+            this.regionSkipped = (x1 - x0 + 1) * (z1 - z0 + 1);
+            this.skipped.addAndGet(this.regionSkipped);
+            return true;
+        }
+        for (int z = z0 - 1; z <= z1 + 1; z++) {
+            for (int x = x0 - 1; x <= x1 + 1; x++) {
+                if (isStopped()) {
+                    return false;
+                }
+                final boolean exists = chunkIOService.exists(x, z);
+                final long key = LanternChunk.key(x, z);
+                if (this.heldChunks.add(key)) {
+                    this.chunkManager.hold(new Vector2i(x, z), this.ticket);
+                }
+                this.chunkManager.getOrCreateChunk(x, z, causeStack, true);
+                // Only count the chunks within the area, the border is only needed for population
+                if (x >= x0 && x <= x1 && z >= z0 && z <= z1) {
+                    if (exists) {
+                        this.regionSkipped++;
+                        this.skipped.incrementAndGet();
+                    } else {
+                        this.regionGenerated++;
+                        this.generated.incrementAndGet();
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean allChunksExist(ChunkIOService chunkIOService, int x0, int z0, int x1, int z1) throws IOException {
+        for (int z = z0; z <= z1; z++) {
+            for (int x = x0; x <= x1; x++) {
+                if (!chunkIOService.exists(x, z)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Releases all the held chunks that can no longer be modified by the
+     * population of the chunks in the next batches.
+     *
+     * @param causeStack The cause stack
+     */
+    private void releaseChunks(CauseStack causeStack) {
+        final LongIterator it = this.heldChunks.iterator();
+        while (it.hasNext()) {
+            final long key = it.nextLong();
+            final int x = LanternChunk.keyX(key);
+            final int z = LanternChunk.keyZ(key);
+            // Populating a chunk modifies the chunk itself and the chunks
+            // at the positive x and z sides
+            if (isPending(x, z) || isPending(x - 1, z) || isPending(x, z - 1) || isPending(x - 1, z - 1)) {
+                continue;
+            }
+            it.remove();
+            this.chunkManager.release(new Vector2i(x, z), this.ticket, causeStack);
+        }
+    }
+
+    /**
+     * Gets whether the chunk at the given coordinates is loaded and
+     * can still be populated by the generation of a next batch.
+     *
+     * @param x The x coordinate
+     * @param z The z coordinate
+     * @return Whether the chunk is pending for population
+     */
+    private boolean isPending(int x, int z) {
+        final LanternChunk chunk = this.chunkManager.getChunkIfLoaded(x, z);
+        if (chunk == null || chunk.isPopulated() || x > this.maxX || z > this.maxZ) {
+            return false;
+        }
+        // The chunk will be populated once the neighbors at the positive x and z sides are
+        // generated, if they are all loaded the population either happened or will never happen
+        return this.chunkManager.getChunkIfLoaded(x + 1, z) == null ||
+                this.chunkManager.getChunkIfLoaded(x, z + 1) == null ||
+                this.chunkManager.getChunkIfLoaded(x + 1, z + 1) == null;
+    }
+
+    private void loadProgress() {
+        if (!Files.exists(this.progressFile)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(this.progressFile, StandardCharsets.UTF_8)) {
+            final JsonObject json = GSON.fromJson(reader, JsonObject.class);
+            this.nextRegion = Math.min(this.regionCount, json.get("next-region").getAsInt());
+            this.totalGenerated = json.get("generated").getAsInt();
+            this.totalSkipped = json.get("skipped").getAsInt();
+        } catch (Exception e) {
+            Lantern.getLogger().warn("Failed to read the chunk pre-generation progress file: {}", this.progressFile, e);
+        }
+    }
+
+    private void saveProgress() throws IOException {
+        final JsonObject json = new JsonObject();
+        json.addProperty("next-region", this.nextRegion);
+        json.addProperty("generated", this.totalGenerated);
+        json.addProperty("skipped", this.totalSkipped);
+        Files.createDirectories(this.progressFile.getParent());
+        // Write to a temporary file first, a crash shouldn't corrupt the progress
+        final Path tmpFile = this.progressFile.resolveSibling(this.progressFile.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmpFile, StandardCharsets.UTF_8)) {
+            GSON.toJson(json, writer);
+        }
+        Files.move(tmpFile, this.progressFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
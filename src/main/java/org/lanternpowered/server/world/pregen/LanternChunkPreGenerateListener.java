@@ -30,24 +30,21 @@
 import org.spongepowered.api.world.ChunkPreGenerate;
 
 import java.util.List;
-import java.util.UUID;
 import java.util.function.Consumer;
 
 public class LanternChunkPreGenerateListener implements EventListener<ChunkPreGenerationEvent> {
 
     private final List<Consumer<ChunkPreGenerationEvent>> listeners;
-    private final UUID task;
+    private final ChunkPreGenerate task;
 
-    LanternChunkPreGenerateListener(UUID task, List<Consumer<ChunkPreGenerationEvent>> listeners) {
+    LanternChunkPreGenerateListener(ChunkPreGenerate task, List<Consumer<ChunkPreGenerationEvent>> listeners) {
         this.task = task;
         this.listeners = listeners;
     }
 
     @Override
     public void handle(ChunkPreGenerationEvent event) throws Exception {
-        ChunkPreGenerate preGenerate = event.getChunkPreGenerate();
-        if (preGenerate instanceof LanternChunkPreGenerateTask &&
-                ((LanternChunkPreGenerateTask) preGenerate).getSpongeTask().getUniqueId().equals(task)) {
+        if (event.getChunkPreGenerate() == this.task) {
             this.listeners.forEach(x -> x.accept(event));
         }
     }
@@ -36,6 +36,7 @@
 import org.lanternpowered.server.data.io.ChunkIOService;
 import org.lanternpowered.server.event.CauseStack;
 import org.lanternpowered.server.game.Lantern;
+import org.lanternpowered.server.world.LanternWorld;
 import org.lanternpowered.server.world.chunk.LanternChunkLayout;
 import org.slf4j.Logger;
 import org.spongepowered.api.Sponge;
@@ -80,13 +81,19 @@ public class LanternChunkPreGenerateTask implements ChunkPreGenerate, Consumer<T
     private final long tickTimeLimit;
     private final Cause cause;
     private final int totalChunksToGenerate;
-    private final Task spongeTask;
     private final int tickInterval;
     private final PluginContainer plugin;
 
     // If null, no listeners have been assigned, so they don't need to be registered or unregistered.
     @Nullable private final EventListener<ChunkPreGenerationEvent> eventListener;
 
+    // The scheduled task, assigned by submit() once the task is fully constructed
+    @Nullable private volatile Task spongeTask;
+
+    // If null, the chunks are generated on the main thread.
+    @Nullable private final ChunkPreGenerator generator;
+    private boolean generatorStarted;
+
     private Vector3i currentPosition;
     private int currentGenCount;
     private int currentLayer;
@@ -99,10 +106,12 @@ public class LanternChunkPreGenerateTask implements ChunkPreGenerate, Consumer<T
     // Used for wall clock times.
     private long generationStartTime = 0;
     private long generationEndTime = 0;
+    private long lastStepTime = 0;
     private boolean isCancelled = false;
 
     private LanternChunkPreGenerateTask(PluginContainer plugin, World world, Vector3d center, double diameter,
-            int chunkCount, float tickPercent, int tickInterval, Cause cause, List<Consumer<ChunkPreGenerationEvent>> eventListeners) {
+            int chunkCount, float tickPercent, int tickInterval, boolean background, Cause cause,
+            List<Consumer<ChunkPreGenerationEvent>> eventListeners) {
         final int preferredTickInterval = Lantern.getScheduler().getPreferredTickInterval();
 
         this.plugin = plugin;
@@ -127,22 +136,49 @@ private LanternChunkPreGenerateTask(PluginContainer plugin, World world, Vector3
 
         this.totalChunksToGenerate = (int) Math.pow(this.chunkRadius * 2 + 1, 2);
 
-        this.spongeTask = Lantern.getScheduler()
-                .createTaskBuilder()
-                .intervalTicks(preferredTickInterval)
-                .execute(this)
-                .submit(plugin);
+        if (background) {
+            final int x = this.currentPosition.getX();
+            final int z = this.currentPosition.getZ();
+            // Stop generating once the task is removed from the scheduler
+            this.generator = new ChunkPreGenerator((LanternWorld) world, plugin, this::isScheduled,
+                    x - this.chunkRadius, z - this.chunkRadius, x + this.chunkRadius, z + this.chunkRadius);
+            // Continue with the progress of a previous run
+            this.chunksGenerated = this.generator.getPreviouslyGenerated();
+            this.chunksSkipped = this.generator.getPreviouslySkipped();
+        } else {
+            this.generator = null;
+        }
 
         if (!eventListeners.isEmpty()) {
-            this.eventListener = new LanternChunkPreGenerateListener(this.spongeTask.getUniqueId(), eventListeners);
+            this.eventListener = new LanternChunkPreGenerateListener(this, eventListeners);
             Sponge.getEventManager().registerListener(plugin, ChunkPreGenerationEvent.class, this.eventListener);
         } else {
             this.eventListener = null;
         }
     }
 
-    Task getSpongeTask() {
-        return this.spongeTask;
+    /**
+     * Submits the sponge task that performs the steps, this is done after
+     * construction so that the scheduler never sees a partially built task.
+     */
+    private void submit() {
+        this.spongeTask = Lantern.getScheduler()
+                .createTaskBuilder()
+                .intervalTicks(Lantern.getScheduler().getPreferredTickInterval())
+                .execute(this)
+                .submit(this.plugin);
+    }
+
+    /**
+     * Gets whether the sponge task is still scheduled, the
+     * generator stops once it's removed from the scheduler.
+     *
+     * @return Whether the task is scheduled
+     */
+    private boolean isScheduled() {
+        final Task task = this.spongeTask;
+        // The task can already run before the field is assigned
+        return task == null || Lantern.getScheduler().getTaskById(task.getUniqueId()).isPresent();
     }
 
     @Override
@@ -178,7 +214,7 @@ public boolean isCancelled() {
 
         // It's possible we haven't cancelled the task here, so we just make sure of it, and perform
         // some cleanup.
-        if (!Lantern.getScheduler().getTaskById(this.spongeTask.getUniqueId()).isPresent()) {
+        if (!isScheduled()) {
             cancel();
         }
 
@@ -188,10 +224,16 @@ public boolean isCancelled() {
     @Override
     public void cancel() {
         if (!this.isCancelled) {
+            if (this.generator != null) {
+                this.generator.cancel();
+            }
             if (this.eventListener != null) {
                 Sponge.getEventManager().unregisterListeners(this.eventListener);
             }
-            this.spongeTask.cancel();
+            final Task task = this.spongeTask;
+            if (task != null) {
+                task.cancel();
+            }
             this.isCancelled = true;
         }
     }
@@ -213,6 +255,20 @@ public void accept(Task task) {
             return;
         }
 
+        if (this.generator != null) {
+            // The generator is paused while the steps are skipped
+            this.generator.setPaused(preEvent.getSkipStep());
+            if (!preEvent.getSkipStep()) {
+                // Start the generator from the first step that isn't skipped
+                if (!this.generatorStarted) {
+                    this.generatorStarted = true;
+                    this.generator.start();
+                }
+                acceptBackground(task, this.generator, stepStartTime);
+            }
+            return;
+        }
+
         if (preEvent.getSkipStep()) {
             // Skip the step, but don't cancel the task.
             return;
@@ -266,6 +322,39 @@ public void accept(Task task) {
         }
     }
 
+    private void acceptBackground(Task task, ChunkPreGenerator generator, long stepStartTime) {
+        final int count = generator.drainGenerated();
+        final int skipped = generator.drainSkipped();
+
+        this.chunksGenerated += count;
+        this.chunksSkipped += skipped;
+
+        // The chunks were generated in the background since the previous step
+        final long deltaTime = stepStartTime - (this.lastStepTime == 0 ? this.generationStartTime : this.lastStepTime);
+        this.lastStepTime = stepStartTime;
+        this.generationEndTime = stepStartTime;
+
+        // Create and fire event.
+        if (Sponge.getEventManager().post(SpongeEventFactory.createChunkPreGenerationEventPost(
+                this.cause, this, this.world, Duration.ofMillis(deltaTime), count, skipped))) {
+            cancelTask(task);
+            return;
+        }
+
+        if (generator.isDone()) {
+            if (generator.isCompleted()) {
+                // Generation has completed.
+                Sponge.getEventManager().post(SpongeEventFactory.createChunkPreGenerationEventComplete(this.cause, this, this.world));
+                this.isCancelled = true;
+                unregisterListener();
+                task.cancel();
+            } else {
+                // The generator failed
+                cancelTask(task);
+            }
+        }
+    }
+
     private boolean areAllChunksLoaded(Vector3i chunk1, Vector3i chunk2, Vector3i chunk3, Vector3i chunk4) {
         // In order to be able to check whether a chunk exists, we could use standard Sponge API methods. However,
         // because they set up an async method which we need to get sync anyway, we just bypass it.
@@ -285,6 +374,9 @@ private void unregisterListener() {
     }
 
     private void cancelTask(Task task) {
+        if (this.generator != null) {
+            this.generator.cancel();
+        }
         // Don't fire multiple instances.
         if (Lantern.getScheduler().getTaskById(task.getUniqueId()).isPresent()) {
             Sponge.getEventManager().post(SpongeEventFactory.createChunkPreGenerationEventCancelled(this.cause, this, this.world));
@@ -342,6 +434,7 @@ public static class Builder implements ChunkPreGenerate.Builder {
         private int tickInterval = DEFAULT_TICK_INTERVAL;
         private float tickPercent = DEFAULT_TICK_PERCENT;
         private int chunksPerTick = 0;
+        private boolean background = true;
 
         public Builder(World world, Vector3d center, double diameter) {
             this.world = world;
@@ -402,6 +495,19 @@ public ChunkPreGenerate.Builder tickPercentLimit(float tickPercent) {
             return this;
         }
 
+        /**
+         * Sets whether the chunks should be generated on a background worker instead of on the
+         * main thread, this is enabled by default. The {@link #chunksPerTick(int)} and
+         * {@link #tickPercentLimit(float)} limits only apply to the generation on the main thread.
+         *
+         * @param background Whether the chunks should be generated in the background
+         * @return This builder, for chaining
+         */
+        public Builder background(boolean background) {
+            this.background = background;
+            return this;
+        }
+
         @Override
         public ChunkPreGenerate.Builder addListener(Consumer<ChunkPreGenerationEvent> listener) {
             checkNotNull(listener, "listener cannot be null");
@@ -412,7 +518,8 @@ public ChunkPreGenerate.Builder addListener(Consumer<ChunkPreGenerationEvent> li
         @Override
         public ChunkPreGenerate start() {
             checkNotNull(plugin, "The plugin must be set");
-            checkArgument(this.chunksPerTick > 0 || this.tickPercent > 0, "Must use at least one of \"chunks per tick\" or \"tick percent limit\"");
+            checkArgument(this.background || this.chunksPerTick > 0 || this.tickPercent > 0,
+                    "Must use at least one of \"chunks per tick\" or \"tick percent limit\"");
             final CauseStack causeStack = CauseStack.currentOrNull();
             final Cause cause;
             if (causeStack == null) {
@@ -421,8 +528,10 @@ public ChunkPreGenerate start() {
                 // The plugin instance should already be in the stack
                 cause = causeStack.getCurrentCause();
             }
-            return new LanternChunkPreGenerateTask(this.plugin, this.world, this.center, this.diameter, this.chunksPerTick, this.tickPercent,
-                    this.tickInterval, cause, this.eventListeners);
+            final LanternChunkPreGenerateTask task = new LanternChunkPreGenerateTask(this.plugin, this.world, this.center, this.diameter,
+                    this.chunksPerTick, this.tickPercent, this.tickInterval, this.background, cause, this.eventListeners);
+            task.submit();
+            return task;
         }
 
         @Override
@@ -434,6 +543,7 @@ public ChunkPreGenerate.Builder from(ChunkPreGenerate value) {
             final LanternChunkPreGenerateTask other = (LanternChunkPreGenerateTask) value;
             // Bypass null check
             this.plugin = other.plugin;
+            this.background = other.generator != null;
             return tickInterval(other.tickInterval)
                     .chunksPerTick(other.chunkCount)
                     .tickPercentLimit(other.tickPercent);
@@ -445,6 +555,7 @@ public ChunkPreGenerate.Builder reset() {
             this.tickInterval = 0;
             this.chunksPerTick = 0;
             this.tickPercent = DEFAULT_TICK_PERCENT;
+            this.background = true;
             this.eventListeners.clear();
             return this;
         }
@@ -0,0 +1,147 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.block;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+import org.spongepowered.api.world.World;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ScheduledBlockUpdateWheelTest {
+
+    private static List<LanternScheduledBlockUpdate> pulse(ScheduledBlockUpdateWheel wheel) {
+        final List<LanternScheduledBlockUpdate> updates = new ArrayList<>();
+        wheel.pulse(updates::add);
+        return updates;
+    }
+
+    private static long ticksUntilDispatch(ScheduledBlockUpdateWheel wheel, LanternScheduledBlockUpdate update) {
+        final List<LanternScheduledBlockUpdate> updates = new ArrayList<>();
+        long ticks = 0;
+        while (true) {
+            ticks++;
+            wheel.pulse(updates::add);
+            if (!updates.isEmpty()) {
+                assertEquals(1, updates.size());
+                assertTrue(updates.get(0) == update);
+                return ticks;
+            }
+        }
+    }
+
+    private static void testDelays(ScheduledBlockUpdateWheel wheel, int... delays) {
+        for (int delay : delays) {
+            // Offset the wheel to test unaligned start ticks
+            pulse(wheel);
+            final LanternScheduledBlockUpdate update = wheel.add(0, 0, 0, 0, delay);
+            assertEquals(delay, update.getTicks());
+            assertEquals(delay, ticksUntilDispatch(wheel, update));
+            assertFalse(update.isScheduled());
+            assertEquals(0, wheel.size());
+        }
+    }
+
+    @Test
+    public void testDelays() {
+        final ScheduledBlockUpdateWheel wheel = new ScheduledBlockUpdateWheel(mock(World.class));
+        // Cover the boundaries of the first levels of the default wheel
+        testDelays(wheel, 1, 2, 255, 256, 257, 300, 16383, 16384, 20000);
+    }
+
+    @Test
+    public void testDelaysSmallLevels() {
+        // A wheel of 64 ticks, so that every level and the overflow
+        // bucket can be covered without pulsing millions of times
+        final ScheduledBlockUpdateWheel wheel = new ScheduledBlockUpdateWheel(mock(World.class), 2, 2, 2);
+        testDelays(wheel, 1, 2, 3, 4, 5, 15, 16, 17, 63, 64, 65, 130, 200);
+    }
+
+    @Test
+    public void testPriorityOrder() {
+        final ScheduledBlockUpdateWheel wheel = new ScheduledBlockUpdateWheel(mock(World.class));
+        final LanternScheduledBlockUpdate update1 = wheel.add(0, 0, 0, 5, 300);
+        final LanternScheduledBlockUpdate update2 = wheel.add(1, 0, 0, -1, 300);
+        final LanternScheduledBlockUpdate update3 = wheel.add(2, 0, 0, 5, 300);
+        final LanternScheduledBlockUpdate update4 = wheel.add(3, 0, 0, 0, 300);
+        for (int i = 0; i < 299; i++) {
+            assertTrue(pulse(wheel).isEmpty());
+        }
+        final List<LanternScheduledBlockUpdate> updates = pulse(wheel);
+        assertEquals(4, updates.size());
+        assertTrue(updates.get(0) == update2);
+        assertTrue(updates.get(1) == update4);
+        assertTrue(updates.get(2) == update1);
+        assertTrue(updates.get(3) == update3);
+    }
+
+    @Test
+    public void testRemove() {
+        final ScheduledBlockUpdateWheel wheel = new ScheduledBlockUpdateWheel(mock(World.class));
+        final LanternScheduledBlockUpdate update1 = wheel.add(0, 10, 0, 0, 500);
+        final LanternScheduledBlockUpdate update2 = wheel.add(0, 10, 0, 0, 500);
+        assertEquals(2, wheel.getUpdates(0, 10, 0).size());
+        wheel.remove(update1);
+        assertFalse(update1.isScheduled());
+        assertEquals(1, wheel.getUpdates(0, 10, 0).size());
+        assertEquals(1, wheel.size());
+        assertEquals(500, ticksUntilDispatch(wheel, update2));
+        assertTrue(wheel.getUpdates(0, 10, 0).isEmpty());
+    }
+
+    @Test
+    public void testRemoveWhileDispatching() {
+        final ScheduledBlockUpdateWheel wheel = new ScheduledBlockUpdateWheel(mock(World.class));
+        final LanternScheduledBlockUpdate update1 = wheel.add(0, 0, 0, 0, 1);
+        final LanternScheduledBlockUpdate update2 = wheel.add(1, 0, 0, 1, 1);
+        final List<LanternScheduledBlockUpdate> updates = new ArrayList<>();
+        wheel.pulse(update -> {
+            updates.add(update);
+            if (update == update1) {
+                wheel.remove(update2);
+            }
+        });
+        assertEquals(1, updates.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testReschedule() {
+        final ScheduledBlockUpdateWheel wheel = new ScheduledBlockUpdateWheel(mock(World.class));
+        final LanternScheduledBlockUpdate update = wheel.add(0, 0, 0, 0, 1000);
+        for (int i = 0; i < 10; i++) {
+            pulse(wheel);
+        }
+        update.setTicks(20);
+        assertEquals(20, update.getTicks());
+        assertEquals(20, ticksUntilDispatch(wheel, update));
+    }
+}
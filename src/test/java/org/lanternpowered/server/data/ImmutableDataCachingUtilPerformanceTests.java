@@ -0,0 +1,135 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.data;
+
+import static org.lanternpowered.server.util.ReflectionHelper.createUnsafeInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.junit.Test;
+import org.lanternpowered.server.data.value.immutable.ImmutableLanternValue;
+import org.spongepowered.api.CatalogType;
+import org.spongepowered.api.data.DataQuery;
+import org.spongepowered.api.data.key.Key;
+import org.spongepowered.api.data.value.BaseValue;
+import org.spongepowered.api.data.value.immutable.ImmutableValue;
+import org.spongepowered.api.data.value.mutable.Value;
+
+public class ImmutableDataCachingUtilPerformanceTests {
+
+    private final static String MESSAGE = "%s for %s lookups took: %s ms";
+    private final static int LOOKUPS = 1000000;
+
+    /**
+     * The string keyed cache that was previously used by {@link ImmutableDataCachingUtil}.
+     */
+    private static final class LegacyCache {
+
+        private final Cache<String, ImmutableValue<?>> valueCache = CacheBuilder.newBuilder()
+                .concurrencyLevel(4)
+                .maximumSize(ImmutableDataCachingUtil.VALUE_CACHE_LIMIT)
+                .build();
+
+        @SuppressWarnings("unchecked")
+        <E> ImmutableValue<E> getValue(Key<? extends BaseValue<E>> usedKey, E defaultArg, E arg) throws Exception {
+            final String key = getKey(ImmutableLanternValue.class, usedKey.getQuery().asString('.'), arg.getClass(), arg);
+            return (ImmutableValue<E>) this.valueCache.get(key,
+                    () -> createUnsafeInstance(ImmutableLanternValue.class, usedKey, defaultArg, arg));
+        }
+
+        private static String getKey(Class<?> immutableClass, Object... args) {
+            final StringBuilder builder = new StringBuilder(immutableClass.getCanonicalName() + ":");
+            for (Object object : args) {
+                if (object instanceof CatalogType) {
+                    builder.append("{").append(((CatalogType) object).getId()).append("}");
+                } else {
+                    builder.append("{").append(object.toString()).append("}");
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> Key<Value<E>> newKey(String name) {
+        final Key<Value<E>> key = mock(Key.class);
+        when(key.getQuery()).thenReturn(DataQuery.of(name));
+        return key;
+    }
+
+    @Test
+    public void testLookupPerformance() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            testLookupPerformance0();
+        }
+    }
+
+    private void testLookupPerformance0() throws Exception {
+        final Key<Value<Boolean>> booleanKey = newKey("Boolean");
+        final Key<Value<Integer>> intKey = newKey("Integer");
+        final Key<Value<String>> stringKey = newKey("String");
+        final String[] strings = new String[16];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = "Value" + i;
+        }
+
+        final LegacyCache legacyCache = new LegacyCache();
+        int found = 0;
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (legacyCache.getValue(booleanKey, false, (i & 1) == 0) != null) {
+                found++;
+            }
+            if (legacyCache.getValue(intKey, 0, i & 0xff) != null) {
+                found++;
+            }
+            if (legacyCache.getValue(stringKey, "", strings[i & 0xf]) != null) {
+                found++;
+            }
+        }
+        System.out.println(String.format(MESSAGE, "String keyed cache",
+                LOOKUPS * 3, System.currentTimeMillis() - time));
+        time = System.currentTimeMillis();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (ImmutableLanternValue.cachedOf(booleanKey, false, (i & 1) == 0) != null) {
+                found++;
+            }
+            if (ImmutableLanternValue.cachedOf(intKey, 0, i & 0xff) != null) {
+                found++;
+            }
+            if (ImmutableLanternValue.cachedOf(stringKey, "", strings[i & 0xf]) != null) {
+                found++;
+            }
+        }
+        System.out.println(String.format(MESSAGE, "ImmutableDataCachingUtil",
+                LOOKUPS * 3, System.currentTimeMillis() - time));
+        if (found != LOOKUPS * 6) {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+import org.lanternpowered.server.data.value.immutable.ImmutableLanternValue;
+import org.spongepowered.api.data.key.Key;
+import org.spongepowered.api.data.value.immutable.ImmutableValue;
+import org.spongepowered.api.data.value.mutable.Value;
+
+public class ImmutableDataCachingUtilTest {
+
+    private enum TestEnum {
+        FIRST,
+        SECOND,
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> Key<Value<E>> newKey() {
+        return mock(Key.class);
+    }
+
+    @Test
+    public void testBooleans() {
+        final Key<Value<Boolean>> key = newKey();
+        final ImmutableValue<Boolean> value = ImmutableLanternValue.cachedOf(key, false, true);
+        assertSame(value, ImmutableLanternValue.cachedOf(key, false, true));
+        assertEquals(true, value.get());
+        assertEquals(false, value.getDefault());
+        assertSame(key, value.getKey());
+        assertNotSame(value, ImmutableLanternValue.cachedOf(key, false, false));
+    }
+
+    @Test
+    public void testAbsentValues() {
+        final Key<Value<Boolean>> key = newKey();
+        final ImmutableValue<Boolean> value = ImmutableLanternValue.cachedOf(key, false, null);
+        assertSame(value, ImmutableLanternValue.cachedOf(key, false, null));
+        assertFalse(value.exists());
+        assertEquals(false, value.get());
+    }
+
+    @Test
+    public void testIntegers() {
+        final Key<Value<Integer>> key = newKey();
+        for (int i = -200; i < 2000; i += 7) {
+            final ImmutableValue<Integer> value = ImmutableLanternValue.cachedOf(key, 0, i);
+            assertEquals(i, (int) value.get());
+            // Don't depend on the integer cache of the jvm
+            assertSame(value, ImmutableLanternValue.cachedOf(key, 0, new Integer(i)));
+        }
+    }
+
+    @Test
+    public void testEnums() {
+        final Key<Value<TestEnum>> key = newKey();
+        final ImmutableValue<TestEnum> value = ImmutableLanternValue.cachedOf(key, TestEnum.FIRST, TestEnum.SECOND);
+        assertSame(value, ImmutableLanternValue.cachedOf(key, TestEnum.FIRST, TestEnum.SECOND));
+        assertEquals(TestEnum.SECOND, value.get());
+        assertNotSame(value, ImmutableLanternValue.cachedOf(key, TestEnum.FIRST, TestEnum.FIRST));
+    }
+
+    @Test
+    public void testOtherValues() {
+        final Key<Value<String>> key = newKey();
+        final ImmutableValue<String> value = ImmutableLanternValue.cachedOf(key, "", "Test");
+        assertSame(value, ImmutableLanternValue.cachedOf(key, "", new String("Test")));
+        assertEquals("Test", value.get());
+    }
+
+    @Test
+    public void testDefaultValues() {
+        final Key<Value<Integer>> key = newKey();
+        final ImmutableValue<Integer> value1 = ImmutableLanternValue.cachedOf(key, 0, 5);
+        final ImmutableValue<Integer> value2 = ImmutableLanternValue.cachedOf(key, 1, 5);
+        assertNotSame(value1, value2);
+        assertEquals(0, (int) value1.getDefault());
+        assertEquals(1, (int) value2.getDefault());
+        // Exceed the amount of interned default values
+        for (int i = 0; i < 20; i++) {
+            final ImmutableValue<Integer> value = ImmutableLanternValue.cachedOf(key, i, 5);
+            assertEquals(i, (int) value.getDefault());
+            assertSame(value, ImmutableLanternValue.cachedOf(key, i, 5));
+        }
+    }
+
+    @Test
+    public void testKeyIdentity() {
+        final Key<Value<Integer>> key1 = newKey();
+        final Key<Value<Integer>> key2 = newKey();
+        final ImmutableValue<Integer> value1 = ImmutableLanternValue.cachedOf(key1, 0, 5000);
+        final ImmutableValue<Integer> value2 = ImmutableLanternValue.cachedOf(key2, 0, 5000);
+        assertNotSame(value1, value2);
+        assertSame(key1, value1.getKey());
+        assertSame(key2, value2.getKey());
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.data.io.anvil;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RegionFileTest {
+
+    private static byte[] createData(int x, int z, int size) {
+        final byte[] data = new byte[size];
+        new Random(x * 31 + z).nextBytes(data);
+        return data;
+    }
+
+    private static void write(RegionFile regionFile, int x, int z, byte[] data) throws IOException {
+        try (DataOutputStream os = regionFile.getChunkDataOutputStream(x, z)) {
+            os.writeInt(data.length);
+            os.write(data);
+        }
+    }
+
+    private static byte[] read(RegionFile regionFile, int x, int z) throws IOException {
+        final DataInputStream is = regionFile.getChunkDataInputStream(x, z);
+        assertNotNull(is);
+        try {
+            final byte[] data = new byte[is.readInt()];
+            is.readFully(data);
+            return data;
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void testInterleavedStreams() throws IOException {
+        final Path dir = Files.createTempDirectory("region");
+        final Path path = dir.resolve("r.0.0.mca");
+        try {
+            final RegionFile regionFile = new RegionFile(path, 0, 0);
+            write(regionFile, 1, 2, createData(1, 2, 1000));
+            write(regionFile, 2, 1, createData(2, 1, 1000));
+            // The first stream shouldn't be affected by the second read
+            final DataInputStream is = regionFile.getChunkDataInputStream(1, 2);
+            assertNotNull(is);
+            assertArrayEquals(createData(2, 1, 1000), read(regionFile, 2, 1));
+            final byte[] data = new byte[is.readInt()];
+            is.readFully(data);
+            is.close();
+            assertArrayEquals(createData(1, 2, 1000), data);
+            regionFile.close();
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        final Path dir = Files.createTempDirectory("region");
+        final Path path = dir.resolve("r.0.0.mca");
+        try {
+            RegionFile regionFile = new RegionFile(path, 0, 0);
+            assertFalse(regionFile.hasChunk(3, 4));
+            // Random data doesn't compress, so this chunk needs multiple sectors
+            write(regionFile, 3, 4, createData(3, 4, 10000));
+            write(regionFile, 5, 6, createData(5, 6, 100));
+            assertTrue(regionFile.hasChunk(3, 4));
+            assertArrayEquals(createData(3, 4, 10000), read(regionFile, 3, 4));
+            // Grow the chunk so that it has to be moved
+            write(regionFile, 5, 6, createData(5, 6, 20000));
+            assertArrayEquals(createData(5, 6, 20000), read(regionFile, 5, 6));
+            regionFile.close();
+
+            regionFile = new RegionFile(path, 0, 0);
+            assertArrayEquals(createData(3, 4, 10000), read(regionFile, 3, 4));
+            assertArrayEquals(createData(5, 6, 20000), read(regionFile, 5, 6));
+            assertFalse(regionFile.hasChunk(6, 5));
+            assertTrue(Files.size(path) % 4096 == 0);
+            regionFile.close();
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testRetainRelease() throws IOException {
+        final Path dir = Files.createTempDirectory("region");
+        final Path path = dir.resolve("r.0.0.mca");
+        try {
+            final RegionFile regionFile = new RegionFile(path, 0, 0);
+            assertTrue(regionFile.retain());
+            // Releasing the initial reference shouldn't close the
+            // file while another reference is still being held
+            regionFile.release();
+            write(regionFile, 1, 1, createData(1, 1, 100));
+            assertArrayEquals(createData(1, 1, 100), read(regionFile, 1, 1));
+            regionFile.release();
+            assertFalse(regionFile.retain());
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    public void testConcurrentReadWrite() throws Exception {
+        final Path dir = Files.createTempDirectory("region");
+        final Path path = dir.resolve("r.0.0.mca");
+        try {
+            final RegionFile regionFile = new RegionFile(path, 0, 0);
+            final AtomicReference<Throwable> error = new AtomicReference<>();
+            final List<Thread> threads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                final int x = i;
+                threads.add(new Thread(() -> {
+                    try {
+                        for (int round = 1; round <= 5; round++) {
+                            for (int z = 0; z < 32; z++) {
+                                write(regionFile, x, z, createData(x, z, round * 1500));
+                            }
+                            for (int z = 0; z < 32; z++) {
+                                assertArrayEquals(createData(x, z, round * 1500), read(regionFile, x, z));
+                            }
+                        }
+                    } catch (Throwable t) {
+                        error.set(t);
+                    }
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            if (error.get() != null) {
+                throw new AssertionError(error.get());
+            }
+            regionFile.close();
+        } finally {
+            Files.deleteIfExists(path);
+            Files.delete(dir);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.data.key;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Test;
+import org.spongepowered.api.data.key.Key;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class KeyIdsTest {
+
+    @Test
+    public void testAssignIds() {
+        final Key<?>[] keys = new Key<?>[1000];
+        final Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = mock(Key.class);
+            assertEquals(KeyIds.NO_ID, KeyIds.getId(keys[i]));
+            final int id = KeyIds.getOrAssignId(keys[i]);
+            assertTrue(id >= 0);
+            assertTrue(ids.add(id));
+        }
+        // Ids must be stable when more keys are added
+        for (Key<?> key : keys) {
+            final int id = KeyIds.getId(key);
+            assertTrue(ids.contains(id));
+            assertEquals(id, KeyIds.getOrAssignId(key));
+        }
+    }
+}
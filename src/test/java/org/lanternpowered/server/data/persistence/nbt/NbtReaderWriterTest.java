@@ -0,0 +1,188 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.data.persistence.nbt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+import org.spongepowered.api.data.DataContainer;
+import org.spongepowered.api.data.DataQuery;
+import org.spongepowered.api.data.DataView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+public class NbtReaderWriterTest {
+
+    private static final DataQuery A = DataQuery.of("A");
+    private static final DataQuery B = DataQuery.of("B");
+    private static final DataQuery C = DataQuery.of("C");
+    private static final DataQuery D = DataQuery.of("D");
+    private static final DataQuery E = DataQuery.of("E");
+    private static final DataQuery F = DataQuery.of("F");
+    private static final DataQuery G = DataQuery.of("G");
+    private static final DataQuery H = DataQuery.of("H");
+    private static final DataQuery I = DataQuery.of("I");
+    private static final DataQuery J = DataQuery.of("J");
+
+    private static DataContainer createContainer() {
+        final DataContainer container = DataContainer.createNew();
+        container.set(A, (byte) 54);
+        container.set(B, (short) 5493);
+        container.set(C, 95601);
+        container.set(D, 950698203987L);
+        container.set(E, 9820.9843647895114d);
+        container.set(F, 9.5789f);
+        container.createView(G)
+                .set(A, "TestA \u00e9\u0000\u4e2d")
+                .set(B, true)
+                .set(C, new byte[] { 1, 2, 3 })
+                .set(D, new int[] { 4, 5, 6 });
+        final List<String> entries = Lists.newArrayList("A", "B", "C", "D");
+        container.set(H, entries);
+        container.set(I, Lists.newArrayList(true, false, true));
+        final List<DataView> views = Lists.newArrayList();
+        for (int i = 0; i < 3; i++) {
+            final DataContainer view = DataContainer.createNew();
+            view.set(A, i);
+            view.set(B, Lists.newArrayList());
+            views.add(view);
+        }
+        container.set(J, views);
+        return container;
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final DataContainer container = createContainer();
+
+        final ByteBuf buf = Unpooled.buffer();
+        new NbtWriter(buf).writeView(container);
+        final DataContainer newContainer = new NbtReader(buf).readContainer();
+
+        assertEquals(container, newContainer);
+        assertEquals(0, buf.readableBytes());
+    }
+
+    @Test
+    public void testStreamCompatibility() throws IOException {
+        final DataContainer container = createContainer();
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final NbtDataContainerOutputStream ndcos = new NbtDataContainerOutputStream(new DataOutputStream(baos));
+        ndcos.write(container);
+        ndcos.flush();
+        ndcos.close();
+
+        final ByteBuf buf = Unpooled.buffer();
+        new NbtWriter(buf).writeView(container);
+        final byte[] content = new byte[buf.readableBytes()];
+        buf.readBytes(content);
+
+        assertArrayEquals(baos.toByteArray(), content);
+    }
+
+    @Test
+    public void testCursor() throws IOException {
+        final ByteBuf buf = Unpooled.buffer();
+        new NbtWriter(buf).writeView(createContainer());
+        // Append a value to make sure that the reader stops at the end of the root
+        buf.writeByte(42);
+
+        final NbtReader reader = new NbtReader(buf);
+        reader.beginCompound();
+        int c = 0;
+        long d = 0;
+        while (reader.hasNext()) {
+            switch (reader.getName()) {
+                case "A":
+                    // Widened from a byte
+                    assertEquals(54, reader.readInt());
+                    break;
+                case "C":
+                    c = reader.readInt();
+                    break;
+                case "D":
+                    d = reader.readLong();
+                    break;
+                case "G":
+                    reader.beginCompound();
+                    assertEquals("A", reader.getName());
+                    assertEquals("TestA \u00e9\u0000\u4e2d", reader.readString());
+                    assertEquals("B", reader.getName());
+                    assertTrue(reader.readBoolean());
+                    // Skip the arrays
+                    reader.endCompound();
+                    break;
+                case "I":
+                    assertEquals(3, reader.beginList());
+                    assertTrue(reader.hasNext());
+                    assertTrue(reader.readBoolean());
+                    reader.endList();
+                    break;
+                case "J":
+                    assertEquals(3, reader.beginList());
+                    int i = 0;
+                    while (reader.hasNext()) {
+                        reader.beginCompound();
+                        assertEquals("A", reader.getName());
+                        assertEquals(i++, reader.readInt());
+                        reader.endCompound();
+                    }
+                    reader.endList();
+                    assertEquals(3, i);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endCompound();
+        assertFalse(reader.hasNext());
+
+        assertEquals(95601, c);
+        assertEquals(950698203987L, d);
+        assertEquals(1, buf.readableBytes());
+        assertEquals(42, buf.readByte());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMaximumDepth() throws IOException {
+        final DataContainer container = DataContainer.createNew();
+        container.createView(A).createView(B).createView(C).set(D, 1);
+
+        final ByteBuf buf = Unpooled.buffer();
+        new NbtWriter(buf).writeView(container);
+        new NbtReader(buf, 2).readContainer();
+    }
+}
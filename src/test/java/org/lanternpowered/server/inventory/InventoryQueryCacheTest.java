@@ -0,0 +1,175 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.inventory;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.lanternpowered.server.inventory.type.LanternOrderedInventory;
+import org.lanternpowered.server.inventory.type.slot.LanternSlot;
+import org.lanternpowered.server.inventory.vanilla.LanternHotbarInventory;
+import org.spongepowered.api.item.ItemType;
+import org.spongepowered.api.item.inventory.EmptyInventory;
+import org.spongepowered.api.item.inventory.Inventory;
+import org.spongepowered.api.item.inventory.ItemStack;
+import org.spongepowered.api.item.inventory.entity.Hotbar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+public class InventoryQueryCacheTest {
+
+    /**
+     * A slot of which the content is only represented by its item type.
+     */
+    private static final class TestSlot extends LanternSlot {
+
+        @Nullable private ItemType type;
+
+        @Override
+        public boolean contains(ItemType type) {
+            return this.type == type;
+        }
+
+        @Override
+        public boolean contains(ItemStack stack) {
+            return this.type != null && this.type == stack.getType();
+        }
+    }
+
+    private final List<TestSlot> slots = new ArrayList<>();
+    private LanternHotbarInventory hotbar;
+    private LanternOrderedInventory root;
+
+    @Before
+    public void setup() {
+        for (int i = 0; i < 9; i++) {
+            this.slots.add(new TestSlot());
+        }
+        this.hotbar = new LanternHotbarInventory();
+        initHotbar();
+        this.root = new LanternOrderedInventory();
+        initRoot();
+    }
+
+    private void initHotbar() {
+        ((AbstractInventoryRow) this.hotbar).initWithSlots(new ArrayList<>(this.slots), this.slots, null);
+        for (TestSlot slot : this.slots) {
+            ((AbstractInventory) slot).setParent(this.hotbar);
+        }
+    }
+
+    private void initRoot() {
+        ((AbstractOrderedInventory) this.root).initWithChildren(Collections.singletonList(this.hotbar), null);
+        ((AbstractInventory) this.hotbar).setParent(this.root);
+    }
+
+    private Inventory queryHotbars(int repeat) {
+        final Class<?>[] types = new Class<?>[repeat];
+        Arrays.fill(types, Hotbar.class);
+        return this.root.query(types);
+    }
+
+    @Test
+    public void testCachedQuery() {
+        final Inventory result = this.root.query(Hotbar.class);
+        assertFalse(result instanceof EmptyInventory);
+        assertSame(result, this.root.query(Hotbar.class));
+    }
+
+    @Test
+    public void testSetParentInvalidates() {
+        final Inventory rootResult = this.root.query(Hotbar.class);
+        final Inventory hotbarResult = this.hotbar.query(TestSlot.class);
+        // Setting the parent of a slot changes the tree of the hotbar and the root
+        ((AbstractInventory) this.slots.get(0)).setParent(this.hotbar);
+        assertNotSame(rootResult, this.root.query(Hotbar.class));
+        assertNotSame(hotbarResult, this.hotbar.query(TestSlot.class));
+    }
+
+    @Test
+    public void testInitInvalidatesAncestors() {
+        final Inventory result = this.root.query(Hotbar.class);
+        // Initializing a child changes the tree of its parent
+        initHotbar();
+        final Inventory newResult = this.root.query(Hotbar.class);
+        assertNotSame(result, newResult);
+        assertSame(newResult, this.root.query(Hotbar.class));
+        initRoot();
+        assertNotSame(newResult, this.root.query(Hotbar.class));
+    }
+
+    @Test
+    public void testContentQueries() {
+        final ItemType type = mock(ItemType.class);
+        final ItemStack stack = mock(ItemStack.class);
+        when(stack.getType()).thenReturn(type);
+
+        assertTrue(this.root.query(type) instanceof EmptyInventory);
+        assertTrue(this.root.query(stack) instanceof EmptyInventory);
+        assertTrue(this.root.query((Object) type) instanceof EmptyInventory);
+        assertTrue(this.root.query((Object) stack) instanceof EmptyInventory);
+
+        this.slots.get(3).type = type;
+        assertFalse(this.root.query(type) instanceof EmptyInventory);
+        assertFalse(this.root.query(stack) instanceof EmptyInventory);
+        assertFalse(this.root.query((Object) type) instanceof EmptyInventory);
+        assertFalse(this.root.query((Object) stack) instanceof EmptyInventory);
+
+        this.slots.get(3).type = null;
+        assertTrue(this.root.query(type) instanceof EmptyInventory);
+        assertTrue(this.root.query(stack) instanceof EmptyInventory);
+        assertTrue(this.root.query((Object) type) instanceof EmptyInventory);
+        assertTrue(this.root.query((Object) stack) instanceof EmptyInventory);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        final Inventory first = queryHotbars(1);
+        final Inventory second = queryHotbars(2);
+        // Fill the cache while keeping the first query in use
+        for (int i = 3; i <= AbstractChildrenInventory.MAX_CACHED_QUERIES; i++) {
+            queryHotbars(i);
+            assertSame(first, queryHotbars(1));
+        }
+        // The cache is full, so the least recently used query is removed
+        final Inventory last = queryHotbars(AbstractChildrenInventory.MAX_CACHED_QUERIES + 1);
+        assertSame(first, queryHotbars(1));
+        assertNotSame(second, queryHotbars(2));
+        // New queries are still cached
+        assertSame(last, queryHotbars(AbstractChildrenInventory.MAX_CACHED_QUERIES + 1));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.network.entity;
+
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+public class EntityIdAllocatorPerformanceTests {
+
+    private final static String MESSAGE = "%s for %s worlds with %s spawns/despawns each took: %s ms";
+    private final static int WORLDS = 8;
+    private final static int ENTITIES = 2000;
+    private final static int ROUNDS = 20;
+
+    private interface IdAllocator {
+
+        int acquire();
+
+        void release(int id);
+    }
+
+    /**
+     * The global locked allocator that was used before.
+     */
+    private static final class LockedIdAllocator implements IdAllocator {
+
+        private final IntSet reusableIds = new IntOpenHashSet();
+        private final StampedLock lock = new StampedLock();
+        private int idCounter = 1;
+
+        @Override
+        public int acquire() {
+            final long stamp = this.lock.writeLock();
+            try {
+                final IntIterator it = this.reusableIds.iterator();
+                if (it.hasNext()) {
+                    final int id = it.nextInt();
+                    it.remove();
+                    return id;
+                }
+                return this.idCounter++;
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        }
+
+        @Override
+        public void release(int id) {
+            final long stamp = this.lock.writeLock();
+            try {
+                this.reusableIds.add(id);
+            } finally {
+                this.lock.unlockWrite(stamp);
+            }
+        }
+    }
+
+    @Test
+    public void testSpawnDespawnPerformance() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            testSpawnDespawnPerformance0();
+        }
+    }
+
+    private void testSpawnDespawnPerformance0() throws InterruptedException {
+        final LockedIdAllocator lockedAllocator = new LockedIdAllocator();
+        long time = System.currentTimeMillis();
+        runWorlds(() -> lockedAllocator);
+        System.out.println(String.format(MESSAGE, "Global locked allocator",
+                WORLDS, ENTITIES * ROUNDS, System.currentTimeMillis() - time));
+        time = System.currentTimeMillis();
+        runWorlds(() -> {
+            final EntityIdAllocator allocator = new EntityIdAllocator();
+            return new IdAllocator() {
+                @Override
+                public int acquire() {
+                    return allocator.acquire();
+                }
+
+                @Override
+                public void release(int id) {
+                    allocator.release(id);
+                }
+            };
+        });
+        System.out.println(String.format(MESSAGE, "EntityIdAllocator",
+                WORLDS, ENTITIES * ROUNDS, System.currentTimeMillis() - time));
+    }
+
+    private static void runWorlds(Supplier<IdAllocator> worldAllocator) throws InterruptedException {
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < WORLDS; i++) {
+            final IdAllocator allocator = worldAllocator.get();
+            threads.add(new Thread(() -> {
+                final int[] ids = new int[ENTITIES];
+                for (int round = 0; round < ROUNDS; round++) {
+                    for (int j = 0; j < ENTITIES; j++) {
+                        ids[j] = allocator.acquire();
+                    }
+                    for (int j = 0; j < ENTITIES; j++) {
+                        allocator.release(ids[j]);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.network.entity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class EntityIdAllocatorTest {
+
+    private static final int WORLDS = 4;
+    private static final int IDS = 10000;
+
+    @Test
+    public void testNoImmediateReuse() {
+        final EntityIdAllocator allocator = new EntityIdAllocator();
+        final int id = allocator.acquire();
+        allocator.release(id);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(allocator.acquire() != id);
+        }
+    }
+
+    @Test
+    public void testAcquireRow() {
+        final EntityIdAllocator allocator = new EntityIdAllocator();
+        allocator.acquire();
+        for (int count : new int[] { 9, 300 }) {
+            final int first = allocator.acquireRow(count);
+            final int next = allocator.acquire();
+            assertTrue(next < first || next >= first + count);
+        }
+    }
+
+    @Test
+    public void testUniqueIds() throws InterruptedException {
+        final Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        final List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < WORLDS; i++) {
+            final EntityIdAllocator allocator = new EntityIdAllocator();
+            for (int j = 0; j < 2; j++) {
+                threads.add(new Thread(() -> {
+                    final Set<Integer> threadIds = new HashSet<>();
+                    for (int k = 0; k < IDS; k++) {
+                        final int id = allocator.acquire();
+                        assertTrue(id > 0);
+                        threadIds.add(id);
+                    }
+                    ids.addAll(threadIds);
+                }));
+            }
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(WORLDS * 2 * IDS, ids.size());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.tick;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class DeferredWorkTest {
+
+    @Test
+    public void testRoundRobin() {
+        final List<String> calls = new ArrayList<>();
+        final DeferredWork deferredWork = new DeferredWork();
+        // Every task uses the complete budget
+        for (String name : Arrays.asList("a", "b", "c")) {
+            deferredWork.add(deadline -> {
+                calls.add(name);
+                while (System.nanoTime() < deadline) {
+                    Thread.yield();
+                }
+            });
+        }
+        for (int i = 0; i < 4; i++) {
+            deferredWork.run(0L);
+        }
+        assertEquals(Arrays.asList("a", "b", "c", "a"), calls);
+    }
+
+    @Test
+    public void testMinimumBudget() {
+        final long[] budget = new long[1];
+        final DeferredWork deferredWork = new DeferredWork();
+        deferredWork.add(deadline -> budget[0] = deadline - System.nanoTime());
+        // The deadline already passed
+        deferredWork.run(System.nanoTime() - 1000000L);
+        assertTrue(budget[0] > 0);
+        assertTrue(budget[0] <= DeferredWork.MIN_BUDGET_NANOS);
+    }
+
+    @Test
+    public void testAllTasksWithinBudget() {
+        final List<String> calls = new ArrayList<>();
+        final DeferredWork deferredWork = new DeferredWork();
+        for (String name : Arrays.asList("a", "b", "c")) {
+            deferredWork.add(deadline -> calls.add(name));
+        }
+        deferredWork.run(System.nanoTime() + 1000000000L);
+        deferredWork.run(System.nanoTime() + 1000000000L);
+        assertEquals(Arrays.asList("a", "b", "c", "a", "b", "c"), calls);
+    }
+}
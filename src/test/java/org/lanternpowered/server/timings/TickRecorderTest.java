@@ -0,0 +1,93 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.timings;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class TickRecorderTest {
+
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static long[] phases(TickPhase phase, long nanos) {
+        final long[] phases = new long[TickPhase.values().length];
+        phases[phase.ordinal()] = nanos;
+        return phases;
+    }
+
+    @Test
+    public void testPercentiles() {
+        final TickRecorder recorder = new TickRecorder("test", TickPhase.SERVER_PHASES, 200);
+        for (int i = 1; i <= 100; i++) {
+            recorder.record(i * TICK, i, phases(TickPhase.NETWORK, 2));
+        }
+        final TickRecorder.Snapshot snapshot = recorder.snapshot();
+        assertEquals(100, snapshot.getTicks());
+        assertEquals(50, snapshot.getPercentileNanos(0.5));
+        assertEquals(95, snapshot.getPercentileNanos(0.95));
+        assertEquals(100, snapshot.getMaxNanos());
+        assertEquals(50, snapshot.getAverageNanos());
+        assertEquals(2, snapshot.getAverageNanos(TickPhase.NETWORK));
+        assertEquals(0, snapshot.getAverageNanos(TickPhase.SCHEDULER));
+        assertEquals(20.0, snapshot.getTicksPerSecond(), 0.0001);
+    }
+
+    @Test
+    public void testHistoryWindow() {
+        final TickRecorder recorder = new TickRecorder("test", TickPhase.SERVER_PHASES, 10);
+        for (int i = 1; i <= 25; i++) {
+            recorder.record(i * TICK, i, phases(TickPhase.NETWORK, i));
+        }
+        // Only the last 10 ticks are kept
+        TickRecorder.Snapshot snapshot = recorder.snapshot();
+        assertEquals(10, snapshot.getTicks());
+        assertEquals(25, snapshot.getTotalTicks());
+        // The total duration isn't limited by the history
+        assertEquals(25 * 26 / 2, snapshot.getTotalTickNanos());
+        assertEquals(16, snapshot.getPercentileNanos(0.0));
+        assertEquals(25, snapshot.getMaxNanos());
+        // The snapshot of the last 4 ticks
+        snapshot = recorder.snapshot(4);
+        assertEquals(4, snapshot.getTicks());
+        assertEquals(22, snapshot.getPercentileNanos(0.0));
+        assertEquals(23, snapshot.getAverageNanos(TickPhase.NETWORK));
+    }
+
+    @Test
+    public void testSkippedTicks() {
+        final TickRecorder recorder = new TickRecorder("test", TickPhase.SERVER_PHASES, 10);
+        final long[] phases = new long[TickPhase.values().length];
+        recorder.record(TICK, 1, phases);
+        recorder.record(2 * TICK, 1, phases);
+        // Three tick intervals passed without a tick
+        recorder.record(6 * TICK, 1, phases);
+        recorder.record(7 * TICK, 1, phases);
+        assertEquals(3, recorder.snapshot().getSkippedTicks());
+    }
+}
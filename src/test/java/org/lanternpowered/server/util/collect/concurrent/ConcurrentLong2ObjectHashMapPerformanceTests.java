@@ -0,0 +1,83 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.util.collect.concurrent;
+
+import com.flowpowered.math.vector.Vector2i;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class ConcurrentLong2ObjectHashMapPerformanceTests {
+
+    private final static String MESSAGE = "%s for %s lookups took: %s ms";
+    private final static int RADIUS = 16;
+    private final static int LOOKUPS = 10000000;
+
+    private static long key(int x, int z) {
+        return ((long) x & 0x3ffffff) << 38 | ((long) z & 0x3ffffff);
+    }
+
+    @Test
+    public void testLookupPerformance() {
+        for (int i = 0; i < 3; i++) {
+            testLookupPerformance0();
+        }
+    }
+
+    private void testLookupPerformance0() {
+        final Map<Vector2i, Object> map0 = new ConcurrentHashMap<>();
+        final ConcurrentLong2ObjectHashMap<Object> map1 = new ConcurrentLong2ObjectHashMap<>();
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            for (int z = -RADIUS; z <= RADIUS; z++) {
+                final Object value = new Object();
+                map0.put(new Vector2i(x, z), value);
+                map1.put(key(x, z), value);
+            }
+        }
+        final int size = RADIUS * 2 + 1;
+        int found = 0;
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (map0.get(new Vector2i(i % size - RADIUS, (i / size) % size - RADIUS)) != null) {
+                found++;
+            }
+        }
+        System.out.println(String.format(MESSAGE, "ConcurrentHashMap<Vector2i>",
+                LOOKUPS, System.currentTimeMillis() - time));
+        time = System.currentTimeMillis();
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (map1.get(key(i % size - RADIUS, (i / size) % size - RADIUS)) != null) {
+                found++;
+            }
+        }
+        System.out.println(String.format(MESSAGE, "ConcurrentLong2ObjectHashMap",
+                LOOKUPS, System.currentTimeMillis() - time));
+        if (found != LOOKUPS * 2) {
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.util.collect.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+public class ConcurrentLong2ObjectHashMapTest {
+
+    private static final int SIZE = 10000;
+
+    @Test
+    public void testPutGetRemove() {
+        final ConcurrentLong2ObjectHashMap<String> map = new ConcurrentLong2ObjectHashMap<>();
+        for (long i = 0; i < SIZE; i++) {
+            assertNull(map.put(i * 31L, Long.toString(i)));
+        }
+        assertEquals(SIZE, map.size());
+        for (long i = 0; i < SIZE; i++) {
+            assertEquals(Long.toString(i), map.get(i * 31L));
+        }
+        assertNull(map.get(-1L));
+        assertEquals("0", map.put(0L, "zero"));
+        assertEquals("zero", map.get(0L));
+        for (long i = 0; i < SIZE; i += 2) {
+            assertTrue(map.containsKey(i * 31L));
+            map.remove(i * 31L);
+            assertFalse(map.containsKey(i * 31L));
+        }
+        assertEquals(SIZE / 2, map.size());
+        for (long i = 1; i < SIZE; i += 2) {
+            assertEquals(Long.toString(i), map.get(i * 31L));
+        }
+        assertFalse(map.remove(31L, "2"));
+        assertTrue(map.remove(31L, "1"));
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(31L * 3));
+    }
+
+    @Test
+    public void testComputeIfAbsent() {
+        final ConcurrentLong2ObjectHashMap<String> map = new ConcurrentLong2ObjectHashMap<>();
+        assertEquals("5", map.computeIfAbsent(5L, Long::toString));
+        assertEquals("5", map.computeIfAbsent(5L, key -> "other"));
+        assertEquals("5", map.putIfAbsent(5L, "other"));
+        assertNull(map.putIfAbsent(6L, "6"));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void testIteration() {
+        final ConcurrentLong2ObjectHashMap<Long> map = new ConcurrentLong2ObjectHashMap<>();
+        final Set<Long> expected = new HashSet<>();
+        for (long i = 0; i < SIZE; i++) {
+            final long key = (i << 38) | i;
+            map.put(key, key);
+            expected.add(key);
+        }
+        final Set<Long> keys = new HashSet<>();
+        final Iterator<Long2ObjectMap.Entry<Long>> it = map.entryIterator();
+        while (it.hasNext()) {
+            final Long2ObjectMap.Entry<Long> entry = it.next();
+            assertEquals(entry.getLongKey(), (long) entry.getValue());
+            keys.add(entry.getLongKey());
+        }
+        assertEquals(expected, keys);
+        assertEquals(expected, new HashSet<>(map.values()));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.world.chunk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+public class ChunkBlockStateStorageTest {
+
+    private static final int VOLUME = 4096;
+
+    @Test
+    public void testSingleValue() {
+        final ChunkBlockStateStorage storage = new ChunkBlockStateStorage((short) 16);
+        assertEquals(0, storage.getBitsPerValue());
+        assertNull(storage.getValues());
+        assertEquals(16, storage.get(1234));
+        assertEquals(VOLUME, storage.countNonAir());
+    }
+
+    @Test
+    public void testResize() {
+        final ChunkBlockStateStorage storage = new ChunkBlockStateStorage();
+        final short[] expected = new short[VOLUME];
+        // Grow through the linear, hashed and global palettes
+        final int[] states = { 16, 200, 500 };
+        final int[] bits = { 4, 8, 13 };
+        for (int j = 0; j < states.length; j++) {
+            for (int i = 0; i < VOLUME; i++) {
+                final short state = (short) ((i % states[j]) << 4);
+                expected[i] = state;
+                storage.set(i, state);
+            }
+            if (bits[j] <= ChunkBlockStateStorage.MAX_LOCAL_BITS_PER_VALUE) {
+                assertEquals(bits[j], storage.getBitsPerValue());
+            } else {
+                assertEquals(ChunkBlockStateStorage.GLOBAL_BITS_PER_VALUE, storage.getBitsPerValue());
+            }
+            for (int i = 0; i < VOLUME; i++) {
+                assertEquals(expected[i], storage.get(i));
+            }
+        }
+        // Exceed the client global palette
+        storage.set(0, (short) 0xfff0);
+        assertEquals((short) 0xfff0, storage.get(0));
+        assertEquals(expected[1], storage.get(1));
+    }
+
+    @Test
+    public void testCompact() {
+        final ChunkBlockStateStorage storage = new ChunkBlockStateStorage();
+        for (int i = 0; i < 100; i++) {
+            storage.set(i, (short) (i << 4));
+        }
+        for (int i = 0; i < 100; i++) {
+            storage.set(i, (short) 0);
+        }
+        storage.set(0, (short) 16);
+        storage.compact();
+        assertEquals(4, storage.getBitsPerValue());
+        assertEquals(2, storage.getPaletteEntries().length);
+        assertEquals(16, storage.get(0));
+        assertEquals(1, storage.countNonAir());
+    }
+}
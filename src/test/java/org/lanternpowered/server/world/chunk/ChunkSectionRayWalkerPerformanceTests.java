@@ -0,0 +1,120 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.world.chunk;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class ChunkSectionRayWalkerPerformanceTests {
+
+    private final static String MESSAGE = "%s for %s rays of %s blocks through %s entities took: %s ms (%s hits)";
+    private final static int ENTITIES = 20000;
+    private final static int AREA = 1024;
+    private final static int RAYS = 2000;
+    private final static double DISTANCE = 512;
+    private final static double MARGIN = 2.0;
+
+    private static final class Box {
+
+        private final double minX, minY, minZ, maxX, maxY, maxZ;
+
+        private Box(double x, double y, double z) {
+            this.minX = x - 0.3;
+            this.minY = y;
+            this.minZ = z - 0.3;
+            this.maxX = x + 0.3;
+            this.maxY = y + 1.8;
+            this.maxZ = z + 0.3;
+        }
+
+        private boolean intersects(double[] ray) {
+            return ChunkSectionRayWalkerTest.intersects(ray[0], ray[1], ray[2], ray[3], ray[4], ray[5], DISTANCE,
+                    this.minX, this.minY, this.minZ, this.maxX, this.maxY, this.maxZ);
+        }
+    }
+
+    private static long key(int x, int y, int z) {
+        return ((long) x & 0x3ffffff) << 38 | ((long) z & 0x3ffffff) << 12 | (long) y & 0xfff;
+    }
+
+    @Test
+    public void testLongRays() {
+        final Random random = new Random(1234L);
+        final List<Box> boxes = new ArrayList<>();
+        final Map<Long, List<Box>> sections = new HashMap<>();
+        for (int i = 0; i < ENTITIES; i++) {
+            final double x = random.nextDouble() * AREA - AREA / 2;
+            final double y = 60 + random.nextDouble() * 20;
+            final double z = random.nextDouble() * AREA - AREA / 2;
+            final Box box = new Box(x, y, z);
+            boxes.add(box);
+            sections.computeIfAbsent(key(((int) Math.floor(x)) >> 4, ((int) Math.floor(y)) >> 4, ((int) Math.floor(z)) >> 4),
+                    key -> new ArrayList<>()).add(box);
+        }
+        final double[][] rays = new double[RAYS][];
+        for (int i = 0; i < RAYS; i++) {
+            double dx = random.nextGaussian();
+            double dy = random.nextGaussian() * 0.05;
+            double dz = random.nextGaussian();
+            final double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            rays[i] = new double[] { random.nextDouble() * 256 - 128, 65 + random.nextDouble() * 10, random.nextDouble() * 256 - 128,
+                    dx / length, dy / length, dz / length };
+        }
+        for (int i = 0; i < 3; i++) {
+            long time = System.nanoTime();
+            int hits = 0;
+            for (double[] ray : rays) {
+                for (Box box : boxes) {
+                    if (box.intersects(ray)) {
+                        hits++;
+                    }
+                }
+            }
+            System.out.println(String.format(MESSAGE, "Brute force", RAYS, DISTANCE, ENTITIES, (System.nanoTime() - time) / 1000000, hits));
+
+            time = System.nanoTime();
+            final int[] walkHits = new int[1];
+            for (double[] ray : rays) {
+                ChunkSectionRayWalker.walk(ray[0], ray[1], ray[2], ray[3], ray[4], ray[5], DISTANCE, MARGIN, 0, 15, (x, y, z) -> {
+                    final List<Box> list = sections.get(key(x, y, z));
+                    if (list != null) {
+                        for (Box box : list) {
+                            if (box.intersects(ray)) {
+                                walkHits[0]++;
+                            }
+                        }
+                    }
+                });
+            }
+            System.out.println(String.format(MESSAGE, "Section walk", RAYS, DISTANCE, ENTITIES, (System.nanoTime() - time) / 1000000, walkHits[0]));
+        }
+    }
+}
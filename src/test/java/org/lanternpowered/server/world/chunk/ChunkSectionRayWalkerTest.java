@@ -0,0 +1,151 @@
+/*
+ * This file is part of LanternServer, licensed under the MIT License (MIT).
+ *
+ * Copyright (c) LanternPowered <https://www.lanternpowered.org>
+ * Copyright (c) SpongePowered <https://www.spongepowered.org>
+ * Copyright (c) contributors
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the Software), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED AS IS, WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.lanternpowered.server.world.chunk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class ChunkSectionRayWalkerTest {
+
+    private static Set<String> walk(double x, double y, double z, double dx, double dy, double dz,
+            double distance, double margin, int minY, int maxY) {
+        final double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        final Set<String> visited = new HashSet<>();
+        ChunkSectionRayWalker.walk(x, y, z, dx / length, dy / length, dz / length, distance, margin, minY, maxY,
+                (sx, sy, sz) -> assertTrue("Visited twice: " + sx + "," + sy + "," + sz, visited.add(sx + "," + sy + "," + sz)));
+        return visited;
+    }
+
+    @Test
+    public void testStraightRay() {
+        final Set<String> visited = walk(1, 70, 1, 1, 0, 0, 100, 0, 0, 15);
+        assertEquals(7, visited.size());
+        for (int x = 0; x <= 6; x++) {
+            assertTrue(visited.contains(x + ",4,0"));
+        }
+    }
+
+    @Test
+    public void testNegativeRay() {
+        final Set<String> visited = walk(-1, 70, 1, 0, 0, -1, 40, 0, 0, 15);
+        assertEquals(4, visited.size());
+        for (int z = -3; z <= 0; z++) {
+            assertTrue(visited.contains("-1,4," + z));
+        }
+    }
+
+    @Test
+    public void testMargin() {
+        final Set<String> visited = walk(4, 70, 15, 1, 0, 0, 20, 2, 0, 15);
+        assertEquals(4, visited.size());
+        assertTrue(visited.contains("0,4,0"));
+        assertTrue(visited.contains("0,4,1"));
+        assertTrue(visited.contains("1,4,0"));
+        assertTrue(visited.contains("1,4,1"));
+    }
+
+    @Test
+    public void testClampedSections() {
+        final Set<String> visited = walk(8, -100, 8, 0, 1, 0, 500, 0, 0, 15);
+        assertEquals(16, visited.size());
+    }
+
+    @Test
+    public void testRandomRays() {
+        final Random random = new Random(1234L);
+        final double margin = 2.0;
+        for (int i = 0; i < 200; i++) {
+            final double x = random.nextDouble() * 200 - 100;
+            final double y = random.nextDouble() * 200;
+            final double z = random.nextDouble() * 200 - 100;
+            double dx = random.nextGaussian();
+            double dy = random.nextGaussian();
+            double dz = random.nextGaussian();
+            final double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            dx /= length;
+            dy /= length;
+            dz /= length;
+            final double distance = random.nextDouble() * 150;
+            final Set<String> visited = walk(x, y, z, dx, dy, dz, distance, margin, -1000, 1000);
+            // Every section that the ray passes within the margin of must be visited
+            final double ex = x + dx * distance;
+            final double ey = y + dy * distance;
+            final double ez = z + dz * distance;
+            for (int sx = floor(Math.min(x, ex) - margin); sx <= floor(Math.max(x, ex) + margin); sx++) {
+                for (int sy = floor(Math.min(y, ey) - margin); sy <= floor(Math.max(y, ey) + margin); sy++) {
+                    for (int sz = floor(Math.min(z, ez) - margin); sz <= floor(Math.max(z, ez) + margin); sz++) {
+                        if (intersects(x, y, z, dx, dy, dz, distance,
+                                sx * 16 - margin, sy * 16 - margin, sz * 16 - margin,
+                                sx * 16 + 16 + margin, sy * 16 + 16 + margin, sz * 16 + 16 + margin)) {
+                            assertTrue("Missed: " + sx + "," + sy + "," + sz, visited.contains(sx + "," + sy + "," + sz));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int floor(double value) {
+        return ((int) Math.floor(value)) >> 4;
+    }
+
+    static boolean intersects(double x, double y, double z, double dx, double dy, double dz, double distance,
+            double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        double t0 = 0;
+        double t1 = distance;
+        final double[] start = { x, y, z };
+        final double[] dir = { dx, dy, dz };
+        final double[] min = { minX, minY, minZ };
+        final double[] max = { maxX, maxY, maxZ };
+        for (int i = 0; i < 3; i++) {
+            if (dir[i] == 0) {
+                if (start[i] < min[i] || start[i] > max[i]) {
+                    return false;
+                }
+                continue;
+            }
+            double a = (min[i] - start[i]) / dir[i];
+            double b = (max[i] - start[i]) / dir[i];
+            if (a > b) {
+                final double c = a;
+                a = b;
+                b = c;
+            }
+            t0 = Math.max(t0, a);
+            t1 = Math.min(t1, b);
+            if (t0 > t1) {
+                return false;
+            }
+        }
+        return true;
+    }
+}